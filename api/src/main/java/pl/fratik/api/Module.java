@@ -67,10 +67,13 @@ import pl.fratik.core.manager.ManagerArgumentow;
 import pl.fratik.core.manager.ManagerBazyDanych;
 import pl.fratik.core.manager.ManagerKomend;
 import pl.fratik.core.manager.ManagerModulow;
+import pl.fratik.core.metrics.Metryki;
+import pl.fratik.core.moduly.CzasStartu;
 import pl.fratik.core.moduly.Modul;
 import pl.fratik.core.tlumaczenia.Language;
 import pl.fratik.core.tlumaczenia.Tlumaczenia;
 import pl.fratik.core.util.*;
+import pl.fratik.core.util.Blokujacy;
 
 import java.io.File;
 import java.io.IOException;
@@ -218,6 +221,9 @@ public class Module implements Modul {
             pl.fratik.api.entity.Status status = new pl.fratik.api.entity.Status(Statyczne.startDate, shards);
             Exchange.body().sendJson(ex, status);
         });
+        routes.get("/api/startup", ex -> Exchange.body().sendJson(ex, managerModulow.getCzasyStartu().values().stream()
+                .sorted(Comparator.comparingInt(CzasStartu::getFala).thenComparing(CzasStartu::getModul))
+                .collect(Collectors.toList())));
         routes.get("/api/{userId}/userconfig", ex -> {
             String userId = Exchange.pathParams().pathParam(ex, "userId").orElse(null);
             if (userId == null || userId.isEmpty()) {
@@ -452,6 +458,7 @@ public class Module implements Modul {
             }
             Exchange.body().sendJson(ex, new Successes.GenericSuccess(null));
         });
+        routes.get("/metrics", ex -> Exchange.body().sendText(ex, Metryki.prometheus()));
         routes.get("/api/credits", ex -> {
             try {
                 List<Credits.ParsedCredits> credits = new ArrayList<>();
@@ -635,6 +642,7 @@ public class Module implements Modul {
     }
 
     @Subscribe
+    @Blokujacy
     public void onRundkaAnswer(final RundkaNewAnswerEvent finalE) {
         for (Map.Entry<String, WscWrapper> entry : webSocketChannels.entrySet()) {
             RundkaNewAnswerEvent e = finalE;
@@ -649,6 +657,7 @@ public class Module implements Modul {
     }
 
     @Subscribe
+    @Blokujacy
     public void onRundkaAnswerVote(final RundkaAnswerVoteEvent finalE) {
         for (Map.Entry<String, WscWrapper> entry : webSocketChannels.entrySet()) {
             RundkaAnswerVoteEvent e = finalE;
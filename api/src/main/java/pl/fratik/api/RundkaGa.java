@@ -35,6 +35,7 @@ import pl.fratik.api.event.RundkaNewAnswerEvent;
 import pl.fratik.api.internale.Exchange;
 import pl.fratik.core.Ustawienia;
 import pl.fratik.core.tlumaczenia.Language;
+import pl.fratik.core.util.Blokujacy;
 import pl.fratik.core.util.UserUtil;
 
 import java.lang.reflect.Method;
@@ -207,6 +208,7 @@ class RundkaGa {
     }
 
     @Subscribe
+    @Blokujacy
     private void onReactionAdd(MessageReactionAddEvent e) {
         if (e.getUser().equals(e.getJDA().getSelfUser())) return;
         Rundka rundka = rundkaDao.get(RundkaCommand.getNumerRundy());
@@ -230,6 +232,7 @@ class RundkaGa {
     }
 
     @Subscribe
+    @Blokujacy
     private void onReactionRemove(MessageReactionRemoveEvent e) {
         Rundka rundka = rundkaDao.get(RundkaCommand.getNumerRundy());
         if (rundka == null || rundka.getVoteChannel() == null) return;
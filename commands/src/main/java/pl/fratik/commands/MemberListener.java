@@ -31,6 +31,7 @@ import pl.fratik.core.entity.GuildConfig;
 import pl.fratik.core.entity.GuildDao;
 import pl.fratik.core.event.DatabaseUpdateEvent;
 import pl.fratik.core.event.PluginMessageEvent;
+import pl.fratik.core.util.Blokujacy;
 import pl.fratik.core.util.CommonUtil;
 
 import java.util.ArrayList;
@@ -55,6 +56,7 @@ class MemberListener {
     }
 
     @Subscribe
+    @Blokujacy
     public void onMemberJoinEvent(GuildMemberJoinEvent e) {
         autorole(e);
         przywitanie(e);
@@ -25,6 +25,7 @@ import pl.fratik.core.Ustawienia;
 import pl.fratik.core.command.Command;
 import pl.fratik.core.command.CommandCategory;
 import pl.fratik.core.command.CommandContext;
+import pl.fratik.core.command.ExecutionType;
 import pl.fratik.core.command.PermLevel;
 import pl.fratik.core.entity.Uzycie;
 import pl.fratik.core.util.NetworkUtil;
@@ -40,6 +41,7 @@ public class BlurpleCommand extends Command {
     public BlurpleCommand() {
         name = "blurple";
         category = CommandCategory.IMAGES;
+        executionType = ExecutionType.IO;
         LinkedHashMap<String, String> hmap = new LinkedHashMap<>();
         hmap.put("osoba", "user");
         hmap.put("flagi", "string");
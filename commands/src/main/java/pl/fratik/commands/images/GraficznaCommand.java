@@ -25,6 +25,7 @@ import pl.fratik.core.Ustawienia;
 import pl.fratik.core.command.Command;
 import pl.fratik.core.command.CommandCategory;
 import pl.fratik.core.command.CommandContext;
+import pl.fratik.core.command.ExecutionType;
 import pl.fratik.core.command.PermLevel;
 import pl.fratik.core.entity.Uzycie;
 import pl.fratik.core.util.NetworkUtil;
@@ -40,6 +41,7 @@ public class GraficznaCommand extends Command {
 
     { //NOSONAR
         cooldown = 5;
+        timeout = 60;
         uzycie = new Uzycie("osoba", "user");
         allowPermLevelChange = false;
         allowInDMs = true;
@@ -52,6 +54,7 @@ public class GraficznaCommand extends Command {
     public GraficznaCommand(String name, String endpoint, String param, boolean preventOnSender) {
         this.name = name;
         category = CommandCategory.IMAGES;
+        executionType = ExecutionType.IO;
         permissions.add(Permission.MESSAGE_ATTACH_FILES);
 
         this.endpoint = endpoint;
@@ -66,6 +69,7 @@ public class GraficznaCommand extends Command {
     private GraficznaCommand(String name, String endpoint, String[] aliases, String param, boolean preventOnSender) {
         this.name = name;
         category = CommandCategory.IMAGES;
+        executionType = ExecutionType.IO;
         permissions.add(Permission.MESSAGE_ATTACH_FILES);
         this.aliases = aliases;
 
@@ -81,6 +85,7 @@ public class GraficznaCommand extends Command {
     private GraficznaCommand(String name, String endpoint, PermLevel permLvl, String param, boolean preventOnSender) {
         this.name = name;
         category = CommandCategory.IMAGES;
+        executionType = ExecutionType.IO;
         permissions.add(Permission.MESSAGE_ATTACH_FILES);
         permLevel = permLvl;
 
@@ -25,6 +25,7 @@ import pl.fratik.core.Ustawienia;
 import pl.fratik.core.command.Command;
 import pl.fratik.core.command.CommandCategory;
 import pl.fratik.core.command.CommandContext;
+import pl.fratik.core.command.ExecutionType;
 import pl.fratik.core.command.PermLevel;
 import pl.fratik.core.entity.Uzycie;
 import pl.fratik.core.util.NetworkUtil;
@@ -36,6 +37,7 @@ public class HugCommand extends Command {
     public HugCommand() {
         name = "hug";
         category = CommandCategory.IMAGES;
+        executionType = ExecutionType.IO;
         uzycie = new Uzycie("uzytkownik", "user", true);
         permLevel = PermLevel.EVERYONE;
         permissions.add(Permission.MESSAGE_ATTACH_FILES);
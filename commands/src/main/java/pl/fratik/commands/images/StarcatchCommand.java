@@ -25,6 +25,7 @@ import pl.fratik.core.Ustawienia;
 import pl.fratik.core.command.Command;
 import pl.fratik.core.command.CommandCategory;
 import pl.fratik.core.command.CommandContext;
+import pl.fratik.core.command.ExecutionType;
 import pl.fratik.core.command.PermLevel;
 import pl.fratik.core.entity.Uzycie;
 import pl.fratik.core.util.NetworkUtil;
@@ -36,6 +37,7 @@ public class StarcatchCommand extends Command {
     public StarcatchCommand() {
         name = "starcatch";
         category = CommandCategory.IMAGES;
+        executionType = ExecutionType.IO;
         uzycie = new Uzycie("uzytkownik", "user");
         aliases = new String[] {"photocatch"};
         permLevel = PermLevel.EVERYONE;
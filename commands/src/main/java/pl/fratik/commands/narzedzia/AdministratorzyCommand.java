@@ -27,6 +27,7 @@ import pl.fratik.core.cache.RedisCacheManager;
 import pl.fratik.core.command.Command;
 import pl.fratik.core.command.CommandCategory;
 import pl.fratik.core.command.CommandContext;
+import pl.fratik.core.command.ExecutionType;
 import pl.fratik.core.command.PermLevel;
 import pl.fratik.core.entity.GuildConfig;
 import pl.fratik.core.entity.GuildDao;
@@ -48,6 +49,7 @@ public class AdministratorzyCommand extends Command {
         category = CommandCategory.SYSTEM;
         permissions.add(Permission.MESSAGE_EMBED_LINKS);
         allowPermLevelChange = false;
+        executionType = ExecutionType.IO;
         this.gcCache = redisCacheManager.new CacheRetriever<GuildConfig>(){}.getCache();
     }
 
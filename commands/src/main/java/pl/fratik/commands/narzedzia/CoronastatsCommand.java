@@ -26,6 +26,7 @@ import org.json.JSONObject;
 import pl.fratik.core.command.Command;
 import pl.fratik.core.command.CommandCategory;
 import pl.fratik.core.command.CommandContext;
+import pl.fratik.core.command.ExecutionType;
 import pl.fratik.core.entity.Uzycie;
 import pl.fratik.core.tlumaczenia.Language;
 import pl.fratik.core.util.DynamicEmbedPaginator;
@@ -58,6 +59,8 @@ public class CoronastatsCommand extends Command {
         permissions.add(Permission.MESSAGE_EMBED_LINKS);
         cooldown = 5;
         category = CommandCategory.UTILITY;
+        executionType = ExecutionType.IO;
+        timeout = 60;
         uzycie = new Uzycie("kraj", "string", false);
         allowPermLevelChange = false;
     }
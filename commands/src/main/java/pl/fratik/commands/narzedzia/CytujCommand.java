@@ -38,11 +38,13 @@ import pl.fratik.core.cache.RedisCacheManager;
 import pl.fratik.core.command.Command;
 import pl.fratik.core.command.CommandCategory;
 import pl.fratik.core.command.CommandContext;
+import pl.fratik.core.command.ExecutionType;
 import pl.fratik.core.command.PermLevel;
 import pl.fratik.core.entity.*;
 import pl.fratik.core.event.PluginMessageEvent;
 import pl.fratik.core.tlumaczenia.Language;
 import pl.fratik.core.tlumaczenia.Tlumaczenia;
+import pl.fratik.core.util.Blokujacy;
 import pl.fratik.core.util.CommonUtil;
 import pl.fratik.core.util.NetworkUtil;
 import pl.fratik.core.util.UserUtil;
@@ -73,7 +75,7 @@ public class CytujCommand extends Command {
     private final ExecutorService executor;
     private final Cache<GuildConfig> gcCache;
     private final Cache<UserConfig> ucCache;
-    private final Cache<List<LogMessage>> lmCache;
+    private final boolean logiWiadomosci;
 
     private static final String STRINGARGTYPE = "string";
     private static final Pattern MESSAGE_LINK_PATTERN =
@@ -99,6 +101,7 @@ public class CytujCommand extends Command {
         this.tlumaczenia = tlumaczenia;
         name = "cytuj";
         category = CommandCategory.UTILITY;
+        executionType = ExecutionType.IO;
         permissions.add(Permission.MESSAGE_EMBED_LINKS);
         permissions.add(Permission.MESSAGE_HISTORY);
         LinkedHashMap<String, String> hmap = new LinkedHashMap<>();
@@ -112,13 +115,14 @@ public class CytujCommand extends Command {
         executor = Executors.newSingleThreadExecutor();
         gcCache = rcm.new CacheRetriever<GuildConfig>(){}.getCache();
         ucCache = rcm.new CacheRetriever<UserConfig>(){}.getCache();
-        Cache<List<LogMessage>> logMessageCache;
+        boolean moderacja;
         try {
-            logMessageCache = rcm.new CacheRetriever<List<LogMessage>>(){}.getCache();
-        } catch (TypeNotPresentException | NoClassDefFoundError e) {
-            logMessageCache = null;
+            LogMessage.class.getName();
+            moderacja = true;
+        } catch (NoClassDefFoundError e) {
+            moderacja = false;
         }
-        lmCache = logMessageCache;
+        logiWiadomosci = moderacja;
         eventBus.register(this);
     }
 
@@ -131,9 +135,10 @@ public class CytujCommand extends Command {
     }
 
     @Subscribe
+    @Blokujacy
     @AllowConcurrentEvents
     public void onMessage(MessageReceivedEvent e) {
-        if (lmCache == null) return;
+        if (!logiWiadomosci) return;
         if (!e.isFromGuild()) return;
         if (!(gcCache.get(e.getGuild().getId(), guildDao::get).isCytujFbot() ||
                 ucCache.get(e.getAuthor().getId(), userDao::get).isCytujFbot())) return;
@@ -141,7 +146,6 @@ public class CytujCommand extends Command {
         Matcher m2 = CYTUJ_PATTERN_2.matcher(e.getMessage().getContentRaw());
         Message msg = null;
         String cnt = null;
-        int hits = 0;
         if (m1.find()) {
             try {
                 String cid = m1.group(7);
@@ -181,30 +185,52 @@ public class CytujCommand extends Command {
                 String msgCnt = msgCntBld.toString();
                 if (msgCnt.isEmpty()) return;
                 cnt = m2.replaceAll("").trim();
-                List<LogMessage> lista = lmCache.getIfPresent(e.getChannel().getId());
-                if (lista == null) lista = Collections.emptyList();
-                Collections.reverse(lista);
-                for (LogMessage m : lista) {
-                    if (m == null || m.getTimeCreated().isBefore(OffsetDateTime.now().minusMinutes(5))) continue;
-                    if (m.getContentRaw().equals(msgCnt)) {
-                        try {
-                            if (hits == 0) {
-                                msg = e.getChannel().retrieveMessageById(m.getId()).complete();
-                                if (!msg.getContentRaw().equals(msgCnt)) msg = null;
-                            }
-                            hits++;
-                        } catch (Exception er) {
-                            msg = null;
-                        }
+                PluginMessageEvent event = new PluginMessageEvent("commands", "moderation",
+                        "logi-getWiadomosci:" + e.getChannel().getId());
+                String tresc = cnt;
+                // odpowiedź przychodzi z wątku moderacji - szukanie i wysyłanie dalej już na naszym executorze
+                event.getOdpowiedz().thenAcceptAsync(odp -> {
+                    @SuppressWarnings("unchecked")
+                    List<LogMessage> lista = (List<LogMessage>) odp;
+                    if (lista == null) return;
+                    zacytujZLogow(e, lista, msgCnt, tresc);
+                }, executor);
+                eventBus.post(event);
+                return;
+            }
+        }
+        if (msg == null) return;
+        wyslijCytat(e, msg, cnt, true);
+    }
+
+    private void zacytujZLogow(MessageReceivedEvent e, List<LogMessage> lista, String msgCnt, String cnt) {
+        Message msg = null;
+        int hits = 0;
+        OffsetDateTime granica = OffsetDateTime.now().minusMinutes(5);
+        for (int i = lista.size() - 1; i >= 0; i--) {
+            LogMessage m = lista.get(i);
+            if (m == null || m.getTimeCreated().isBefore(granica)) continue;
+            if (m.getContentRaw().equals(msgCnt)) {
+                try {
+                    if (hits == 0) {
+                        msg = e.getChannel().retrieveMessageById(m.getId()).complete();
+                        if (!msg.getContentRaw().equals(msgCnt)) msg = null;
                     }
+                    hits++;
+                } catch (Exception er) {
+                    msg = null;
                 }
             }
         }
         if (msg == null) return;
+        wyslijCytat(e, msg, cnt, hits <= 1);
+    }
+
+    private void wyslijCytat(MessageReceivedEvent e, Message msg, String cnt, boolean jumpTo) {
         try {
             sendCytujMessage(msg, tlumaczenia, tlumaczenia.getLanguage(e.getMember()), e.getTextChannel(), cnt,
                     Objects.requireNonNull(e.getMember()).hasPermission(e.getTextChannel(),
-                            Permission.MESSAGE_MENTION_EVERYONE), e.getMessage(), hits <= 1,
+                            Permission.MESSAGE_MENTION_EVERYONE), e.getMessage(), jumpTo,
                     URL_PATTERN.matcher(cnt).find() || !e.getMessage().getAttachments().isEmpty(), e.getMessage().getAttachments());
         } catch (Exception ignored) {}
     }
@@ -26,6 +26,7 @@ import org.jetbrains.annotations.NotNull;
 import pl.fratik.core.command.Command;
 import pl.fratik.core.command.CommandCategory;
 import pl.fratik.core.command.CommandContext;
+import pl.fratik.core.command.ExecutionType;
 import pl.fratik.core.command.PermLevel;
 import pl.fratik.core.entity.GbanDao;
 import pl.fratik.core.entity.GbanData;
@@ -58,6 +59,7 @@ public class GbanlistCommand extends Command {
         permissions.add(Permission.MESSAGE_MANAGE);
         permissions.add(Permission.MESSAGE_ADD_REACTION);
         allowPermLevelChange = false;
+        executionType = ExecutionType.IO;
     }
 
     @Override
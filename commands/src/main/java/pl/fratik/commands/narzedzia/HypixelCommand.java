@@ -32,6 +32,7 @@ import pl.fratik.core.cache.RedisCacheManager;
 import pl.fratik.core.command.Command;
 import pl.fratik.core.command.CommandCategory;
 import pl.fratik.core.command.CommandContext;
+import pl.fratik.core.command.ExecutionType;
 import pl.fratik.core.entity.Uzycie;
 import pl.fratik.core.util.CommonErrors;
 import pl.fratik.core.util.CommonUtil;
@@ -53,6 +54,7 @@ public class HypixelCommand extends Command {
     public HypixelCommand(RedisCacheManager rcm) {
         name = "hypixel";
         category = CommandCategory.UTILITY;
+        executionType = ExecutionType.IO;
         LinkedHashMap<String, String> hmap = new LinkedHashMap<>();
         hmap.put("typ", "string");
         hmap.put("nazwa", "string");
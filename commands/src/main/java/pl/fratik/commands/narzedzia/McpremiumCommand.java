@@ -29,6 +29,7 @@ import org.json.JSONObject;
 import pl.fratik.core.command.Command;
 import pl.fratik.core.command.CommandCategory;
 import pl.fratik.core.command.CommandContext;
+import pl.fratik.core.command.ExecutionType;
 import pl.fratik.core.entity.Uzycie;
 import pl.fratik.core.util.NetworkUtil;
 import pl.fratik.core.util.UserUtil;
@@ -41,6 +42,8 @@ public class McpremiumCommand extends Command {
     public McpremiumCommand() {
         name = "mcpremium";
         category = CommandCategory.UTILITY;
+        executionType = ExecutionType.IO;
+        timeout = 60;
         uzycie = new Uzycie("nick", "string", true);
         allowInDMs = true;
         aliases = new String[] {"minecraftpremium", "premka", "mcpremka", "premiummc"};
@@ -39,6 +39,7 @@ import org.xbill.DNS.Type;
 import pl.fratik.core.command.Command;
 import pl.fratik.core.command.CommandCategory;
 import pl.fratik.core.command.CommandContext;
+import pl.fratik.core.command.ExecutionType;
 import pl.fratik.core.entity.Uzycie;
 import pl.fratik.core.util.NamedThreadFactory;
 import pl.fratik.core.util.UserUtil;
@@ -64,6 +65,7 @@ public class McstatusCommand extends Command {
     public McstatusCommand() {
         name = "mcstatus";
         category = CommandCategory.UTILITY;
+        executionType = ExecutionType.IO;
         uzycie = new Uzycie("ip", "string", true);
         allowInDMs = true;
         permissions.add(Permission.MESSAGE_EMBED_LINKS);
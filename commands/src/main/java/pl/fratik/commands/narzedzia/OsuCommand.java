@@ -38,6 +38,7 @@ import pl.fratik.core.Ustawienia;
 import pl.fratik.core.command.Command;
 import pl.fratik.core.command.CommandCategory;
 import pl.fratik.core.command.CommandContext;
+import pl.fratik.core.command.ExecutionType;
 import pl.fratik.core.command.SubCommand;
 import pl.fratik.core.entity.Uzycie;
 import pl.fratik.core.util.*;
@@ -70,6 +71,7 @@ public class OsuCommand extends Command {
         this.eventBus = eventBus;
         name = "osu";
         category = CommandCategory.UTILITY;
+        executionType = ExecutionType.IO;
         LinkedHashMap<String, String> hmap = new LinkedHashMap<>();
         hmap.put("nick", "string");
         hmap.put("[...]", "string");
@@ -23,6 +23,7 @@ import org.jsoup.Jsoup;
 import pl.fratik.core.command.Command;
 import pl.fratik.core.command.CommandCategory;
 import pl.fratik.core.command.CommandContext;
+import pl.fratik.core.command.ExecutionType;
 import pl.fratik.core.entity.UserDao;
 import pl.fratik.core.entity.Uzycie;
 import pl.fratik.core.util.NetworkUtil;
@@ -38,6 +39,8 @@ public class PogodaCommand extends Command {
         this.userDao = userDao;
         name = "pogoda";
         category = CommandCategory.UTILITY;
+        executionType = ExecutionType.IO;
+        timeout = 60;
         uzycie = new Uzycie("miejsce", "string");
         aliases = new String[] {"pg", "prognoza", "pogodynka", "meteo", "meteostp", "warunkiatmosferyczne"};
         allowInDMs = true;
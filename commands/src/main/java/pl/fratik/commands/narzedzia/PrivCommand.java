@@ -26,6 +26,7 @@ import pl.fratik.core.Ustawienia;
 import pl.fratik.core.command.Command;
 import pl.fratik.core.command.CommandCategory;
 import pl.fratik.core.command.CommandContext;
+import pl.fratik.core.command.ExecutionType;
 import pl.fratik.core.entity.UserConfig;
 import pl.fratik.core.entity.UserDao;
 import pl.fratik.core.entity.Uzycie;
@@ -45,6 +46,7 @@ public class PrivCommand extends Command {
         name = "priv";
         category = CommandCategory.UTILITY;
         cooldown = 15;
+        executionType = ExecutionType.IO;
         LinkedHashMap<String, String> hmap = new LinkedHashMap<>();
         hmap.put("osoba", "user");
         hmap.put("treść", "string");
@@ -35,8 +35,10 @@ import pl.fratik.core.Globals;
 import pl.fratik.core.Ustawienia;
 import pl.fratik.core.command.Command;
 import pl.fratik.core.command.CommandContext;
+import pl.fratik.core.command.ExecutionType;
 import pl.fratik.core.entity.Uzycie;
 import pl.fratik.core.tlumaczenia.Tlumaczenia;
+import pl.fratik.core.util.Blokujacy;
 import pl.fratik.core.util.ButtonWaiter;
 import pl.fratik.core.util.CommonErrors;
 import pl.fratik.core.util.EventWaiter;
@@ -64,6 +66,7 @@ public class ZglosPrivCommand extends Command {
         this.tlumaczenia = tlumaczenia;
         name = "zglospriv";
         allowInDMs = true;
+        executionType = ExecutionType.IO;
         LinkedHashMap<String, String> hmap = new LinkedHashMap<>();
         hmap.put("id", "string"); //NOSONAR
         hmap.put("powod", "string"); //NOSONAR
@@ -161,6 +164,7 @@ public class ZglosPrivCommand extends Command {
     }
 
     @Subscribe
+    @Blokujacy
     private void onButtonClick(ButtonClickEvent e) {
         if (!e.getChannel().getId().equals(Ustawienia.instance.zglosPrivChannel)) return;
         if (e.getUser().isBot()) return;
@@ -25,6 +25,7 @@ import pl.fratik.commands.entity.BlacklistDao;
 import pl.fratik.core.command.Command;
 import pl.fratik.core.command.CommandCategory;
 import pl.fratik.core.command.CommandContext;
+import pl.fratik.core.command.ExecutionType;
 import pl.fratik.core.command.PermLevel;
 import pl.fratik.core.entity.Uzycie;
 import pl.fratik.core.util.CommonUtil;
@@ -42,6 +43,7 @@ public class BlacklistPopCommand extends Command {
         name = "blacklistpop";
         category = CommandCategory.UTILITY;
         permLevel = PermLevel.GADMIN;
+        executionType = ExecutionType.IO;
         LinkedHashMap<String, String> hmap = new LinkedHashMap<>();
         hmap.put("id", "string");
         hmap.put("powod", "string");
@@ -34,6 +34,7 @@ import pl.fratik.core.Ustawienia;
 import pl.fratik.core.command.Command;
 import pl.fratik.core.command.CommandCategory;
 import pl.fratik.core.command.CommandContext;
+import pl.fratik.core.command.ExecutionType;
 import pl.fratik.core.command.PermLevel;
 import pl.fratik.core.entity.UserConfig;
 import pl.fratik.core.entity.UserDao;
@@ -61,6 +62,7 @@ public class LanguageCommand extends Command {
         permissions.add(Permission.MESSAGE_EMBED_LINKS);
         allowPermLevelChange = false;
         allowInDMs = true;
+        executionType = ExecutionType.IO;
         this.eventBus = eventBus;
         this.userDao = userDao;
         this.tlumaczenia = tlumaczenia;
@@ -139,6 +141,6 @@ public class LanguageCommand extends Command {
         UserConfig userConfig = userDao.get(e.getUser());
         userConfig.setLanguage(l);
         userDao.save(userConfig);
-        e.reply(tlumaczenia.get(l, "language.change.success", l.getLocalized())).setEphemeral(true).complete();
+        e.reply(tlumaczenia.get(l, "language.change.success", l.getLocalized())).setEphemeral(true).queue();
     }
 }
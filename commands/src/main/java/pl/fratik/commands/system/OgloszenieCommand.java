@@ -72,6 +72,8 @@ public class OgloszenieCommand extends Command {
         category = CommandCategory.SYSTEM;
         aliases = new String[] {"broadcast"};
         allowPermLevelChange = false;
+        executionType = ExecutionType.IO;
+        timeout = 0; // przerwana w połowie zostawiłaby niedokończone zmiany
         gcCache = rcm.new CacheRetriever<GuildConfig>(){}.getCache();
     }
 
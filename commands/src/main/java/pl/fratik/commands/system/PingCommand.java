@@ -22,6 +22,7 @@ import org.jetbrains.annotations.NotNull;
 import pl.fratik.core.command.Command;
 import pl.fratik.core.command.CommandCategory;
 import pl.fratik.core.command.CommandContext;
+import pl.fratik.core.command.ExecutionType;
 import pl.fratik.core.command.PermLevel;
 
 import java.time.temporal.ChronoUnit;
@@ -34,6 +35,7 @@ public class PingCommand extends Command {
         permLevel = PermLevel.EVERYONE;
         allowPermLevelChange = false;
         allowInDMs = true;
+        executionType = ExecutionType.IO;
     }
 
     @Override
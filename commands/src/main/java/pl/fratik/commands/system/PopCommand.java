@@ -40,6 +40,7 @@ import pl.fratik.core.entity.SilentExecutionFail;
 import pl.fratik.core.tlumaczenia.Language;
 import pl.fratik.core.tlumaczenia.Tlumaczenia;
 import pl.fratik.core.util.*;
+import pl.fratik.core.util.Blokujacy;
 
 import java.time.Instant;
 import java.util.List;
@@ -75,6 +76,7 @@ public class PopCommand extends Command {
         blacklistCache = rcm.new CacheRetriever<Blacklist>(){}.getCache();
         name = "pop";
         category = CommandCategory.SYSTEM;
+        executionType = ExecutionType.IO;
         cooldown = 10; // TODO: 22.02.19 pomoc 2.0
         aliases = new String[] {"helpme", "support", "suport"};
         permissions.add(Permission.CREATE_INSTANT_INVITE);
@@ -269,6 +271,7 @@ public class PopCommand extends Command {
     }
 
     @Subscribe
+    @Blokujacy
     public void onReactionAdd(MessageReactionAddEvent e) {
         Guild fdev = shardManager.getGuildById(Ustawienia.instance.botGuild);
         if (fdev == null) return; //nie możemy throw'nąć bo to mogło być podczas ładowania shard'ów
@@ -26,6 +26,7 @@ import pl.fratik.core.Ustawienia;
 import pl.fratik.core.command.Command;
 import pl.fratik.core.command.CommandCategory;
 import pl.fratik.core.command.CommandContext;
+import pl.fratik.core.command.ExecutionType;
 import pl.fratik.core.command.PermLevel;
 
 import java.util.Objects;
@@ -40,6 +41,7 @@ public class PowiadomOPomocyCommand extends Command {
         category = CommandCategory.SYSTEM;
         permLevel = PermLevel.GADMIN;
         allowPermLevelChange = false;
+        executionType = ExecutionType.IO;
     }
 
     @Override
@@ -33,6 +33,7 @@ public class SelfieCommand extends Command {
     public SelfieCommand() {
         name = "selfie";
         category = CommandCategory.SYSTEM;
+        executionType = ExecutionType.IO;
         permLevel = PermLevel.BOTOWNER;
         aliases = new String[] {"ryjfratika"};
         permissions.add(Permission.MESSAGE_ATTACH_FILES);
@@ -28,6 +28,7 @@ import org.jetbrains.annotations.NotNull;
 import pl.fratik.core.command.Command;
 import pl.fratik.core.command.CommandCategory;
 import pl.fratik.core.command.CommandContext;
+import pl.fratik.core.command.ExecutionType;
 import pl.fratik.core.entity.UserDao;
 import pl.fratik.core.event.PluginMessageEvent;
 import pl.fratik.core.util.GuildUtil;
@@ -35,7 +36,6 @@ import pl.fratik.core.util.UserUtil;
 
 import java.text.SimpleDateFormat;
 import java.util.Date;
-import java.util.Map;
 import java.util.concurrent.CompletableFuture;
 
 public class ServerinfoCommand extends Command {
@@ -51,6 +51,7 @@ public class ServerinfoCommand extends Command {
         permissions.add(Permission.MESSAGE_EMBED_LINKS);
         aliases = new String[] {"serwerinfo"};
         allowPermLevelChange = false;
+        executionType = ExecutionType.IO;
     }
 
     @Override
@@ -78,28 +79,19 @@ public class ServerinfoCommand extends Command {
         PluginMessageEvent event = new PluginMessageEvent("commands", "punkty", "punktyDao-getPunkty:"
                 + context.getGuild().getId());
         PluginMessageEvent event2 = new PluginMessageEvent("commands", "punkty",
-                "punktyDao-getAllGuildPunkty:");
+                "punktyDao-getMiejsce:" + context.getGuild().getId());
         eventBus.post(event);
         eventBus.post(event2);
         awaitPluginResponse(event);
         awaitPluginResponse(event2);
         Integer punkty = (Integer) event.getResponse();
-        Integer pozycja = null;
-        int pozycjaTmp = 0;
-        if (event2.getResponse() != null) {
-            //noinspection unchecked
-            Map<String, Integer> guildPoints = (Map<String, Integer>) event2.getResponse();
-            for (String id : guildPoints.keySet()) {
-                pozycjaTmp++;
-                if (id.equals(context.getGuild().getId())) pozycja = pozycjaTmp;
-            }
-        }
+        Long pozycja = (Long) event2.getResponse();
         if (punkty != null)
             eb.addField(context.getTranslated("serverinfo.points"), String.valueOf(punkty), true);
         else eb.addField(context.getTranslated("serverinfo.points"),
                 context.getTranslated("serverinfo.points.errored"), true);
         if (pozycja != null)
-            eb.addField(context.getTranslated("serverinfo.place"), String.valueOf(pozycja.intValue()), true);
+            eb.addField(context.getTranslated("serverinfo.place"), String.valueOf(pozycja), true);
         else eb.addField(context.getTranslated("serverinfo.place"), "???", true);
         eb.addField(context.getTranslated("serverinfo.members"),
                 String.valueOf(context.getGuild().getMemberCount()), true);
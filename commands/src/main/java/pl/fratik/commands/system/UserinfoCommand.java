@@ -29,6 +29,7 @@ import org.jetbrains.annotations.NotNull;
 import pl.fratik.core.command.Command;
 import pl.fratik.core.command.CommandCategory;
 import pl.fratik.core.command.CommandContext;
+import pl.fratik.core.command.ExecutionType;
 import pl.fratik.core.entity.UserDao;
 import pl.fratik.core.entity.Uzycie;
 import pl.fratik.core.event.PluginMessageEvent;
@@ -36,7 +37,6 @@ import pl.fratik.core.util.UserUtil;
 
 import java.text.SimpleDateFormat;
 import java.util.Date;
-import java.util.Map;
 import java.util.concurrent.CompletableFuture;
 
 public class UserinfoCommand extends Command {
@@ -55,6 +55,7 @@ public class UserinfoCommand extends Command {
         permissions.add(Permission.MESSAGE_EMBED_LINKS);
         allowPermLevelChange = false;
         allowInDMs = true;
+        executionType = ExecutionType.IO;
     }
 
     @Override
@@ -86,28 +87,19 @@ public class UserinfoCommand extends Command {
         PluginMessageEvent event = new PluginMessageEvent("commands", "punkty", "punktyDao-getPunkty:"
                 + osoba.getId());
         PluginMessageEvent event2 = new PluginMessageEvent("commands", "punkty",
-                "punktyDao-getAllUserPunkty:");
+                "punktyDao-getMiejsce:" + osoba.getId());
         eventBus.post(event);
         eventBus.post(event2);
         awaitPluginResponse(event);
         Integer punkty = (Integer) event.getResponse();
-        Integer pozycja = null;
-        int pozycjaTmp = 0;
         awaitPluginResponse(event2);
-        if (event2.getResponse() != null) {
-            //noinspection unchecked
-            Map<String, Integer> userPoints = (Map<String, Integer>) event2.getResponse();
-            for (String id : userPoints.keySet()) {
-                pozycjaTmp++;
-                if (id.equals(osoba.getId())) pozycja = pozycjaTmp;
-            }
-        }
+        Long pozycja = (Long) event2.getResponse();
         if (punkty != null)
             eb.addField(context.getTranslated("userinfo.points"), String.valueOf(punkty), true);
         else eb.addField(context.getTranslated("userinfo.points"),
                 context.getTranslated("userinfo.points.errored"), true);
         if (pozycja != null)
-            eb.addField(context.getTranslated("userinfo.place"), String.valueOf(pozycja.intValue()), true);
+            eb.addField(context.getTranslated("userinfo.place"), String.valueOf(pozycja), true);
         else eb.addField(context.getTranslated("userinfo.place"), "???", true);
         eb.setThumbnail(osoba.getEffectiveAvatarUrl().replace(".webp", ".png") + "?size=2048");
         eb.setColor(UserUtil.getPrimColor(osoba));
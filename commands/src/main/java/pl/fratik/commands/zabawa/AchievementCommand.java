@@ -22,6 +22,7 @@ import org.jetbrains.annotations.NotNull;
 import pl.fratik.core.command.Command;
 import pl.fratik.core.command.CommandCategory;
 import pl.fratik.core.command.CommandContext;
+import pl.fratik.core.command.ExecutionType;
 import pl.fratik.core.entity.Uzycie;
 import pl.fratik.core.util.NetworkUtil;
 
@@ -34,6 +35,7 @@ public class AchievementCommand extends Command {
     public AchievementCommand() {
         name = "achievement";
         category = CommandCategory.FUN;
+        executionType = ExecutionType.IO;
         aliases = new String[] {"mca", "osiagniecie"};
         permissions.add(Permission.MESSAGE_ATTACH_FILES);
         uzycie = new Uzycie("tresc", "string", true);
@@ -24,6 +24,7 @@ import org.jetbrains.annotations.NotNull;
 import pl.fratik.core.command.Command;
 import pl.fratik.core.command.CommandCategory;
 import pl.fratik.core.command.CommandContext;
+import pl.fratik.core.command.ExecutionType;
 import pl.fratik.core.entity.Uzycie;
 import pl.fratik.core.util.NetworkUtil;
 import pl.fratik.core.util.UserUtil;
@@ -39,6 +40,7 @@ public class AvatarCommand extends Command {
     public AvatarCommand() {
         name = "avatar";
         category = CommandCategory.FUN;
+        executionType = ExecutionType.IO;
         uzycie = new Uzycie("osoba", "user");
         permissions.add(Permission.MESSAGE_EMBED_LINKS);
         aliases = new String[] {"prof", "profilowe", "awatar"};
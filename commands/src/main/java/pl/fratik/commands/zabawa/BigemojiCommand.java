@@ -24,6 +24,7 @@ import pl.fratik.core.Ustawienia;
 import pl.fratik.core.command.Command;
 import pl.fratik.core.command.CommandCategory;
 import pl.fratik.core.command.CommandContext;
+import pl.fratik.core.command.ExecutionType;
 import pl.fratik.core.entity.Emoji;
 import pl.fratik.core.entity.Uzycie;
 import pl.fratik.core.util.NetworkUtil;
@@ -35,6 +36,7 @@ public class BigemojiCommand extends Command {
     public BigemojiCommand() {
         name = "bigemoji";
         category = CommandCategory.FUN;
+        executionType = ExecutionType.IO;
         LinkedHashMap<String, String> hmap = new LinkedHashMap<>();
         hmap.put("emotka", "emote");
         hmap.put("[...]", "emote");
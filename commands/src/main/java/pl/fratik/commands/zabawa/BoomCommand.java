@@ -27,6 +27,7 @@ import pl.fratik.core.cache.RedisCacheManager;
 import pl.fratik.core.command.Command;
 import pl.fratik.core.command.CommandCategory;
 import pl.fratik.core.command.CommandContext;
+import pl.fratik.core.command.ExecutionType;
 import pl.fratik.core.entity.UserConfig;
 import pl.fratik.core.entity.UserDao;
 import pl.fratik.core.util.EventWaiter;
@@ -50,6 +51,7 @@ public class BoomCommand extends Command {
         name = "boom";
         category = CommandCategory.FUN;
         cooldown = 60;
+        executionType = ExecutionType.IO;
         noMore = false;
         aliases = new String[] {"bomba", "allahakbar", "bom", "bum"};
     }
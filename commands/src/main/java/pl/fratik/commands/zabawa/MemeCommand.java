@@ -28,6 +28,7 @@ import pl.fratik.core.Ustawienia;
 import pl.fratik.core.command.Command;
 import pl.fratik.core.command.CommandCategory;
 import pl.fratik.core.command.CommandContext;
+import pl.fratik.core.command.ExecutionType;
 import pl.fratik.core.util.NetworkUtil;
 
 import java.awt.*;
@@ -41,6 +42,8 @@ public class MemeCommand extends Command {
     public MemeCommand() {
         name = "meme";
         category = CommandCategory.FUN;
+        executionType = ExecutionType.IO;
+        timeout = 60;
         permissions.add(Permission.MESSAGE_EMBED_LINKS);
         aliases = new String[] {"memes", "pokazmiswojetowary", "memez"};
         allowPermLevelChange = false;
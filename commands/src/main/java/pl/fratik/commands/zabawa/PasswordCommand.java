@@ -22,6 +22,7 @@ import org.jetbrains.annotations.NotNull;
 import pl.fratik.core.command.Command;
 import pl.fratik.core.command.CommandCategory;
 import pl.fratik.core.command.CommandContext;
+import pl.fratik.core.command.ExecutionType;
 import pl.fratik.core.entity.Uzycie;
 import pl.fratik.core.util.StringUtil;
 
@@ -34,6 +35,7 @@ public class PasswordCommand extends Command {
         uzycie = new Uzycie("znaki", "integer", false);
         cooldown = 4;
         allowPermLevelChange = false;
+        executionType = ExecutionType.IO;
     }
 
     @Override
@@ -41,6 +41,7 @@ import pl.fratik.core.arguments.Argument;
 import pl.fratik.core.arguments.ArgumentContext;
 import pl.fratik.core.command.CommandCategory;
 import pl.fratik.core.command.CommandContext;
+import pl.fratik.core.command.ExecutionType;
 import pl.fratik.core.command.NsfwCommand;
 import pl.fratik.core.entity.Uzycie;
 import pl.fratik.core.manager.ManagerArgumentow;
@@ -70,6 +71,8 @@ public class Rule34Command extends NsfwCommand {
         name = "rule34";
         aliases = new String[] {"r34"};
         category = CommandCategory.NSFW;
+        executionType = ExecutionType.IO;
+        timeout = 60;
         cooldown = 5;
         uzycieDelim = " ";
         pixiv = new PixivParserClient();
@@ -0,0 +1,125 @@
+/*
+ * Copyright (C) 2019-2021 FratikB0T Contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package pl.fratik.core.cache.codec;
+
+import com.google.common.reflect.TypeToken;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import pl.fratik.core.entity.GuildConfig;
+import pl.fratik.core.entity.UserConfig;
+
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Porównanie codec'ów cache'u na prawdziwych encjach. Rozmiary danych są wypisywane w {@link #setup()},
+ * czasy enkodowania/dekodowania mierzy JMH.
+ * <p>
+ * {@code ./gradlew :core:jmh}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class CacheCodecBenchmark {
+    private static final Type GUILD_CONFIG = GuildConfig.class;
+    private static final Type USER_CONFIG = UserConfig.class;
+    private static final Type PUNKTY = new TypeToken<ConcurrentHashMap<String, Integer>>() {}.getType();
+
+    @Param({"GSON", "SMILE", "SMILE_LZ4"})
+    public String codecName;
+
+    private CacheCodec codec;
+    private GuildConfig guildConfig;
+    private UserConfig userConfig;
+    private ConcurrentHashMap<String, Integer> punkty;
+    private byte[] guildConfigBytes;
+    private byte[] userConfigBytes;
+    private byte[] punktyBytes;
+
+    @Setup
+    public void setup() throws ReflectiveOperationException {
+        codec = (CacheCodec) CacheCodecs.class.getField(codecName).get(null);
+        Random random = new Random(2137);
+        guildConfig = new GuildConfig("345655892882096139");
+        guildConfig.setPrefixes(listaId(random, 2));
+        guildConfig.setAdminRole(id(random));
+        guildConfig.setModRole(id(random));
+        guildConfig.setModLog(id(random));
+        guildConfig.setFullLogs(id(random));
+        guildConfig.setAutorole(listaId(random, 5));
+        guildConfig.setSwearchannels(listaId(random, 20));
+        guildConfig.setLinkchannels(listaId(random, 20));
+        guildConfig.setKanalyGdzieAntiInviteNieDziala(listaId(random, 20));
+        List<String> slowa = new ArrayList<>();
+        for (int i = 0; i < 200; i++) slowa.add("przeklenstwo" + i);
+        guildConfig.setCustomAntiSwearWords(slowa);
+        userConfig = new UserConfig(id(random));
+        userConfig.setPrivIgnored(listaId(random, 10));
+        punkty = new ConcurrentHashMap<>();
+        for (int i = 0; i < 5000; i++) punkty.put(id(random), random.nextInt(100_000));
+        guildConfigBytes = codec.encode(guildConfig, GUILD_CONFIG);
+        userConfigBytes = codec.encode(userConfig, USER_CONFIG);
+        punktyBytes = codec.encode(punkty, PUNKTY);
+        System.out.printf("%n[%s] GuildConfig: %d B, UserConfig: %d B, punkty (5000 członków): %d B%n", codecName,
+                guildConfigBytes.length, userConfigBytes.length, punktyBytes.length);
+    }
+
+    private static String id(Random random) {
+        return Long.toUnsignedString(Math.abs(random.nextLong()) >>> 4);
+    }
+
+    private static List<String> listaId(Random random, int ile) {
+        List<String> lista = new ArrayList<>();
+        for (int i = 0; i < ile; i++) lista.add(id(random));
+        return lista;
+    }
+
+    @Benchmark
+    public byte[] encodeGuildConfig() {
+        return codec.encode(guildConfig, GUILD_CONFIG);
+    }
+
+    @Benchmark
+    public GuildConfig decodeGuildConfig() {
+        return CacheCodecs.decode(guildConfigBytes, GUILD_CONFIG);
+    }
+
+    @Benchmark
+    public byte[] encodeUserConfig() {
+        return codec.encode(userConfig, USER_CONFIG);
+    }
+
+    @Benchmark
+    public UserConfig decodeUserConfig() {
+        return CacheCodecs.decode(userConfigBytes, USER_CONFIG);
+    }
+
+    @Benchmark
+    public byte[] encodePunkty() {
+        return codec.encode(punkty, PUNKTY);
+    }
+
+    @Benchmark
+    public void decodePunkty(Blackhole bh) {
+        bh.consume(CacheCodecs.<ConcurrentHashMap<String, Integer>>decode(punktyBytes, PUNKTY));
+    }
+}
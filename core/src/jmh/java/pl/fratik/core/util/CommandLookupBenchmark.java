@@ -0,0 +1,118 @@
+/*
+ * Copyright (C) 2019-2021 FratikB0T Contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package pl.fratik.core.util;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Rozpoznawanie komend w wiadomościach: stary sposób z ManagerKomendImpl ({@code toLowerCase()} + {@code split()}
+ * + HashMap) kontra {@link CaseInsensitiveTrie}. Korpus to w większości zwykłe wiadomości z czatu,
+ * a komendą jest mniej więcej co dwudziesta.
+ * <p>
+ * {@code ./gradlew :core:jmh}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class CommandLookupBenchmark {
+    private static final String SELF_ID = "338359366891732993";
+    private static final String[] ZWYKLE = {
+            "siema", "hej, co tam?", "XDDD", "ktoś gra dziś w valo?", "https://www.youtube.com/watch?v=dQw4w9WgXcQ",
+            "<@267761613438713876> sprawdź pw", "nie no, bez przesady", "🤔", "ok", "jutro sprawdzian z matmy :(",
+            "ale lag na serwerze", "<:pepe:458712839104512000> <:pepe:458712839104512000>",
+            "czy ktoś wie, jak ustawić autorole? próbowałem z panelu, ale nie działa",
+            "!play never gonna give you up", "gg", "kto na voice?", "lol", "dobranoc wszystkim",
+            "Pamiętajcie o zasadach serwera, a w szczególności o punkcie 3!", "xd"
+    };
+    private static final String[] KOMENDY = {
+            "fb!ping", "fb!help", "fb!rank <@267761613438713876>", "FB!Pomoc punkty", "fb! avatar",
+            "<@" + SELF_ID + "> ping", "<@!" + SELF_ID + "> help ustawienia", "fb!warn <@267761613438713876> spam | 1d",
+    };
+
+    private List<String> prefiksy;
+    private Map<String, Object> komendy;
+    private CaseInsensitiveTrie<String> drzewoPrefiksow;
+    private CaseInsensitiveTrie<Object> drzewoKomend;
+    private String[] korpus;
+
+    @Setup
+    public void setup() {
+        prefiksy = Arrays.asList("fb!", "f!");
+        komendy = new HashMap<>();
+        Random random = new Random(2137);
+        String[] nazwy = {"ping", "help", "pomoc", "rank", "avatar", "warn", "ban", "kick", "punkty", "ustawienia",
+                "play", "skip", "queue", "poziom", "topka", "eval", "stats", "info", "serverinfo", "userinfo"};
+        for (String n : nazwy) komendy.put(n, n);
+        // reszta to aliasy w różnych językach
+        for (int i = 0; i < 600; i++) komendy.put("alias" + i, nazwy[random.nextInt(nazwy.length)]);
+        Map<String, String> p = new LinkedHashMap<>();
+        for (String prefix : prefiksy) p.put(prefix, prefix);
+        p.put("<@" + SELF_ID + ">", "<@" + SELF_ID + ">");
+        p.put("<@!" + SELF_ID + ">", "<@!" + SELF_ID + ">");
+        drzewoPrefiksow = new CaseInsensitiveTrie<>(p);
+        drzewoKomend = new CaseInsensitiveTrie<>(komendy);
+        korpus = new String[10_000];
+        for (int i = 0; i < korpus.length; i++) {
+            korpus[i] = random.nextInt(20) == 0 ? KOMENDY[random.nextInt(KOMENDY.length)] :
+                    ZWYKLE[random.nextInt(ZWYKLE.length)];
+        }
+    }
+
+    @Benchmark
+    public void stary(Blackhole bh) {
+        for (String wiadomosc : korpus) {
+            String content = wiadomosc;
+            String znaleziony = null;
+            for (String prefix : prefiksy) {
+                if (content.toLowerCase().startsWith(prefix.toLowerCase())) {
+                    content = content.trim().substring(prefix.length()).trim();
+                    znaleziony = prefix;
+                    break;
+                }
+            }
+            if (znaleziony == null && content.startsWith("<@" + SELF_ID + ">")) {
+                content = content.trim().substring(("<@" + SELF_ID + ">").length()).trim();
+                znaleziony = prefiksy.get(0);
+            }
+            if (znaleziony == null && content.startsWith("<@!" + SELF_ID + ">")) {
+                content = content.trim().substring(("<@!" + SELF_ID + ">").length()).trim();
+                znaleziony = prefiksy.get(0);
+            }
+            if (znaleziony == null) continue;
+            String[] parts = content.split(" ");
+            bh.consume(komendy.get(parts[0].toLowerCase()));
+        }
+    }
+
+    @Benchmark
+    public void drzewo(Blackhole bh) {
+        for (String content : korpus) {
+            String prefix = drzewoPrefiksow.matchPrefix(content, 0);
+            if (prefix == null) continue;
+            int start = prefix.length();
+            while (start < content.length() && content.charAt(start) <= ' ') start++;
+            int koniec = content.indexOf(' ', start);
+            if (koniec < 0) koniec = content.length();
+            bh.consume(drzewoKomend.get(content, start, koniec));
+        }
+    }
+}
@@ -25,18 +25,19 @@ import gg.amy.pgorm.annotations.BtreeIndex;
 import gg.amy.pgorm.annotations.GIndex;
 import gg.amy.pgorm.annotations.PrimaryKey;
 import gg.amy.pgorm.annotations.Table;
+import gg.amy.pgorm.annotations.TypedIndex;
 import lombok.Getter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
 import java.lang.reflect.Field;
+import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
-import java.util.ArrayList;
-import java.util.List;
-import java.util.Optional;
+import java.util.*;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
 
 /**
  * NOTE: The JSONB data column is always named <code>data</code>.
@@ -47,6 +48,9 @@ import java.util.concurrent.atomic.AtomicReference;
 @SuppressWarnings({"WeakerAccess", "unused", "squid:S1192"})
 public class PgMapper<T> {
     private static final ObjectMapper MAPPER = new ObjectMapper();
+    // 2 parameters per row, well below the 32767 bind parameter limit
+    private static final int UPSERT_BATCH_SIZE = 500;
+    public static final int DEFAULT_FETCH_SIZE = 500;
 
     static {
         MAPPER.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
@@ -63,6 +67,7 @@ public class PgMapper<T> {
     private Field pkField;
     private Table table;
     private PrimaryKey primaryKey;
+    private volatile WriteBehindQueue<T> writeBehind;
 
     public PgMapper(final PgStore store, final Class<T> type) {
         this.store = store;
@@ -92,33 +97,34 @@ public class PgMapper<T> {
         // Ensure that it's a valid type
         final String sqlType = typeToSqlType(pkField.getType());
         primaryKey = pkField.getDeclaredAnnotation(PrimaryKey.class);
-        // Create the table
-        store.sql("CREATE TABLE IF NOT EXISTS " + table.value() + " (" +
-                primaryKey.value() + ' ' + sqlType + " PRIMARY KEY NOT NULL UNIQUE," +
-                "data JSONB" +
-                ");");
-        logger.info("Created table {} for entity class {}.", table.value(), type.getName());
-        // Create the indexes
+        // Create the table and indexes, unless the schema registry says they already exist
+        final Map<String, String> indexes = new LinkedHashMap<>();
         if(type.isAnnotationPresent(BtreeIndex.class)) {
-            final BtreeIndex btreeIndex = type.getDeclaredAnnotation(BtreeIndex.class);
-            for(final String s : btreeIndex.value()) {
-                final String idx = "idx_btree_" + table.value() + '_' + s;
-                store.sql("CREATE INDEX IF NOT EXISTS " + idx + " ON " + table.value() + " USING BTREE ((data->'" + s + "'));");
-                logger.info("Created index {} on {} for entity class {}.", idx, table.value(), type.getName());
+            for(final String s : type.getDeclaredAnnotation(BtreeIndex.class).value()) {
+                indexes.put("idx_btree_" + table.value() + '_' + s, "USING BTREE ((data->'" + s + "'))");
             }
         }
         // Make base GIN index
-        final String dataGinIdx = "idx_gin_" + table.value() + "_data";
-        store.sql("CREATE INDEX IF NOT EXISTS " + dataGinIdx + " ON " + table.value() + " USING GIN (data);");
-        logger.info("Created index idx_gin_data on {} for entity class {}.", table.value(), type.getName());
+        indexes.put("idx_gin_" + table.value() + "_data", "USING GIN (data)");
         if(type.isAnnotationPresent(GIndex.class)) {
-            final GIndex gin = type.getDeclaredAnnotation(GIndex.class);
-            for(final String s : gin.value()) {
-                final String idx = "idx_gin_" + table.value() + '_' + s;
-                store.sql("CREATE INDEX IF NOT EXISTS " + idx + " ON " + table.value() + " USING GIN ((data->'" + s + "'));");
-                logger.info("Created index {} on {} for entity class {}.", idx, table.value(), type.getName());
+            for(final String s : type.getDeclaredAnnotation(GIndex.class).value()) {
+                indexes.put("idx_gin_" + table.value() + '_' + s, "USING GIN ((data->'" + s + "'))");
+            }
+        }
+        for(final TypedIndex typed : type.getAnnotationsByType(TypedIndex.class)) {
+            final StringBuilder name = new StringBuilder("idx_btree_").append(table.value());
+            final StringJoiner columns = new StringJoiner(", ", "USING BTREE (", ")");
+            for(int i = 0; i < typed.value().length; i++) {
+                final PgType columnType = typed.type()[Math.min(i, typed.type().length - 1)];
+                name.append('_').append(typed.value()[i]).append('_').append(columnType.name().toLowerCase(Locale.ROOT));
+                columns.add(columnType.expression(typed.value()[i]));
             }
+            indexes.put(name.toString(), columns.toString());
         }
+        SchemaRegistry.of(store).ensure(table.value(), "CREATE TABLE IF NOT EXISTS " + table.value() + " (" +
+                primaryKey.value() + ' ' + sqlType + " PRIMARY KEY NOT NULL UNIQUE," +
+                "data JSONB" +
+                ");", indexes);
     }
 
     public void save(final T entity) {
@@ -127,6 +133,7 @@ public class PgMapper<T> {
             final Object pk = pkField.get(entity);
             // Map the object to JSON
             final String json = MAPPER.writeValueAsString(entity);
+            forgetQueued(Collections.singleton(pk));
             // Oh god this is so ugly
             store.sql("INSERT INTO " + table.value() + " (" + primaryKey.value() + ", data) values (?, to_jsonb(?::jsonb)) " +
                     "ON CONFLICT (" + primaryKey.value() + ") DO UPDATE SET " + primaryKey.value() + " = ?, data = to_jsonb(?::jsonb);", c -> {
@@ -143,7 +150,119 @@ public class PgMapper<T> {
         }
     }
 
+    /**
+     * Saves many entities as multi-row upserts in a single transaction.
+     * If the same primary key occurs more than once, the last entity wins.
+     */
+    public void saveAll(final Collection<T> entities) {
+        final Map<Object, String> rows = new LinkedHashMap<>();
+        for(final T entity : entities) {
+            try {
+                rows.put(pkField.get(entity), MAPPER.writeValueAsString(entity));
+            } catch(final IllegalAccessException e) {
+                logger.error("Couldn't access primary key for entity {} (value: {}): {}", type.getName(), entity, e);
+            } catch(final JsonProcessingException e) {
+                logger.error("Couldn't map entity {} (value: {}) to JSON: {}", type.getName(), entity, e);
+            }
+        }
+        forgetQueued(rows.keySet());
+        saveJson(rows);
+    }
+
+    /**
+     * Queues the entity to be saved in the background, see {@link WriteBehindQueue}.
+     * {@link #load(Object)} sees queued entities right away, the other load methods only once they're flushed.
+     * A later {@link #save(Object)}, {@link #saveAll(Collection)} or {@link #delete(Object)} of the same key
+     * drops the queued row.
+     */
+    public void saveLater(final T entity) {
+        try {
+            final Object pk = pkField.get(entity);
+            writeBehind().enqueue(pk, MAPPER.writeValueAsString(entity));
+        } catch(final IllegalAccessException e) {
+            logger.error("Couldn't access primary key for entity {} (value: {}): {}", type.getName(), entity, e);
+        } catch(final JsonProcessingException e) {
+            logger.error("Couldn't map entity {} (value: {}) to JSON: {}", type.getName(), entity, e);
+        }
+    }
+
+    /**
+     * Writes everything queued by {@link #saveLater(Object)}.
+     */
+    public void flush() {
+        if(writeBehind != null) {
+            writeBehind.flush();
+        }
+    }
+
+    private void forgetQueued(final Collection<?> pks) {
+        final WriteBehindQueue<T> queue = writeBehind;
+        if(queue != null) {
+            queue.forget(pks);
+        }
+    }
+
+    private WriteBehindQueue<T> writeBehind() {
+        if(writeBehind == null) {
+            synchronized(this) {
+                if(writeBehind == null) {
+                    writeBehind = new WriteBehindQueue<>(this, UPSERT_BATCH_SIZE, 10_000, 1_000);
+                }
+            }
+        }
+        return writeBehind;
+    }
+
+    void saveJson(final Map<Object, String> rows) {
+        if(rows.isEmpty()) {
+            return;
+        }
+        final List<Map.Entry<Object, String>> entries = new ArrayList<>(rows.entrySet());
+        store.sql(con -> {
+            final boolean autoCommit = con.getAutoCommit();
+            con.setAutoCommit(false);
+            try {
+                for(int from = 0; from < entries.size(); from += UPSERT_BATCH_SIZE) {
+                    final List<Map.Entry<Object, String>> chunk =
+                            entries.subList(from, Math.min(from + UPSERT_BATCH_SIZE, entries.size()));
+                    try(final PreparedStatement c = con.prepareStatement(upsertSql(chunk.size()))) {
+                        int i = 0;
+                        for(final Map.Entry<Object, String> row : chunk) {
+                            c.setObject(++i, row.getKey());
+                            c.setString(++i, row.getValue());
+                        }
+                        c.execute();
+                    }
+                }
+                con.commit();
+            } catch(final SQLException | RuntimeException e) {
+                con.rollback();
+                throw e;
+            } finally {
+                con.setAutoCommit(autoCommit);
+            }
+        });
+    }
+
+    private String upsertSql(final int rows) {
+        final StringBuilder sb = new StringBuilder("INSERT INTO ").append(table.value())
+                .append(" (").append(primaryKey.value()).append(", data) VALUES ");
+        for(int i = 0; i < rows; i++) {
+            sb.append(i == 0 ? "" : ", ").append("(?, to_jsonb(?::jsonb))");
+        }
+        return sb.append(" ON CONFLICT (").append(primaryKey.value()).append(") DO UPDATE SET data = EXCLUDED.data;").toString();
+    }
+
     public Optional<T> load(final Object pk) {
+        final WriteBehindQueue<T> queue = writeBehind;
+        final String queued = queue == null ? null : queue.pendingJson(pk);
+        if(queued != null) {
+            try {
+                return Optional.of(MAPPER.readValue(queued, type));
+            } catch(final IOException e) {
+                logger.error("Couldn't load entity {} from JSON {}: {}", type.getName(), queued, e);
+            }
+        }
         final OptionalHolder result = new OptionalHolder();
         store.sql("SELECT * FROM " + table.value() + " WHERE " + primaryKey.value() + " = ?;", c -> {
             c.setObject(1, pk);
@@ -162,6 +281,49 @@ public class PgMapper<T> {
         return result.value;
     }
 
+    /**
+     * Loads many entities by primary key in a single {@code = ANY(?)} query.
+     * Keys with no row in the table are simply absent from the returned map.
+     *
+     * @param pks Primary keys, of the same type as the {@link PrimaryKey} field.
+     *
+     * @return Entities keyed by their primary key, in no particular order.
+     */
+    @SuppressWarnings("unchecked")
+    public <K> Map<K, T> loadMany(final Collection<K> pks) {
+        final Map<K, T> data = new HashMap<>();
+        if(pks.isEmpty()) {
+            return data;
+        }
+        store.sql("SELECT * FROM " + table.value() + " WHERE " + primaryKey.value() + " = ANY(?);", c -> {
+            c.setArray(1, c.getConnection().createArrayOf(typeToSqlType(pkField.getType()).toLowerCase(), pks.toArray()));
+            final ResultSet resultSet = c.executeQuery();
+            while(resultSet.next()) {
+                try {
+                    final T entity = loadFromResultSet(resultSet);
+                    data.put((K) pkField.get(entity), entity);
+                } catch(final IllegalStateException | IllegalAccessException e) {
+                    logger.error("Load error:", e);
+                }
+            }
+        });
+        final WriteBehindQueue<T> queue = writeBehind;
+        if(queue != null) {
+            for(final K pk : pks) {
+                final String queued = queue.pendingJson(pk);
+                if(queued == null) {
+                    continue;
+                }
+                try {
+                    data.put(pk, MAPPER.readValue(queued, type));
+                } catch(final IOException e) {
+                    logger.error("Couldn't load entity {} from JSON {}: {}", type.getName(), queued, e);
+                }
+            }
+        }
+        return data;
+    }
+
     /**
      * This is a slightly-weird thing, but it makes sense given the kind of
      * use-case I have. <p/>
@@ -225,6 +387,13 @@ public class PgMapper<T> {
         return data;
     }
 
+    /**
+     * @return A new typed query over this mapper's table, see {@link Query}.
+     */
+    public Query<T> query() {
+        return new Query<>(this);
+    }
+
     public List<T> loadAll() {
         final List<T> data = new ArrayList<>();
         store.sql("SELECT * FROM " + table.value() + ";", c -> {
@@ -242,6 +411,66 @@ public class PgMapper<T> {
         return data;
     }
 
+    /**
+     * Like {@link #loadAll()}, but hands rows to {@code consumer} one at a time, reading them
+     * from a server-side cursor {@link #DEFAULT_FETCH_SIZE} rows at a time - the table is never
+     * held in memory as a whole.
+     * <p/>
+     * The connection stays checked out until iteration ends, so keep {@code consumer} cheap
+     * (no network calls) or collect what's needed and process it afterwards.
+     */
+    public void forEach(final Consumer<? super T> consumer) {
+        forEach(DEFAULT_FETCH_SIZE, consumer);
+    }
+
+    public void forEach(final int fetchSize, final Consumer<? super T> consumer) {
+        stream("SELECT * FROM " + table.value() + ";", c -> {}, fetchSize, consumer);
+    }
+
+    /**
+     * Streaming version of {@link #loadManyBySubkey(String, String, String)}, see {@link #forEach(Consumer)}.
+     */
+    public void forEachBySubkey(final String subKey, final String subKeyData, final String compareSymbol,
+                                final int fetchSize, final Consumer<? super T> consumer) {
+        stream("SELECT * FROM " + table.value() + " WHERE " + subKey + " " + compareSymbol + " ?;",
+                c -> c.setObject(1, subKeyData), fetchSize, consumer);
+    }
+
+    public void forEachBySubkey(final String subKey, final String subKeyData, final Consumer<? super T> consumer) {
+        forEachBySubkey(subKey, subKeyData, "=", DEFAULT_FETCH_SIZE, consumer);
+    }
+
+    void stream(final String query, final PgStore.SqlConsumer<PreparedStatement> binder, final int fetchSize,
+                        final Consumer<? super T> consumer) {
+        store.sql(con -> {
+            // the PostgreSQL driver only uses a cursor (instead of reading everything) outside of autocommit
+            final boolean autoCommit = con.getAutoCommit();
+            con.setAutoCommit(false);
+            try(final PreparedStatement c = con.prepareStatement(query, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+                c.setFetchSize(fetchSize);
+                binder.sql(c);
+                try(final ResultSet resultSet = c.executeQuery()) {
+                    while(resultSet.next()) {
+                        final T entity;
+                        try {
+                            entity = loadFromResultSet(resultSet);
+                        } catch(final IllegalStateException e) {
+                            logger.error("Load error:", e);
+                            continue;
+                        }
+                        consumer.accept(entity);
+                    }
+                }
+                con.commit();
+            } catch(final SQLException | RuntimeException e) {
+                con.rollback();
+                throw e;
+            } finally {
+                con.setAutoCommit(autoCommit);
+            }
+        });
+    }
+
     public List<T> sum(final String columnName, final String where) {
         final List<T> data = new ArrayList<>();
         store.sql("SELECT SUM(" + columnName + ") FROM " + table.value() + " WHERE " + where + " ;", c -> {
@@ -260,6 +489,7 @@ public class PgMapper<T> {
     }
 
     public Optional<Boolean> delete(final Object pk) {
+        forgetQueued(Collections.singleton(pk));
         AtomicReference<Optional<Boolean>> result = new AtomicReference<>(Optional.empty());
         store.sql("DELETE FROM " + table.value() + " WHERE " + primaryKey.value() + " = ?;", c -> {
             c.setObject(1, pk);
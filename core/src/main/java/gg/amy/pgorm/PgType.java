@@ -0,0 +1,78 @@
+/*
+ * Copyright (C) 2019-2021 FratikB0T Contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package gg.amy.pgorm;
+
+import java.math.BigDecimal;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+
+/**
+ * Type a JSONB field is cast to in typed indexes and {@link Query} predicates. Postgres only uses an
+ * expression index when the query contains the very same expression, so both go through
+ * {@link #expression(String)}.
+ */
+public enum PgType {
+    TEXT(null),
+    BIGINT("bigint"),
+    NUMERIC("numeric"),
+    BOOLEAN("boolean");
+
+    private final String cast;
+
+    PgType(final String cast) {
+        this.cast = cast;
+    }
+
+    /**
+     * @return {@code (data->>'field')}, cast to this type
+     */
+    public String expression(final String field) {
+        final String text = "(data->>'" + field.replace("'", "''") + "')";
+        return cast == null ? text : '(' + text + "::" + cast + ')';
+    }
+
+    /**
+     * @return The type matching the Java type of the value, {@link #TEXT} for anything unknown
+     */
+    public static PgType of(final Object value) {
+        if(value instanceof Long || value instanceof Integer || value instanceof Short || value instanceof Byte) {
+            return BIGINT;
+        } else if(value instanceof Double || value instanceof Float || value instanceof BigDecimal) {
+            return NUMERIC;
+        } else if(value instanceof Boolean) {
+            return BOOLEAN;
+        }
+        return TEXT;
+    }
+
+    void bind(final PreparedStatement statement, final int index, final Object value) throws SQLException {
+        switch(this) {
+            case BIGINT:
+                statement.setLong(index, ((Number) value).longValue());
+                break;
+            case NUMERIC:
+                statement.setBigDecimal(index, value instanceof BigDecimal ? (BigDecimal) value : new BigDecimal(value.toString()));
+                break;
+            case BOOLEAN:
+                statement.setBoolean(index, (Boolean) value);
+                break;
+            default:
+                statement.setString(index, String.valueOf(value));
+        }
+    }
+}
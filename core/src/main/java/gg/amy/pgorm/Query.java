@@ -0,0 +1,173 @@
+/*
+ * Copyright (C) 2019-2021 FratikB0T Contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package gg.amy.pgorm;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Typed query over a {@link PgMapper}'s table. Fields are extracted with {@code ->>} and cast to the
+ * {@link PgType} of the value (or the one given explicitly), so predicates compare numbers as numbers
+ * and match {@link gg.amy.pgorm.annotations.TypedIndex} expression indexes. The primary key name
+ * refers to the key column itself.
+ * <pre>
+ * mapper.query().where("guildId", Op.EQ, guildId).where("date", Op.LT, date)
+ *         .orderBy("date", PgType.BIGINT, true).limit(10).list();
+ * </pre>
+ */
+public final class Query<T> {
+    private final PgMapper<T> mapper;
+    private final StringBuilder where = new StringBuilder();
+    private final List<Object> values = new ArrayList<>();
+    private final List<PgType> types = new ArrayList<>();
+    private final StringBuilder orderBy = new StringBuilder();
+    private int limit = -1;
+    private long offset;
+
+    Query(final PgMapper<T> mapper) {
+        this.mapper = mapper;
+    }
+
+    public Query<T> where(final String field, final Op op, final Object value) {
+        return where(field, op, value, PgType.of(value));
+    }
+
+    public Query<T> where(final String field, final Op op, final Object value, final PgType type) {
+        if(value == null) {
+            throw new IllegalArgumentException("Use a dedicated query for NULL values of " + field);
+        }
+        where.append(where.length() == 0 ? " WHERE " : " AND ").append(expression(field, type)).append(' ')
+                .append(op.sql).append(" ?");
+        values.add(value);
+        types.add(isPrimaryKey(field) ? null : type);
+        return this;
+    }
+
+    public Query<T> orderBy(final String field, final PgType type, final boolean descending) {
+        orderBy.append(orderBy.length() == 0 ? " ORDER BY " : ", ").append(expression(field, type))
+                .append(descending ? " DESC" : " ASC");
+        return this;
+    }
+
+    public Query<T> limit(final int limit) {
+        this.limit = limit;
+        return this;
+    }
+
+    public Query<T> offset(final long offset) {
+        this.offset = offset;
+        return this;
+    }
+
+    public List<T> list() {
+        final List<T> data = new ArrayList<>();
+        mapper.getStore().sql(sql("*"), c -> {
+            bind(c);
+            try(final ResultSet resultSet = c.executeQuery()) {
+                while(resultSet.next()) {
+                    try {
+                        data.add(mapper.loadFromResultSet(resultSet));
+                    } catch(final IllegalStateException ignored) {
+                        // already logged by the mapper
+                    }
+                }
+            }
+        });
+        return data;
+    }
+
+    public Optional<T> first() {
+        final List<T> data = limit(1).list();
+        return data.isEmpty() ? Optional.empty() : Optional.of(data.get(0));
+    }
+
+    /**
+     * Counts matching rows; order, limit and offset are ignored.
+     */
+    public long count() {
+        final AtomicLong count = new AtomicLong();
+        mapper.getStore().sql("SELECT COUNT(*) FROM " + mapper.getTableName() + where + ';', c -> {
+            bind(c);
+            try(final ResultSet resultSet = c.executeQuery()) {
+                if(resultSet.next()) {
+                    count.set(resultSet.getLong(1));
+                }
+            }
+        });
+        return count.get();
+    }
+
+    /**
+     * Streams the results with a cursor instead of loading them all at once, see {@link PgMapper#forEach(Consumer)}.
+     */
+    public void forEach(final Consumer<? super T> consumer) {
+        mapper.stream(sql("*"), this::bind, PgMapper.DEFAULT_FETCH_SIZE, consumer);
+    }
+
+    String sql(final String columns) {
+        final StringBuilder sb = new StringBuilder("SELECT ").append(columns).append(" FROM ")
+                .append(mapper.getTableName()).append(where).append(orderBy);
+        if(limit >= 0) {
+            sb.append(" LIMIT ").append(limit);
+        }
+        if(offset > 0) {
+            sb.append(" OFFSET ").append(offset);
+        }
+        return sb.append(';').toString();
+    }
+
+    private void bind(final PreparedStatement c) throws SQLException {
+        for(int i = 0; i < values.size(); i++) {
+            final PgType type = types.get(i);
+            if(type == null) {
+                c.setObject(i + 1, values.get(i));
+            } else {
+                type.bind(c, i + 1, values.get(i));
+            }
+        }
+    }
+
+    private boolean isPrimaryKey(final String field) {
+        return field.equals(mapper.getPrimaryKeyName());
+    }
+
+    private String expression(final String field, final PgType type) {
+        return isPrimaryKey(field) ? field : type.expression(field);
+    }
+
+    public enum Op {
+        EQ("="),
+        NE("<>"),
+        LT("<"),
+        LE("<="),
+        GT(">"),
+        GE(">=");
+
+        private final String sql;
+
+        Op(final String sql) {
+            this.sql = sql;
+        }
+    }
+}
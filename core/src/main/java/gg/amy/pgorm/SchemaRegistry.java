@@ -0,0 +1,160 @@
+/*
+ * Copyright (C) 2019-2021 FratikB0T Contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package gg.amy.pgorm;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.*;
+import java.util.*;
+
+/**
+ * Remembers which table/index definitions were already applied, so {@link PgMapper}s don't run
+ * DDL (and take catalog locks) on every startup.
+ * <p/>
+ * Every mapped table gets a row in {@value #TABLE} with a hash of its DDL. When the hash matches
+ * nothing is executed; otherwise missing (or invalid, left over by a failed build) indexes are
+ * built with {@code CREATE INDEX CONCURRENTLY}, so writes to the table aren't blocked meanwhile.
+ */
+public final class SchemaRegistry {
+    static final String TABLE = "pgorm_schema";
+    private static final String UNDEFINED_TABLE = "42P01";
+    private static final Map<PgStore, SchemaRegistry> REGISTRIES = new IdentityHashMap<>();
+
+    private final Logger logger = LoggerFactory.getLogger(getClass());
+    private final PgStore store;
+    private final Map<String, String> hashes = new HashMap<>();
+
+    private SchemaRegistry(final PgStore store) {
+        this.store = store;
+        store.sql(con -> {
+            try(final Statement s = con.createStatement();
+                final ResultSet rs = s.executeQuery("SELECT table_name, hash FROM " + TABLE + ';')) {
+                while(rs.next()) {
+                    hashes.put(rs.getString(1), rs.getString(2));
+                }
+            } catch(final SQLException e) {
+                if(!UNDEFINED_TABLE.equals(e.getSQLState())) throw e;
+                try(final Statement s = con.createStatement()) {
+                    s.execute("CREATE TABLE IF NOT EXISTS " + TABLE + " (table_name TEXT PRIMARY KEY NOT NULL, " +
+                            "hash TEXT NOT NULL, updated TIMESTAMPTZ NOT NULL DEFAULT now());");
+                }
+            }
+        });
+    }
+
+    static synchronized SchemaRegistry of(final PgStore store) {
+        return REGISTRIES.computeIfAbsent(store, SchemaRegistry::new);
+    }
+
+    /**
+     * Makes sure the table and its indexes exist, unless they were already created from the same definition.
+     *
+     * @param table       The table name
+     * @param createTable {@code CREATE TABLE IF NOT EXISTS} statement of the table
+     * @param indexes     Index name -> index definition (everything after {@code ON <table>})
+     */
+    void ensure(final String table, final String createTable, final Map<String, String> indexes) {
+        final StringBuilder definition = new StringBuilder(createTable);
+        indexes.forEach((name, def) -> definition.append('\n').append(name).append(' ').append(def));
+        final String hash = sha256(definition.toString());
+        synchronized(this) {
+            if(hash.equals(hashes.get(table))) {
+                logger.debug("Schema of {} is up to date, skipping DDL.", table);
+                return;
+            }
+        }
+        store.sql(con -> {
+            // CONCURRENTLY can't run inside a transaction block
+            final boolean autoCommit = con.getAutoCommit();
+            con.setAutoCommit(true);
+            try(final Statement s = con.createStatement()) {
+                s.execute(createTable);
+                final Map<String, Boolean> existing = new HashMap<>();
+                try(final PreparedStatement ps = con.prepareStatement("SELECT c.relname, i.indisvalid FROM pg_index i " +
+                        "JOIN pg_class c ON c.oid = i.indexrelid JOIN pg_class t ON t.oid = i.indrelid WHERE t.relname = ?;")) {
+                    // unquoted identifiers are folded to lower case
+                    ps.setString(1, table.toLowerCase(Locale.ROOT));
+                    try(final ResultSet rs = ps.executeQuery()) {
+                        while(rs.next()) {
+                            existing.put(rs.getString(1), rs.getBoolean(2));
+                        }
+                    }
+                }
+                for(final Map.Entry<String, String> index : indexes.entrySet()) {
+                    final Boolean valid = existing.get(index.getKey().toLowerCase(Locale.ROOT));
+                    if(Boolean.TRUE.equals(valid)) continue;
+                    if(valid != null) {
+                        logger.warn("Index {} on {} is invalid, rebuilding.", index.getKey(), table);
+                        s.execute("DROP INDEX CONCURRENTLY IF EXISTS " + index.getKey() + ';');
+                    }
+                    s.execute("CREATE INDEX CONCURRENTLY IF NOT EXISTS " + index.getKey() + " ON " + table + ' ' + index.getValue() + ';');
+                    logger.info("Created index {} on {}.", index.getKey(), table);
+                }
+            } finally {
+                con.setAutoCommit(autoCommit);
+            }
+            try(final PreparedStatement ps = con.prepareStatement("INSERT INTO " + TABLE + " (table_name, hash) VALUES (?, ?) " +
+                    "ON CONFLICT (table_name) DO UPDATE SET hash = excluded.hash, updated = now();")) {
+                ps.setString(1, table);
+                ps.setString(2, hash);
+                ps.execute();
+            }
+        });
+        synchronized(this) {
+            hashes.put(table, hash);
+        }
+    }
+
+    /**
+     * Lists indexes of the mapped tables that were never scanned since the statistics were last reset,
+     * according to {@code pg_stat_user_indexes}. Primary keys are skipped.
+     *
+     * @return {@code table.index (size)} of every unused index
+     */
+    public static List<String> findUnusedIndexes(final PgStore store) {
+        final List<String> unused = new ArrayList<>();
+        store.sql("SELECT s.relname, s.indexrelname, pg_size_pretty(pg_relation_size(s.indexrelid)) " +
+                "FROM pg_stat_user_indexes s JOIN pg_index i ON i.indexrelid = s.indexrelid " +
+                "WHERE s.idx_scan = 0 AND NOT i.indisprimary AND NOT i.indisunique " +
+                "AND s.relname IN (SELECT lower(table_name) FROM " + TABLE + ") ORDER BY pg_relation_size(s.indexrelid) DESC;", c -> {
+            try(final ResultSet rs = c.executeQuery()) {
+                while(rs.next()) {
+                    unused.add(rs.getString(1) + '.' + rs.getString(2) + " (" + rs.getString(3) + ')');
+                }
+            }
+        });
+        return unused;
+    }
+
+    private static String sha256(final String s) {
+        try {
+            final byte[] digest = MessageDigest.getInstance("SHA-256").digest(s.getBytes(StandardCharsets.UTF_8));
+            final StringBuilder sb = new StringBuilder(digest.length * 2);
+            for(final byte b : digest) {
+                sb.append(String.format("%02x", b));
+            }
+            return sb.toString();
+        } catch(final NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,173 @@
+/*
+ * Copyright (C) 2019-2021 FratikB0T Contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package gg.amy.pgorm;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Write-behind queue for a single {@link PgMapper}. Saves are serialized to JSON right away (so later
+ * mutations of the entity don't leak in), coalesced by primary key and written as multi-row upserts
+ * once {@code batchSize} rows are waiting or every {@code flushIntervalMs}.
+ * <p/>
+ * When {@code maxPending} rows are waiting the saving thread flushes by itself, which throttles
+ * producers down to the speed of the database.
+ */
+public class WriteBehindQueue<T> {
+    private static final Set<WriteBehindQueue<?>> QUEUES = new CopyOnWriteArraySet<>();
+    private static final ScheduledExecutorService EXECUTOR =
+            Executors.newSingleThreadScheduledExecutor(r -> {
+                final Thread thread = new Thread(r, "PgMapper-WriteBehind");
+                // shutdown goes through flushAll(), this thread shouldn't keep the JVM alive
+                thread.setDaemon(true);
+                return thread;
+            });
+
+    private final Logger logger = LoggerFactory.getLogger(getClass());
+    private final PgMapper<T> mapper;
+    private final int batchSize;
+    private final int maxPending;
+    // flushes must not overlap - an older batch committed after a newer one would win
+    private final ReentrantLock flushLock = new ReentrantLock();
+    private final AtomicBoolean flushScheduled = new AtomicBoolean();
+    private Map<Object, String> pending = new LinkedHashMap<>();
+    private volatile Map<Object, String> inFlight = new LinkedHashMap<>();
+
+    WriteBehindQueue(final PgMapper<T> mapper, final int batchSize, final int maxPending, final long flushIntervalMs) {
+        this.mapper = mapper;
+        this.batchSize = batchSize;
+        this.maxPending = maxPending;
+        EXECUTOR.scheduleWithFixedDelay(this::flushQuietly, flushIntervalMs, flushIntervalMs, TimeUnit.MILLISECONDS);
+        QUEUES.add(this);
+    }
+
+    void enqueue(final Object pk, final String json) {
+        final int size;
+        synchronized(this) {
+            pending.put(pk, json);
+            size = pending.size();
+        }
+        if(size >= maxPending) {
+            logger.debug("Write-behind queue for {} is full ({} rows), flushing on caller thread", mapper.getTableName(), size);
+            flush();
+        } else if(size >= batchSize && flushScheduled.compareAndSet(false, true)) {
+            EXECUTOR.execute(() -> {
+                flushScheduled.set(false);
+                flushQuietly();
+            });
+        }
+    }
+
+    /**
+     * @return JSON of a row that was saved but might not have reached the database yet, or {@code null}.
+     */
+    String pendingJson(final Object pk) {
+        synchronized(this) {
+            final String json = pending.get(pk);
+            if(json != null) {
+                return json;
+            }
+        }
+        return inFlight.get(pk);
+    }
+
+    /**
+     * Drops queued rows for these keys, so a later flush can't overwrite a synchronous save or bring back a
+     * deleted row. If a flush is running it's waited for first, since it might be writing one of them.
+     */
+    void forget(final Collection<?> pks) {
+        synchronized(this) {
+            if(pending.isEmpty() && inFlight.isEmpty()) {
+                return;
+            }
+        }
+        flushLock.lock();
+        try {
+            synchronized(this) {
+                pending.keySet().removeAll(pks);
+            }
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    public synchronized int size() {
+        return pending.size();
+    }
+
+    /**
+     * Writes everything that is waiting. Rows that failed to save are put back in the queue
+     * (unless a newer version was saved in the meantime) and the exception is rethrown.
+     */
+    public void flush() {
+        flushLock.lock();
+        try {
+            final Map<Object, String> batch;
+            synchronized(this) {
+                if(pending.isEmpty()) {
+                    return;
+                }
+                batch = pending;
+                pending = new LinkedHashMap<>();
+                inFlight = batch;
+            }
+            try {
+                mapper.saveJson(batch);
+            } catch(final RuntimeException e) {
+                synchronized(this) {
+                    final Map<Object, String> requeued = new LinkedHashMap<>(batch);
+                    requeued.putAll(pending);
+                    pending = requeued;
+                }
+                throw e;
+            } finally {
+                inFlight = new LinkedHashMap<>();
+            }
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch(final Exception e) {
+            logger.error("Couldn't flush write-behind queue for {}, will retry: {}", mapper.getTableName(), e);
+        }
+    }
+
+    /**
+     * Flushes every queue. Call before disconnecting the {@link PgStore}.
+     */
+    public static void flushAll() {
+        for(final WriteBehindQueue<?> queue : QUEUES) {
+            queue.flushQuietly();
+        }
+    }
+}
@@ -0,0 +1,43 @@
+/*
+ * Copyright (C) 2019-2021 FratikB0T Contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package gg.amy.pgorm.annotations;
+
+import gg.amy.pgorm.PgType;
+
+import java.lang.annotation.*;
+
+/**
+ * BTREE index on {@code ->>} extracted (and cast) JSONB fields, e.g. {@code ((data->>'date')::bigint)}.
+ * Unlike {@link BtreeIndex}/{@link GIndex} it can be used by {@code =}/{@code <}/{@code ORDER BY}
+ * predicates built with {@link gg.amy.pgorm.Query}.
+ */
+@Documented
+@Repeatable(TypedIndexes.class)
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.TYPE)
+public @interface TypedIndex {
+    /**
+     * @return The fields, one index column each
+     */
+    String[] value();
+
+    /**
+     * @return Types of the columns, in order; columns past the end get the last given type
+     */
+    PgType[] type() default PgType.TEXT;
+}
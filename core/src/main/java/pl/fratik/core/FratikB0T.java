@@ -18,7 +18,6 @@
 package pl.fratik.core;
 
 import com.google.common.collect.ImmutableList;
-import com.google.common.eventbus.AsyncEventBus;
 import com.google.common.util.concurrent.ServiceManager;
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
@@ -43,6 +42,8 @@ import pl.fratik.core.crypto.AES;
 import pl.fratik.core.crypto.CryptoException;
 import pl.fratik.core.entity.*;
 import pl.fratik.core.event.ConnectedEvent;
+import pl.fratik.core.event.DatabaseUpdateEvent;
+import pl.fratik.core.event.PluginMessageEvent;
 import pl.fratik.core.manager.ManagerArgumentow;
 import pl.fratik.core.manager.ManagerBazyDanych;
 import pl.fratik.core.manager.ManagerKomend;
@@ -51,6 +52,7 @@ import pl.fratik.core.manager.implementation.ManagerArgumentowImpl;
 import pl.fratik.core.manager.implementation.ManagerBazyDanychImpl;
 import pl.fratik.core.manager.implementation.ManagerKomendImpl;
 import pl.fratik.core.manager.implementation.ManagerModulowImpl;
+import pl.fratik.core.metrics.Metryki;
 import pl.fratik.core.service.FratikB0TService;
 import pl.fratik.core.service.ScheduleService;
 import pl.fratik.core.service.StatusService;
@@ -81,6 +83,7 @@ class FratikB0T {
     private ServiceManager statusService;
     private ServiceManager scheduleService;
     private EventWaiter eventWaiter;
+    private ShardedEventBus eventBus;
 
     private static final File cfg = new File("config.json");
     private static boolean shutdownThreadRegistered = false;
@@ -88,7 +91,9 @@ class FratikB0T {
 
     FratikB0T(String token, boolean encryptedConfig) {
         logger = LoggerFactory.getLogger(FratikB0T.class);
-        AsyncEventBus eventBus = new AsyncEventBus(Executors.newFixedThreadPool(16), EventBusErrorHandler.instance);
+        eventBus = new ShardedEventBus(16, 16, 10_000, 100, JDAEventHandler::kluczSerwera);
+        eventBus.nieOdrzucaj(DatabaseUpdateEvent.class, PluginMessageEvent.class);
+        Metryki.zarejestrujJmx();
 
         logger.info("Ładuje jądro v{}...", Statyczne.CORE_VERSION);
         registerShutdownThread();
@@ -262,7 +267,7 @@ class FratikB0T {
                 });
                 RedisCacheManager redisCacheManager = new RedisCacheManager(Globals.clientId);
                 eventBus.register(redisCacheManager);
-                UserUtil.setGcCache(redisCacheManager.new CacheRetriever<GuildConfig>(){}.getCache());
+                UserUtil.setGcCache(redisCacheManager.getGuildConfigCache());
                 UserUtil.setGbanCache(redisCacheManager.new CacheRetriever<GbanData>(){}.getCache());
                 UserUtil.setTimeZoneCache(redisCacheManager.new CacheRetriever<String>(){}.getCache());
                 GuildUtil.setGbanCache(redisCacheManager.new CacheRetriever<GbanData>(){}.getCache());
@@ -346,6 +351,10 @@ class FratikB0T {
                 } catch (TimeoutException ignored) {/*lul*/}
             }
             if (eventWaiter != null) eventWaiter.shutdown();
+            if (eventBus != null) {
+                logger.debug("Czekam na obsłużenie eventów w kolejce...");
+                eventBus.shutdown(30, TimeUnit.SECONDS);
+            }
             if (mbd != null) {
                 logger.debug("Zamykam bazę danych...");
                 mbd.shutdown();
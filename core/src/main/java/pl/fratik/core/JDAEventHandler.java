@@ -21,13 +21,24 @@ import com.google.common.eventbus.EventBus;
 import lombok.Setter;
 import net.dv8tion.jda.api.events.GenericEvent;
 import net.dv8tion.jda.api.events.ReadyEvent;
+import net.dv8tion.jda.api.events.channel.category.GenericCategoryEvent;
+import net.dv8tion.jda.api.events.channel.store.GenericStoreChannelEvent;
+import net.dv8tion.jda.api.events.channel.text.GenericTextChannelEvent;
+import net.dv8tion.jda.api.events.channel.voice.GenericVoiceChannelEvent;
+import net.dv8tion.jda.api.events.emote.GenericEmoteEvent;
+import net.dv8tion.jda.api.events.guild.GenericGuildEvent;
+import net.dv8tion.jda.api.events.interaction.GenericInteractionCreateEvent;
+import net.dv8tion.jda.api.events.message.GenericMessageEvent;
 import net.dv8tion.jda.api.events.message.MessageReceivedEvent;
+import net.dv8tion.jda.api.events.role.GenericRoleEvent;
+import net.dv8tion.jda.api.events.user.GenericUserEvent;
 import net.dv8tion.jda.api.hooks.EventListener;
 import net.dv8tion.jda.api.hooks.VoiceDispatchInterceptor;
 import net.dv8tion.jda.internal.JDAImpl;
 import net.dv8tion.jda.internal.handle.PresenceUpdateHandler;
 import net.dv8tion.jda.internal.handle.SocketHandler;
 import org.jetbrains.annotations.NotNull;
+import pl.fratik.core.event.LvlupEvent;
 
 import javax.annotation.Nonnull;
 import java.util.Map;
@@ -53,6 +64,31 @@ public class JDAEventHandler implements EventListener, VoiceDispatchInterceptor
         }
     }
 
+    /**
+     * Klucz pasa w {@link pl.fratik.core.util.ShardedEventBus}: ID serwera, a dla eventów spoza serwera
+     * ID kanału prywatnego/użytkownika. {@code 0}, jeżeli event nie dotyczy żadnego z nich.
+     */
+    static long kluczSerwera(Object event) {
+        if (event instanceof GenericGuildEvent) return ((GenericGuildEvent) event).getGuild().getIdLong();
+        if (event instanceof GenericMessageEvent) {
+            GenericMessageEvent e = (GenericMessageEvent) event;
+            return e.isFromGuild() ? e.getGuild().getIdLong() : e.getChannel().getIdLong();
+        }
+        if (event instanceof GenericTextChannelEvent) return ((GenericTextChannelEvent) event).getGuild().getIdLong();
+        if (event instanceof GenericVoiceChannelEvent) return ((GenericVoiceChannelEvent) event).getGuild().getIdLong();
+        if (event instanceof GenericCategoryEvent) return ((GenericCategoryEvent) event).getGuild().getIdLong();
+        if (event instanceof GenericStoreChannelEvent) return ((GenericStoreChannelEvent) event).getGuild().getIdLong();
+        if (event instanceof GenericRoleEvent) return ((GenericRoleEvent) event).getGuild().getIdLong();
+        if (event instanceof GenericEmoteEvent) return ((GenericEmoteEvent) event).getGuild().getIdLong();
+        if (event instanceof GenericInteractionCreateEvent) {
+            GenericInteractionCreateEvent e = (GenericInteractionCreateEvent) event;
+            return e.getGuild() != null ? e.getGuild().getIdLong() : e.getUser().getIdLong();
+        }
+        if (event instanceof GenericUserEvent) return ((GenericUserEvent) event).getUser().getIdLong();
+        if (event instanceof LvlupEvent) return ((LvlupEvent) event).getMember().getGuild().getIdLong();
+        return 0;
+    }
+
     @Override
     public void onVoiceServerUpdate(@Nonnull VoiceServerUpdate update) {
         if (vdi == null) return;
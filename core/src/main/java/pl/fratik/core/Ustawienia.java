@@ -65,6 +65,13 @@ public class Ustawienia {
     @SerializedName("allowedIPs")
     public List<String> allowedIPs = new ArrayList<>();
     public String translationUrl = "https://translate.fratikbot.pl";
+    public boolean wspoldzieloneLimity = false;
+    // auto, wirtualne albo pule
+    public String wykonywanieKomend = "auto";
+    // rankingi punktów serwerów, o które ktoś pyta, są trzymane też w Redisie (ZSET)
+    public boolean rankingPunktowWRedisie = false;
+    // ostatnie wiadomości kanałów (logi edycji/usunięć) są zapisywane też w Redisie, żeby przetrwały restart
+    public boolean logWiadomosciWRedisie = false;
 
     public static class GamesClass {
         public Activity.ActivityType type = Activity.ActivityType.DEFAULT;
@@ -19,12 +19,14 @@ package pl.fratik.core.cache;
 
 import javax.annotation.Nonnull;
 import java.util.Map;
+import java.util.Set;
 import java.util.function.Function;
 
 public interface Cache<V> {
     V getIfPresent(@Nonnull Object key);
     V get(@Nonnull String key, @Nonnull Function<String, ? extends V> mappingFunction);
     Map<String, V> getAllPresent(@Nonnull Iterable<?> keys);
+    Map<String, V> getAll(@Nonnull Iterable<?> keys, @Nonnull Function<? super Set<String>, ? extends Map<String, ? extends V>> bulkLoader);
     void put(@Nonnull String key, @Nonnull V value);
     void putAll(@Nonnull Map<String, ? extends V> map);
     void invalidate(@Nonnull Object key);
@@ -0,0 +1,163 @@
+/*
+ * Copyright (C) 2019-2021 FratikB0T Contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package pl.fratik.core.cache;
+
+import com.google.common.reflect.TypeToken;
+
+import javax.annotation.Nonnull;
+import java.util.*;
+import java.util.function.Function;
+
+/**
+ * Cache dwupoziomowy - L1 w pamięci procesu przed {@link RedisCache} (L2).
+ * Unieważnianiem L1 zajmuje się {@link RedisCacheManager} (lokalnie i przez pub/sub Redisa).
+ * @see RedisCacheManager.CacheRetriever#getNearCache()
+ */
+public class NearCache<V> implements Cache<V> {
+    private final RedisCacheManager rcm;
+    private final RedisCache<V> redisCache;
+    private final TypeToken<V> holds;
+    private final String customName;
+    private final RedisCacheManager.NearStore store;
+    private final com.github.benmanes.caffeine.cache.Cache<String, Object> l1;
+
+    NearCache(RedisCacheManager rcm, RedisCache<V> redisCache, TypeToken<V> holds, String customName,
+              RedisCacheManager.NearStore store) {
+        this.rcm = rcm;
+        this.redisCache = redisCache;
+        this.holds = holds;
+        this.customName = customName;
+        this.store = store;
+        this.l1 = store.cache;
+    }
+
+    @SuppressWarnings("unchecked")
+    private V getFromL1(String dbkey) {
+        return (V) l1.getIfPresent(dbkey);
+    }
+
+    private void putToL1(String dbkey, V value, long generation) {
+        // jeżeli w trakcie ładowania przyszło unieważnienie, wartość może być nieaktualna - nie zapisujemy jej
+        if (value == null || generation != store.generacja(dbkey)) return;
+        l1.put(dbkey, value);
+        // unieważnienie mogło przyjść między sprawdzeniem a zapisem
+        if (generation != store.generacja(dbkey)) l1.invalidate(dbkey);
+    }
+
+    @Override
+    public V getIfPresent(@Nonnull Object key) {
+        String dbkey = rcm.getDbkey(key, holds, customName);
+        V v = getFromL1(dbkey);
+        if (v != null) return v;
+        long generation = store.generacja(dbkey);
+        v = redisCache.getIfPresent(key);
+        putToL1(dbkey, v, generation);
+        return v;
+    }
+
+    @Override
+    public V get(@Nonnull String key, @Nonnull Function<String, ? extends V> mappingFunction) {
+        String dbkey = rcm.getDbkey(key, holds, customName);
+        V v = getFromL1(dbkey);
+        if (v != null) return v;
+        long generation = store.generacja(dbkey);
+        v = redisCache.get(key, mappingFunction);
+        putToL1(dbkey, v, generation);
+        return v;
+    }
+
+    @Override
+    public Map<String, V> getAllPresent(@Nonnull Iterable<?> keys) {
+        return getAll0(keys, null);
+    }
+
+    @Override
+    public Map<String, V> getAll(@Nonnull Iterable<?> keys, @Nonnull Function<? super Set<String>, ? extends Map<String, ? extends V>> bulkLoader) {
+        return getAll0(keys, bulkLoader);
+    }
+
+    private Map<String, V> getAll0(Iterable<?> keys, Function<? super Set<String>, ? extends Map<String, ? extends V>> bulkLoader) {
+        Map<String, V> znalezione = new HashMap<>();
+        List<String> brakujace = new ArrayList<>();
+        Map<String, Long> generacje = new HashMap<>();
+        for (Object obj : keys) {
+            String str = obj.toString();
+            String dbkey = rcm.getDbkey(str, holds, customName);
+            V v = getFromL1(dbkey);
+            if (v != null) znalezione.put(str, v);
+            else {
+                brakujace.add(str);
+                generacje.put(str, store.generacja(dbkey));
+            }
+        }
+        if (!brakujace.isEmpty()) {
+            Map<String, V> zRedisa = bulkLoader == null ? redisCache.getAllPresent(brakujace) :
+                    redisCache.getAll(brakujace, bulkLoader);
+            for (Map.Entry<String, V> ent : zRedisa.entrySet()) {
+                Long generation = generacje.get(ent.getKey());
+                if (generation != null)
+                    putToL1(rcm.getDbkey(ent.getKey(), holds, customName), ent.getValue(), generation);
+                znalezione.put(ent.getKey(), ent.getValue());
+            }
+        }
+        Map<String, V> map = new LinkedHashMap<>();
+        for (Object obj : keys) {
+            String str = obj.toString();
+            V v = znalezione.get(str);
+            if (v != null) map.put(str, v);
+        }
+        return map;
+    }
+
+    @Override
+    public void put(@Nonnull String key, @Nonnull V value) {
+        redisCache.put(key, value);
+        l1.put(rcm.getDbkey(key, holds, customName), value);
+    }
+
+    @Override
+    public void putAll(@Nonnull Map<String, ? extends V> map) {
+        redisCache.putAll(map);
+    }
+
+    @Override
+    public void invalidate(@Nonnull Object key) {
+        l1.invalidate(rcm.getDbkey(key, holds, customName));
+        redisCache.invalidate(key);
+    }
+
+    @Override
+    public long getTTL(@Nonnull Object key) {
+        return redisCache.getTTL(key);
+    }
+
+    @Override
+    public void invalidateAll() {
+        redisCache.invalidateAll();
+    }
+
+    @Override
+    public void invalidateAll(@Nonnull Iterable<?> keys) {
+        redisCache.invalidateAll(keys);
+    }
+
+    @Override
+    public Map<String, V> asMap() {
+        return redisCache.asMap();
+    }
+}
@@ -18,11 +18,12 @@
 package pl.fratik.core.cache;
 
 import com.google.common.reflect.TypeToken;
+import pl.fratik.core.cache.codec.CacheCodec;
+import pl.fratik.core.cache.codec.CacheCodecs;
 import redis.clients.jedis.exceptions.JedisException;
 
 import javax.annotation.Nonnull;
-import java.util.LinkedHashMap;
-import java.util.Map;
+import java.util.*;
 import java.util.function.Function;
 
 public class RedisCache<V> implements Cache<V> {
@@ -31,13 +32,32 @@ public class RedisCache<V> implements Cache<V> {
     private final boolean canHandleErrors;
     private final String customName;
     private final TypeToken<V> holds;
+    private final CacheCodec codec;
+    private final int staleWhileRevalidate;
 
     public RedisCache(RedisCacheManager rcm, TypeToken<V> holds, int expiry, boolean canHandleErrors, String customName) {
+        this(rcm, holds, expiry, canHandleErrors, customName, CacheCodecs.GSON);
+    }
+
+    public RedisCache(RedisCacheManager rcm, TypeToken<V> holds, int expiry, boolean canHandleErrors, String customName,
+                      CacheCodec codec) {
+        this(rcm, holds, expiry, canHandleErrors, customName, codec, 0);
+    }
+
+    public RedisCache(RedisCacheManager rcm, TypeToken<V> holds, int expiry, boolean canHandleErrors, String customName,
+                      CacheCodec codec, int staleWhileRevalidate) {
         this.rcm = rcm;
         this.holds = holds;
         this.expiry = expiry;
         this.canHandleErrors = canHandleErrors;
         this.customName = customName;
+        this.codec = codec;
+        this.staleWhileRevalidate = staleWhileRevalidate;
+    }
+
+    private int ttl(int expiry) {
+        // przy stale-while-revalidate wartość leży w Redisie dłużej niż jest świeża
+        return staleWhileRevalidate > 0 && expiry > 0 ? expiry + staleWhileRevalidate : expiry;
     }
 
     private V get0(String key) {
@@ -51,22 +71,13 @@ public class RedisCache<V> implements Cache<V> {
 
     private V get0(String key, Function<String, ? extends V> mappingFunction, int expiry) {
         try {
-            return rcm.get(key, holds, customName, mappingFunction, expiry);
+            return rcm.get(key, holds, customName, mappingFunction, expiry, codec, staleWhileRevalidate);
         } catch (JedisException ex) {
             if (canHandleErrors) throw ex;
             else return mappingFunction.apply(key);
         }
     }
 
-    private V getRaw0(String dbkey) {
-        try {
-            return rcm.getRaw(dbkey, holds);
-        } catch (JedisException ex) {
-            if (canHandleErrors) throw ex;
-            return null;
-        }
-    }
-
     @Override
     public V getIfPresent(@Nonnull Object key) {
         return get0(key.toString());
@@ -79,29 +90,47 @@ public class RedisCache<V> implements Cache<V> {
 
     @Override
     public Map<String, V> getAllPresent(@Nonnull Iterable<?> keys) {
-        Map<String, V> map = new LinkedHashMap<>();
-        for (Object obj : keys) {
-            String str = obj.toString();
-            V v = get0(str);
-            if (v != null) map.put(str, v);
+        try {
+            return rcm.getAll(keys, holds, customName);
+        } catch (JedisException ex) {
+            if (canHandleErrors) throw ex;
+            return new LinkedHashMap<>();
+        }
+    }
+
+    @Override
+    public Map<String, V> getAll(@Nonnull Iterable<?> keys, @Nonnull Function<? super Set<String>, ? extends Map<String, ? extends V>> bulkLoader) {
+        try {
+            return rcm.getAll(keys, holds, customName, bulkLoader, ttl(expiry), codec);
+        } catch (JedisException ex) {
+            if (canHandleErrors) throw ex;
+            Set<String> str = new LinkedHashSet<>();
+            for (Object key : keys) str.add(key.toString());
+            Map<String, V> map = new LinkedHashMap<>();
+            Map<String, ? extends V> zaladowane = bulkLoader.apply(Collections.unmodifiableSet(str));
+            for (String key : str) {
+                V v = zaladowane.get(key);
+                if (v != null) map.put(key, v);
+            }
+            return map;
         }
-        return map;
     }
 
     public Map<String, V> getAllPresentRaw(@Nonnull Iterable<?> keys) {
-        Map<String, V> map = new LinkedHashMap<>();
-        for (Object obj : keys) {
-            String str = obj.toString();
-            V v = getRaw0(str);
-            if (v != null) map.put(str, v);
+        List<String> dbkeys = new ArrayList<>();
+        for (Object obj : keys) dbkeys.add(obj.toString());
+        try {
+            return rcm.getAllRaw(dbkeys, holds);
+        } catch (JedisException ex) {
+            if (canHandleErrors) throw ex;
+            return new LinkedHashMap<>();
         }
-        return map;
     }
 
     @Override
     public void put(@Nonnull String key, @Nonnull V value) {
         try {
-            rcm.put(key, holds, customName, value, expiry);
+            rcm.put(key, holds, customName, value, ttl(expiry), codec);
         } catch (JedisException ex) {
             if (canHandleErrors) throw ex;
         }
@@ -110,7 +139,7 @@ public class RedisCache<V> implements Cache<V> {
     @Override
     public void putAll(@Nonnull Map<String, ? extends V> map) {
         try {
-            rcm.putAll(holds, customName, map, expiry);
+            rcm.putAll(holds, customName, map, ttl(expiry), codec);
         } catch (JedisException ex) {
             if (canHandleErrors) throw ex;
         }
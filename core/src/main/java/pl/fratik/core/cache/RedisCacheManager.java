@@ -17,6 +17,7 @@
 
 package pl.fratik.core.cache;
 
+import com.github.benmanes.caffeine.cache.Caffeine;
 import com.google.common.eventbus.AllowConcurrentEvents;
 import com.google.common.eventbus.Subscribe;
 import com.google.common.reflect.TypeToken;
@@ -25,32 +26,56 @@ import lombok.AccessLevel;
 import lombok.Getter;
 import org.apache.commons.pool2.impl.GenericObjectPoolConfig;
 import org.jetbrains.annotations.NotNull;
+import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import pl.fratik.core.cache.codec.CacheCodec;
+import pl.fratik.core.cache.codec.CacheCodecs;
 import pl.fratik.core.entity.DatabaseEntity;
+import pl.fratik.core.entity.GuildConfig;
 import pl.fratik.core.event.DatabaseUpdateEvent;
-import pl.fratik.core.util.GsonUtil;
 import pl.fratik.core.util.NamedThreadFactory;
 import redis.clients.jedis.Jedis;
 import redis.clients.jedis.JedisPool;
+import redis.clients.jedis.JedisPubSub;
+import redis.clients.jedis.Pipeline;
+import redis.clients.jedis.Response;
 import redis.clients.jedis.ScanParams;
 import redis.clients.jedis.ScanResult;
+import redis.clients.jedis.exceptions.JedisException;
 
 import java.io.Closeable;
 import java.lang.reflect.Field;
 import java.lang.reflect.ParameterizedType;
 import java.lang.reflect.Type;
-import java.util.ArrayList;
-import java.util.List;
-import java.util.Map;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
 import java.util.function.Function;
 
 public class RedisCacheManager {
+    private static final int NEAR_MAX_TTL = 60;
+    private static final long NEAR_DEFAULT_SIZE = 10_000;
+    private static final int BATCH_SIZE = 500;
+
     private final String PREFIX;
     @Getter(AccessLevel.PACKAGE) private final JedisPool jedisPool;
     private final ExecutorService executor = Executors.newFixedThreadPool(4, new NamedThreadFactory("RedisCacheManager-AsyncThread"));
+    private final Logger logger = LoggerFactory.getLogger(getClass());
+    // L1 (near cache) per przestrzeń nazw CacheRetriever'a, kluczowane pełnym kluczem z Redisa
+    private final Map<String, NearStore> nearCaches = new ConcurrentHashMap<>();
+    private volatile NearCache<GuildConfig> guildConfigCache;
+    private final String instanceId = UUID.randomUUID().toString();
+    private Thread nearSubscriber;
+    // ładowania w toku (single-flight) - klucz w Redisie -> ładowanie
+    private final Map<String, Ladowanie> ladowania = new ConcurrentHashMap<>();
+    private final Set<String> odswiezania = ConcurrentHashMap.newKeySet();
 
     public RedisCacheManager(long id) {
         GenericObjectPoolConfig pc = new GenericObjectPoolConfig();
@@ -76,30 +101,164 @@ public class RedisCacheManager {
 
     public <T> T getRaw(String dbkey, TypeToken<T> holds) {
         try (WrappedJedis wrappedJedis = getJedis()) {
-            String dane = wrappedJedis.getJedis().get(dbkey);
+            byte[] dane = wrappedJedis.getJedis().get(bytes(dbkey));
             if (dane == null) return null;
-            return GsonUtil.fromJSON(dane, holds.getType());
+            return CacheCodecs.decode(dane, holds.getType());
         }
     }
 
     public <T> T get(String key, TypeToken<T> holds, String customName, Function<String, ? extends T> mappingFunction, int expiry) {
+        return get(key, holds, customName, mappingFunction, expiry, CacheCodecs.GSON);
+    }
+
+    public <T> T get(String key, TypeToken<T> holds, String customName, Function<String, ? extends T> mappingFunction,
+                     int expiry, CacheCodec codec) {
+        return get(key, holds, customName, mappingFunction, expiry, codec, 0);
+    }
+
+    /**
+     * Pobiera wartość, a przy jej braku ładuje ją przez {@code mappingFunction}.
+     * W obrębie procesu dany klucz ładuje naraz tylko jeden wątek - reszta czeka na jego wynik.
+     *
+     * @param staleWhileRevalidate Jeżeli większe od 0, wartości są trzymane w Redisie o tyle sekund dłużej niż
+     *                             {@code expiry}; przez ten czas przeterminowana wartość jest zwracana od razu,
+     *                             a w tle jedno ładowanie ją odświeża
+     */
+    public <T> T get(String key, TypeToken<T> holds, String customName, Function<String, ? extends T> mappingFunction,
+                     int expiry, CacheCodec codec, int staleWhileRevalidate) {
+        String dbkey = getDbkey(key, holds, customName);
+        boolean swr = staleWhileRevalidate > 0 && expiry > 0;
+        int ttl = swr ? expiry + staleWhileRevalidate : expiry;
+        byte[] dane;
+        boolean przeterminowane = false;
         try (WrappedJedis wrappedJedis = getJedis()) {
-            String dbkey = getDbkey(key, holds, customName);
-            String dane = wrappedJedis.getJedis().get(dbkey);
-            if (dane == null) {
-                T v = mappingFunction.apply(key);
-                wrappedJedis.getJedis().set(dbkey, GsonUtil.toJSON(v));
-                if (expiry > 0) {
-                    scheduleAsync(() -> {
-                        try (WrappedJedis wJ = getJedis()) {
-                            wJ.getJedis().expire(dbkey, expiry);
-                        }
-                    });
+            if (swr) {
+                Pipeline pipeline = wrappedJedis.getJedis().pipelined();
+                Response<byte[]> wartosc = pipeline.get(bytes(dbkey));
+                Response<Long> pozostalo = pipeline.ttl(bytes(dbkey));
+                pipeline.sync();
+                dane = wartosc.get();
+                przeterminowane = dane != null && pozostalo.get() >= 0 && pozostalo.get() <= staleWhileRevalidate;
+            } else dane = wrappedJedis.getJedis().get(bytes(dbkey));
+        }
+        if (dane == null) return load(key, dbkey, holds, mappingFunction, ttl, codec, true);
+        // odświeżenie zajmowane atomowo - inaczej każdy czytający przeterminowaną wartość zleciłby własne
+        if (przeterminowane && !ladowania.containsKey(dbkey) && odswiezania.add(dbkey)) {
+            scheduleAsync(() -> {
+                try {
+                    load(key, dbkey, holds, mappingFunction, ttl, codec, false);
+                } catch (Exception ex) {
+                    logger.warn("Nie udało się odświeżyć {} w tle", dbkey, ex);
+                } finally {
+                    odswiezania.remove(dbkey);
                 }
-                return v;
+            });
+        }
+        return CacheCodecs.decode(dane, holds.getType());
+    }
+
+    /**
+     * @param czekaj Czy czekać na ładowanie, które już trwa; jeżeli nie - zwraca {@code null}
+     */
+    private <T> T load(String key, String dbkey, TypeToken<T> holds, Function<String, ? extends T> mappingFunction,
+                       int expiry, CacheCodec codec, boolean czekaj) {
+        Ladowanie nowe = new Ladowanie();
+        Ladowanie ladowanie = ladowania.putIfAbsent(dbkey, nowe);
+        if (ladowanie != null && !czekaj) return null;
+        if (ladowanie != null && ladowanie.watek != Thread.currentThread()) {
+            // ktoś już ładuje ten klucz - każdy dostaje własną kopię, jak przy odczycie z Redisa
+            try {
+                return CacheCodecs.decode(ladowanie.wynik.join(), holds.getType());
+            } catch (CompletionException ex) {
+                if (ex.getCause() instanceof RuntimeException) throw (RuntimeException) ex.getCause();
+                throw ex;
             }
-            return GsonUtil.fromJSON(dane, holds.getType());
         }
+        if (ladowanie != null) return mappingFunction.apply(key); // rekurencyjne ładowanie tego samego klucza
+        try {
+            T v = mappingFunction.apply(key);
+            byte[] zakodowane = codec.encode(v, holds.getType());
+            try (WrappedJedis wrappedJedis = getJedis()) {
+                set(wrappedJedis.getJedis(), dbkey, zakodowane, expiry);
+            }
+            nowe.wynik.complete(zakodowane);
+            return v;
+        } catch (RuntimeException ex) {
+            nowe.wynik.completeExceptionally(ex);
+            throw ex;
+        } finally {
+            ladowania.remove(dbkey, nowe);
+        }
+    }
+
+    public <T> Map<String, T> getAll(Iterable<?> keys, TypeToken<T> holds, String customName) {
+        Map<String, String> dbkeys = new LinkedHashMap<>();
+        for (Object key : keys) dbkeys.put(getDbkey(key, holds, customName), key.toString());
+        Map<String, T> raw = getAllRaw(dbkeys.keySet(), holds);
+        Map<String, T> map = new LinkedHashMap<>();
+        for (Map.Entry<String, T> ent : raw.entrySet()) map.put(dbkeys.get(ent.getKey()), ent.getValue());
+        return map;
+    }
+
+    /**
+     * Pobiera wiele kluczy naraz (MGET w paczkach po {@value BATCH_SIZE}).
+     * @param dbkeys Pełne klucze w Redisie
+     * @param holds Typ przechowywanych wartości
+     * @return Mapa klucz w Redisie -> wartość, tylko dla istniejących kluczy, w kolejności podanych kluczy
+     */
+    public <T> Map<String, T> getAllRaw(Collection<String> dbkeys, TypeToken<T> holds) {
+        Map<String, T> map = new LinkedHashMap<>();
+        if (dbkeys.isEmpty()) return map;
+        List<String> lista = dbkeys instanceof List ? (List<String>) dbkeys : new ArrayList<>(dbkeys);
+        try (WrappedJedis wrappedJedis = getJedis()) {
+            for (int i = 0; i < lista.size(); i += BATCH_SIZE) {
+                List<String> paczka = lista.subList(i, Math.min(i + BATCH_SIZE, lista.size()));
+                byte[][] klucze = new byte[paczka.size()][];
+                for (int j = 0; j < klucze.length; j++) klucze[j] = bytes(paczka.get(j));
+                List<byte[]> dane = wrappedJedis.getJedis().mget(klucze);
+                for (int j = 0; j < paczka.size(); j++) {
+                    byte[] v = dane.get(j);
+                    if (v != null) map.put(paczka.get(j), CacheCodecs.decode(v, holds.getType()));
+                }
+            }
+        }
+        return map;
+    }
+
+    /**
+     * Pobiera wiele kluczy naraz; brakujące ładuje jednym wywołaniem {@code bulkLoader} i zapisuje do Redisa.
+     * @param bulkLoader Funkcja ładująca brakujące klucze, może nie zwrócić wartości dla części z nich
+     * @return Mapa klucz -> wartość, w kolejności podanych kluczy
+     */
+    public <T> Map<String, T> getAll(Iterable<?> keys, TypeToken<T> holds, String customName,
+                                     Function<? super Set<String>, ? extends Map<String, ? extends T>> bulkLoader,
+                                     int expiry) {
+        return getAll(keys, holds, customName, bulkLoader, expiry, CacheCodecs.GSON);
+    }
+
+    public <T> Map<String, T> getAll(Iterable<?> keys, TypeToken<T> holds, String customName,
+                                     Function<? super Set<String>, ? extends Map<String, ? extends T>> bulkLoader,
+                                     int expiry, CacheCodec codec) {
+        Map<String, T> znalezione = getAll(keys, holds, customName);
+        Set<String> brakujace = new LinkedHashSet<>();
+        for (Object key : keys) {
+            if (!znalezione.containsKey(key.toString())) brakujace.add(key.toString());
+        }
+        if (brakujace.isEmpty()) return znalezione;
+        Map<String, ? extends T> zaladowane = bulkLoader.apply(Collections.unmodifiableSet(brakujace));
+        Map<String, T> doZapisania = new LinkedHashMap<>();
+        for (String key : brakujace) {
+            T v = zaladowane.get(key);
+            if (v != null) doZapisania.put(key, v);
+        }
+        putAll(holds, customName, doZapisania, expiry, codec);
+        Map<String, T> map = new LinkedHashMap<>();
+        for (Object key : keys) {
+            String str = key.toString();
+            T v = znalezione.containsKey(str) ? znalezione.get(str) : doZapisania.get(str);
+            if (v != null) map.put(str, v);
+        }
+        return map;
     }
 
     public <T> void putAll(TypeToken<T> holds, String customName, Map<String, ? extends T> map) {
@@ -107,19 +266,29 @@ public class RedisCacheManager {
     }
 
     public <T> void putAll(TypeToken<T> holds, String customName, Map<String, ? extends T> map, int expiry) {
+        putAll(holds, customName, map, expiry, CacheCodecs.GSON);
+    }
+
+    public <T> void putAll(TypeToken<T> holds, String customName, Map<String, ? extends T> map, int expiry, CacheCodec codec) {
+        if (map.isEmpty()) return;
+        List<String> dbkeys = new ArrayList<>();
         try (WrappedJedis wrappedJedis = getJedis()) {
+            Pipeline pipeline = wrappedJedis.getJedis().pipelined();
+            int wPaczce = 0;
             for (Map.Entry<? extends String, ? extends T> ent : map.entrySet()) {
                 String dbkey = getDbkey(ent.getKey(), holds, customName);
-                wrappedJedis.getJedis().set(dbkey, GsonUtil.toJSON(ent.getValue()));
-                if (expiry > 0) {
-                    scheduleAsync(() -> {
-                        try (WrappedJedis wJ = getJedis()) {
-                            wJ.getJedis().expire(dbkey, expiry);
-                        }
-                    });
+                byte[] dane = codec.encode(ent.getValue(), holds.getType());
+                if (expiry > 0) pipeline.setex(bytes(dbkey), expiry, dane);
+                else pipeline.set(bytes(dbkey), dane);
+                dbkeys.add(dbkey);
+                if (++wPaczce >= BATCH_SIZE) {
+                    pipeline.sync();
+                    wPaczce = 0;
                 }
             }
+            pipeline.sync();
         }
+        invalidateNear(dbkeys);
     }
 
     public <T> void put(String key, TypeToken<T> holds, String customName, T value) {
@@ -127,37 +296,78 @@ public class RedisCacheManager {
     }
 
     public <T> void put(String key, TypeToken<T> holds, String customName, T value, int expiry) {
+        put(key, holds, customName, value, expiry, CacheCodecs.GSON);
+    }
+
+    public <T> void put(String key, TypeToken<T> holds, String customName, T value, int expiry, CacheCodec codec) {
         try (WrappedJedis wrappedJedis = getJedis()) {
             String dbkey = getDbkey(key, holds, customName);
-            wrappedJedis.getJedis().set(dbkey, GsonUtil.toJSON(value));
-            if (expiry > 0) {
-                scheduleAsync(() -> {
-                    try (WrappedJedis wJ = getJedis()) {
-                        wJ.getJedis().expire(dbkey, expiry);
-                    }
-                });
-            }
+            set(wrappedJedis.getJedis(), dbkey, codec.encode(value, holds.getType()), expiry);
+            invalidateNear(Collections.singletonList(dbkey));
         }
     }
 
+    private void set(Jedis jedis, String dbkey, byte[] value, int expiry) {
+        // SET ... EX ustawia wartość i TTL atomowo - klucz nigdy nie istnieje bez TTL
+        if (expiry > 0) jedis.setex(bytes(dbkey), expiry, value);
+        else jedis.set(bytes(dbkey), value);
+    }
+
+    private static byte[] bytes(String dbkey) {
+        return dbkey.getBytes(StandardCharsets.UTF_8);
+    }
+
     private void scheduleAsync(Runnable r) {
         executor.execute(r);
     }
 
     public <T> void invalidate(Object key, Class<T> holds, String customName) {
+        String dbkey = getDbkey(key, holds, customName);
+        invalidateNear(Collections.singletonList(dbkey));
         try (WrappedJedis wrappedJedis = getJedis()) {
-            String dbkey = getDbkey(key, holds, customName);
             wrappedJedis.getJedis().del(dbkey);
         }
     }
 
     public <T> void invalidate(Object key, TypeToken<T> holds, String customName) {
+        String dbkey = getDbkey(key, holds, customName);
+        invalidateNear(Collections.singletonList(dbkey));
         try (WrappedJedis wrappedJedis = getJedis()) {
-            String dbkey = getDbkey(key, holds, customName);
             wrappedJedis.getJedis().del(dbkey);
         }
     }
 
+    /**
+     * Zwraca liczniki w Redisie o danej nazwie, patrz {@link RedisCounterMap}.
+     */
+    public RedisCounterMap getCounterMap(String name) {
+        return new RedisCounterMap(this, PREFIX + "::licznik:" + name);
+    }
+
+    /**
+     * Zwraca terminy w Redisie o danej nazwie, patrz {@link RedisDeadlineMap}.
+     */
+    public RedisDeadlineMap getDeadlineMap(String name) {
+        return new RedisDeadlineMap(this, PREFIX + "::termin:" + name);
+    }
+
+    /**
+     * Zwraca rankingi w Redisie o danej nazwie, patrz {@link RedisRanking}.
+     */
+    public RedisRanking getRanking(String name) {
+        return new RedisRanking(this, PREFIX + "::ranking:" + name);
+    }
+
+    /**
+     * Zwraca ograniczone listy w Redisie o danej nazwie, patrz {@link RedisCappedList}.
+     *
+     * @param pojemnosc Ile ostatnich elementów trzymać w liście
+     * @param ttl       Czas życia listy w sekundach, liczony od ostatniego zapisu
+     */
+    public <T> RedisCappedList<T> getCappedList(String name, TypeToken<T> typ, int pojemnosc, int ttl) {
+        return new RedisCappedList<>(this, PREFIX + "::lista:" + name, typ, pojemnosc, ttl);
+    }
+
     public <T> void invalidateAll(Iterable<?> keys, TypeToken<T> holds, String customName) {
         List<String> str = new ArrayList<>();
         for (Object key : keys) {
@@ -172,6 +382,7 @@ public class RedisCacheManager {
         for (Object dbkey : dbKeys)
             str.add(dbkey.toString());
         if (str.isEmpty()) return;
+        invalidateNear(str);
         try (WrappedJedis wrappedJedis = getJedis()) {
             wrappedJedis.getJedis().del(str.toArray(new String[]{}));
         }
@@ -192,7 +403,12 @@ public class RedisCacheManager {
     }
 
     @NotNull
-    private <T> String getDbkey(Object key, TypeToken<T> holds, String customName) {
+    <T> String getDbkey(Object key, TypeToken<T> holds, String customName) {
+        return getNamespace(holds, customName) + key;
+    }
+
+    @NotNull
+    <T> String getNamespace(TypeToken<T> holds, String customName) {
         StringBuilder tak = new StringBuilder(PREFIX + "::" + holds.getRawType().getSimpleName());
         if (holds.getType() instanceof ParameterizedType) {
             Type[] args = ((ParameterizedType) holds.getType()).getActualTypeArguments();
@@ -201,7 +417,7 @@ public class RedisCacheManager {
             }
         }
         if (customName != null) tak.append("::").append(customName);
-        return tak.append(':').append(key).toString();
+        return tak.append(':').toString();
     }
 
     private String resolveTypeSimpleName(Type t) {
@@ -240,6 +456,8 @@ public class RedisCacheManager {
     public abstract class CacheRetriever<T> {
         private final String customName;
         private boolean canHandleErrors = false;
+        private CacheCodec codec = CacheCodecs.GSON;
+        private int staleWhileRevalidate = 0;
 
         protected CacheRetriever() {
             this(null);
@@ -253,12 +471,62 @@ public class RedisCacheManager {
             return getCache(300);
         }
         public RedisCache<T> getCache(int expiry) {
-            return new RedisCache<>(RedisCacheManager.this, new TypeToken<T>(getClass()) {}, expiry, canHandleErrors, customName);
+            return new RedisCache<>(RedisCacheManager.this, new TypeToken<T>(getClass()) {}, expiry, canHandleErrors, customName, codec, staleWhileRevalidate);
+        }
+
+        /**
+         * Zwraca cache dwupoziomowy: L1 w pamięci procesu (Caffeine) przed Redisem (L2).
+         * L1 jest współdzielony przez wszystkie CacheRetriever'y tego samego typu i unieważniany
+         * przez kanał pub/sub Redisa, więc zmiany z innych shardów/procesów są widoczne od razu.
+         * Zwracane obiekty są współdzielone między wywołaniami - nie należy ich modyfikować bez zapisu do bazy.
+         */
+        public NearCache<T> getNearCache() {
+            return getNearCache(300);
+        }
+        public NearCache<T> getNearCache(int expiry) {
+            return getNearCache(expiry, NEAR_DEFAULT_SIZE);
+        }
+        public NearCache<T> getNearCache(int expiry, long maximumSize) {
+            TypeToken<T> holds = new TypeToken<T>(getClass()) {};
+            return new NearCache<>(RedisCacheManager.this, new RedisCache<>(RedisCacheManager.this, holds, expiry,
+                    canHandleErrors, customName, codec, staleWhileRevalidate), holds, customName,
+                    getNearStore(holds, customName, expiry, maximumSize));
         }
         public CacheRetriever<T> setCanHandleErrors(boolean canHandleErrors) {
             this.canHandleErrors = canHandleErrors;
             return this;
         }
+        /**
+         * Ustawia format zapisu wartości (domyślnie JSON z Gson'a). Odczyt rozpoznaje każdy format.
+         * @see CacheCodecs
+         */
+        public CacheRetriever<T> setCodec(CacheCodec codec) {
+            this.codec = codec;
+            return this;
+        }
+        /**
+         * Włącza tryb stale-while-revalidate: przez {@code sekundy} po wygaśnięciu wartość jest nadal zwracana,
+         * a ładowanie odświeża ją w tle. Ma sens tylko dla danych unieważnianych przy zapisie (np. encji z bazy).
+         */
+        public CacheRetriever<T> setStaleWhileRevalidate(int sekundy) {
+            this.staleWhileRevalidate = sekundy;
+            return this;
+        }
+    }
+
+    /**
+     * Wspólny near cache configów serwerów - jeden L1 dla wszystkich modułów zamiast kopii w każdym listenerze.
+     * Po zapisie configu nowa wartość trafia do niego od razu (patrz {@link #onDatabaseUpdate(DatabaseUpdateEvent)}),
+     * więc korzystający nie muszą sami nasłuchiwać {@link DatabaseUpdateEvent}.
+     */
+    public NearCache<GuildConfig> getGuildConfigCache() {
+        NearCache<GuildConfig> cache = guildConfigCache;
+        if (cache != null) return cache;
+        synchronized (this) {
+            if (guildConfigCache == null) guildConfigCache = new CacheRetriever<GuildConfig>(){}
+                    .setCodec(CacheCodecs.SMILE_LZ4).setStaleWhileRevalidate(60).getNearCache();
+            return guildConfigCache;
+        }
     }
 
     @Subscribe
@@ -281,6 +549,133 @@ public class RedisCacheManager {
         } catch (Exception ex) {
             LoggerFactory.getLogger(getClass()).warn("wielki błąd", ex);
         }
+        NearCache<GuildConfig> gcCache = guildConfigCache;
+        if (gcCache != null && de instanceof GuildConfig)
+            gcCache.put(((GuildConfig) de).getGuildId(), (GuildConfig) de);
+    }
+
+    private NearStore getNearStore(TypeToken<?> holds, String customName, int expiry, long maximumSize) {
+        int ttl = expiry > 0 ? Math.min(expiry, NEAR_MAX_TTL) : NEAR_MAX_TTL;
+        String namespace = getNamespace(holds, customName);
+        NearStore store = nearCaches.computeIfAbsent(namespace, ns -> new NearStore(ttl, maximumSize));
+        // L1 jest jeden na przestrzeń nazw - ustawienia wygrywa ten, kto utworzył go pierwszy
+        if (store.ttl != ttl || store.maximumSize != maximumSize)
+            logger.warn("Near cache {} już istnieje (ttl {} s, rozmiar {}), ignoruję ttl {} s i rozmiar {}",
+                    namespace, store.ttl, store.maximumSize, ttl, maximumSize);
+        startNearSubscriber();
+        return store;
+    }
+
+    private String getNearChannel() {
+        return PREFIX + "::near-invalidate";
+    }
+
+    private boolean hasNearCache(String dbkey) {
+        for (String ns : nearCaches.keySet()) {
+            if (dbkey.startsWith(ns)) return true;
+        }
+        return false;
+    }
+
+    private void invalidateNearLocal(String dbkey) {
+        for (Map.Entry<String, NearStore> ent : nearCaches.entrySet()) {
+            if (dbkey.startsWith(ent.getKey())) ent.getValue().uniewaznij(dbkey);
+        }
+    }
+
+    private void invalidateNearLocalAll() {
+        for (NearStore store : nearCaches.values()) store.uniewaznijWszystko();
+    }
+
+    private void invalidateNear(Collection<String> dbkeys) {
+        if (nearCaches.isEmpty() || dbkeys.isEmpty()) return;
+        List<String> doRozeslania = new ArrayList<>();
+        for (String dbkey : dbkeys) {
+            if (!hasNearCache(dbkey)) continue;
+            invalidateNearLocal(dbkey);
+            doRozeslania.add(dbkey);
+        }
+        if (doRozeslania.isEmpty()) return;
+        String wiadomosc = instanceId + "\n" + String.join("\n", doRozeslania);
+        scheduleAsync(() -> {
+            try (WrappedJedis wJ = getJedis()) {
+                wJ.getJedis().publish(getNearChannel(), wiadomosc);
+            } catch (JedisException ex) {
+                logger.warn("Nie udało się rozesłać unieważnienia near cache", ex);
+            }
+        });
+    }
+
+    private synchronized void startNearSubscriber() {
+        if (nearSubscriber != null) return;
+        nearSubscriber = new NamedThreadFactory("RedisCacheManager-NearCacheSubscriber").newThread(() -> {
+            while (!Thread.currentThread().isInterrupted()) {
+                try (Jedis jedis = getJedisPool().getResource()) {
+                    jedis.subscribe(new JedisPubSub() {
+                        @Override
+                        public void onMessage(String channel, String message) {
+                            String[] linie = message.split("\n");
+                            if (linie.length < 2 || linie[0].equals(instanceId)) return;
+                            for (int i = 1; i < linie.length; i++) invalidateNearLocal(linie[i]);
+                        }
+                    }, getNearChannel());
+                } catch (JedisException ex) {
+                    logger.warn("Utracono subskrypcję unieważnień near cache, ponawiam", ex);
+                }
+                // mogliśmy przegapić unieważnienia - czyścimy L1
+                invalidateNearLocalAll();
+                try {
+                    Thread.sleep(1000);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        });
+        nearSubscriber.setDaemon(true);
+        nearSubscriber.start();
+    }
+
+    /**
+     * L1 jednej przestrzeni nazw. Generacje są liczone per klucz (w paskach), żeby ładowanie, w trakcie którego
+     * przyszło unieważnienie, nie zapisało do L1 starej wartości - a unieważnienie innego klucza mu nie przeszkadzało.
+     */
+    static final class NearStore {
+        private static final int PASKI = 64;
+
+        final com.github.benmanes.caffeine.cache.Cache<String, Object> cache;
+        private final AtomicLongArray generacje = new AtomicLongArray(PASKI);
+        private final int ttl;
+        private final long maximumSize;
+
+        private NearStore(int ttl, long maximumSize) {
+            this.ttl = ttl;
+            this.maximumSize = maximumSize;
+            cache = Caffeine.newBuilder().maximumSize(maximumSize).expireAfterWrite(ttl, TimeUnit.SECONDS).build();
+        }
+
+        long generacja(String dbkey) {
+            return generacje.get(pasek(dbkey));
+        }
+
+        private void uniewaznij(String dbkey) {
+            // najpierw generacja - ładowanie, które ją odczytało przed unieważnieniem, nie zapisze wyniku
+            generacje.incrementAndGet(pasek(dbkey));
+            cache.invalidate(dbkey);
+        }
+
+        private void uniewaznijWszystko() {
+            for (int i = 0; i < PASKI; i++) generacje.incrementAndGet(i);
+            cache.invalidateAll();
+        }
+
+        private static int pasek(String dbkey) {
+            return dbkey.hashCode() & (PASKI - 1);
+        }
+    }
+
+    private static class Ladowanie {
+        private final Thread watek = Thread.currentThread();
+        private final CompletableFuture<byte[]> wynik = new CompletableFuture<>();
     }
 
     private WrappedJedis getJedis() {
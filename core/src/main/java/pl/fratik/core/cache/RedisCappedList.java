@@ -0,0 +1,101 @@
+/*
+ * Copyright (C) 2019-2021 FratikB0T Contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package pl.fratik.core.cache;
+
+import com.google.common.reflect.TypeToken;
+import pl.fratik.core.cache.codec.CacheCodec;
+import pl.fratik.core.cache.codec.CacheCodecs;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.Pipeline;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Listy w Redisie ograniczone do ostatnich {@code pojemnosc} elementów (RPUSH + LTRIM), z TTL odświeżanym przy
+ * każdym zapisie. Dopisanie to jedno zapytanie z kilkoma komendami, bez pobierania i wysyłania całej listy.
+ * <p>
+ * Usuwanie i podmiana elementu (LREM) porównują zakodowane bajty, więc działają tylko dla elementu zakodowanego
+ * identycznie jak przy zapisie - czytający powinien tolerować duplikaty.
+ */
+public class RedisCappedList<T> {
+    private final RedisCacheManager rcm;
+    private final String prefix;
+    private final TypeToken<T> typ;
+    private final int pojemnosc;
+    private final int ttl;
+    private final CacheCodec codec = CacheCodecs.GSON;
+
+    RedisCappedList(RedisCacheManager rcm, String prefix, TypeToken<T> typ, int pojemnosc, int ttl) {
+        this.rcm = rcm;
+        this.prefix = prefix + ":";
+        this.typ = typ;
+        this.pojemnosc = pojemnosc;
+        this.ttl = ttl;
+    }
+
+    public void dodaj(String klucz, T wartosc) {
+        byte[] k = klucz(klucz);
+        try (Jedis jedis = rcm.getJedisPool().getResource()) {
+            Pipeline pipeline = jedis.pipelined();
+            pipeline.rpush(k, codec.encode(wartosc, typ.getType()));
+            pipeline.ltrim(k, -pojemnosc, -1);
+            pipeline.expire(k, ttl);
+            pipeline.sync();
+        }
+    }
+
+    /**
+     * Usuwa {@code stara} i dopisuje {@code nowa} na końcu listy.
+     */
+    public void zastap(String klucz, T stara, T nowa) {
+        byte[] k = klucz(klucz);
+        try (Jedis jedis = rcm.getJedisPool().getResource()) {
+            Pipeline pipeline = jedis.pipelined();
+            pipeline.lrem(k, 1, codec.encode(stara, typ.getType()));
+            pipeline.rpush(k, codec.encode(nowa, typ.getType()));
+            pipeline.ltrim(k, -pojemnosc, -1);
+            pipeline.expire(k, ttl);
+            pipeline.sync();
+        }
+    }
+
+    public void usun(String klucz, T wartosc) {
+        try (Jedis jedis = rcm.getJedisPool().getResource()) {
+            jedis.lrem(klucz(klucz), 1, codec.encode(wartosc, typ.getType()));
+        }
+    }
+
+    /**
+     * @return Elementy listy, od najstarszego; pusta lista, jeżeli klucza nie ma
+     */
+    public List<T> pobierz(String klucz) {
+        List<byte[]> dane;
+        try (Jedis jedis = rcm.getJedisPool().getResource()) {
+            dane = jedis.lrange(klucz(klucz), 0, -1);
+        }
+        List<T> wynik = new ArrayList<>(dane.size());
+        for (byte[] d : dane) wynik.add(CacheCodecs.decode(d, typ.getType()));
+        return wynik;
+    }
+
+    private byte[] klucz(String klucz) {
+        return (prefix + klucz).getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,124 @@
+/*
+ * Copyright (C) 2019-2021 FratikB0T Contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package pl.fratik.core.cache;
+
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.Pipeline;
+import redis.clients.jedis.Response;
+
+import java.util.*;
+
+/**
+ * Liczniki w Redisie: klucz -> (pole -> wartość), trzymane jako hashe i zwiększane przez HINCRBY.
+ * <p>
+ * Służy do zbierania delt, które co jakiś czas są zrzucane gdzie indziej (np. do bazy):
+ * {@link #drain()} atomowo odczytuje i zeruje każdy hash, więc delta doliczona w trakcie zrzutu
+ * trafi do następnego, a nie zniknie.
+ */
+public class RedisCounterMap {
+    // odczyt i usunięcie hashy w jednym skrypcie - HINCRBY nie może się wcisnąć pomiędzy
+    // KEYS[1] to indeks, KEYS[2..] hashe, ARGV ich nazwy w indeksie
+    private static final String DRAIN_SCRIPT = "local wynik = {} " +
+            "for i = 2, #KEYS do " +
+            "wynik[i - 1] = redis.call('HGETALL', KEYS[i]) " +
+            "redis.call('DEL', KEYS[i]) " +
+            "redis.call('SREM', KEYS[1], ARGV[i - 1]) " +
+            "end " +
+            "return wynik";
+    private static final int DRAIN_BATCH_SIZE = 500;
+
+    private final RedisCacheManager rcm;
+    private final String prefix;
+    private final String indexKey;
+
+    RedisCounterMap(RedisCacheManager rcm, String prefix) {
+        this.rcm = rcm;
+        this.prefix = prefix + ":";
+        this.indexKey = prefix + "::klucze";
+    }
+
+    /**
+     * Zwiększa liczniki o podane delty (klucz -> (pole -> delta)) jednym pipeline'em.
+     */
+    public void incrementAll(Map<String, ? extends Map<String, ? extends Number>> delty) {
+        if (delty.isEmpty()) return;
+        try (Jedis jedis = rcm.getJedisPool().getResource()) {
+            Pipeline pipeline = jedis.pipelined();
+            for (Map.Entry<String, ? extends Map<String, ? extends Number>> klucz : delty.entrySet()) {
+                for (Map.Entry<String, ? extends Number> pole : klucz.getValue().entrySet()) {
+                    if (pole.getValue().longValue() == 0) continue;
+                    pipeline.hincrBy(prefix + klucz.getKey(), pole.getKey(), pole.getValue().longValue());
+                }
+                // SADD po HINCRBY - inaczej drain() mógłby zdjąć klucz z indeksu przed zapisaniem delty
+                pipeline.sadd(indexKey, klucz.getKey());
+            }
+            pipeline.sync();
+        }
+    }
+
+    public long get(String key, String field) {
+        try (Jedis jedis = rcm.getJedisPool().getResource()) {
+            String wartosc = jedis.hget(prefix + key, field);
+            return wartosc == null ? 0 : Long.parseLong(wartosc);
+        }
+    }
+
+    /**
+     * @return Wartość pola {@code field} dla każdego z kluczy (0, jeżeli nie ma)
+     */
+    public Map<String, Long> getAll(Collection<String> keys, String field) {
+        Map<String, Long> wynik = new LinkedHashMap<>();
+        if (keys.isEmpty()) return wynik;
+        Map<String, Response<String>> odpowiedzi = new LinkedHashMap<>();
+        try (Jedis jedis = rcm.getJedisPool().getResource()) {
+            Pipeline pipeline = jedis.pipelined();
+            for (String key : keys) odpowiedzi.put(key, pipeline.hget(prefix + key, field));
+            pipeline.sync();
+        }
+        odpowiedzi.forEach((key, odp) -> wynik.put(key, odp.get() == null ? 0 : Long.parseLong(odp.get())));
+        return wynik;
+    }
+
+    /**
+     * Odczytuje i zeruje wszystkie liczniki.
+     *
+     * @return klucz -> (pole -> wartość)
+     */
+    @SuppressWarnings("unchecked")
+    public Map<String, Map<String, Long>> drain() {
+        Map<String, Map<String, Long>> wynik = new HashMap<>();
+        try (Jedis jedis = rcm.getJedisPool().getResource()) {
+            List<String> klucze = new ArrayList<>(jedis.smembers(indexKey));
+            for (int od = 0; od < klucze.size(); od += DRAIN_BATCH_SIZE) {
+                List<String> paczka = klucze.subList(od, Math.min(od + DRAIN_BATCH_SIZE, klucze.size()));
+                List<String> kluczeRedisa = new ArrayList<>(paczka.size() + 1);
+                kluczeRedisa.add(indexKey);
+                for (String klucz : paczka) kluczeRedisa.add(prefix + klucz);
+                List<Object> hashe = (List<Object>) jedis.eval(DRAIN_SCRIPT, kluczeRedisa, paczka);
+                for (int i = 0; i < paczka.size(); i++) {
+                    List<String> hash = (List<String>) hashe.get(i);
+                    if (hash == null || hash.isEmpty()) continue;
+                    Map<String, Long> pola = new HashMap<>();
+                    for (int j = 0; j + 1 < hash.size(); j += 2) pola.put(hash.get(j), Long.parseLong(hash.get(j + 1)));
+                    wynik.put(paczka.get(i), pola);
+                }
+            }
+        }
+        return wynik;
+    }
+}
@@ -0,0 +1,72 @@
+/*
+ * Copyright (C) 2019-2021 FratikB0T Contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package pl.fratik.core.cache;
+
+import pl.fratik.core.util.DeadlineMap;
+import redis.clients.jedis.Jedis;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+/**
+ * {@link DeadlineMap} w Redisie - terminy są wspólne dla wszystkich procesów bota.
+ * Każdy wpis to osobny klucz z TTL równym pozostałemu czasowi, więc Redis sam je sprząta.
+ */
+public class RedisDeadlineMap implements DeadlineMap {
+    // GCRA atomowo po stronie Redisa; ARGV: teraz, interwał, burst
+    private static final String GCRA_SCRIPT = "local teraz = tonumber(ARGV[1]) " +
+            "local tat = tonumber(redis.call('GET', KEYS[1]) or ARGV[1]) " +
+            "if tat < teraz then tat = teraz end " +
+            "if tat - teraz > tonumber(ARGV[3]) then return 0 end " +
+            "local nowy = tat + tonumber(ARGV[2]) " +
+            "redis.call('SET', KEYS[1], nowy, 'PX', nowy - teraz) " +
+            "return 1";
+
+    private final RedisCacheManager rcm;
+    private final String prefix;
+
+    RedisDeadlineMap(RedisCacheManager rcm, String prefix) {
+        this.rcm = rcm;
+        this.prefix = prefix + ":";
+    }
+
+    @Override
+    public long getDeadline(long key, long now) {
+        try (Jedis jedis = rcm.getJedisPool().getResource()) {
+            long pttl = jedis.pttl(prefix + Long.toUnsignedString(key));
+            return pttl > 0 ? now + pttl : 0;
+        }
+    }
+
+    @Override
+    public void setDeadline(long key, long deadline, long now) {
+        try (Jedis jedis = rcm.getJedisPool().getResource()) {
+            if (deadline <= now) jedis.del(prefix + Long.toUnsignedString(key));
+            else jedis.psetex(prefix + Long.toUnsignedString(key), deadline - now, "1");
+        }
+    }
+
+    @Override
+    public boolean tryAcquire(long key, long now, long interval, long burst) {
+        try (Jedis jedis = rcm.getJedisPool().getResource()) {
+            Object wynik = jedis.eval(GCRA_SCRIPT, Collections.singletonList(prefix + Long.toUnsignedString(key)),
+                    Arrays.asList(String.valueOf(now), String.valueOf(interval), String.valueOf(burst)));
+            return Long.valueOf(1).equals(wynik);
+        }
+    }
+}
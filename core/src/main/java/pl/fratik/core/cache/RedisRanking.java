@@ -0,0 +1,143 @@
+/*
+ * Copyright (C) 2019-2021 FratikB0T Contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package pl.fratik.core.cache;
+
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.Pipeline;
+import redis.clients.jedis.Response;
+import redis.clients.jedis.Tuple;
+
+import java.util.*;
+
+/**
+ * Rankingi w Redisie: klucz -> posortowany zbiór (członek -> wynik), czytane przez ZREVRANGE/ZREVRANK.
+ * <p>
+ * To lustro danych trzymanych gdzie indziej (np. w bazie) - ranking jest ładowany w całości przez
+ * {@link #zastap(String, Map, int)}, a potem tylko doliczane są do niego delty. Klucze mają TTL, przedłużany
+ * przy odczycie, więc w Redisie zostają tylko rankingi, o które ktoś faktycznie pyta.
+ */
+public class RedisRanking {
+    // ZINCRBY tylko do istniejącego rankingu - inaczej powstałby ranking z samych delt
+    // ARGV: członek, delta, członek, delta...
+    private static final String ZWIEKSZ_SCRIPT = "if redis.call('EXISTS', KEYS[1]) == 0 then return 0 end " +
+            "for i = 1, #ARGV, 2 do " +
+            "redis.call('ZINCRBY', KEYS[1], ARGV[i + 1], ARGV[i]) " +
+            "end " +
+            "return 1";
+
+    private final RedisCacheManager rcm;
+    private final String prefix;
+    private final String indexKey;
+
+    RedisRanking(RedisCacheManager rcm, String prefix) {
+        this.rcm = rcm;
+        this.prefix = prefix + ":";
+        this.indexKey = prefix + "::klucze";
+    }
+
+    /**
+     * Zastępuje cały ranking podanymi wynikami.
+     *
+     * @param ttl Czas życia rankingu w sekundach
+     */
+    public void zastap(String klucz, Map<String, ? extends Number> wyniki, int ttl) {
+        Map<String, Double> zset = new HashMap<>();
+        for (Map.Entry<String, ? extends Number> e : wyniki.entrySet()) zset.put(e.getKey(), e.getValue().doubleValue());
+        try (Jedis jedis = rcm.getJedisPool().getResource()) {
+            Pipeline pipeline = jedis.pipelined();
+            pipeline.multi();
+            pipeline.del(prefix + klucz);
+            if (!zset.isEmpty()) {
+                pipeline.zadd(prefix + klucz, zset);
+                pipeline.expire(prefix + klucz, ttl);
+                pipeline.sadd(indexKey, klucz);
+            }
+            pipeline.exec();
+            pipeline.sync();
+        }
+    }
+
+    /**
+     * Dolicza delty (klucz -> (członek -> delta)) do rankingów, które są w Redisie; pozostałe pomija.
+     */
+    public void zwieksz(Map<String, ? extends Map<String, ? extends Number>> delty) {
+        if (delty.isEmpty()) return;
+        try (Jedis jedis = rcm.getJedisPool().getResource()) {
+            Pipeline pipeline = jedis.pipelined();
+            for (Map.Entry<String, ? extends Map<String, ? extends Number>> klucz : delty.entrySet()) {
+                List<String> argumenty = new ArrayList<>(klucz.getValue().size() * 2);
+                for (Map.Entry<String, ? extends Number> czlonek : klucz.getValue().entrySet()) {
+                    if (czlonek.getValue().longValue() == 0) continue;
+                    argumenty.add(czlonek.getKey());
+                    argumenty.add(String.valueOf(czlonek.getValue().longValue()));
+                }
+                if (argumenty.isEmpty()) continue;
+                pipeline.eval(ZWIEKSZ_SCRIPT, Collections.singletonList(prefix + klucz.getKey()), argumenty);
+            }
+            pipeline.sync();
+        }
+    }
+
+    /**
+     * @param od  Od którego miejsca (0 - pierwsze)
+     * @param ile Ile miejsc
+     * @return Członek -> wynik, od najwyższego wyniku, albo {@code null}, jeżeli rankingu nie ma w Redisie
+     */
+    public LinkedHashMap<String, Long> zakres(String klucz, long od, long ile, int ttl) { //NOSONAR
+        Response<Set<Tuple>> zakres;
+        try (Jedis jedis = rcm.getJedisPool().getResource()) {
+            Pipeline pipeline = jedis.pipelined();
+            // EXPIRE zwraca 0 dla nieistniejącego klucza - przy okazji sprawdza, czy ranking jest w Redisie
+            Response<Long> przedluzono = pipeline.expire(prefix + klucz, ttl);
+            zakres = pipeline.zrevrangeWithScores(prefix + klucz, od, od + ile - 1);
+            pipeline.sync();
+            if (przedluzono.get() == 0) return null;
+        }
+        LinkedHashMap<String, Long> wynik = new LinkedHashMap<>();
+        for (Tuple t : zakres.get()) wynik.put(t.getElement(), (long) t.getScore());
+        return wynik;
+    }
+
+    /**
+     * @return Miejsce, jakie zająłby podany wynik (1 + liczba członków z wyższym wynikiem),
+     * albo {@code null}, jeżeli rankingu nie ma w Redisie
+     */
+    public Long miejsce(String klucz, long wynik) {
+        try (Jedis jedis = rcm.getJedisPool().getResource()) {
+            Pipeline pipeline = jedis.pipelined();
+            Response<Boolean> istnieje = pipeline.exists(prefix + klucz);
+            Response<Long> wyzej = pipeline.zcount(prefix + klucz, "(" + wynik, "+inf");
+            pipeline.sync();
+            if (!istnieje.get()) return null;
+            return wyzej.get() + 1;
+        }
+    }
+
+    /**
+     * Usuwa wszystkie rankingi o tej nazwie.
+     */
+    public void wyczysc() {
+        try (Jedis jedis = rcm.getJedisPool().getResource()) {
+            Set<String> klucze = jedis.smembers(indexKey);
+            Pipeline pipeline = jedis.pipelined();
+            for (String klucz : klucze) pipeline.del(prefix + klucz);
+            pipeline.del(indexKey);
+            pipeline.sync();
+        }
+    }
+}
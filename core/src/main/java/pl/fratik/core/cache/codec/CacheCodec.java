@@ -0,0 +1,35 @@
+/*
+ * Copyright (C) 2019-2021 FratikB0T Contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package pl.fratik.core.cache.codec;
+
+import java.lang.reflect.Type;
+
+/**
+ * Sposób zapisu wartości trzymanych w Redisie.
+ * Odczyt nie zależy od codec'a ustawionego w cache - format jest rozpoznawany po nagłówku
+ * (patrz {@link CacheCodecs#decode(byte[], Type)}), więc różne moduły mogą zapisywać ten sam typ różnymi codec'ami.
+ */
+public interface CacheCodec {
+    byte[] encode(Object value, Type type);
+    <T> T decode(byte[] data, Type type);
+
+    /**
+     * @return Czy {@code data} jest w formacie tego codec'a (na podstawie nagłówka)
+     */
+    boolean canDecode(byte[] data);
+}
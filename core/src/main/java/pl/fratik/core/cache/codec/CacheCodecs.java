@@ -0,0 +1,43 @@
+/*
+ * Copyright (C) 2019-2021 FratikB0T Contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package pl.fratik.core.cache.codec;
+
+import java.lang.reflect.Type;
+
+public class CacheCodecs {
+    public static final CacheCodec GSON = new GsonCacheCodec();
+    public static final CacheCodec SMILE = new SmileCacheCodec();
+    /**
+     * Smile + LZ4 dla wartości od 512 bajtów - dobre dla dużych encji (np. GuildConfig).
+     */
+    public static final CacheCodec SMILE_LZ4 = new Lz4CacheCodec(SMILE, 512);
+
+    private static final CacheCodec[] ROZPOZNAWANE = {SMILE_LZ4, SMILE};
+
+    private CacheCodecs() {}
+
+    /**
+     * Odczytuje wartość w dowolnym ze znanych formatów; wszystko, czego nie rozpoznano, jest traktowane jak JSON.
+     */
+    public static <T> T decode(byte[] data, Type type) {
+        for (CacheCodec codec : ROZPOZNAWANE) {
+            if (codec.canDecode(data)) return codec.decode(data, type);
+        }
+        return GSON.decode(data, type);
+    }
+}
@@ -0,0 +1,43 @@
+/*
+ * Copyright (C) 2019-2021 FratikB0T Contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package pl.fratik.core.cache.codec;
+
+import pl.fratik.core.util.GsonUtil;
+
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Domyślny codec - JSON z Gson'a, czyli dokładnie to, co było trzymane w Redisie do tej pory.
+ */
+public class GsonCacheCodec implements CacheCodec {
+    @Override
+    public byte[] encode(Object value, Type type) {
+        return GsonUtil.GSON.toJson(value, type).getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public <T> T decode(byte[] data, Type type) {
+        return GsonUtil.GSON.fromJson(new String(data, StandardCharsets.UTF_8), type);
+    }
+
+    @Override
+    public boolean canDecode(byte[] data) {
+        return true;
+    }
+}
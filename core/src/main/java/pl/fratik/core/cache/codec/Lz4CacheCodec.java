@@ -0,0 +1,76 @@
+/*
+ * Copyright (C) 2019-2021 FratikB0T Contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package pl.fratik.core.cache.codec;
+
+import net.jpountz.lz4.LZ4Compressor;
+import net.jpountz.lz4.LZ4Factory;
+import net.jpountz.lz4.LZ4FastDecompressor;
+
+import java.lang.reflect.Type;
+import java.nio.ByteBuffer;
+
+/**
+ * Kompresuje LZ4 wynik innego codec'a, jeżeli ma co najmniej {@code threshold} bajtów.
+ * Mniejsze wartości są zapisywane bez zmian - kompresja kilkudziesięciu bajtów się nie opłaca.
+ */
+public class Lz4CacheCodec implements CacheCodec {
+    private static final byte[] MAGIC = {0, 'L', 'Z', '4'};
+    private static final int HEADER_LENGTH = MAGIC.length + Integer.BYTES;
+    private static final LZ4Factory FACTORY = LZ4Factory.fastestInstance();
+
+    private final CacheCodec delegate;
+    private final int threshold;
+    private final LZ4Compressor compressor = FACTORY.fastCompressor();
+    private final LZ4FastDecompressor decompressor = FACTORY.fastDecompressor();
+
+    public Lz4CacheCodec(CacheCodec delegate, int threshold) {
+        if (delegate instanceof Lz4CacheCodec) throw new IllegalArgumentException("podwójna kompresja?");
+        this.delegate = delegate;
+        this.threshold = threshold;
+    }
+
+    @Override
+    public byte[] encode(Object value, Type type) {
+        byte[] raw = delegate.encode(value, type);
+        if (raw.length < threshold) return raw;
+        byte[] out = new byte[HEADER_LENGTH + compressor.maxCompressedLength(raw.length)];
+        ByteBuffer.wrap(out).put(MAGIC).putInt(raw.length);
+        int dlugosc = compressor.compress(raw, 0, raw.length, out, HEADER_LENGTH);
+        if (HEADER_LENGTH + dlugosc >= raw.length) return raw;
+        byte[] wynik = new byte[HEADER_LENGTH + dlugosc];
+        System.arraycopy(out, 0, wynik, 0, wynik.length);
+        return wynik;
+    }
+
+    @Override
+    public <T> T decode(byte[] data, Type type) {
+        if (!canDecode(data)) return CacheCodecs.decode(data, type);
+        int dlugosc = ByteBuffer.wrap(data, MAGIC.length, Integer.BYTES).getInt();
+        byte[] raw = decompressor.decompress(data, HEADER_LENGTH, dlugosc);
+        return CacheCodecs.decode(raw, type);
+    }
+
+    @Override
+    public boolean canDecode(byte[] data) {
+        if (data.length < HEADER_LENGTH) return false;
+        for (int i = 0; i < MAGIC.length; i++) {
+            if (data[i] != MAGIC[i]) return false;
+        }
+        return true;
+    }
+}
@@ -0,0 +1,72 @@
+/*
+ * Copyright (C) 2019-2021 FratikB0T Contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package pl.fratik.core.cache.codec;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileGenerator;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.reflect.Type;
+
+/**
+ * Binarny codec (Jackson Smile). Korzysta z mapowania Jackson'a, tego samego co PgMapper, więc nadaje się
+ * do encji z bazy danych i prostych kolekcji - nie do klas, które da się zserializować tylko Gson'em
+ * (np. bez konstruktora dla Jackson'a, jak LogMessage).
+ */
+public class SmileCacheCodec implements CacheCodec {
+    private static final byte[] HEADER = {':', ')', '\n'};
+
+    private final ObjectMapper mapper;
+
+    public SmileCacheCodec() {
+        SmileFactory factory = new SmileFactory();
+        factory.enable(SmileGenerator.Feature.WRITE_HEADER);
+        mapper = new ObjectMapper(factory);
+        mapper.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+    }
+
+    @Override
+    public byte[] encode(Object value, Type type) {
+        try {
+            return mapper.writerFor(mapper.constructType(type)).writeValueAsBytes(value);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public <T> T decode(byte[] data, Type type) {
+        try {
+            return mapper.readValue(data, mapper.constructType(type));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public boolean canDecode(byte[] data) {
+        if (data.length < HEADER.length) return false;
+        for (int i = 0; i < HEADER.length; i++) {
+            if (data[i] != HEADER[i]) return false;
+        }
+        return true;
+    }
+}
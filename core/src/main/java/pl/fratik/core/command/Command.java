@@ -56,6 +56,9 @@ public abstract class Command {
     @Getter protected boolean ignoreGaPerm = false;
     @Getter protected boolean allowPermLevelEveryone = true;
     @Getter protected boolean allowPermLevelChange = true;
+    @Getter protected ExecutionType executionType = ExecutionType.CPU;
+    /** W sekundach, 0 - bez limitu; ustawiać tylko komendom, które można bezpiecznie przerwać w dowolnym momencie */
+    @Getter protected int timeout = 0;
 
     protected boolean execute(@NotNull CommandContext context) {
         throw new UnsupportedOperationException("Komenda nie ma zaimplementowanej funkcji execute()");
@@ -17,10 +17,23 @@
 
 package pl.fratik.core.entity;
 
+import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 public interface Dao<T extends DatabaseEntity> {
     T get(String primKey);
+
+    /**
+     * Pobiera wiele obiektów naraz. Domyślnie woła {@link #get(String)} dla każdego klucza -
+     * DAO oparte o {@link gg.amy.pgorm.PgMapper} nadpisują to jednym zapytaniem.
+     */
+    default Map<String, T> getMany(Collection<String> primKeys) {
+        Map<String, T> wynik = new LinkedHashMap<>();
+        for (String primKey : primKeys) wynik.put(primKey, get(primKey));
+        return wynik;
+    }
     List<T> getAll();
     void save(T toCos);
 }
\ No newline at end of file
@@ -103,6 +103,9 @@ public class GuildConfig implements DatabaseEntity {
     private Boolean antiRaid = false;
     private Boolean antiRaidExtreme = false;
     private Integer antiRaidCzulosc = 50;
+    private Boolean antiRaidJoiny = false;
+    private Integer antiRaidJoinyNaMinute = 15;
+    private Boolean antiRaidJoinyBlokada = false;
     @ConfigField(holdsEntity = ConfigField.Entities.CHANNEL)
     private List<String> kanalyGdzieAntiRaidNieDziala = new ArrayList<>();
     private Map<Integer, String> roleZaPoziomy = new HashMap<>();
@@ -130,6 +133,7 @@ public class GuildConfig implements DatabaseEntity {
     private Boolean lvlUpNotify = true;
     private Boolean trackInvites = false;
     private Boolean deleteSwearMessage = false;
+    private Boolean antiswearNormalizacja = false;
     private Boolean deleteLinkMessage = false;
     private Boolean cytujFbot = false;
     private Boolean publikujReakcja = false;
@@ -156,6 +160,10 @@ public class GuildConfig implements DatabaseEntity {
         return deleteSwearMessage != null && deleteSwearMessage;
     }
 
+    public boolean isAntiswearNormalizacja() {
+        return antiswearNormalizacja != null && antiswearNormalizacja;
+    }
+
     public boolean isCytujFbot() {
         return cytujFbot != null && cytujFbot;
     }
@@ -25,7 +25,10 @@ import org.slf4j.LoggerFactory;
 import pl.fratik.core.event.DatabaseUpdateEvent;
 import pl.fratik.core.manager.ManagerBazyDanych;
 
+import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 public class GuildDao implements Dao<GuildConfig> {
 
@@ -47,6 +50,17 @@ public class GuildDao implements Dao<GuildConfig> {
         return get(guild.getId());
     }
 
+    @Override
+    public Map<String, GuildConfig> getMany(Collection<String> ids) {
+        Map<String, GuildConfig> znalezione = mapper.loadMany(ids);
+        Map<String, GuildConfig> wynik = new LinkedHashMap<>();
+        for (String id : ids) {
+            GuildConfig conf = znalezione.get(id);
+            wynik.put(id, conf != null ? conf : newObject(id));
+        }
+        return wynik;
+    }
+
     @Override
     public List<GuildConfig> getAll() {
         return mapper.loadAll();
@@ -20,9 +20,11 @@ package pl.fratik.core.entity;
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
 import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import gg.amy.pgorm.PgType;
 import gg.amy.pgorm.annotations.GIndex;
 import gg.amy.pgorm.annotations.PrimaryKey;
 import gg.amy.pgorm.annotations.Table;
+import gg.amy.pgorm.annotations.TypedIndex;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.EqualsAndHashCode;
@@ -33,6 +35,8 @@ import java.util.List;
 
 @Table("schedule")
 @GIndex({"id", "data"})
+// GIN na data->'data' nie obsługuje porównań zakresowych, których używa ScheduleService
+@TypedIndex(value = "data", type = PgType.BIGINT)
 @Data
 @AllArgsConstructor
 public class Schedule implements DatabaseEntity {
@@ -20,11 +20,13 @@ package pl.fratik.core.entity;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.common.eventbus.EventBus;
 import gg.amy.pgorm.PgMapper;
+import gg.amy.pgorm.Query;
 import org.slf4j.LoggerFactory;
 import pl.fratik.core.event.DatabaseUpdateEvent;
 import pl.fratik.core.manager.ManagerBazyDanych;
 
 import java.util.List;
+import java.util.function.Consumer;
 
 public class ScheduleDao implements Dao<Schedule> {
 
@@ -43,7 +45,14 @@ public class ScheduleDao implements Dao<Schedule> {
     }
 
     public List<Schedule> getByDate(long data) {
-        return mapper.loadManyBySubkey("data->>'data'", String.valueOf(data));
+        return mapper.query().where("data", Query.Op.EQ, data).list();
+    }
+
+    /**
+     * Zwraca akcje zaplanowane przed {@code data} (w tym przeterminowane).
+     */
+    public List<Schedule> getBefore(long data) {
+        return mapper.query().where("data", Query.Op.LT, data).list();
     }
 
     public boolean delete(String id) {
@@ -59,6 +68,13 @@ public class ScheduleDao implements Dao<Schedule> {
         return mapper.loadAll();
     }
 
+    /**
+     * Przechodzi po wszystkich zaplanowanych akcjach bez ładowania całej tabeli do pamięci.
+     */
+    public void forEach(Consumer<Schedule> consumer) {
+        mapper.forEach(consumer);
+    }
+
     @Override
     public void save(Schedule toCos) {
         ObjectMapper objMapper = new ObjectMapper();
@@ -71,7 +87,7 @@ public class ScheduleDao implements Dao<Schedule> {
     }
 
     private int getNextId() {
-        List<Schedule> schList = mapper.loadRaw("SELECT * FROM %s ORDER BY id DESC;");
+        List<Schedule> schList = mapper.loadRaw("SELECT * FROM %s ORDER BY id DESC LIMIT 1;");
         int max = 0;
         for (Schedule sch : schList)
             max = Math.max(sch.getId(), max);
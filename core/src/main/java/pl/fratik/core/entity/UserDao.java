@@ -25,7 +25,10 @@ import org.slf4j.LoggerFactory;
 import pl.fratik.core.event.DatabaseUpdateEvent;
 import pl.fratik.core.manager.ManagerBazyDanych;
 
+import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 public class UserDao implements Dao<UserConfig> {
 
@@ -47,6 +50,17 @@ public class UserDao implements Dao<UserConfig> {
         return get(user.getId());
     }
 
+    @Override
+    public Map<String, UserConfig> getMany(Collection<String> ids) {
+        Map<String, UserConfig> znalezione = mapper.loadMany(ids);
+        Map<String, UserConfig> wynik = new LinkedHashMap<>();
+        for (String id : ids) {
+            UserConfig conf = znalezione.get(id);
+            wynik.put(id, conf != null ? conf : newObject(id));
+        }
+        return wynik;
+    }
+
     @Override
     public List<UserConfig> getAll() {
         return mapper.loadAll();
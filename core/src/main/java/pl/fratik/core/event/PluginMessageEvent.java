@@ -18,7 +18,8 @@
 package pl.fratik.core.event;
 
 import lombok.Getter;
-import lombok.Setter;
+
+import java.util.concurrent.CompletableFuture;
 
 @Getter
 public class PluginMessageEvent {
@@ -26,7 +27,12 @@ public class PluginMessageEvent {
     private final String from;
     private final String to;
     private final String message;
-    @Setter private Object response;
+    private volatile Object response;
+    /**
+     * Kończy się przy {@link #setResponse(Object)} - zamiast odpytywać {@link #getResponse()} w pętli.
+     * Jeżeli nikt nie odpowie (np. modułu nie ma), nigdy się nie skończy.
+     */
+    private final CompletableFuture<Object> odpowiedz = new CompletableFuture<>();
 
     public PluginMessageEvent(String from, String to, String message) {
         this.from = from;
@@ -34,4 +40,9 @@ public class PluginMessageEvent {
         this.message = message;
     }
 
+    public void setResponse(Object response) {
+        this.response = response;
+        odpowiedz.complete(response);
+    }
+
 }
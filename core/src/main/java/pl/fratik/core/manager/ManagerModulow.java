@@ -17,12 +17,14 @@
 
 package pl.fratik.core.manager;
 
+import pl.fratik.core.moduly.CzasStartu;
 import pl.fratik.core.moduly.Modul;
 import pl.fratik.core.moduly.ModuleDescription;
 
 import java.io.File;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.Map;
 
 public interface ManagerModulow {
     void loadModules();
@@ -36,4 +38,5 @@ public interface ManagerModulow {
     ArrayList<String> getStarted();
     File getPath(String modul);
     ModuleDescription getDescription(File file);
+    Map<String, CzasStartu> getCzasyStartu();
 }
@@ -40,7 +40,7 @@ public class ManagerArgumentowImpl implements ManagerArgumentow {
     }
 
     @Override
-    public void registerArgument(Argument argument) {
+    public synchronized void registerArgument(Argument argument) {
         if (argument == null) return;
 
         List<String> aliases = Arrays.asList(argument.getAliases());
@@ -58,7 +58,7 @@ public class ManagerArgumentowImpl implements ManagerArgumentow {
     }
 
     @Override
-    public void unregisterArgument(Argument argument) {
+    public synchronized void unregisterArgument(Argument argument) {
         if (argument == null) return;
         arguments.values().removeIf(arg -> argument == arg);
         registered.removeIf(arg -> argument == arg);
@@ -67,7 +67,7 @@ public class ManagerArgumentowImpl implements ManagerArgumentow {
     }
 
     @Override
-    public void unregisterAll() {
+    public synchronized void unregisterAll() {
         registered = new HashSet<>();
         arguments = new HashMap<>();
     }
@@ -17,16 +17,27 @@
 
 package pl.fratik.core.manager.implementation;
 
+import com.google.common.eventbus.Subscribe;
 import gg.amy.pgorm.PgStore;
+import gg.amy.pgorm.SchemaRegistry;
+import gg.amy.pgorm.WriteBehindQueue;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import pl.fratik.core.Ustawienia;
+import pl.fratik.core.event.ConnectedEvent;
 import pl.fratik.core.manager.ManagerBazyDanych;
 
+import java.util.List;
+
 public class ManagerBazyDanychImpl implements ManagerBazyDanych {
+    private static final Logger logger = LoggerFactory.getLogger(ManagerBazyDanychImpl.class);
     private PgStore pgStore;
 
     @Override
     public void shutdown() {
-        if (pgStore != null) pgStore.disconnect();
+        if (pgStore == null) return;
+        WriteBehindQueue.flushAll();
+        pgStore.disconnect();
     }
 
     @Override
@@ -47,4 +58,16 @@ public class ManagerBazyDanychImpl implements ManagerBazyDanych {
         pgStore.connect();
     }
 
+    @Subscribe
+    public void onConnected(ConnectedEvent e) {
+        // moduły już wystartowały, więc wszystkie tabele są zmapowane
+        try {
+            List<String> nieuzywane = SchemaRegistry.findUnusedIndexes(pgStore);
+            if (!nieuzywane.isEmpty())
+                logger.info("Indeksy, których Postgres nie użył od resetu statystyk: {}", String.join(", ", nieuzywane));
+        } catch (Exception ex) {
+            logger.warn("Nie udało się sprawdzić nieużywanych indeksów", ex);
+        }
+    }
+
 }
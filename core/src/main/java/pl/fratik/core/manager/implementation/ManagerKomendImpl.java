@@ -21,10 +21,8 @@ import com.github.benmanes.caffeine.cache.Caffeine;
 import com.google.common.eventbus.AllowConcurrentEvents;
 import com.google.common.eventbus.EventBus;
 import com.google.common.eventbus.Subscribe;
-import com.google.common.util.concurrent.RateLimiter;
 import io.sentry.Sentry;
 import lombok.Getter;
-import lombok.Setter;
 import net.dv8tion.jda.api.EmbedBuilder;
 import net.dv8tion.jda.api.Permission;
 import net.dv8tion.jda.api.entities.ChannelType;
@@ -53,11 +51,10 @@ import pl.fratik.core.util.*;
 
 import java.awt.*;
 import java.lang.reflect.Method;
-import java.time.Instant;
 import java.util.List;
 import java.util.*;
-import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
@@ -74,18 +71,27 @@ public class ManagerKomendImpl implements ManagerKomend {
     private final Logger logger;
     private final ShardManager shardManager;
     private final Tlumaczenia tlumaczenia;
-    private final ExecutorService executor;
+    private final WykonawcaKomend wykonawca;
     private final ScheduledExecutorService scheduledExecutor;
     private final GuildDao guildDao;
     private final UserDao userDao;
     private final EventBus eventBus;
-    private final com.github.benmanes.caffeine.cache.Cache<String, RateLimiter> rateLimits =
-            Caffeine.newBuilder().expireAfterWrite(5, TimeUnit.MINUTES).maximumSize(100).build();
-    private final Map<String, Instant> cooldowns = new HashMap<>();
+    // GCRA per serwer: 3 komendy na sekundę, do 3 naraz
+    private static final long RATELIMIT_INTERWAL = 333;
+    private static final long RATELIMIT_BURST = 2 * RATELIMIT_INTERWAL;
+    private final DeadlineMap rateLimits;
+    // ID serwera (albo "direct") -> drzewo jego prefiksów i wzmianek bota
+    private final com.github.benmanes.caffeine.cache.Cache<String, Prefiksy> prefiksy =
+            Caffeine.newBuilder().expireAfterAccess(30, TimeUnit.MINUTES).build();
+    // nazwy komend i aliasy (także przetłumaczone); przebudowywane przy (wy)rejestrowaniu komend
+    private volatile CaseInsensitiveTrie<Command> drzewoKomend = CaseInsensitiveTrie.empty();
+    // nazwa komendy -> ID użytkownika -> koniec cooldownu
+    private final Map<String, DeadlineMap> cooldowns = new ConcurrentHashMap<>();
+    private final RedisCacheManager redisCacheManager;
     private final Cache<GuildConfig> gcCache;
     private final Cache<UserConfig> ucCache;
-    @Setter
-    private static String loadingModule;
+    // moduły mogą startować równolegle, każdy na swoim wątku
+    private static final ThreadLocal<String> loadingModule = new ThreadLocal<>();
 
     public ManagerKomendImpl(ShardManager shardManager, GuildDao guildDao, UserDao userDao, Tlumaczenia tlumaczenia,
                              EventBus eventBus, RedisCacheManager redisCacheManager) {
@@ -95,18 +101,22 @@ public class ManagerKomendImpl implements ManagerKomend {
         this.registered = new HashSet<>();
         this.registeredPerModule = new HashMap<>();
         this.commands = new HashMap<>();
-        this.executor = Executors.newFixedThreadPool(32);
         this.scheduledExecutor = Executors.newSingleThreadScheduledExecutor();
+        this.wykonawca = WykonawcaKomend.utworz(Ustawienia.instance.wykonywanieKomend, scheduledExecutor);
         this.tlumaczenia = tlumaczenia;
         this.eventBus = eventBus;
         this.shardManager = shardManager;
-        gcCache = redisCacheManager.new CacheRetriever<GuildConfig>(){}.getCache();
+        gcCache = redisCacheManager.getGuildConfigCache();
         ucCache = redisCacheManager.new CacheRetriever<UserConfig>(){}.getCache();
+        this.redisCacheManager = redisCacheManager;
+        // ze wspólnymi limitami obowiązują one we wszystkich procesach, a nie na każdy proces osobno
+        rateLimits = Ustawienia.instance.wspoldzieloneLimity ? redisCacheManager.getDeadlineMap("ratelimit") :
+                new ExpiringLongMap();
         scheduledExecutor.scheduleWithFixedDelay(this::clearCooldowns, 5, 5, TimeUnit.MINUTES);
     }
 
     @Override
-    public void registerCommand(Command command) {
+    public synchronized void registerCommand(Command command) {
         if (command == null) return;
 
         List<String> aliases = Arrays.asList(command.getAliases());
@@ -132,8 +142,8 @@ public class ManagerKomendImpl implements ManagerKomend {
             }
         }
 
-        if (loadingModule != null) registeredPerModule.put(loadingModule, registeredPerModule
-                .getOrDefault(loadingModule, 0) + 1);
+        String modul = loadingModule.get();
+        if (modul != null) registeredPerModule.put(modul, registeredPerModule.getOrDefault(modul, 0) + 1);
         command.onRegister();
         registered.add(command);
         commands.put(command.getName(), command);
@@ -169,6 +179,7 @@ public class ManagerKomendImpl implements ManagerKomend {
             }
         }
 
+        przebudujDrzewoKomend();
         logger.debug("Zarejestrowano komendę: {} -> {}", command.getName(), command);
 
         long perms = Globals.permissions;
@@ -183,21 +194,32 @@ public class ManagerKomendImpl implements ManagerKomend {
     }
 
     @Override
-    public void unregisterCommand(Command command) {
+    public synchronized void unregisterCommand(Command command) {
         if (command == null) return;
         command.onUnregister();
         commands.values().removeIf(cmd -> command == cmd);
         registered.removeIf(cmd -> command == cmd);
         commands.values().removeIf(cmd -> cmd.getName().equals(command.getName()));
         registered.removeIf(cmd -> cmd.getName().equals(command.getName()));
+        przebudujDrzewoKomend();
 
-        if (loadingModule != null) {
-            registeredPerModule.put(loadingModule, registeredPerModule.getOrDefault(loadingModule, 0) - 1);
+        String modul = loadingModule.get();
+        if (modul != null) {
+            registeredPerModule.put(modul, registeredPerModule.getOrDefault(modul, 0) - 1);
         }
 
         logger.debug("Wyrejestrowano komendę: {} -> {}", command.getName(), command);
     }
 
+    public static void setLoadingModule(String modul) {
+        if (modul == null) loadingModule.remove();
+        else loadingModule.set(modul);
+    }
+
+    private void przebudujDrzewoKomend() {
+        drzewoKomend = new CaseInsensitiveTrie<>(new HashMap<>(commands));
+    }
+
     private void handlePrivate(MessageReceivedEvent event) {
         handlePrefix(event, true);
     }
@@ -209,41 +231,47 @@ public class ManagerKomendImpl implements ManagerKomend {
     private void handlePrefix(MessageReceivedEvent event, boolean direct) {
         String content = event.getMessage().getContentRaw();
 
-        List<String> prefixes = !direct ? getPrefixes(event.getGuild()) : new ArrayList<>();
-        if (prefixes.isEmpty()) prefixes.add(Ustawienia.instance.prefix);
+        List<String> prefixes = !direct ? getPrefixes(event.getGuild()) :
+                Collections.singletonList(Ustawienia.instance.prefix);
+        Prefiks prefix = getPrefiksy(direct ? "direct" : event.getGuild().getId(), prefixes,
+                event.getJDA().getSelfUser().getIdLong()).drzewo.matchPrefix(content, 0);
 
-        for (String prefix : prefixes) {
-            if (content.toLowerCase().startsWith(prefix.toLowerCase())) {
-                content = content.trim().substring(prefix.length()).trim();
-                handleNormal(event, prefix, content, direct);
-                return;
+        if (prefix == null) {
+            String domyslny = Ustawienia.instance.prefix;
+            if (!direct && content.regionMatches(true, 0, domyslny, 0, domyslny.length()) &&
+                    CommonUtil.isPomoc(shardManager, event.getGuild()) && UserUtil.isStaff(event.getAuthor(), shardManager)) {
+                handleNormal(event, domyslny, content, domyslny.length(), false);
             }
-        }
-
-        if (content.startsWith("<@" + event.getJDA().getSelfUser().getId() + ">")) {
-            content = content.trim().substring(("<@" + event.getJDA().getSelfUser().getId() + ">").length()).trim();
-            if (content.isEmpty()) {
-                if (!direct) prefixReminder(event, prefixes);
-                return;
-            }
-            handleNormal(event, prefixes.get(0), content, direct);
             return;
         }
-        if (content.startsWith("<@!" + event.getJDA().getSelfUser().getId() + ">")) {
-            content = content.trim().substring(("<@!" + event.getJDA().getSelfUser().getId() + ">").length()).trim();
-            if (content.isEmpty()) {
+        if (prefix.wzmianka) {
+            if (pominBiale(content, prefix.tekst.length()) == content.length()) {
                 if (!direct) prefixReminder(event, prefixes);
                 return;
             }
-            handleNormal(event, prefixes.get(0), content, direct);
+            handleNormal(event, prefixes.get(0), content, prefix.tekst.length(), direct);
             return;
         }
-        if (!direct && content.toLowerCase().startsWith(Ustawienia.instance.prefix.toLowerCase()) &&
-                CommonUtil.isPomoc(shardManager, event.getGuild()) && UserUtil.isStaff(event.getAuthor(), shardManager)) {
-            content = content.trim().substring(Ustawienia.instance.prefix.length()).trim();
-            handleNormal(event, Ustawienia.instance.prefix, content, false);
-        }
+        handleNormal(event, prefix.tekst, content, prefix.tekst.length(), direct);
+    }
+
+    private Prefiksy getPrefiksy(String klucz, List<String> prefixes, long selfId) {
+        Prefiksy p = prefiksy.getIfPresent(klucz);
+        if (p != null && p.selfId == selfId && p.zrodlo.equals(prefixes)) return p;
+        // kolejność = priorytet: najpierw prefiksy w kolejności z configu, potem wzmianki
+        Map<String, Prefiks> wszystkie = new LinkedHashMap<>();
+        for (String prefix : prefixes) wszystkie.putIfAbsent(prefix, new Prefiks(prefix, false));
+        String id = Long.toUnsignedString(selfId);
+        wszystkie.putIfAbsent("<@" + id + ">", new Prefiks("<@" + id + ">", true));
+        wszystkie.putIfAbsent("<@!" + id + ">", new Prefiks("<@!" + id + ">", true));
+        p = new Prefiksy(new ArrayList<>(prefixes), selfId, new CaseInsensitiveTrie<>(wszystkie));
+        prefiksy.put(klucz, p);
+        return p;
+    }
 
+    private static int pominBiale(String content, int od) {
+        while (od < content.length() && content.charAt(od) <= ' ') od++;
+        return od;
     }
 
     private void prefixReminder(MessageReceivedEvent event, List<String> prefixes) {
@@ -258,11 +286,16 @@ public class ManagerKomendImpl implements ManagerKomend {
                         "\u200b`\u200b")).collect(Collectors.joining("\n")))).reference(event.getMessage()).queue();
     }
 
-    private void handleNormal(MessageReceivedEvent event, String prefix, String content, boolean direct) {
-        String[] parts = content.split(" ");
-        if (parts.length != 0) {
-            Command c = commands.get(parts[0].toLowerCase());
+    private void handleNormal(MessageReceivedEvent event, String prefix, String content, int od, boolean direct) {
+        int start = pominBiale(content, od);
+        int koniec = content.indexOf(' ', start);
+        if (koniec < 0) koniec = content.length();
+        while (koniec > start && content.charAt(koniec - 1) <= ' ') koniec--;
+        if (start < koniec) {
+            Command c = drzewoKomend.get(content, start, koniec);
             if (c != null) {
+                // argumenty dzielimy dopiero, kiedy wiadomo, że to komenda
+                String[] parts = content.substring(start).trim().split(" ");
                 if (!c.isAllowInDMs() && direct) return;
                 if (event.isFromType(ChannelType.TEXT) && !event.getTextChannel().canTalk()) return;
                 if (event.isFromGuild() && isRateLimited(event.getGuild())) {
@@ -329,19 +362,10 @@ public class ManagerKomendImpl implements ManagerKomend {
 
                 if (UserUtil.isGbanned(context.getSender())) {
                     GbanData gdata = UserUtil.getGbanData(context.getSender());
-                    User issuer;
-                    if (gdata.getIssuerId() == null) {
-                        issuer = null;
-                    } else {
-                        issuer = context.getShardManager().retrieveUserById(gdata.getIssuerId()).complete();
-                        if (issuer == null)
-                            issuer = context.getShardManager().retrieveUserById(gdata.getIssuerId()).complete();
-                    }
-                    String issuerString = issuer == null ? "N/a???" : UserUtil.formatDiscrim(issuer);
-                    if (!issuerString.equals(gdata.getName())) issuerString = context.getTranslated("gbanlist.different.name",
-                            issuer == null ? "N/a???" : UserUtil.formatDiscrim(issuer), gdata.getIssuer());
-                    context.reply(context.getTranslated("generic.gban", issuerString, gdata.getReason()));
-                    zareaguj(context, false);
+                    if (gdata.getIssuerId() == null) odpowiedzNaGbana(context, gdata, null);
+                    else context.getShardManager().retrieveUserById(gdata.getIssuerId())
+                            .queue(issuer -> odpowiedzNaGbana(context, gdata, issuer),
+                                    err -> odpowiedzNaGbana(context, gdata, null));
                     return;
                 }
 
@@ -384,11 +408,19 @@ public class ManagerKomendImpl implements ManagerKomend {
                     }
                     Thread.currentThread().setName(name);
                 };
-                executor.submit(runnable);
+                wykonawca.wykonaj(c, runnable);
             }
         }
     }
 
+    private void odpowiedzNaGbana(CommandContext context, GbanData gdata, User issuer) {
+        String issuerString = issuer == null ? "N/a???" : UserUtil.formatDiscrim(issuer);
+        if (!issuerString.equals(gdata.getName())) issuerString = context.getTranslated("gbanlist.different.name",
+                issuer == null ? "N/a???" : UserUtil.formatDiscrim(issuer), gdata.getIssuer());
+        context.reply(context.getTranslated("generic.gban", issuerString, gdata.getReason()), m -> {});
+        zareaguj(context, false);
+    }
+
     public static PermLevel getPermLevelOverride(Command c, GuildConfig gc) {
         if (gc.getCmdPermLevelOverrides() == null)
             gc.setCmdPermLevelOverrides(new HashMap<>());
@@ -424,42 +456,43 @@ public class ManagerKomendImpl implements ManagerKomend {
     }
 
     private boolean isRateLimited(Guild guild) {
-        RateLimiter r = rateLimits.get(guild.getId(), g -> RateLimiter.create(3, 5, TimeUnit.SECONDS));
-        if (r == null) return false; //intellij przestań się pluć plz
-        return !r.tryAcquire();
+        return !rateLimits.tryAcquire(guild.getIdLong(), System.currentTimeMillis(), RATELIMIT_INTERWAL, RATELIMIT_BURST);
+    }
+
+    private DeadlineMap getCooldowns(Command command) {
+        return cooldowns.computeIfAbsent(command.getName(), nazwa -> Ustawienia.instance.wspoldzieloneLimity ?
+                redisCacheManager.getDeadlineMap("cooldown:" + nazwa) : new ExpiringLongMap());
     }
 
     private int isOnCooldown(User user, Command command) {
         if (command.getCooldown() == 0) return 0;
         if (Ustawienia.instance.devs.contains(user.getId())) return 0;
-        Instant cooldown = cooldowns.getOrDefault(user.getId() + command.getName(), Instant.now());
-        long teraz = Instant.now().toEpochMilli();
-        if (cooldown.toEpochMilli() - teraz > 0) {
-            return (int) TimeUnit.SECONDS.convert(cooldown.toEpochMilli() - teraz, TimeUnit.MILLISECONDS);
+        long teraz = System.currentTimeMillis();
+        long cooldown = getCooldowns(command).getDeadline(user.getIdLong(), teraz);
+        if (cooldown - teraz > 0) {
+            return (int) TimeUnit.SECONDS.convert(cooldown - teraz, TimeUnit.MILLISECONDS);
         }
         return 0;
     }
 
-
     private void setCooldown(User user, Command command) {
-        Calendar cal = Calendar.getInstance();
-        cal.add(Calendar.SECOND, command.getCooldown());
+        if (command.getCooldown() == 0) return;
         if (Ustawienia.instance.devs.contains(user.getId())) return;
-        cooldowns.put(user.getId() + command.getName(), cal.toInstant());
+        long teraz = System.currentTimeMillis();
+        getCooldowns(command).setDeadline(user.getIdLong(), teraz + TimeUnit.SECONDS.toMillis(command.getCooldown()), teraz);
     }
 
-    @SuppressWarnings("squid:S2864")
     private void clearCooldowns() {
-        for (String key : cooldowns.keySet()) {
-            Instant instant = cooldowns.get(key);
-            long teraz = Instant.now().toEpochMilli();
-            if (instant.toEpochMilli() - teraz <= 0)
-                cooldowns.remove(key);
+        // Redis sprząta swoje wpisy sam (TTL)
+        long teraz = System.currentTimeMillis();
+        if (rateLimits instanceof ExpiringLongMap) ((ExpiringLongMap) rateLimits).purge(teraz);
+        for (DeadlineMap m : cooldowns.values()) {
+            if (m instanceof ExpiringLongMap) ((ExpiringLongMap) m).purge(teraz);
         }
     }
 
     @Override
-    public void unregisterAll() {
+    public synchronized void unregisterAll() {
         for (Command cmd : registered) {
             cmd.onUnregister();
             logger.debug("Wyrejestrowano komendę: {} -> {}", cmd.getName(), cmd);
@@ -467,6 +500,7 @@ public class ManagerKomendImpl implements ManagerKomend {
 
         registered = new HashSet<>();
         commands = new HashMap<>();
+        przebudujDrzewoKomend();
     }
 
     @Override
@@ -486,7 +520,7 @@ public class ManagerKomendImpl implements ManagerKomend {
 
     @Override
     public void shutdown() {
-        executor.shutdown();
+        wykonawca.shutdown();
         scheduledExecutor.shutdown();
     }
 
@@ -500,4 +534,26 @@ public class ManagerKomendImpl implements ManagerKomend {
             this.handlePrivate(event);
         }
     }
+
+    private static class Prefiks {
+        private final String tekst;
+        private final boolean wzmianka;
+
+        private Prefiks(String tekst, boolean wzmianka) {
+            this.tekst = tekst;
+            this.wzmianka = wzmianka;
+        }
+    }
+
+    private static class Prefiksy {
+        private final List<String> zrodlo;
+        private final long selfId;
+        private final CaseInsensitiveTrie<Prefiks> drzewo;
+
+        private Prefiksy(List<String> zrodlo, long selfId, CaseInsensitiveTrie<Prefiks> drzewo) {
+            this.zrodlo = zrodlo;
+            this.selfId = selfId;
+            this.drzewo = drzewo;
+        }
+    }
 }
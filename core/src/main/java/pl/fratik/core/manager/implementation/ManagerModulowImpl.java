@@ -19,6 +19,7 @@ package pl.fratik.core.manager.implementation;
 
 import com.google.common.base.Joiner;
 import com.google.common.eventbus.EventBus;
+import com.google.common.eventbus.Subscribe;
 import com.google.inject.AbstractModule;
 import com.google.inject.Guice;
 import com.google.inject.Injector;
@@ -33,18 +34,21 @@ import org.slf4j.LoggerFactory;
 import pl.fratik.core.Statyczne;
 import pl.fratik.core.cache.RedisCacheManager;
 import pl.fratik.core.entity.*;
+import pl.fratik.core.event.ConnectedEvent;
 import pl.fratik.core.event.ModuleLoadedEvent;
 import pl.fratik.core.event.ModuleUnloadedEvent;
 import pl.fratik.core.manager.ManagerArgumentow;
 import pl.fratik.core.manager.ManagerBazyDanych;
 import pl.fratik.core.manager.ManagerKomend;
 import pl.fratik.core.manager.ManagerModulow;
+import pl.fratik.core.moduly.CzasStartu;
 import pl.fratik.core.moduly.Modul;
 import pl.fratik.core.moduly.ModuleDescription;
 import pl.fratik.core.tlumaczenia.Tlumaczenia;
 import pl.fratik.core.util.CommonUtil;
 import pl.fratik.core.util.EventWaiter;
 import pl.fratik.core.util.GsonUtil;
+import pl.fratik.core.util.NamedThreadFactory;
 import pl.fratik.core.util.graph.Graph;
 import pl.fratik.core.webhook.WebhookManager;
 
@@ -54,6 +58,7 @@ import java.net.URLClassLoader;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.*;
+import java.util.concurrent.*;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
@@ -64,6 +69,7 @@ import java.util.zip.ZipFile;
 public class ManagerModulowImpl implements ManagerModulow {
 
     private static final File MODULES_DIR = new File(System.getProperty("core.plugindir", "plugins"));
+    private static final int WATKI_STARTU = 8;
     public static ModuleClassLoader moduleClassLoader;
 
     private ManagerKomend managerKomend;
@@ -90,6 +96,12 @@ public class ManagerModulowImpl implements ManagerModulow {
     private Map<String, Collection<String>> dependencies = null;
     private Map<String, Collection<String>> peerDependencies = null;
     private Graph<String> graph = null;
+    private Map<String, Long> czasyLadowania = null;
+    @Getter private final Map<String, CzasStartu> czasyStartu = new ConcurrentHashMap<>();
+    private volatile boolean polaczono = false;
+    private volatile boolean wTrakcieStartu = false;
+    // nazwy modułów, których warmUp() już odpalono - onConnected i koniec loadModules mogą się nałożyć
+    private final Set<String> rozgrzane = ConcurrentHashMap.newKeySet();
     private final RedisCacheManager redisCacheManager;
     private GbanDao gbanDao;
 
@@ -164,6 +176,7 @@ public class ManagerModulowImpl implements ManagerModulow {
                 loadOrder.addAll(dependOrder);
 
                 checkDependencies();
+                long poczatek = System.currentTimeMillis();
                 loadJars();
 
                 injector = Guice.createInjector(new AbstractModule() {
@@ -191,9 +204,22 @@ public class ManagerModulowImpl implements ManagerModulow {
                     }
                 });
 
-                for (String s : modules.keySet()) {
-                    startModule(s);
+                czasyStartu.clear();
+                wTrakcieStartu = true;
+                List<List<String>> fale = podzielNaFale();
+                ExecutorService executor = Executors.newFixedThreadPool(WATKI_STARTU, new NamedThreadFactory("ModuleStart"));
+                try {
+                    for (int i = 0; i < fale.size(); i++) {
+                        for (String s : fale.get(i))
+                            czasyStartu.put(s, new CzasStartu(s, i, czasyLadowania.getOrDefault(s, 0L)));
+                        startujFale(fale.get(i), executor);
+                    }
+                } finally {
+                    executor.shutdown();
+                    wTrakcieStartu = false;
                 }
+                logujRaport(System.currentTimeMillis() - poczatek);
+                if (polaczono) rozgrzej(getStartedKopia());
             } catch (Throwable e) {
                 logger.error("Error while (re)loading modules!", e);
             }
@@ -293,32 +319,132 @@ public class ManagerModulowImpl implements ManagerModulow {
     private void loadJars() {
         logger.debug("Kolejność wczytywania modułów: {}", Joiner.on(" <- ").join(loadOrder));
 
+        czasyLadowania = new HashMap<>();
         for (String module : loadOrder) {
+            long poczatek = System.currentTimeMillis();
             try {
                 load(modNames.get(module).getAbsolutePath());
+                czasyLadowania.put(module, System.currentTimeMillis() - poczatek);
             } catch (Exception e) {
                 logger.error("Błąd w trakcie ładowania modułu {}!", module, e);
             }
         }
     }
 
+    /**
+     * Dzieli załadowane moduły na fale według grafu zależności - moduł startuje w pierwszej fali
+     * po wszystkich swoich zależnościach, a moduły z jednej fali mogą startować równolegle.
+     */
+    private List<List<String>> podzielNaFale() {
+        List<List<String>> fale = new ArrayList<>();
+        fale.add(new ArrayList<>());
+        Set<String> wGrafie = new HashSet<>();
+        List<List<String>> faleGrafu = graph.generateWaves();
+        for (int i = 0; i < faleGrafu.size(); i++) {
+            if (fale.size() <= i) fale.add(new ArrayList<>());
+            for (String mod : faleGrafu.get(i)) {
+                wGrafie.add(mod);
+                if (modules.containsKey(mod)) fale.get(i).add(mod);
+            }
+        }
+        for (String mod : modules.keySet()) {
+            if (!wGrafie.contains(mod)) fale.get(0).add(mod);
+        }
+        fale.removeIf(List::isEmpty);
+        logger.debug("Fale startu modułów: {}", fale);
+        return fale;
+    }
+
+    private void startujFale(List<String> fala, ExecutorService executor) throws InterruptedException {
+        if (fala.size() == 1) {
+            startModule(fala.get(0));
+            return;
+        }
+        List<Future<Boolean>> zadania = new ArrayList<>();
+        for (String mod : fala) zadania.add(executor.submit(() -> startModule(mod)));
+        for (Future<Boolean> zadanie : zadania) {
+            try {
+                zadanie.get();
+            } catch (ExecutionException e) {
+                logger.error("Błąd w trakcie startowania fali modułów!", e.getCause());
+            }
+        }
+    }
+
+    private void logujRaport(long calosc) {
+        StringBuilder sb = new StringBuilder();
+        czasyStartu.values().stream()
+                .sorted(Comparator.comparingLong(c -> -(c.getLadowanie() + c.getStart())))
+                .forEach(c -> sb.append(String.format("%n  %-15s fala %d, ładowanie %5d ms, start %5d ms%s", c.getModul(),
+                        c.getFala(), c.getLadowanie(), c.getStart(), c.isUruchomiony() ? "" : " (nie wystartował)")));
+        logger.info("Moduły wystartowały w {} ms:{}", calosc, sb);
+    }
+
+    private synchronized List<String> getStartedKopia() {
+        return new ArrayList<>(started);
+    }
+
+    /**
+     * Odpala {@link Modul#warmUp()} podanych modułów w tle; każdy wystartowany moduł jest rozgrzewany raz.
+     */
+    private void rozgrzej(List<String> nazwy) {
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(WATKI_STARTU, Math.max(1, nazwy.size())),
+                new NamedThreadFactory("ModuleWarmUp"));
+        for (String name : nazwy) {
+            Modul mod = modules.get(name);
+            if (mod == null || !rozgrzane.add(name)) continue;
+            executor.submit(() -> {
+                long poczatek = System.currentTimeMillis();
+                try {
+                    mod.warmUp();
+                } catch (Exception e) {
+                    logger.error("Błąd w trakcie rozgrzewania modułu: " + name, e);
+                    Sentry.capture(e);
+                }
+                long czas = System.currentTimeMillis() - poczatek;
+                CzasStartu czasStartu = czasyStartu.get(name);
+                if (czasStartu != null) czasStartu.setRozgrzewanie(czas);
+                logger.debug("Rozgrzano moduł {} w {} ms", name, czas);
+            });
+        }
+        executor.shutdown();
+    }
+
+    @Subscribe
+    public void onConnected(ConnectedEvent e) {
+        polaczono = true;
+        rozgrzej(getStartedKopia());
+    }
+
     @Override
     public boolean startModule(String name) {
         boolean odpowiedz = false;
-        if (!started.contains(name)) {
+        if (!isStarted(name)) {
             logger.info("Startuje moduł: {}", name);
+            long poczatek = System.currentTimeMillis();
             try {
                 Modul mod = injector.getInstance(modules.get(name).getClass());
                 ManagerKomendImpl.setLoadingModule(name);
                 odpowiedz = mod.startUp();
                 eventBus.post(new ModuleLoadedEvent(name, mod));
                 ManagerKomendImpl.setLoadingModule(null);
-                modules.replace(name, mod);
-                if (odpowiedz) started.add(name);
+                // moduły z jednej fali startują równolegle
+                synchronized (this) {
+                    modules.replace(name, mod);
+                    if (odpowiedz) started.add(name);
+                }
             } catch (Exception e) {
+                ManagerKomendImpl.setLoadingModule(null);
                 logger.error("Błąd w trakcie startowania modułu: " + name, e);
                 Sentry.capture(e);
             }
+            CzasStartu czasStartu = czasyStartu.get(name);
+            if (czasStartu != null) {
+                czasStartu.setStart(System.currentTimeMillis() - poczatek);
+                czasStartu.setUruchomiony(odpowiedz);
+            }
+            // moduł wystartowany ręcznie już po połączeniu - przy starcie całości rozgrzewanie odpala loadModules
+            if (odpowiedz && polaczono && !wTrakcieStartu) rozgrzej(Collections.singletonList(name));
         }
         return odpowiedz;
     }
@@ -356,9 +482,12 @@ public class ManagerModulowImpl implements ManagerModulow {
                     break;
                 }
             }
-            Iterator<String> i = started.iterator();
-            while (i.hasNext())
-                if (i.next().equalsIgnoreCase(name)) i.remove();
+            synchronized (this) {
+                Iterator<String> i = started.iterator();
+                while (i.hasNext())
+                    if (i.next().equalsIgnoreCase(name)) i.remove();
+            }
+            rozgrzane.removeIf(n -> n.equalsIgnoreCase(name));
         }
         return odpowiedz.get();
     }
@@ -472,7 +601,7 @@ public class ManagerModulowImpl implements ManagerModulow {
     }
 
     @Override
-    public boolean isStarted(String name) {
+    public synchronized boolean isStarted(String name) {
         return started.contains(name);
     }
 
@@ -0,0 +1,158 @@
+/*
+ * Copyright (C) 2019-2021 FratikB0T Contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package pl.fratik.core.manager.implementation;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import pl.fratik.core.command.Command;
+import pl.fratik.core.command.ExecutionType;
+import pl.fratik.core.metrics.Metryki;
+import pl.fratik.core.util.NamedThreadFactory;
+
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Strategia wykonywania komend. Wspólne dla wszystkich: liczenie komend w trakcie (per {@link ExecutionType})
+ * i przerywanie komend, które przekroczyły {@link Command#getTimeout()}.
+ * <p>
+ * {@link #utworz(String, ScheduledExecutorService)} wybiera:
+ * <ul>
+ *     <li>{@code wirtualne} - wątek wirtualny na komendę (JDK 21+), blokujące komendy nie zajmują wątków systemowych</li>
+ *     <li>{@code pule} - osobne pule dla komend {@link ExecutionType#IO} i {@link ExecutionType#CPU}, żeby wolne
+ *     zapytania HTTP nie blokowały szybkich komend</li>
+ *     <li>{@code auto} - wirtualne, jeżeli JVM je ma, w przeciwnym razie pule</li>
+ * </ul>
+ */
+abstract class WykonawcaKomend {
+    private static final Logger logger = LoggerFactory.getLogger(WykonawcaKomend.class);
+
+    private final ScheduledExecutorService timeouty;
+    private final AtomicInteger wTrakcieCpu = new AtomicInteger();
+    private final AtomicInteger wTrakcieIo = new AtomicInteger();
+    private final LongAdder przekroczone = new LongAdder();
+
+    WykonawcaKomend(ScheduledExecutorService timeouty) {
+        this.timeouty = timeouty;
+        Metryki.gauge("fratikbot_commands_in_flight", wTrakcieCpu::get, "type", "cpu");
+        Metryki.gauge("fratikbot_commands_in_flight", wTrakcieIo::get, "type", "io");
+        Metryki.licznik("fratikbot_commands_timeouts_total", przekroczone::sum);
+    }
+
+    static WykonawcaKomend utworz(String tryb, ScheduledExecutorService timeouty) {
+        if (!tryb.equals("pule")) {
+            ExecutorService wirtualne = wirtualneWatki();
+            if (wirtualne != null) {
+                logger.info("Komendy będą wykonywane na wątkach wirtualnych");
+                return new Wirtualne(timeouty, wirtualne);
+            }
+            if (tryb.equals("wirtualne")) logger.warn("Ta JVM nie obsługuje wątków wirtualnych, używam pul");
+        }
+        return new Pule(timeouty);
+    }
+
+    /**
+     * {@code Executors.newVirtualThreadPerTaskExecutor()} przez refleksję - kompilujemy pod Javę 8.
+     */
+    private static ExecutorService wirtualneWatki() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException | LinkageError e) {
+            return null;
+        }
+    }
+
+    protected abstract ExecutorService executor(Command command);
+
+    abstract void shutdown();
+
+    void wykonaj(Command command, Runnable runnable) {
+        AtomicInteger wTrakcie = command.getExecutionType() == ExecutionType.IO ? wTrakcieIo : wTrakcieCpu;
+        AtomicBoolean zakonczona = new AtomicBoolean();
+        AtomicReference<ScheduledFuture<?>> timeout = new AtomicReference<>();
+        Future<?> future = executor(command).submit(() -> {
+            // liczone dopiero po starcie - komenda przerwana jeszcze w kolejce nie wejdzie do finally
+            wTrakcie.incrementAndGet();
+            try {
+                runnable.run();
+            } finally {
+                wTrakcie.decrementAndGet();
+                // żeby zakończone komendy nie wisiały w kolejce schedulera do końca limitu
+                zakonczona.set(true);
+                ScheduledFuture<?> t = timeout.get();
+                if (t != null) t.cancel(false);
+            }
+        });
+        if (command.getTimeout() <= 0) return;
+        ScheduledFuture<?> t = timeouty.schedule(() -> {
+            if (future.isDone()) return;
+            przekroczone.increment();
+            logger.warn("Komenda {} przekroczyła limit czasu ({} s), przerywam", command.getName(), command.getTimeout());
+            future.cancel(true);
+        }, command.getTimeout(), TimeUnit.SECONDS);
+        timeout.set(t);
+        if (zakonczona.get()) t.cancel(false);
+    }
+
+    private static class Wirtualne extends WykonawcaKomend {
+        private final ExecutorService executor;
+
+        private Wirtualne(ScheduledExecutorService timeouty, ExecutorService executor) {
+            super(timeouty);
+            this.executor = executor;
+        }
+
+        @Override
+        protected ExecutorService executor(Command command) {
+            return executor;
+        }
+
+        @Override
+        void shutdown() {
+            executor.shutdown();
+        }
+    }
+
+    private static class Pule extends WykonawcaKomend {
+        private final ThreadPoolExecutor cpu;
+        private final ThreadPoolExecutor io;
+
+        private Pule(ScheduledExecutorService timeouty) {
+            super(timeouty);
+            // tyle, ile miała wspólna pula - komendy wołające JDA przez helpery mogą blokować mimo typu CPU
+            cpu = (ThreadPoolExecutor) Executors.newFixedThreadPool(32, new NamedThreadFactory("Komendy-CPU"));
+            io = (ThreadPoolExecutor) Executors.newFixedThreadPool(64, new NamedThreadFactory("Komendy-IO"));
+            Metryki.gauge("fratikbot_commands_queue_depth", () -> cpu.getQueue().size(), "type", "cpu");
+            Metryki.gauge("fratikbot_commands_queue_depth", () -> io.getQueue().size(), "type", "io");
+        }
+
+        @Override
+        protected ExecutorService executor(Command command) {
+            return command.getExecutionType() == ExecutionType.IO ? io : cpu;
+        }
+
+        @Override
+        void shutdown() {
+            cpu.shutdown();
+            io.shutdown();
+        }
+    }
+}
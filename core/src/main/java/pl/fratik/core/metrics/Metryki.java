@@ -0,0 +1,174 @@
+/*
+ * Copyright (C) 2019-2021 FratikB0T Contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package pl.fratik.core.metrics;
+
+import org.HdrHistogram.Histogram;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.LongSupplier;
+
+/**
+ * Rejestr metryk bota: pomiary czasów ({@link Pomiar}) i wartości odczytywane na żądanie (głębokości kolejek,
+ * liczniki). Wystawiany przez JMX ({@code pl.fratik:type=Metryki}) i w formacie tekstowym Prometheusa
+ * ({@link #prometheus()}).
+ * <p>
+ * Nazwy metryk i etykiety są w konwencji Prometheusa, np. {@code fratikbot_event_subscriber_seconds}
+ * z etykietami {@code subscriber} i {@code event}.
+ */
+public class Metryki {
+    private static final Logger logger = LoggerFactory.getLogger(Metryki.class);
+    private static final double[] KWANTYLE = {0.5, 0.9, 0.99, 0.999};
+
+    // nazwa -> etykiety ({a="b",...}) -> pomiar/wartość; posortowane, żeby wyjście było stabilne
+    private static final Map<String, Map<String, Pomiar>> pomiary = new ConcurrentSkipListMap<>();
+    private static final Map<String, Map<String, LongSupplier>> wartosci = new ConcurrentSkipListMap<>();
+    private static final Map<String, String> typy = new ConcurrentHashMap<>();
+
+    private Metryki() {}
+
+    /**
+     * @param etykiety Pary nazwa, wartość
+     * @return Pomiar o podanej nazwie i etykietach - ten sam przy każdym wywołaniu
+     */
+    public static Pomiar pomiar(String nazwa, String... etykiety) {
+        return pomiary.computeIfAbsent(nazwa, k -> new ConcurrentSkipListMap<>())
+                .computeIfAbsent(etykiety(etykiety), k -> new Pomiar());
+    }
+
+    /**
+     * Rejestruje wartość, która zmienia się tylko w górę (np. liczba odrzuconych eventów).
+     */
+    public static void licznik(String nazwa, LongSupplier wartosc, String... etykiety) {
+        wartosc(nazwa, "counter", wartosc, etykiety);
+    }
+
+    /**
+     * Rejestruje wartość chwilową (np. głębokość kolejki).
+     */
+    public static void gauge(String nazwa, LongSupplier wartosc, String... etykiety) {
+        wartosc(nazwa, "gauge", wartosc, etykiety);
+    }
+
+    public static void usun(String nazwa, String... etykiety) {
+        Map<String, LongSupplier> m = wartosci.get(nazwa);
+        if (m != null) m.remove(etykiety(etykiety));
+        Map<String, Pomiar> p = pomiary.get(nazwa);
+        if (p != null) p.remove(etykiety(etykiety));
+    }
+
+    private static void wartosc(String nazwa, String typ, LongSupplier wartosc, String... etykiety) {
+        typy.put(nazwa, typ);
+        wartosci.computeIfAbsent(nazwa, k -> new ConcurrentSkipListMap<>()).put(etykiety(etykiety), wartosc);
+    }
+
+    /**
+     * @return Wszystkie metryki w formacie tekstowym Prometheusa (0.0.4)
+     */
+    public static String prometheus() {
+        StringBuilder sb = new StringBuilder();
+        wartosci.forEach((nazwa, m) -> {
+            sb.append("# TYPE ").append(nazwa).append(' ').append(typy.getOrDefault(nazwa, "gauge")).append('\n');
+            m.forEach((etykiety, w) -> sb.append(nazwa).append(etykiety).append(' ').append(w.getAsLong()).append('\n'));
+        });
+        pomiary.forEach((nazwa, m) -> {
+            sb.append("# TYPE ").append(nazwa).append(" summary\n");
+            m.forEach((etykiety, p) -> {
+                Histogram h = p.getHistogram();
+                String bezNawiasu = etykiety.isEmpty() ? "{" : etykiety.substring(0, etykiety.length() - 1) + ",";
+                for (double q : KWANTYLE) {
+                    sb.append(nazwa).append(bezNawiasu).append("quantile=\"").append(q).append("\"} ")
+                            .append(h.getValueAtPercentile(q * 100) / 1e6).append('\n');
+                }
+                sb.append(nazwa).append("_sum").append(etykiety).append(' ').append(p.getSumaNanos() / 1e9).append('\n');
+                sb.append(nazwa).append("_count").append(etykiety).append(' ').append(p.getLiczba()).append('\n');
+            });
+        });
+        return sb.toString();
+    }
+
+    /**
+     * Rejestruje {@link MetrykiMXBean} w serwerze JMX platformy.
+     */
+    public static void zarejestrujJmx() {
+        try {
+            ObjectName nazwa = new ObjectName("pl.fratik:type=Metryki");
+            if (!ManagementFactory.getPlatformMBeanServer().isRegistered(nazwa))
+                ManagementFactory.getPlatformMBeanServer().registerMBean(new Jmx(), nazwa);
+        } catch (JMException e) {
+            logger.warn("Nie udało się zarejestrować metryk w JMX", e);
+        }
+    }
+
+    private static String etykiety(String... etykiety) {
+        if (etykiety.length % 2 != 0) throw new IllegalArgumentException("etykiety muszą być parami");
+        if (etykiety.length == 0) return "";
+        StringBuilder sb = new StringBuilder("{");
+        for (int i = 0; i < etykiety.length; i += 2) {
+            if (i > 0) sb.append(',');
+            sb.append(etykiety[i]).append("=\"").append(etykiety[i + 1].replace("\\", "\\\\")
+                    .replace("\"", "\\\"").replace("\n", "\\n")).append('"');
+        }
+        return sb.append('}').toString();
+    }
+
+    private static class Jmx implements MetrykiMXBean {
+        @Override
+        public Map<String, Long> getWywolania() {
+            Map<String, Long> wynik = new TreeMap<>();
+            pomiary.forEach((nazwa, m) -> m.forEach((e, p) -> wynik.put(nazwa + e, p.getLiczba())));
+            return wynik;
+        }
+
+        @Override
+        public Map<String, Double> getSredniaMs() {
+            Map<String, Double> wynik = new TreeMap<>();
+            pomiary.forEach((nazwa, m) -> m.forEach((e, p) ->
+                    wynik.put(nazwa + e, p.getLiczba() == 0 ? 0 : p.getSumaNanos() / 1e6 / p.getLiczba())));
+            return wynik;
+        }
+
+        @Override
+        public Map<String, Double> getP99Ms() {
+            Map<String, Double> wynik = new TreeMap<>();
+            pomiary.forEach((nazwa, m) -> m.forEach((e, p) ->
+                    wynik.put(nazwa + e, p.getHistogram().getValueAtPercentile(99) / 1e3)));
+            return wynik;
+        }
+
+        @Override
+        public Map<String, Long> getWartosci() {
+            Map<String, Long> wynik = new LinkedHashMap<>();
+            wartosci.forEach((nazwa, m) -> m.forEach((e, w) -> wynik.put(nazwa + e, w.getAsLong())));
+            return wynik;
+        }
+
+        @Override
+        public String getPrometheus() {
+            return prometheus();
+        }
+    }
+}
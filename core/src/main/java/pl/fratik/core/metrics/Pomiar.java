@@ -0,0 +1,63 @@
+/*
+ * Copyright (C) 2019-2021 FratikB0T Contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package pl.fratik.core.metrics;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Liczba wywołań i histogram czasów (w mikrosekundach) jednej rzeczy, np. subskrybenta dla danego eventu.
+ * <p>
+ * {@link #zapisz(long)} nie blokuje - HdrHistogramowy {@link Recorder} jest bezpieczny dla wielu piszących,
+ * a odczyt przerzuca to, co się nazbierało, do histogramu sumarycznego.
+ */
+public class Pomiar {
+    private final LongAdder liczba = new LongAdder();
+    private final LongAdder sumaNanos = new LongAdder();
+    private final Recorder recorder = new Recorder(2);
+    private final Histogram histogram = new Histogram(2);
+    private Histogram interwal;
+
+    Pomiar() {}
+
+    public void zapisz(long nanos) {
+        liczba.increment();
+        sumaNanos.add(nanos);
+        recorder.recordValue(Math.max(0, TimeUnit.NANOSECONDS.toMicros(nanos)));
+    }
+
+    public long getLiczba() {
+        return liczba.sum();
+    }
+
+    public long getSumaNanos() {
+        return sumaNanos.sum();
+    }
+
+    /**
+     * @return Kopia histogramu wszystkich dotychczasowych pomiarów (w mikrosekundach)
+     */
+    public synchronized Histogram getHistogram() {
+        interwal = recorder.getIntervalHistogram(interwal);
+        histogram.add(interwal);
+        return histogram.copy();
+    }
+}
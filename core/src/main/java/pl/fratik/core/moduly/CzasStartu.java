@@ -0,0 +1,35 @@
+/*
+ * Copyright (C) 2019-2021 FratikB0T Contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package pl.fratik.core.moduly;
+
+import lombok.Data;
+
+/**
+ * Czasy startu modułu, w milisekundach.
+ */
+@Data
+public class CzasStartu {
+    private final String modul;
+    /** Fala startu - moduły z jednej fali startują równolegle */
+    private final int fala;
+    private final long ladowanie;
+    private volatile long start = -1;
+    /** -1, jeżeli rozgrzewanie się jeszcze nie skończyło */
+    private volatile long rozgrzewanie = -1;
+    private volatile boolean uruchomiony;
+}
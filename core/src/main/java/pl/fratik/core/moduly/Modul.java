@@ -20,4 +20,10 @@ package pl.fratik.core.moduly;
 public interface Modul {
     boolean startUp();
     boolean shutDown();
-}
\ No newline at end of file
+
+    /**
+     * Ciężka, niewymagana do działania praca (np. wczytywanie cache ze wszystkich serwerów).
+     * Wywoływana w tle, dopiero gdy bot się połączy - nie opóźnia startu pozostałych modułów.
+     */
+    default void warmUp() {}
+}
@@ -33,6 +33,7 @@ import pl.fratik.core.manager.ManagerModulow;
 import pl.fratik.core.tlumaczenia.Tlumaczenia;
 import pl.fratik.core.util.EventWaiter;
 import pl.fratik.core.util.GuildUtil;
+import pl.fratik.core.util.PermLevelResolver;
 import pl.fratik.core.util.UserUtil;
 
 public class FratikB0TService extends AbstractIdleService {
@@ -53,6 +54,7 @@ public class FratikB0TService extends AbstractIdleService {
         eventBus.register(moduleManager);
         eventBus.register(tlumaczenia);
         eventBus.register(new UserUtil());
+        eventBus.register(new PermLevelResolver());
         GuildUtil.setGuildDao(guildDao);
         GuildUtil.setGbanDao(gbanDao);
         GuildUtil.setShardManager(shardManager);
@@ -18,7 +18,8 @@
 package pl.fratik.core.service;
 
 import com.google.common.eventbus.EventBus;
-import com.google.common.util.concurrent.AbstractScheduledService;
+import com.google.common.eventbus.Subscribe;
+import com.google.common.util.concurrent.AbstractIdleService;
 import io.sentry.Sentry;
 import io.sentry.event.Event;
 import io.sentry.event.EventBuilder;
@@ -27,25 +28,51 @@ import net.dv8tion.jda.api.JDA;
 import net.dv8tion.jda.api.sharding.ShardManager;
 import net.dv8tion.jda.api.entities.PrivateChannel;
 import net.dv8tion.jda.api.entities.User;
+import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import pl.fratik.core.entity.Akcja;
 import pl.fratik.core.entity.Schedule;
 import pl.fratik.core.entity.ScheduleDao;
+import pl.fratik.core.event.DatabaseUpdateEvent;
 import pl.fratik.core.event.ScheduleEvent;
 import pl.fratik.core.tlumaczenia.Language;
 import pl.fratik.core.tlumaczenia.Tlumaczenia;
+import pl.fratik.core.util.NamedThreadFactory;
 import pl.fratik.core.util.StringUtil;
 
 import java.time.Instant;
-import java.util.concurrent.TimeUnit;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.*;
 
-public class ScheduleService extends AbstractScheduledService {
+/**
+ * Wykonuje zaplanowane akcje ({@link Schedule}) o czasie.
+ * <p>
+ * Z bazy ładowane jest tylko najbliższe okno ({@link #OKNO}) - akcje z niego czekają w {@link DelayQueue}
+ * i są wykonywane dokładnie wtedy, gdy nadejdzie ich czas. Zapisy przez {@link ScheduleDao} trafiają do kolejki
+ * od razu (przez {@link DatabaseUpdateEvent}), jeżeli należą do już załadowanego okna.
+ * Przed wykonaniem akcja jest jeszcze raz pobierana z bazy, więc usunięte lub przełożone akcje nie wykonają się.
+ */
+public class ScheduleService extends AbstractIdleService {
+
+    private static final long OKNO = TimeUnit.MINUTES.toMillis(10);
+    private static final long PONOW_ZA = TimeUnit.SECONDS.toMillis(5);
 
+    private final Logger logger = LoggerFactory.getLogger(getClass());
     private final ShardManager shardManager;
     private final ScheduleDao scheduleDao;
     private final Tlumaczenia tlumaczenia;
     private final EventBus eventBus;
 
+    private final DelayQueue<Zadanie> kolejka = new DelayQueue<>();
+    // id -> czas, na który akcja jest w kolejce; wpisy w kolejce z innym czasem są nieaktualne
+    private final Map<Integer, Long> zaplanowane = new ConcurrentHashMap<>();
+    private final Set<Integer> wykonywane = ConcurrentHashMap.newKeySet();
+    private volatile long zaladowanoDo = Long.MIN_VALUE;
+    private ScheduledExecutorService ladowacz;
+    private ExecutorService wykonawcy;
+    private Thread wyzwalacz;
+
     public ScheduleService(ShardManager shardManager, ScheduleDao scheduleDao, Tlumaczenia tlumaczenia, EventBus eventBus) {
         this.shardManager = shardManager;
         this.scheduleDao = scheduleDao;
@@ -54,53 +81,158 @@ public class ScheduleService extends AbstractScheduledService {
     }
 
     @Override
-    protected void runOneIteration() {
-        if (shardManager.getShards().stream().anyMatch(s -> s.getStatus() != JDA.Status.CONNECTED)) return;
-        for (Schedule sch : scheduleDao.getAll()) {
-            if (Instant.now().toEpochMilli() < sch.getData()) continue;
+    protected void startUp() {
+        ladowacz = Executors.newSingleThreadScheduledExecutor(new NamedThreadFactory("ScheduleService-ladowacz"));
+        wykonawcy = Executors.newFixedThreadPool(4, new NamedThreadFactory("ScheduleService-wykonawca"));
+        eventBus.register(this);
+        ladowacz.scheduleWithFixedDelay(this::zaladujOkno, 0, OKNO / 2, TimeUnit.MILLISECONDS);
+        wyzwalacz = new NamedThreadFactory("ScheduleService-wyzwalacz").newThread(this::wyzwalaj);
+        wyzwalacz.start();
+    }
+
+    @Override
+    protected void shutDown() throws InterruptedException {
+        eventBus.unregister(this);
+        wyzwalacz.interrupt();
+        ladowacz.shutdownNow();
+        wykonawcy.shutdown();
+        wykonawcy.awaitTermination(30, TimeUnit.SECONDS);
+    }
+
+    private void zaladujOkno() {
+        try {
+            long doKiedy = Instant.now().toEpochMilli() + OKNO;
+            // ustawiamy przed zapytaniem - zapis, który nie zdąży się do niego załapać, przyjdzie eventem
+            zaladowanoDo = doKiedy;
+            for (Schedule sch : scheduleDao.getBefore(doKiedy)) {
+                if (wykonywane.contains(sch.getId())) continue;
+                if (zaplanowane.putIfAbsent(sch.getId(), sch.getData()) == null)
+                    kolejka.add(new Zadanie(sch.getId(), sch.getData()));
+            }
+            logger.debug("Załadowano okno do {}, w kolejce: {}", doKiedy, zaplanowane.size());
+        } catch (Exception e) {
+            logger.error("Nie udało się załadować zaplanowanych akcji", e);
+        }
+    }
+
+    @Subscribe
+    public void onDatabaseUpdate(DatabaseUpdateEvent e) {
+        if (!(e.getEntity() instanceof Schedule)) return;
+        Schedule sch = (Schedule) e.getEntity();
+        if (sch.getData() >= zaladowanoDo) return; // załaduje się razem z oknem
+        zaplanuj(sch.getId(), sch.getData());
+    }
+
+    private void zaplanuj(int id, long czas) {
+        zaplanowane.put(id, czas);
+        kolejka.add(new Zadanie(id, czas));
+    }
+
+    private void wyzwalaj() {
+        while (!Thread.currentThread().isInterrupted()) {
+            Zadanie zadanie;
+            try {
+                zadanie = kolejka.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            // najpierw wykonywane, potem zdjęcie z zaplanowanych - ładowanie okna nie może trafić na moment,
+            // w którym zadania nie ma w żadnym z nich, bo zaplanowałoby je drugi raz
+            boolean dodane = wykonywane.add(zadanie.id);
+            if (!zaplanowane.remove(zadanie.id, zadanie.czas)) {
+                if (dodane) wykonywane.remove(zadanie.id);
+                continue; // nieaktualne
+            }
             try {
-                if (sch.getAkcja() == Akcja.REMIND) {
-                    Schedule.Przypomnienie przypomnienie = (Schedule.Przypomnienie) sch.getContent();
-                    if (przypomnienie == null || przypomnienie.getOsoba() == null) continue;
-                    User persona = shardManager.retrieveUserById(przypomnienie.getOsoba()).complete();
-                    PrivateChannel dm = persona.openPrivateChannel().complete();
-                    Language jezyk = tlumaczenia.getLanguage(persona);
-                    StringBuilder sb = new StringBuilder(tlumaczenia.get(jezyk, "reminder.message",
-                            StringUtil.escapeMarkdown(przypomnienie.getTresc()))).append("\n");
-                    if (przypomnienie.getMurl().isEmpty()) {
-                        sb.append(tlumaczenia.get(jezyk, "reminder.message.nodata"));
-                    } else {
-                        int dodano = 0;
-                        for (String url : przypomnienie.getMurl()) {
-                            sb.append("<").append(url).append(">");
-                            dodano++;
-                            if (dodano == 3) break;
-                            if (przypomnienie.getMurl().indexOf(url) != przypomnienie.getMurl().size() - 1) {
-                                sb.append("\n");
-                            }
+                wykonawcy.execute(() -> wykonaj(zadanie.id));
+            } catch (RejectedExecutionException e) {
+                wykonywane.remove(zadanie.id);
+                return;
+            }
+        }
+    }
+
+    private void wykonaj(int id) {
+        try {
+            Schedule sch = scheduleDao.get(String.valueOf(id));
+            if (sch == null) return; // usunięte w międzyczasie
+            long teraz = Instant.now().toEpochMilli();
+            if (sch.getData() > teraz) {
+                zaplanuj(id, sch.getData()); // przełożone
+                return;
+            }
+            if (shardManager.getShards().stream().anyMatch(s -> s.getStatus() != JDA.Status.CONNECTED)) {
+                zaplanuj(id, teraz + PONOW_ZA);
+                return;
+            }
+            wykonaj(sch);
+            scheduleDao.delete(String.valueOf(id));
+        } catch (Exception e) {
+            logger.error("Błąd w ScheduleService!", e);
+            Sentry.capture(e);
+        } finally {
+            wykonywane.remove(id);
+        }
+    }
+
+    private void wykonaj(Schedule sch) {
+        try {
+            if (sch.getAkcja() == Akcja.REMIND) {
+                Schedule.Przypomnienie przypomnienie = (Schedule.Przypomnienie) sch.getContent();
+                if (przypomnienie == null || przypomnienie.getOsoba() == null) return;
+                User persona = shardManager.retrieveUserById(przypomnienie.getOsoba()).complete();
+                PrivateChannel dm = persona.openPrivateChannel().complete();
+                Language jezyk = tlumaczenia.getLanguage(persona);
+                StringBuilder sb = new StringBuilder(tlumaczenia.get(jezyk, "reminder.message",
+                        StringUtil.escapeMarkdown(przypomnienie.getTresc()))).append("\n");
+                if (przypomnienie.getMurl().isEmpty()) {
+                    sb.append(tlumaczenia.get(jezyk, "reminder.message.nodata"));
+                } else {
+                    int dodano = 0;
+                    for (String url : przypomnienie.getMurl()) {
+                        sb.append("<").append(url).append(">");
+                        dodano++;
+                        if (dodano == 3) break;
+                        if (przypomnienie.getMurl().indexOf(url) != przypomnienie.getMurl().size() - 1) {
+                            sb.append("\n");
                         }
                     }
-                    if (przypomnienie.getMurl().size() > 3) {
-                        sb.append("\n").append(tlumaczenia.get(jezyk, "reminder.message.more",
-                                przypomnienie.getMurl().size() - 3));
-                    }
-                    dm.sendMessage(sb.toString()).queue();
                 }
-                if (sch.getAkcja() == Akcja.EVENT) {
-                    eventBus.post(new ScheduleEvent(sch.getScheduledBy(), sch.getContent()));
+                if (przypomnienie.getMurl().size() > 3) {
+                    sb.append("\n").append(tlumaczenia.get(jezyk, "reminder.message.more",
+                            przypomnienie.getMurl().size() - 3));
                 }
-            } catch (Exception e) {
-                Sentry.capture(new EventBuilder().withLevel(Event.Level.ERROR).withMessage(e.getMessage())
-                        .withExtra("schedule", sch).withSentryInterface(new ExceptionInterface(e)));
-                LoggerFactory.getLogger(ScheduleService.class).error("Błąd w ScheduleService!", e);
-                Sentry.capture(e);
+                dm.sendMessage(sb.toString()).queue();
+            }
+            if (sch.getAkcja() == Akcja.EVENT) {
+                eventBus.post(new ScheduleEvent(sch.getScheduledBy(), sch.getContent()));
             }
-            scheduleDao.delete(String.valueOf(sch.getId()));
+        } catch (Exception e) {
+            Sentry.capture(new EventBuilder().withLevel(Event.Level.ERROR).withMessage(e.getMessage())
+                    .withExtra("schedule", sch).withSentryInterface(new ExceptionInterface(e)));
+            LoggerFactory.getLogger(ScheduleService.class).error("Błąd w ScheduleService!", e);
+            Sentry.capture(e);
         }
     }
 
-    @Override
-    protected Scheduler scheduler() {
-        return Scheduler.newFixedRateSchedule(15, 15, TimeUnit.SECONDS);
+    private static class Zadanie implements Delayed {
+        private final int id;
+        private final long czas;
+
+        private Zadanie(int id, long czas) {
+            this.id = id;
+            this.czas = czas;
+        }
+
+        @Override
+        public long getDelay(TimeUnit unit) {
+            return unit.convert(czas - Instant.now().toEpochMilli(), TimeUnit.MILLISECONDS);
+        }
+
+        @Override
+        public int compareTo(Delayed o) {
+            return Long.compare(czas, ((Zadanie) o).czas);
+        }
     }
 }
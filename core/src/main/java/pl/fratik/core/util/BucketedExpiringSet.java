@@ -0,0 +1,95 @@
+/*
+ * Copyright (C) 2019-2021 FratikB0T Contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package pl.fratik.core.util;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Zbiór, z którego elementy same znikają po czasie - np. do cooldownów.
+ * <p>
+ * Czas jest dzielony na kubełki; element trafia do kubełka bieżącego i żyje co najmniej {@code ttl}
+ * (najwyżej o jeden kubełek dłużej). Kubełki są czyszczone w całości przy ponownym użyciu,
+ * więc nie ma osobnego zadania na każdy element ani wątku sprzątającego.
+ */
+public class BucketedExpiringSet<K> {
+    private final long bucketMillis;
+    private final int liveBuckets;
+    private final Bucket<K>[] buckets;
+
+    /**
+     * @param ttl         Jak długo element jest w zbiorze
+     * @param unit        Jednostka {@code ttl}
+     * @param bucketCount Na ile kubełków dzielić {@code ttl} - im więcej, tym dokładniejszy czas wygaśnięcia
+     */
+    @SuppressWarnings("unchecked")
+    public BucketedExpiringSet(long ttl, TimeUnit unit, int bucketCount) {
+        if (bucketCount < 1) throw new IllegalArgumentException("bucketCount < 1");
+        this.bucketMillis = Math.max(1, unit.toMillis(ttl) / bucketCount);
+        this.liveBuckets = bucketCount;
+        this.buckets = new Bucket[bucketCount + 1];
+        for (int i = 0; i < buckets.length; i++) buckets[i] = new Bucket<>();
+    }
+
+    public boolean contains(K key) {
+        long numer = System.currentTimeMillis() / bucketMillis;
+        for (int i = 0; i <= liveBuckets; i++) {
+            Bucket<K> b = buckets[index(numer - i)];
+            if (b.numer == numer - i && b.keys.contains(key)) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Dodaje element, jeżeli go nie ma.
+     *
+     * @return {@code true}, jeżeli element został dodany; {@code false}, jeżeli już był w zbiorze
+     */
+    public boolean add(K key) {
+        if (contains(key)) return false;
+        return current().keys.add(key);
+    }
+
+    public void remove(K key) {
+        for (Bucket<K> b : buckets) b.keys.remove(key);
+    }
+
+    private Bucket<K> current() {
+        long numer = System.currentTimeMillis() / bucketMillis;
+        Bucket<K> b = buckets[index(numer)];
+        if (b.numer != numer) {
+            synchronized (b) {
+                if (b.numer != numer) {
+                    b.keys.clear();
+                    b.numer = numer;
+                }
+            }
+        }
+        return b;
+    }
+
+    private int index(long numer) {
+        return (int) Math.floorMod(numer, (long) buckets.length);
+    }
+
+    private static class Bucket<K> {
+        private final Set<K> keys = ConcurrentHashMap.newKeySet();
+        private volatile long numer = Long.MIN_VALUE;
+    }
+}
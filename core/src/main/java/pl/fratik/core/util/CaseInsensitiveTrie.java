@@ -0,0 +1,123 @@
+/*
+ * Copyright (C) 2019-2021 FratikB0T Contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package pl.fratik.core.util;
+
+import java.util.*;
+
+/**
+ * Niezmienne drzewo prefiksowe ignorujące wielkość liter.
+ * <p>
+ * Wyszukiwanie idzie bezpośrednio po podanym tekście (bez {@code toLowerCase()}, {@code substring()} itp.),
+ * więc sprawdzenie, czy wiadomość zaczyna się od prefiksu/nazwy komendy, nic nie alokuje.
+ * Przy powtarzających się kluczach wygrywa pierwszy.
+ */
+public class CaseInsensitiveTrie<V> {
+    private static final CaseInsensitiveTrie<?> PUSTE = new CaseInsensitiveTrie<>(Collections.emptyMap());
+
+    private final Wezel<V> korzen;
+
+    /**
+     * @param wartosci Klucz -> wartość; kolejność iteracji to priorytet w {@link #matchPrefix(CharSequence, int)}
+     */
+    public CaseInsensitiveTrie(Map<String, V> wartosci) {
+        WezelBudowany<V> budowany = new WezelBudowany<>();
+        int priorytet = 0;
+        for (Map.Entry<String, V> e : wartosci.entrySet()) {
+            WezelBudowany<V> w = budowany;
+            String klucz = e.getKey();
+            for (int i = 0; i < klucz.length(); i++)
+                w = w.dzieci.computeIfAbsent(Character.toLowerCase(klucz.charAt(i)), k -> new WezelBudowany<>());
+            if (w.wartosc == null) {
+                w.wartosc = e.getValue();
+                w.priorytet = priorytet;
+            }
+            priorytet++;
+        }
+        korzen = budowany.zbuduj();
+    }
+
+    @SuppressWarnings("unchecked")
+    public static <V> CaseInsensitiveTrie<V> empty() {
+        return (CaseInsensitiveTrie<V>) PUSTE;
+    }
+
+    /**
+     * @return Wartość klucza równego {@code s[from, to)} albo {@code null}
+     */
+    public V get(CharSequence s, int from, int to) {
+        Wezel<V> w = korzen;
+        for (int i = from; i < to && w != null; i++) w = w.dziecko(Character.toLowerCase(s.charAt(i)));
+        return w == null ? null : w.wartosc;
+    }
+
+    /**
+     * @return Wartość klucza o najwyższym priorytecie, od którego zaczyna się {@code s} (licząc od {@code from}),
+     * albo {@code null}
+     */
+    public V matchPrefix(CharSequence s, int from) {
+        Wezel<V> w = korzen;
+        V najlepsza = null;
+        int najlepszyPriorytet = Integer.MAX_VALUE;
+        for (int i = from; w != null; i++) {
+            if (w.wartosc != null && w.priorytet < najlepszyPriorytet) {
+                najlepsza = w.wartosc;
+                najlepszyPriorytet = w.priorytet;
+            }
+            if (i >= s.length()) break;
+            w = w.dziecko(Character.toLowerCase(s.charAt(i)));
+        }
+        return najlepsza;
+    }
+
+    private static class Wezel<V> {
+        private final char[] znaki;
+        private final Wezel<V>[] dzieci;
+        private final V wartosc;
+        private final int priorytet;
+
+        private Wezel(char[] znaki, Wezel<V>[] dzieci, V wartosc, int priorytet) {
+            this.znaki = znaki;
+            this.dzieci = dzieci;
+            this.wartosc = wartosc;
+            this.priorytet = priorytet;
+        }
+
+        private Wezel<V> dziecko(char c) {
+            int i = Arrays.binarySearch(znaki, c);
+            return i < 0 ? null : dzieci[i];
+        }
+    }
+
+    private static class WezelBudowany<V> {
+        private final TreeMap<Character, WezelBudowany<V>> dzieci = new TreeMap<>();
+        private V wartosc;
+        private int priorytet = Integer.MAX_VALUE;
+
+        @SuppressWarnings("unchecked")
+        private Wezel<V> zbuduj() {
+            char[] znaki = new char[dzieci.size()];
+            Wezel<V>[] zbudowane = new Wezel[dzieci.size()];
+            int i = 0;
+            for (Map.Entry<Character, WezelBudowany<V>> e : dzieci.entrySet()) {
+                znaki[i] = e.getKey();
+                zbudowane[i++] = e.getValue().zbuduj();
+            }
+            return new Wezel<>(znaki, zbudowane, wartosc, priorytet);
+        }
+    }
+}
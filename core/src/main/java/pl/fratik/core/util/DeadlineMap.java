@@ -0,0 +1,43 @@
+/*
+ * Copyright (C) 2019-2021 FratikB0T Contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package pl.fratik.core.util;
+
+/**
+ * Mapa ID (snowflake) -> termin w milisekundach epoki. Wpis znika sam, gdy termin minie.
+ * <p>
+ * Wystarcza zarówno na cooldowny (termin = koniec cooldownu), jak i na ratelimity w stylu token bucket
+ * (GCRA - termin = teoretyczny czas przybycia następnego żądania).
+ */
+public interface DeadlineMap {
+    /**
+     * @return Termin dla klucza albo {@code 0}, jeżeli go nie ma lub już minął
+     */
+    long getDeadline(long key, long now);
+
+    /**
+     * Ustawia termin; termin z przeszłości usuwa wpis.
+     */
+    void setDeadline(long key, long deadline, long now);
+
+    /**
+     * Ratelimit GCRA: jedno żądanie co {@code interval} ms, z zapasem na {@code burst} ms żądań naraz.
+     *
+     * @return {@code true}, jeżeli żądanie się mieści (i zostało policzone)
+     */
+    boolean tryAcquire(long key, long now, long interval, long burst);
+}
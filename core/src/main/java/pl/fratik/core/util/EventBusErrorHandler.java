@@ -34,23 +34,26 @@ public class EventBusErrorHandler implements SubscriberExceptionHandler {
 
     @Override
     public void handleException(@NotNull Throwable exception, @NotNull SubscriberExceptionContext context) {
+        handleException(exception, context.getEvent(), context.getSubscriber(), context.getSubscriberMethod());
+    }
+
+    public void handleException(@NotNull Throwable exception, Object event, Object subscriber, Method method) {
         Sentry.capture(exception);
         if (logger.isWarnEnabled()) {
-            logger.warn(message(context), exception);
+            logger.warn(message(event, subscriber, method), exception);
         }
     }
 
-    private static String message(SubscriberExceptionContext context) {
-        Method method = context.getSubscriberMethod();
+    private static String message(Object event, Object subscriber, Method method) {
         return "Exception thrown by subscriber method "
                 + method.getName()
                 + '('
                 + method.getParameterTypes()[0].getName()
                 + ')'
                 + " on subscriber "
-                + context.getSubscriber()
+                + subscriber
                 + " when dispatching event: "
-                + context.getEvent();
+                + event;
     }
 
 }
@@ -0,0 +1,154 @@
+/*
+ * Copyright (C) 2019-2021 FratikB0T Contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package pl.fratik.core.util;
+
+/**
+ * {@link DeadlineMap} w pamięci, na tablicach {@code long} (bez boxingu i obiektów na wpis).
+ * <p>
+ * Podzielona na segmenty z osobnymi blokadami, więc wątki rzadko na siebie czekają. Wpisy po terminie
+ * są traktowane jak nieistniejące i wyrzucane przy przebudowie segmentu (gdy się zapełni albo w {@link #purge(long)}),
+ * dzięki czemu rozmiar zależy od liczby aktywnych wpisów, a nie od wszystkich, jakie kiedykolwiek były.
+ * Klucz {@code 0} jest zarezerwowany.
+ */
+public class ExpiringLongMap implements DeadlineMap {
+    private static final int SEGMENTY = 32;
+
+    private final Segment[] segmenty = new Segment[SEGMENTY];
+
+    public ExpiringLongMap() {
+        for (int i = 0; i < SEGMENTY; i++) segmenty[i] = new Segment();
+    }
+
+    @Override
+    public long getDeadline(long key, long now) {
+        long h = mix(key);
+        Segment s = segmenty[(int) (h >>> 59)];
+        synchronized (s) {
+            long deadline = s.get(key, h);
+            return deadline > now ? deadline : 0;
+        }
+    }
+
+    @Override
+    public void setDeadline(long key, long deadline, long now) {
+        long h = mix(key);
+        Segment s = segmenty[(int) (h >>> 59)];
+        synchronized (s) {
+            if (deadline <= now) s.put(key, h, 0, now);
+            else s.put(key, h, deadline, now);
+        }
+    }
+
+    @Override
+    public boolean tryAcquire(long key, long now, long interval, long burst) {
+        long h = mix(key);
+        Segment s = segmenty[(int) (h >>> 59)];
+        synchronized (s) {
+            long tat = Math.max(s.get(key, h), now);
+            if (tat - now > burst) return false;
+            s.put(key, h, tat + interval, now);
+            return true;
+        }
+    }
+
+    /**
+     * Wyrzuca wpisy po terminie ze wszystkich segmentów.
+     */
+    public void purge(long now) {
+        for (Segment s : segmenty) {
+            synchronized (s) {
+                s.przebuduj(now, 0);
+            }
+        }
+    }
+
+    public int size(long now) {
+        int size = 0;
+        for (Segment s : segmenty) {
+            synchronized (s) {
+                for (int i = 0; i < s.klucze.length; i++) if (s.klucze[i] != 0 && s.terminy[i] > now) size++;
+            }
+        }
+        return size;
+    }
+
+    private static long mix(long key) {
+        // finalizer z MurmurHash3 - snowflake'i mają mało losowe młodsze bity
+        key ^= key >>> 33;
+        key *= 0xff51afd7ed558ccdL;
+        key ^= key >>> 33;
+        key *= 0xc4ceb9fe1a85ec53L;
+        key ^= key >>> 33;
+        return key;
+    }
+
+    private static class Segment {
+        private long[] klucze = new long[16];
+        private long[] terminy = new long[16];
+        private int zajete;
+
+        private long get(long key, long h) {
+            int maska = klucze.length - 1;
+            for (int i = (int) h & maska; ; i = (i + 1) & maska) {
+                if (klucze[i] == key) return terminy[i];
+                if (klucze[i] == 0) return 0;
+            }
+        }
+
+        private void put(long key, long h, long deadline, long now) {
+            int maska = klucze.length - 1;
+            int i = (int) h & maska;
+            while (klucze[i] != 0 && klucze[i] != key) i = (i + 1) & maska;
+            if (klucze[i] == key) {
+                // usunięcie = termin w przeszłości, slot zwolni się przy przebudowie
+                terminy[i] = deadline;
+                return;
+            }
+            if (deadline == 0) return;
+            if ((zajete + 1) * 4 > klucze.length * 3) {
+                przebuduj(now, 1);
+                put(key, h, deadline, now);
+                return;
+            }
+            klucze[i] = key;
+            terminy[i] = deadline;
+            zajete++;
+        }
+
+        private void przebuduj(long now, int dodatkowe) {
+            int zywe = 0;
+            for (int i = 0; i < klucze.length; i++) if (klucze[i] != 0 && terminy[i] > now) zywe++;
+            int rozmiar = 16;
+            while (rozmiar * 3 < (zywe + dodatkowe) * 8) rozmiar <<= 1;
+            long[] stareKlucze = klucze;
+            long[] stareTerminy = terminy;
+            klucze = new long[rozmiar];
+            terminy = new long[rozmiar];
+            zajete = 0;
+            int maska = rozmiar - 1;
+            for (int j = 0; j < stareKlucze.length; j++) {
+                if (stareKlucze[j] == 0 || stareTerminy[j] <= now) continue;
+                int i = (int) mix(stareKlucze[j]) & maska;
+                while (klucze[i] != 0) i = (i + 1) & maska;
+                klucze[i] = stareKlucze[j];
+                terminy[i] = stareTerminy[j];
+                zajete++;
+            }
+        }
+    }
+}
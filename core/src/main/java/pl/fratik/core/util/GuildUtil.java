@@ -109,6 +109,7 @@ public class GuildUtil {
     }
 
     @Subscribe
+    @Blokujacy
     public void onGuildJoin(GuildJoinEvent guildJoinEvent) {
         Guild guild = guildJoinEvent.getGuild();
         GbanData data = getGbanData(guild);
@@ -0,0 +1,187 @@
+/*
+ * Copyright (C) 2019-2021 FratikB0T Contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package pl.fratik.core.util;
+
+import com.google.common.eventbus.Subscribe;
+import lombok.Getter;
+import net.dv8tion.jda.api.entities.Guild;
+import net.dv8tion.jda.api.entities.Member;
+import net.dv8tion.jda.api.entities.Role;
+import net.dv8tion.jda.api.events.guild.GuildLeaveEvent;
+import net.dv8tion.jda.api.events.guild.GuildReadyEvent;
+import net.dv8tion.jda.api.events.guild.member.GuildMemberRemoveEvent;
+import net.dv8tion.jda.api.events.guild.member.GuildMemberRoleAddEvent;
+import net.dv8tion.jda.api.events.guild.member.GuildMemberRoleRemoveEvent;
+import net.dv8tion.jda.api.sharding.ShardManager;
+import net.dv8tion.jda.internal.entities.MemberImpl;
+import pl.fratik.core.Globals;
+import pl.fratik.core.Ustawienia;
+import pl.fratik.core.cache.Cache;
+import pl.fratik.core.entity.GuildConfig;
+import pl.fratik.core.entity.GuildDao;
+import pl.fratik.core.event.DatabaseUpdateEvent;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Indeksy do szybkiego liczenia {@link pl.fratik.core.command.PermLevel}.
+ * <p>
+ * ID członków ekipy (ZGA/GADM na serwerze bota) są trzymane jako posortowane tablice {@code long} i przeliczane
+ * tylko przy zmianie ról na serwerze bota, a role admina/moda każdego serwera - jako {@code long}i
+ * przeliczane, gdy near cache zwróci nowy obiekt {@link GuildConfig}. Sprawdzenie uprawnień to kilka wyszukiwań zamiast
+ * przechodzenia po wszystkich członkach z rolą.
+ */
+public class PermLevelResolver {
+    private static final long[] PUSTE = new long[0];
+
+    private static volatile long[] zga;
+    private static volatile long[] gadm;
+    private static final Map<Long, RoleSerwera> roleSerwerow = new ConcurrentHashMap<>();
+
+    public static boolean isZga(long userId, ShardManager shardManager) {
+        if (!Globals.inFratikDev) return false;
+        if (zga == null) odswiezEkipe(shardManager.getGuildById(Ustawienia.instance.botGuild));
+        return Arrays.binarySearch(zga, userId) >= 0;
+    }
+
+    public static boolean isGadm(long userId, ShardManager shardManager) {
+        if (!Globals.inFratikDev) return false;
+        if (gadm == null) odswiezEkipe(shardManager.getGuildById(Ustawienia.instance.botGuild));
+        return Arrays.binarySearch(gadm, userId) >= 0;
+    }
+
+    /**
+     * @param gcCache Near cache configów - role są przeliczane tylko wtedy, gdy zwróci inny obiekt niż poprzednio
+     * @return Role admina i moda z configu serwera
+     */
+    public static RoleSerwera getRoleSerwera(Guild guild, Cache<GuildConfig> gcCache, GuildDao guildDao) {
+        GuildConfig gc = gcCache.get(guild.getId(), guildDao::get);
+        RoleSerwera role = roleSerwerow.get(guild.getIdLong());
+        // near cache zwraca ten sam obiekt, dopóki configu nie przeładuje (też po zapisie na innej instancji)
+        if (role != null && role.zrodlo == gc) return role;
+        role = RoleSerwera.z(gc);
+        roleSerwerow.put(guild.getIdLong(), role);
+        return role;
+    }
+
+    /**
+     * @return Czy członek ma rolę o podanym ID ({@code 0} - brak roli)
+     */
+    public static boolean maRole(Member member, long roleId) {
+        if (roleId == 0) return false;
+        Role rola = member.getGuild().getRoleById(roleId);
+        if (rola == null) return false;
+        // getRoles() kopiuje i sortuje listę przy każdym wywołaniu
+        if (member instanceof MemberImpl) return ((MemberImpl) member).getRoleSet().contains(rola);
+        return member.getRoles().contains(rola);
+    }
+
+    private static synchronized void odswiezEkipe(Guild botGuild) {
+        if (botGuild == null) {
+            if (zga == null) zga = PUSTE;
+            if (gadm == null) gadm = PUSTE;
+            return;
+        }
+        zga = idCzlonkow(botGuild, Ustawienia.instance.zgaRole);
+        gadm = idCzlonkow(botGuild, Ustawienia.instance.gadmRole);
+    }
+
+    private static long[] idCzlonkow(Guild guild, String roleId) {
+        Role rola = guild.getRoleById(roleId);
+        if (rola == null) return PUSTE;
+        List<Member> czlonkowie = guild.getMembersWithRoles(rola);
+        long[] id = new long[czlonkowie.size()];
+        for (int i = 0; i < id.length; i++) id[i] = czlonkowie.get(i).getIdLong();
+        Arrays.sort(id);
+        return id;
+    }
+
+    private static long parsujId(String id) {
+        if (id == null || id.isEmpty()) return 0;
+        try {
+            return Long.parseUnsignedLong(id);
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    private static boolean isBotGuild(Guild guild) {
+        return guild.getId().equals(Ustawienia.instance.botGuild);
+    }
+
+    private static boolean isRolaEkipy(List<Role> role) {
+        for (Role r : role) {
+            if (r.getId().equals(Ustawienia.instance.zgaRole) || r.getId().equals(Ustawienia.instance.gadmRole))
+                return true;
+        }
+        return false;
+    }
+
+    @Subscribe
+    public void onGuildReady(GuildReadyEvent e) {
+        if (isBotGuild(e.getGuild())) odswiezEkipe(e.getGuild());
+    }
+
+    @Subscribe
+    public void onRoleAdd(GuildMemberRoleAddEvent e) {
+        if (isBotGuild(e.getGuild()) && isRolaEkipy(e.getRoles())) odswiezEkipe(e.getGuild());
+    }
+
+    @Subscribe
+    public void onRoleRemove(GuildMemberRoleRemoveEvent e) {
+        if (isBotGuild(e.getGuild()) && isRolaEkipy(e.getRoles())) odswiezEkipe(e.getGuild());
+    }
+
+    @Subscribe
+    public void onMemberRemove(GuildMemberRemoveEvent e) {
+        if (isBotGuild(e.getGuild()) && (Arrays.binarySearch(zga == null ? PUSTE : zga, e.getUser().getIdLong()) >= 0 ||
+                Arrays.binarySearch(gadm == null ? PUSTE : gadm, e.getUser().getIdLong()) >= 0))
+            odswiezEkipe(e.getGuild());
+    }
+
+    @Subscribe
+    public void onGuildLeave(GuildLeaveEvent e) {
+        roleSerwerow.remove(e.getGuild().getIdLong());
+    }
+
+    @Subscribe
+    public void onDatabaseUpdate(DatabaseUpdateEvent e) {
+        if (!(e.getEntity() instanceof GuildConfig)) return;
+        GuildConfig gc = (GuildConfig) e.getEntity();
+        roleSerwerow.put(Long.parseUnsignedLong(gc.getGuildId()), RoleSerwera.z(gc));
+    }
+
+    public static class RoleSerwera {
+        private final GuildConfig zrodlo;
+        @Getter private final long admin;
+        @Getter private final long mod;
+
+        private RoleSerwera(GuildConfig zrodlo, long admin, long mod) {
+            this.zrodlo = zrodlo;
+            this.admin = admin;
+            this.mod = mod;
+        }
+
+        private static RoleSerwera z(GuildConfig gc) {
+            return new RoleSerwera(gc, parsujId(gc.getAdminRole()), parsujId(gc.getModRole()));
+        }
+    }
+}
@@ -0,0 +1,376 @@
+/*
+ * Copyright (C) 2019-2021 FratikB0T Contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package pl.fratik.core.util;
+
+import com.google.common.eventbus.DeadEvent;
+import com.google.common.eventbus.EventBus;
+import com.google.common.eventbus.Subscribe;
+import com.google.common.reflect.TypeToken;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import pl.fratik.core.metrics.Metryki;
+import pl.fratik.core.metrics.Pomiar;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.ToLongFunction;
+
+/**
+ * EventBus rozdzielający eventy na stałą liczbę kolejek ("pasów") według klucza - zwykle ID serwera.
+ * <p>
+ * Każdy pas ma jeden wątek, więc eventy jednego serwera są obsługiwane po kolei, a różne serwery
+ * równolegle. Wolny subskrybent blokuje tylko swój pas, a nie wszystkie serwery naraz.
+ * Eventy bez klucza (np. {@link pl.fratik.core.event.DatabaseUpdateEvent}) i subskrybenci oznaczeni
+ * {@link Blokujacy} idą do puli wątków z nieograniczoną kolejką - bez zachowania kolejności, tak jak
+ * w {@link com.google.common.eventbus.AsyncEventBus}.
+ * <p>
+ * Zgodny z {@link Subscribe} - moduły rejestrują się tak samo jak w Guavie. {@code @AllowConcurrentEvents}
+ * nie ma znaczenia: subskrybent nigdy nie dostaje naraz dwóch eventów z tego samego pasa.
+ * Kolejki pasów są ograniczone; gdy pas jest pełny, wysyłający czeka do {@code maxCzekanieMs}, a potem event
+ * jest odrzucany i liczony w {@link #getOdrzucone()}. Wyjątki: typy z {@link #nieOdrzucaj(Class[])} czekają
+ * na miejsce bez limitu, a event wysłany z wątku pełnego pasu do niego samego jest obsługiwany od razu.
+ * <p>
+ * Czas każdego wywołania trafia do {@link Metryki} jako {@code fratikbot_event_subscriber_seconds}
+ * (etykiety: klasa subskrybenta i klasa eventu), a głębokości pasów jako {@code fratikbot_eventbus_queue_depth}.
+ */
+public class ShardedEventBus extends EventBus {
+    private static final Logger logger = LoggerFactory.getLogger(ShardedEventBus.class);
+    private static final MethodType SYGNATURA = MethodType.methodType(void.class, Object.class);
+
+    private final ToLongFunction<Object> klucz;
+    private final long maxCzekanieMs;
+    private final Pas[] pasy;
+    private final ThreadPoolExecutor pula;
+    private final Set<Class<?>> nieOdrzucane = new CopyOnWriteArraySet<>();
+
+    // typ eventu (parametr metody) -> subskrybenci
+    private final Map<Class<?>, Set<Subskrybent>> subskrybenci = new ConcurrentHashMap<>();
+    // klasa eventu -> subskrybenci wszystkich jej nadtypów; czyszczone przy (wy)rejestrowaniu
+    private final Map<Class<?>, Odbiorcy> cache = new ConcurrentHashMap<>();
+    private final Map<Class<?>, Set<Class<?>>> nadtypy = new ConcurrentHashMap<>();
+    private final AtomicLong wersja = new AtomicLong();
+
+    private final LongAdder wyslane = new LongAdder();
+    private final LongAdder przepelnienia = new LongAdder();
+    private final LongAdder odrzucone = new LongAdder();
+
+    /**
+     * @param liczbaPasow   Ile pasów na eventy z kluczem
+     * @param watkiPuli     Ile wątków na eventy bez klucza i subskrybentów {@link Blokujacy}
+     * @param pojemnosc     Ile eventów może czekać w jednym pasie
+     * @param maxCzekanieMs Ile wysyłający może czekać na miejsce w pełnym pasie, zanim event zostanie odrzucony
+     * @param klucz         Klucz eventu (np. ID serwera), {@code 0} gdy event nie ma klucza
+     */
+    public ShardedEventBus(int liczbaPasow, int watkiPuli, int pojemnosc, long maxCzekanieMs, ToLongFunction<Object> klucz) {
+        super(EventBusErrorHandler.instance);
+        if (liczbaPasow < 1) throw new IllegalArgumentException("liczbaPasow < 1");
+        if (watkiPuli < 1) throw new IllegalArgumentException("watkiPuli < 1");
+        this.klucz = klucz;
+        this.maxCzekanieMs = maxCzekanieMs;
+        NamedThreadFactory tf = new NamedThreadFactory("EventBus");
+        pasy = new Pas[liczbaPasow];
+        for (int i = 0; i < liczbaPasow; i++) pasy[i] = new Pas(pojemnosc, tf);
+        pula = new ThreadPoolExecutor(watkiPuli, watkiPuli, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+                new NamedThreadFactory("EventBus-Pula"));
+        for (int i = 0; i < liczbaPasow; i++) {
+            Pas pas = pasy[i];
+            Metryki.gauge("fratikbot_eventbus_queue_depth", () -> pas.kolejka.size(), "lane", String.valueOf(i));
+        }
+        Metryki.gauge("fratikbot_eventbus_queue_depth", () -> pula.getQueue().size(), "lane", "global");
+        Metryki.licznik("fratikbot_eventbus_posted_total", wyslane::sum);
+        Metryki.licznik("fratikbot_eventbus_overflow_total", przepelnienia::sum);
+        Metryki.licznik("fratikbot_eventbus_dropped_total", odrzucone::sum);
+    }
+
+    @Override
+    public void register(Object object) {
+        for (Subskrybent s : znajdzSubskrybentow(object)) {
+            subskrybenci.computeIfAbsent(s.typ, k -> new CopyOnWriteArraySet<>()).add(s);
+        }
+        wersja.incrementAndGet();
+        cache.clear();
+    }
+
+    @Override
+    public void unregister(Object object) {
+        for (Subskrybent s : znajdzSubskrybentow(object)) {
+            Set<Subskrybent> zarejestrowani = subskrybenci.get(s.typ);
+            if (zarejestrowani == null || !zarejestrowani.remove(s))
+                throw new IllegalArgumentException("missing event subscriber for an annotated method. Is " +
+                        object + " registered?");
+        }
+        wersja.incrementAndGet();
+        cache.clear();
+    }
+
+    /**
+     * Eventy tych typów (i podtypów) nigdy nie są odrzucane - gdy pas jest pełny, wysyłający czeka na miejsce.
+     * Dla eventów, których zgubienie psuje stan, np. unieważnienie cache albo zapytanie innego modułu.
+     */
+    public void nieOdrzucaj(Class<?>... typy) {
+        nieOdrzucane.addAll(Arrays.asList(typy));
+    }
+
+    @Override
+    public void post(Object event) {
+        Odbiorcy odbiorcy = subskrybenciDla(event.getClass());
+        if (odbiorcy.wPasie.length == 0 && odbiorcy.wPuli.length == 0) {
+            if (!(event instanceof DeadEvent)) post(new DeadEvent(this, event));
+            return;
+        }
+        wyslane.increment();
+        long k = klucz.applyAsLong(event);
+        if (k == 0) {
+            pula.execute(() -> {
+                wywolaj(event, odbiorcy.wPasie);
+                wywolaj(event, odbiorcy.wPuli);
+            });
+            return;
+        }
+        if (odbiorcy.wPuli.length != 0) pula.execute(() -> wywolaj(event, odbiorcy.wPuli));
+        if (odbiorcy.wPasie.length != 0)
+            pasy[(int) Math.floorMod(k ^ (k >>> 22), (long) pasy.length)].wyslij(new Przesylka(event, odbiorcy.wPasie));
+    }
+
+    /**
+     * Zatrzymuje pasy i pulę, czekając aż obsłużą to, co już w nich jest.
+     */
+    public void shutdown(long timeout, TimeUnit unit) {
+        long koniec = System.nanoTime() + unit.toNanos(timeout);
+        for (Pas pas : pasy) pas.zatrzymaj();
+        pula.shutdown();
+        try {
+            for (Pas pas : pasy)
+                pas.watek.join(Math.max(1, TimeUnit.NANOSECONDS.toMillis(koniec - System.nanoTime())));
+            pula.awaitTermination(Math.max(1, koniec - System.nanoTime()), TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public long getWyslane() {
+        return wyslane.sum();
+    }
+
+    /**
+     * @return Ile razy wysyłający musiał czekać na miejsce w pasie
+     */
+    public long getPrzepelnienia() {
+        return przepelnienia.sum();
+    }
+
+    public long getOdrzucone() {
+        return odrzucone.sum();
+    }
+
+    /**
+     * @return Liczba eventów czekających w każdym pasie; ostatni element to kolejka puli
+     */
+    public int[] getGlebokosci() {
+        int[] wynik = new int[pasy.length + 1];
+        for (int i = 0; i < pasy.length; i++) wynik[i] = pasy[i].kolejka.size();
+        wynik[pasy.length] = pula.getQueue().size();
+        return wynik;
+    }
+
+    private Odbiorcy subskrybenciDla(Class<?> klasa) {
+        Odbiorcy odbiorcy = cache.get(klasa);
+        if (odbiorcy != null) return odbiorcy;
+        long w = wersja.get();
+        List<Odbiorca> wPasie = new ArrayList<>();
+        List<Odbiorca> wPuli = new ArrayList<>();
+        for (Class<?> typ : nadtypy.computeIfAbsent(klasa, k -> new LinkedHashSet<>(TypeToken.of(k).getTypes().rawTypes()))) {
+            Set<Subskrybent> zarejestrowani = subskrybenci.get(typ);
+            if (zarejestrowani == null) continue;
+            for (Subskrybent s : zarejestrowani) {
+                (s.metoda.isAnnotationPresent(Blokujacy.class) ? wPuli : wPasie).add(new Odbiorca(s,
+                        Metryki.pomiar("fratikbot_event_subscriber_seconds", "subscriber",
+                                s.obiekt.getClass().getName(), "event", klasa.getName())));
+            }
+        }
+        odbiorcy = new Odbiorcy(wPasie.toArray(new Odbiorca[0]), wPuli.toArray(new Odbiorca[0]));
+        // jeżeli w trakcie ktoś się (wy)rejestrował, tablica może być nieaktualna - nie zapisujemy jej
+        if (wersja.get() == w) cache.putIfAbsent(klasa, odbiorcy);
+        return odbiorcy;
+    }
+
+    private boolean nieOdrzucac(Object event) {
+        for (Class<?> typ : nieOdrzucane) if (typ.isInstance(event)) return true;
+        return false;
+    }
+
+    private static void wywolaj(Object event, Odbiorca[] odbiorcy) {
+        for (Odbiorca o : odbiorcy) {
+            Subskrybent s = o.subskrybent;
+            long start = System.nanoTime();
+            try {
+                s.handle.invokeExact(event);
+            } catch (Throwable t) {
+                EventBusErrorHandler.instance.handleException(t, event, s.obiekt, s.metoda);
+            }
+            o.pomiar.zapisz(System.nanoTime() - start);
+        }
+    }
+
+    private List<Subskrybent> znajdzSubskrybentow(Object object) {
+        // nadpisana metoda z @Subscribe w klasie i nadklasie to jeden subskrybent
+        Map<String, Method> metody = new LinkedHashMap<>();
+        for (Class<?> klasa : TypeToken.of(object.getClass()).getTypes().rawTypes()) {
+            for (Method m : klasa.getDeclaredMethods()) {
+                if (!m.isAnnotationPresent(Subscribe.class) || m.isSynthetic()) continue;
+                Class<?>[] parametry = m.getParameterTypes();
+                if (parametry.length != 1 || parametry[0].isPrimitive())
+                    throw new IllegalArgumentException("Method " + m + " has @Subscribe annotation but has " +
+                            parametry.length + " parameters. Subscriber methods must have exactly 1 non-primitive parameter.");
+                metody.putIfAbsent(m.getName() + Arrays.toString(parametry), m);
+            }
+        }
+        List<Subskrybent> wynik = new ArrayList<>(metody.size());
+        for (Method m : metody.values()) {
+            try {
+                m.setAccessible(true);
+                MethodHandle handle = MethodHandles.lookup().unreflect(m).bindTo(object).asType(SYGNATURA);
+                wynik.add(new Subskrybent(object, m, handle));
+            } catch (IllegalAccessException e) {
+                throw new IllegalArgumentException("Nie można wywołać " + m, e);
+            }
+        }
+        return wynik;
+    }
+
+    private static class Subskrybent {
+        private final Object obiekt;
+        private final Method metoda;
+        private final Class<?> typ;
+        private final MethodHandle handle;
+
+        private Subskrybent(Object obiekt, Method metoda, MethodHandle handle) {
+            this.obiekt = obiekt;
+            this.metoda = metoda;
+            this.typ = metoda.getParameterTypes()[0];
+            this.handle = handle;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Subskrybent)) return false;
+            Subskrybent s = (Subskrybent) o;
+            return obiekt == s.obiekt && metoda.equals(s.metoda);
+        }
+
+        @Override
+        public int hashCode() {
+            return (31 + metoda.hashCode()) * 31 + System.identityHashCode(obiekt);
+        }
+    }
+
+    private static class Odbiorca {
+        private final Subskrybent subskrybent;
+        private final Pomiar pomiar;
+
+        private Odbiorca(Subskrybent subskrybent, Pomiar pomiar) {
+            this.subskrybent = subskrybent;
+            this.pomiar = pomiar;
+        }
+    }
+
+    private static class Odbiorcy {
+        private final Odbiorca[] wPasie;
+        private final Odbiorca[] wPuli;
+
+        private Odbiorcy(Odbiorca[] wPasie, Odbiorca[] wPuli) {
+            this.wPasie = wPasie;
+            this.wPuli = wPuli;
+        }
+    }
+
+    private static class Przesylka {
+        private final Object event;
+        private final Odbiorca[] odbiorcy;
+
+        private Przesylka(Object event, Odbiorca[] odbiorcy) {
+            this.event = event;
+            this.odbiorcy = odbiorcy;
+        }
+    }
+
+    private class Pas implements Runnable {
+        private final BlockingQueue<Przesylka> kolejka;
+        private final Thread watek;
+        private volatile boolean dziala = true;
+
+        private Pas(int pojemnosc, ThreadFactory tf) {
+            kolejka = new ArrayBlockingQueue<>(pojemnosc);
+            watek = tf.newThread(this);
+            watek.start();
+        }
+
+        private void wyslij(Przesylka p) {
+            if (kolejka.offer(p)) return;
+            przepelnienia.increment();
+            if (Thread.currentThread() == watek) {
+                // subskrybent tego pasu wysłał event do własnego, pełnego pasu - czekanie nic nie da
+                wywolaj(p.event, p.odbiorcy);
+                return;
+            }
+            try {
+                if (nieOdrzucac(p.event)) {
+                    kolejka.put(p);
+                    return;
+                }
+                if (maxCzekanieMs > 0 && kolejka.offer(p, maxCzekanieMs, TimeUnit.MILLISECONDS)) return;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            odrzucone.increment();
+            long ile = odrzucone.sum();
+            // bez zalewania logów, jeżeli pas stoi dłużej
+            if (Long.bitCount(ile) == 1)
+                logger.warn("Pas {} jest pełny, odrzucam event {} (łącznie odrzucono: {})", watek.getName(),
+                        p.event.getClass().getName(), ile);
+        }
+
+        private void zatrzymaj() {
+            // bez interrupt() - nie chcemy przerywać subskrybenta w połowie
+            dziala = false;
+        }
+
+        @Override
+        public void run() {
+            while (true) {
+                Przesylka p;
+                try {
+                    p = kolejka.poll(100, TimeUnit.MILLISECONDS);
+                } catch (InterruptedException e) {
+                    break;
+                }
+                if (p == null) {
+                    if (!dziala) break;
+                    continue;
+                }
+                wywolaj(p.event, p.odbiorcy);
+            }
+        }
+    }
+}
@@ -20,8 +20,6 @@ package pl.fratik.core.util;
 import com.google.common.eventbus.Subscribe;
 import lombok.Setter;
 import net.dv8tion.jda.api.Permission;
-import net.dv8tion.jda.api.entities.Guild;
-import net.dv8tion.jda.api.entities.ISnowflake;
 import net.dv8tion.jda.api.entities.Member;
 import net.dv8tion.jda.api.entities.User;
 import net.dv8tion.jda.api.sharding.ShardManager;
@@ -98,14 +96,13 @@ public class UserUtil {
             return PermLevel.GADMIN;
         if (max.getNum() >= 4 && member.isOwner())
             return PermLevel.OWNER;
-        if (max.getNum() >= 3 && member.getPermissions().contains(Permission.MANAGE_SERVER))
+        if (max.getNum() >= 3 && member.hasPermission(Permission.MANAGE_SERVER))
             return PermLevel.MANAGESERVERPERMS;
-        GuildConfig gc = gcCache.get(member.getGuild().getId(), guildDao::get);
-        if (max.getNum() >= 2 && gc.getAdminRole() != null && gc.getAdminRole().length() != 0 &&
-                member.getRoles().stream().map(ISnowflake::getId).anyMatch(id -> gc.getAdminRole().equals(id)))
+        if (max.getNum() < 1) return PermLevel.EVERYONE;
+        PermLevelResolver.RoleSerwera role = PermLevelResolver.getRoleSerwera(member.getGuild(), gcCache, guildDao);
+        if (max.getNum() >= 2 && PermLevelResolver.maRole(member, role.getAdmin()))
             return PermLevel.ADMIN;
-        if (max.getNum() >= 1 && gc.getModRole() != null && gc.getModRole().length() != 0 &&
-                member.getRoles().stream().map(ISnowflake::getId).anyMatch(id -> gc.getModRole().equals(id)))
+        if (PermLevelResolver.maRole(member, role.getMod()))
             return PermLevel.MOD;
         return PermLevel.EVERYONE;
     }
@@ -121,12 +118,7 @@ public class UserUtil {
     }
 
     private static boolean isZga(User user, ShardManager shardManager) {
-        Ustawienia s = Ustawienia.instance;
-        if (!Globals.inFratikDev) return false;
-        Guild g = shardManager.getGuildById(s.botGuild);
-        if (g == null) return false;
-        return g.getMembersWithRoles(g.getRoleById(s.zgaRole))
-                .stream().map(Member::getUser).anyMatch(user::equals);
+        return PermLevelResolver.isZga(user.getIdLong(), shardManager);
     }
 
     public static boolean isGadm(Member member, ShardManager shardManager) {
@@ -134,12 +126,7 @@ public class UserUtil {
     }
 
     public static boolean isGadm(User user, ShardManager shardManager) {
-        Ustawienia s = Ustawienia.instance;
-        if (!Globals.inFratikDev) return false;
-        Guild g = shardManager.getGuildById(s.botGuild);
-        if (g == null) return false;
-        return g.getMembersWithRoles(g.getRoleById(s.gadmRole))
-                .stream().map(Member::getUser).anyMatch(user::equals);
+        return PermLevelResolver.isGadm(user.getIdLong(), shardManager);
     }
 
     public static boolean isStaff(Member member, ShardManager shardManager) {
@@ -20,6 +20,7 @@ package pl.fratik.core.util.graph;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 /**
@@ -122,6 +123,53 @@ public final class Graph<T> {
         generateDependencies(nextNodesToDisplay);
     }
 
+    /**
+     *
+     * Groups the nodes into waves, in reverse evaluation order. Every node is
+     * placed in a later wave than all of its outgoing nodes, as early as
+     * possible, so the nodes inside a single wave do not depend on each other
+     * and can be processed in parallel. Nodes that are part of a cycle are
+     * placed as if the edge closing the cycle did not exist.
+     *
+     * @return The waves, the first one containing the nodes without outgoing
+     *         nodes
+     */
+    public List<List<T>> generateWaves() {
+        Map<GraphNode<T>, Integer> waveOf = new HashMap<>();
+        List<List<T>> waves = new ArrayList<>();
+        for (GraphNode<T> node : nodes.values()) {
+            int wave = getWave(node, waveOf);
+            while (waves.size() <= wave) waves.add(new ArrayList<>());
+            waves.get(wave).add(node.getValue());
+        }
+        return waves;
+    }
+
+    /**
+     * Calculates the wave of the node passed in as parameter
+     *
+     * @param node
+     *            The node for which the wave is calculated
+     * @param waveOf
+     *            Already calculated waves; -1 marks the nodes being calculated
+     * @return The wave of the node
+     */
+    private int getWave(GraphNode<T> node, Map<GraphNode<T>, Integer> waveOf) {
+        Integer known = waveOf.get(node);
+        if (known != null) return Math.max(known, 0);
+        waveOf.put(node, -1);
+        int wave = 0;
+        if (node.getGoingOutNodes() != null) {
+            for (GraphNode<T> out : node.getGoingOutNodes()) {
+                Integer outWave = waveOf.get(out);
+                if (outWave != null && outWave == -1) continue;
+                wave = Math.max(wave, getWave(out, waveOf) + 1);
+            }
+        }
+        waveOf.put(node, wave);
+        return wave;
+    }
+
     /**
      * Generates the dependency order of the nodes passed in as parameter
      *
@@ -0,0 +1,91 @@
+/*
+ * Copyright (C) 2019-2021 FratikB0T Contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package pl.fratik.core.util;
+
+import org.junit.Test;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class CaseInsensitiveTrieTest {
+
+    @Test
+    public void getIgnoresCase() {
+        CaseInsensitiveTrie<Integer> trie = trie("Ping", 1, "help", 2);
+        assertEquals(Integer.valueOf(1), trie.get("PING", 0, 4));
+        assertEquals(Integer.valueOf(1), trie.get("ping", 0, 4));
+        assertEquals(Integer.valueOf(2), trie.get("HeLp", 0, 4));
+    }
+
+    @Test
+    public void getWholeKeyOnly() {
+        CaseInsensitiveTrie<Integer> trie = trie("ping", 1);
+        assertNull(trie.get("pin", 0, 3));
+        assertNull(trie.get("pings", 0, 5));
+        assertNull(trie.get("", 0, 0));
+    }
+
+    @Test
+    public void getSubrange() {
+        CaseInsensitiveTrie<Integer> trie = trie("ping", 1);
+        assertEquals(Integer.valueOf(1), trie.get("fb!PING cos", 3, 7));
+        assertNull(trie.get("fb!PING cos", 3, 8));
+    }
+
+    @Test
+    public void matchPrefixPriority() {
+        assertEquals("dluzszy", trie("fb", "dluzszy", "f", "krotszy").matchPrefix("fb!help", 0));
+        assertEquals("krotszy", trie("f", "krotszy", "fb", "dluzszy").matchPrefix("fb!help", 0));
+    }
+
+    @Test
+    public void matchPrefixFrom() {
+        CaseInsensitiveTrie<String> trie = trie("fb!", "fratik");
+        assertEquals("fratik", trie.matchPrefix("<@1> FB!ping", 5));
+        assertNull(trie.matchPrefix("<@1> FB!ping", 0));
+    }
+
+    @Test
+    public void matchPrefixTextShorterThanKey() {
+        CaseInsensitiveTrie<String> trie = trie("fb!", "fratik");
+        assertNull(trie.matchPrefix("fb", 0));
+        assertNull(trie.matchPrefix("", 0));
+    }
+
+    @Test
+    public void duplicateKeysFirstWins() {
+        CaseInsensitiveTrie<Integer> trie = trie("abc", 1, "ABC", 2);
+        assertEquals(Integer.valueOf(1), trie.get("aBc", 0, 3));
+        assertEquals(Integer.valueOf(1), trie.matchPrefix("abcd", 0));
+    }
+
+    @Test
+    public void empty() {
+        assertNull(CaseInsensitiveTrie.empty().get("ping", 0, 4));
+        assertNull(CaseInsensitiveTrie.empty().matchPrefix("ping", 0));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <V> CaseInsensitiveTrie<V> trie(Object... kluczeIWartosci) {
+        Map<String, V> mapa = new LinkedHashMap<>();
+        for (int i = 0; i < kluczeIWartosci.length; i += 2) mapa.put((String) kluczeIWartosci[i], (V) kluczeIWartosci[i + 1]);
+        return new CaseInsensitiveTrie<>(mapa);
+    }
+}
@@ -0,0 +1,108 @@
+/*
+ * Copyright (C) 2019-2021 FratikB0T Contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package pl.fratik.core.util;
+
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class ExpiringLongMapTest {
+
+    @Test
+    public void deadlineExpires() {
+        ExpiringLongMap mapa = new ExpiringLongMap();
+        mapa.setDeadline(1, 100, 0);
+        assertEquals(100, mapa.getDeadline(1, 0));
+        assertEquals(100, mapa.getDeadline(1, 99));
+        assertEquals(0, mapa.getDeadline(1, 100));
+        assertEquals(0, mapa.getDeadline(2, 0));
+    }
+
+    @Test
+    public void pastDeadlineRemoves() {
+        ExpiringLongMap mapa = new ExpiringLongMap();
+        mapa.setDeadline(1, 100, 0);
+        mapa.setDeadline(1, 5, 10);
+        assertEquals(0, mapa.getDeadline(1, 10));
+        assertEquals(0, mapa.size(10));
+        mapa.setDeadline(1, 50, 10);
+        assertEquals(50, mapa.getDeadline(1, 10));
+    }
+
+    @Test
+    public void tryAcquireBurst() {
+        ExpiringLongMap mapa = new ExpiringLongMap();
+        // co 10 ms, do 2 na zapas - 3 od razu, potem czekanie
+        assertTrue(mapa.tryAcquire(7, 0, 10, 20));
+        assertTrue(mapa.tryAcquire(7, 0, 10, 20));
+        assertTrue(mapa.tryAcquire(7, 0, 10, 20));
+        assertFalse(mapa.tryAcquire(7, 0, 10, 20));
+        assertFalse(mapa.tryAcquire(7, 9, 10, 20));
+        assertTrue(mapa.tryAcquire(7, 10, 10, 20));
+        assertTrue(mapa.tryAcquire(8, 10, 10, 20));
+    }
+
+    @Test
+    public void rebuildDropsExpired() {
+        ExpiringLongMap mapa = new ExpiringLongMap();
+        for (long k = 1; k <= 10_000; k++) mapa.setDeadline(k, 10, 0);
+        assertEquals(10_000, mapa.size(0));
+        // stare wpisy wygasły - przebudowa przy zapełnianiu ma je wyrzucić, a nowych nie zgubić
+        for (long k = 10_001; k <= 20_000; k++) mapa.setDeadline(k, 100, 20);
+        assertEquals(10_000, mapa.size(20));
+        for (long k = 1; k <= 10_000; k++) assertEquals(0, mapa.getDeadline(k, 20));
+        for (long k = 10_001; k <= 20_000; k++) assertEquals(100, mapa.getDeadline(k, 20));
+    }
+
+    @Test
+    public void purgeKeepsLive() {
+        ExpiringLongMap mapa = new ExpiringLongMap();
+        for (long k = 1; k <= 1000; k++) mapa.setDeadline(k, k % 2 == 0 ? 10 : 1000, 0);
+        mapa.purge(20);
+        assertEquals(500, mapa.size(20));
+        for (long k = 1; k <= 1000; k++) assertEquals(k % 2 == 0 ? 0 : 1000, mapa.getDeadline(k, 20));
+        mapa.purge(2000);
+        assertEquals(0, mapa.size(2000));
+        mapa.setDeadline(3, 3000, 2000);
+        assertEquals(3000, mapa.getDeadline(3, 2000));
+    }
+
+    @Test
+    public void matchesHashMap() {
+        ExpiringLongMap mapa = new ExpiringLongMap();
+        Map<Long, Long> wzor = new HashMap<>();
+        Random random = new Random(42);
+        long now = 0;
+        for (int i = 0; i < 200_000; i++) {
+            now += random.nextInt(3);
+            // ID w stylu snowflake'ów - podobne młodsze bity
+            long key = ((1000L + random.nextInt(5000)) << 22) | 1;
+            long deadline = now + random.nextInt(500) - 50;
+            mapa.setDeadline(key, deadline, now);
+            if (deadline > now) wzor.put(key, deadline);
+            else wzor.remove(key);
+            long sprawdzany = ((1000L + random.nextInt(5000)) << 22) | 1;
+            Long oczekiwany = wzor.get(sprawdzany);
+            assertEquals(oczekiwany == null || oczekiwany <= now ? 0 : oczekiwany, mapa.getDeadline(sprawdzany, now));
+        }
+    }
+}
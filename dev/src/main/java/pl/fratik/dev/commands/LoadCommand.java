@@ -26,6 +26,7 @@ import pl.fratik.core.Ustawienia;
 import pl.fratik.core.command.Command;
 import pl.fratik.core.command.CommandCategory;
 import pl.fratik.core.command.CommandContext;
+import pl.fratik.core.command.ExecutionType;
 import pl.fratik.core.command.PermLevel;
 import pl.fratik.core.entity.Uzycie;
 import pl.fratik.core.manager.ManagerModulow;
@@ -48,6 +49,7 @@ public class LoadCommand extends Command {
         permissions.add(Permission.MESSAGE_EMBED_LINKS);
         allowPermLevelChange = false;
         allowInDMs = true;
+        executionType = ExecutionType.IO;
     }
 
     @Override
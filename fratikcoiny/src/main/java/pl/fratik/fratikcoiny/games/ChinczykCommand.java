@@ -34,6 +34,7 @@ import pl.fratik.core.command.SubCommand;
 import pl.fratik.core.event.ConnectedEvent;
 import pl.fratik.core.manager.ManagerArgumentow;
 import pl.fratik.core.tlumaczenia.Tlumaczenia;
+import pl.fratik.core.util.Blokujacy;
 import pl.fratik.core.util.ClassicEmbedPaginator;
 import pl.fratik.core.util.EventWaiter;
 import pl.fratik.fratikcoiny.entity.ChinczykState;
@@ -90,6 +91,7 @@ public class ChinczykCommand extends Command {
     }
 
     @Subscribe
+    @Blokujacy
     public void onConnected(ConnectedEvent e) {
         eventBus.unregister(this);
         loadSavedGames();
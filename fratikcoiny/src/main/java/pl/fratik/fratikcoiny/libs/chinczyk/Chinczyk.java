@@ -56,6 +56,7 @@ import pl.fratik.core.Ustawienia;
 import pl.fratik.core.command.CommandContext;
 import pl.fratik.core.tlumaczenia.Language;
 import pl.fratik.core.tlumaczenia.Tlumaczenia;
+import pl.fratik.core.util.Blokujacy;
 import pl.fratik.core.util.NamedThreadFactory;
 import pl.fratik.core.util.NetworkUtil;
 import pl.fratik.core.util.UserUtil;
@@ -842,6 +843,7 @@ public class Chinczyk {
     }
 
     @Subscribe
+    @Blokujacy
     public void onButtonClick(ButtonClickEvent e) {
         if (!e.getChannel().equals(getChannel())) return;
         lock.lock();
@@ -1180,6 +1182,7 @@ public class Chinczyk {
     }
 
     @Subscribe
+    @Blokujacy
     public void onMenu(SelectionMenuEvent e) {
         if (!e.getChannel().equals(getChannel())) return;
         if (e.getComponentId().equals(LANGUAGE)) {
@@ -1280,6 +1283,7 @@ public class Chinczyk {
     }
 
     @Subscribe
+    @Blokujacy
     @AllowConcurrentEvents
     public void onMessage(MessageReceivedEvent e) {
         if (!e.getChannel().equals(getChannel())) return;
@@ -1331,6 +1335,7 @@ public class Chinczyk {
     }
     
     @Subscribe
+    @Blokujacy
     public void onMessageDelete(MessageDeleteEvent e) {
         if (message != null && e.getMessageIdLong() == message.getIdLong()) {
             status = Status.MESSAGE_DELETED;
@@ -1339,6 +1344,7 @@ public class Chinczyk {
     }
 
     @Subscribe
+    @Blokujacy
     public void onMessageBulkDelete(MessageBulkDeleteEvent e) {
         if (message != null && e.getMessageIds().contains(message.getId())) {
             status = Status.MESSAGE_DELETED;
@@ -1347,6 +1353,7 @@ public class Chinczyk {
     }
     
     @Subscribe
+    @Blokujacy
     public void onChannelDelete(TextChannelDeleteEvent e) {
         if (e.getChannel().getIdLong() == getChannel().getIdLong()) {
             status = Status.CANCELLED;
@@ -1355,6 +1362,7 @@ public class Chinczyk {
     }
 
     @Subscribe
+    @Blokujacy
     public void onGuildLeave(GuildLeaveEvent e) {
         if (e.getGuild().getIdLong() == getChannel().getIdLong()) {
             status = Status.LEFT_GUILD;
@@ -1363,6 +1371,7 @@ public class Chinczyk {
     }
 
     @Subscribe
+    @Blokujacy
     public void onNameUpdate(UserUpdateNameEvent e) {
         if (message == null) return;
         if (players.values().stream().anyMatch(p -> p.getUser().equals(e.getUser()))) updateMainMessage(true);
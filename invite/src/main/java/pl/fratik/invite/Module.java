@@ -25,14 +25,12 @@ import io.sentry.Sentry;
 import io.sentry.event.Event;
 import io.sentry.event.EventBuilder;
 import io.sentry.event.interfaces.ExceptionInterface;
-import net.dv8tion.jda.api.JDA;
 import net.dv8tion.jda.api.sharding.ShardManager;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import pl.fratik.core.cache.RedisCacheManager;
 import pl.fratik.core.command.Command;
 import pl.fratik.core.entity.GuildDao;
-import pl.fratik.core.event.ConnectedEvent;
 import pl.fratik.core.event.PluginMessageEvent;
 import pl.fratik.core.manager.ManagerArgumentow;
 import pl.fratik.core.manager.ManagerBazyDanych;
@@ -83,15 +81,11 @@ public class Module implements Modul {
 
         commands.forEach(managerKomend::registerCommand);
 
-        if (shardManager.getShards().stream().anyMatch(s -> !s.getStatus().equals(JDA.Status.CONNECTED))) return true;
-
-        invitesCache.load();
-
         return true;
     }
 
-    @Subscribe
-    public void onConnectedEvent(ConnectedEvent e) {
+    @Override
+    public void warmUp() {
         if (!invitesCache.isLoading() && !invitesCache.isLoaded()) invitesCache.load();
     }
 
@@ -31,6 +31,7 @@ import pl.fratik.core.cache.RedisCacheManager;
 import pl.fratik.core.entity.GuildConfig;
 import pl.fratik.core.entity.GuildDao;
 import pl.fratik.core.event.DatabaseUpdateEvent;
+import pl.fratik.core.util.Blokujacy;
 
 public class InvitesCache {
 
@@ -80,6 +81,7 @@ public class InvitesCache {
     }
 
     @Subscribe
+    @Blokujacy
     public void onDatabaseUpdate(DatabaseUpdateEvent e) {
         if (e.getEntity() instanceof GuildConfig) {
             if (((GuildConfig) e.getEntity()).isLvlUpNotify()) {
@@ -24,6 +24,7 @@ import net.dv8tion.jda.api.entities.User;
 import org.jetbrains.annotations.NotNull;
 import pl.fratik.core.command.CommandCategory;
 import pl.fratik.core.command.CommandContext;
+import pl.fratik.core.command.ExecutionType;
 import pl.fratik.core.util.ClassicEmbedPaginator;
 import pl.fratik.core.util.EventWaiter;
 import pl.fratik.core.util.MapUtil;
@@ -48,6 +49,7 @@ public class TopInvitesCommand extends AbstractInvitesCommand {
         aliases = new String[] {"topinvite", "topinv", "topinvs"};
         category = CommandCategory.INVITES;
         cooldown = 10;
+        executionType = ExecutionType.IO;
         this.eventWaiter = eventWaiter;
         this.eventBus = eventBus;
         allowPermLevelChange = true;
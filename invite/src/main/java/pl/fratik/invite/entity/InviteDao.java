@@ -20,6 +20,7 @@ package pl.fratik.invite.entity;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.common.eventbus.EventBus;
 import gg.amy.pgorm.PgMapper;
+import gg.amy.pgorm.Query;
 import net.dv8tion.jda.api.entities.Guild;
 import net.dv8tion.jda.api.entities.Member;
 import org.slf4j.LoggerFactory;
@@ -58,7 +59,7 @@ public class InviteDao implements Dao<InviteData> {
     }
 
     public List<InviteData> getByGuild(String id) {
-        return mapper.loadManyBySubkey("data->>'guildId'", id);
+        return mapper.query().where("guildId", Query.Op.EQ, id).list();
     }
 
     @Override
@@ -83,6 +84,17 @@ public class InviteDao implements Dao<InviteData> {
         }
     }
 
+    /**
+     * Zapisuje w tle (write-behind w {@link PgMapper}) - przy fali wejść nie czekamy na bazę przy każdej osobie.
+     * {@link #get(String)} widzi zmiany od razu, {@link #getByGuild(String)} dopiero po zrzucie (do sekundy).
+     */
+    public void saveLater(InviteData... toCos) {
+        for (InviteData tak : toCos) {
+            mapper.saveLater(tak);
+            eventBus.post(new DatabaseUpdateEvent(tak));
+        }
+    }
+
     private InviteData newObject(String id) {
         return new InviteData(id.split("\\.")[0], id.split("\\.")[1]);
     }
@@ -21,12 +21,14 @@ import com.fasterxml.jackson.annotation.JsonIgnore;
 import gg.amy.pgorm.annotations.GIndex;
 import gg.amy.pgorm.annotations.PrimaryKey;
 import gg.amy.pgorm.annotations.Table;
+import gg.amy.pgorm.annotations.TypedIndex;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import pl.fratik.core.entity.DatabaseEntity;
 
 @Table("invites")
 @GIndex({"id", "guildId", "userId"})
+@TypedIndex("guildId")
 @Data
 @AllArgsConstructor
 public class InviteData implements DatabaseEntity {
@@ -29,6 +29,7 @@ import pl.fratik.core.cache.RedisCacheManager;
 import pl.fratik.core.entity.GuildConfig;
 import pl.fratik.core.entity.GuildDao;
 import pl.fratik.core.tlumaczenia.Tlumaczenia;
+import pl.fratik.core.util.Blokujacy;
 import pl.fratik.core.util.UserUtil;
 import pl.fratik.invite.cache.FakeInvite;
 import pl.fratik.invite.cache.InvitesCache;
@@ -57,6 +58,7 @@ public class JoinListener {
     }
 
     @Subscribe
+    @Blokujacy
     @AllowConcurrentEvents
     public void onMemberJoin(GuildMemberJoinEvent e) {
         if (!invitesCache.isLoaded()) return;
@@ -78,7 +80,7 @@ public class JoinListener {
                 wchodzacy.setDolaczylZJegoZaproszenia(user.getId());
                 zapraszajacy.setTotalInvites(zapraszajacy.getTotalInvites() + 1);
                 addRole(e.getGuild(), zapraszajacy.getTotalInvites() - zapraszajacy.getLeaveInvites(), user);
-                inviteDao.save(wchodzacy, zapraszajacy);
+                inviteDao.saveLater(wchodzacy, zapraszajacy);
                 TextChannel kanal = getFullLogs(e.getGuild());
                 try {
                     if (kanal != null) {
@@ -141,10 +143,10 @@ public class JoinListener {
         if (ic.getDolaczylZJegoZaproszenia() != null) {
             InviteData zarazMuOdjebieZapro = getInviteData(ic.getDolaczylZJegoZaproszenia(), e.getGuild().getId());
             zarazMuOdjebieZapro.setLeaveInvites(zarazMuOdjebieZapro.getLeaveInvites() + 1);
-            inviteDao.save(zarazMuOdjebieZapro);
+            inviteDao.saveLater(zarazMuOdjebieZapro);
         }
         ic.setDolaczylZJegoZaproszenia(null);
-        inviteDao.save(ic);
+        inviteDao.saveLater(ic);
 
     }
 
@@ -29,6 +29,7 @@ import pl.fratik.core.cache.RedisCacheManager;
 import pl.fratik.core.entity.GuildConfig;
 import pl.fratik.core.entity.GuildDao;
 import pl.fratik.core.tlumaczenia.Tlumaczenia;
+import pl.fratik.core.util.Blokujacy;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -50,6 +51,7 @@ public class LiczekListener {
     }
 
     @Subscribe
+    @Blokujacy
     public void onLiczekSend(GuildMessageReceivedEvent m) {
         GuildConfig gc = getGuildConfig(m.getGuild());
         if (gc.getLiczekKanal() == null || gc.getLiczekKanal().isEmpty()) return;
@@ -93,6 +95,7 @@ public class LiczekListener {
     }
 
     @Subscribe
+    @Blokujacy
     public void onLiczekEdit(GuildMessageUpdateEvent m) {
         GuildConfig gc = getGuildConfig(m.getGuild());
         if (gc.getLiczekKanal() == null || gc.getLiczekKanal().isEmpty()) return;
@@ -102,6 +105,7 @@ public class LiczekListener {
     }
 
     @Subscribe
+    @Blokujacy
     public void onLiczekDelete(GuildMessageDeleteEvent m) {
         GuildConfig gc = getGuildConfig(m.getGuild());
         if (gc.getLiczekKanal() == null || gc.getLiczekKanal().isEmpty()) return;
@@ -0,0 +1,96 @@
+/*
+ * Copyright (C) 2019-2021 FratikB0T Contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package pl.fratik.moderation.utils;
+
+import com.google.gson.reflect.TypeToken;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import pl.fratik.core.util.CommonUtil;
+import pl.fratik.core.util.GsonUtil;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Szukanie przekleństw: stara pętla z PrzeklenstwaListener (kopia listy + {@code split(" ")} i
+ * {@code equalsIgnoreCase} dla każdego słowa ze słownika) kontra {@link AhoCorasick}. Serwer ma kilka własnych
+ * słów, a przekleństwo jest mniej więcej w co dwudziestej wiadomości.
+ * <p>
+ * {@code ./gradlew :moderation:jmh}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class PrzeklenstwaBenchmark {
+    private static final String[] ZWYKLE = {
+            "siema", "hej, co tam?", "XDDD", "ktoś gra dziś w valo?", "https://www.youtube.com/watch?v=dQw4w9WgXcQ",
+            "<@267761613438713876> sprawdź pw", "nie no, bez przesady", "🤔", "ok", "jutro sprawdzian z matmy :(",
+            "ale lag na serwerze", "<:pepe:458712839104512000> <:pepe:458712839104512000>",
+            "czy ktoś wie, jak ustawić autorole? próbowałem z panelu, ale nie działa",
+            "gg", "kto na voice?", "lol", "dobranoc wszystkim",
+            "Pamiętajcie o zasadach serwera, a w szczególności o punkcie 3!", "xd"
+    };
+    private static final String[] WLASNE = {"noob", "frajer", "cebula", "kamper"};
+
+    private List<String> przeklenstwa;
+    private List<String> wlasne;
+    private AhoCorasick automat;
+    private String[] korpus;
+
+    @Setup
+    public void setup() throws Exception {
+        String data = CommonUtil.fromStream(getClass().getResourceAsStream("/przeklenstwa.json"));
+        przeklenstwa = GsonUtil.GSON.fromJson(data, new TypeToken<List<String>>() {}.getType());
+        wlasne = Arrays.asList(WLASNE);
+        List<String> slowa = new ArrayList<>(przeklenstwa);
+        slowa.addAll(wlasne);
+        automat = new AhoCorasick(slowa, false);
+        Random random = new Random(2137);
+        korpus = new String[10_000];
+        for (int i = 0; i < korpus.length; i++) {
+            String wiadomosc = ZWYKLE[random.nextInt(ZWYKLE.length)];
+            if (random.nextInt(20) == 0) wiadomosc += " " + przeklenstwa.get(random.nextInt(przeklenstwa.size()));
+            korpus[i] = wiadomosc;
+        }
+    }
+
+    @Benchmark
+    public void stary(Blackhole bh) {
+        for (String content : korpus) {
+            List<String> slowa = new ArrayList<>(przeklenstwa);
+            slowa.addAll(wlasne);
+            boolean znaleziono = false;
+            for (String przeklenstwo : slowa) {
+                String[] tokeny = content.split(" ");
+                for (String token : tokeny) {
+                    if (przeklenstwo.equalsIgnoreCase(token)) {
+                        znaleziono = true;
+                        break;
+                    }
+                }
+                if (znaleziono) break;
+            }
+            bh.consume(znaleziono);
+        }
+    }
+
+    @Benchmark
+    public void automat(Blackhole bh) {
+        for (String content : korpus) bh.consume(automat.zawiera(content));
+    }
+}
@@ -43,6 +43,7 @@ import pl.fratik.core.manager.ManagerKomend;
 import pl.fratik.core.manager.ManagerModulow;
 import pl.fratik.core.moduly.Modul;
 import pl.fratik.core.tlumaczenia.Tlumaczenia;
+import pl.fratik.core.util.Blokujacy;
 import pl.fratik.core.util.EventWaiter;
 import pl.fratik.core.util.GsonUtil;
 import pl.fratik.moderation.commands.*;
@@ -52,6 +53,8 @@ import pl.fratik.moderation.entity.LogMessage;
 import pl.fratik.moderation.entity.PurgeDao;
 import pl.fratik.moderation.events.UpdateCaseEvent;
 import pl.fratik.moderation.listeners.*;
+import pl.fratik.moderation.potok.PotokModeracji;
+import pl.fratik.moderation.utils.KolejkaBanow;
 import pl.fratik.moderation.utils.Migration;
 import pl.fratik.moderation.utils.ModLogBuilder;
 
@@ -83,13 +86,14 @@ public class Module implements Modul {
     private ArrayList<Command> commands;
     private ModLogListener modLogListener;
     private LogListener logListener;
-    private PrzeklenstwaListener przeklenstwaListener;
-    private LinkListener linkListener;
-    private AntiInviteListener antiInviteListener;
     private AntiRaidListener antiRaidListener;
+    private LinkListener linkListener;
+    private PotokModeracji potokModeracji;
     private CaseDao caseDao;
     private PurgeDao purgeDao;
     private AutobanListener autobanListener;
+    private AntiRaidJoinListener antiRaidJoinListener;
+    private KolejkaBanow kolejkaBanow;
 //    private PublishListener publishListener;
     private boolean connected;
 
@@ -183,21 +187,24 @@ public class Module implements Modul {
         LogListener.setTlumaczenia(tlumaczenia);
         modLogListener = new ModLogListener(shardManager, caseDao, guildDao, scheduleDao, tlumaczenia, managerKomend, redisCacheManager);
         logListener = new LogListener(guildDao, purgeDao, redisCacheManager);
-        przeklenstwaListener = new PrzeklenstwaListener(guildDao, tlumaczenia, managerKomend, shardManager, caseDao, redisCacheManager);
-        linkListener = new LinkListener(guildDao, tlumaczenia, managerKomend, shardManager, caseDao, redisCacheManager, eventBus);
-        autobanListener = new AutobanListener(guildDao, tlumaczenia, modLogListener);
-        antiInviteListener = new AntiInviteListener(guildDao, tlumaczenia, managerKomend, shardManager, caseDao, redisCacheManager);
-        antiRaidListener = new AntiRaidListener(guildDao, shardManager, eventBus, tlumaczenia, redisCacheManager, managerKomend);
+        kolejkaBanow = new KolejkaBanow(shardManager, modLogListener);
+        autobanListener = new AutobanListener(guildDao, tlumaczenia, redisCacheManager, kolejkaBanow);
+        antiRaidJoinListener = new AntiRaidJoinListener(guildDao, eventBus, tlumaczenia, shardManager, redisCacheManager, kolejkaBanow);
+        antiRaidListener = new AntiRaidListener(eventBus, tlumaczenia, managerKomend);
+        linkListener = new LinkListener(tlumaczenia, managerKomend, caseDao, eventBus);
+        potokModeracji = new PotokModeracji(guildDao, shardManager, redisCacheManager,
+                new AntiInviteListener(tlumaczenia, managerKomend, caseDao),
+                new PrzeklenstwaListener(tlumaczenia, managerKomend, caseDao),
+                antiRaidListener,
+                linkListener);
 //        publishListener = new PublishListener(guildDao, tlumaczenia, managerKomend, shardManager, caseDao, redisCacheManager);
 
         eventBus.register(this);
         eventBus.register(modLogListener);
         eventBus.register(logListener);
-        eventBus.register(przeklenstwaListener);
-        eventBus.register(linkListener);
         eventBus.register(autobanListener);
-        eventBus.register(antiInviteListener);
-        eventBus.register(antiRaidListener);
+        eventBus.register(antiRaidJoinListener);
+        eventBus.register(potokModeracji);
 //        eventBus.register(publishListener);
 
         commands = new ArrayList<>();
@@ -238,15 +245,16 @@ public class Module implements Modul {
     public boolean shutDown() {
         commands.forEach(managerKomend::unregisterCommand);
         antiRaidListener.shutdown();
+        antiRaidJoinListener.shutdown();
+        linkListener.shutdown();
+        kolejkaBanow.shutdown();
         try {
             eventBus.unregister(this);
             eventBus.unregister(modLogListener);
             eventBus.unregister(logListener);
-            eventBus.unregister(przeklenstwaListener);
-            eventBus.unregister(linkListener);
             eventBus.unregister(autobanListener);
-            eventBus.unregister(antiInviteListener);
-            eventBus.unregister(antiRaidListener);
+            eventBus.unregister(antiRaidJoinListener);
+            eventBus.unregister(potokModeracji);
 //            eventBus.unregister(publishListener);
         } catch (Exception ignored) {
             /*lul*/
@@ -285,6 +293,7 @@ public class Module implements Modul {
     }
 
     @Subscribe
+    @Blokujacy
     private void onConnected(StatusChangeEvent e) {
         if (connected) return;
         if (shardManager.getShards().stream().allMatch(s -> s.getStatus() == JDA.Status.CONNECTED)) {
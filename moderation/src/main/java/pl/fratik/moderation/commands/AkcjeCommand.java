@@ -31,6 +31,7 @@ import net.dv8tion.jda.api.sharding.ShardManager;
 import org.jetbrains.annotations.NotNull;
 import pl.fratik.core.command.CommandCategory;
 import pl.fratik.core.command.CommandContext;
+import pl.fratik.core.command.ExecutionType;
 import pl.fratik.core.command.PermLevel;
 import pl.fratik.core.command.SubCommand;
 import pl.fratik.core.entity.GuildDao;
@@ -71,6 +72,7 @@ public class AkcjeCommand extends ModerationCommand {
         permissions.add(Permission.MESSAGE_EMBED_LINKS);
         permissions.add(Permission.MESSAGE_HISTORY);
         category = CommandCategory.MODERATION;
+        executionType = ExecutionType.IO;
         uzycieDelim = " ";
         uzycie = new Uzycie("czlonek", "user");
     }
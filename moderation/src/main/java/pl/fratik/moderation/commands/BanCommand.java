@@ -26,6 +26,7 @@ import net.dv8tion.jda.api.requests.ErrorResponse;
 import org.jetbrains.annotations.NotNull;
 import pl.fratik.core.command.CommandCategory;
 import pl.fratik.core.command.CommandContext;
+import pl.fratik.core.command.ExecutionType;
 import pl.fratik.core.entity.Kara;
 import pl.fratik.core.entity.ScheduleDao;
 import pl.fratik.core.entity.Uzycie;
@@ -52,6 +53,7 @@ public class BanCommand extends ModerationCommand {
         this.scheduleDao = scheduleDao;
         name = "ban";
         category = CommandCategory.MODERATION;
+        executionType = ExecutionType.IO;
         uzycieDelim = " ";
         permissions.add(Permission.BAN_MEMBERS);
         LinkedHashMap<String, String> hmap = new LinkedHashMap<>();
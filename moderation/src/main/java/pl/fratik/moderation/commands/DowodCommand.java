@@ -26,6 +26,7 @@ import net.dv8tion.jda.api.entities.User;
 import org.jetbrains.annotations.NotNull;
 import pl.fratik.core.command.CommandCategory;
 import pl.fratik.core.command.CommandContext;
+import pl.fratik.core.command.ExecutionType;
 import pl.fratik.core.command.PermLevel;
 import pl.fratik.core.entity.GuildConfig;
 import pl.fratik.core.entity.GuildDao;
@@ -65,6 +66,7 @@ public class DowodCommand extends ModerationCommand {
         this.eventBus = eventBus;
         name = "dowod";
         category = CommandCategory.MODERATION;
+        executionType = ExecutionType.IO;
         uzycieDelim = " ";
         LinkedHashMap<String, String> hmap = new LinkedHashMap<>();
         hmap.put("caseid", "string");
@@ -23,6 +23,7 @@ import net.dv8tion.jda.api.exceptions.HierarchyException;
 import org.jetbrains.annotations.NotNull;
 import pl.fratik.core.command.CommandCategory;
 import pl.fratik.core.command.CommandContext;
+import pl.fratik.core.command.ExecutionType;
 import pl.fratik.core.entity.Kara;
 import pl.fratik.core.entity.Uzycie;
 import pl.fratik.core.util.UserUtil;
@@ -44,6 +45,7 @@ public class KickCommand extends ModerationCommand {
         this.modLogListener = modLogListener;
         name = "kick";
         category = CommandCategory.MODERATION;
+        executionType = ExecutionType.IO;
         uzycieDelim = " ";
         permissions.add(Permission.KICK_MEMBERS);
         LinkedHashMap<String, String> hmap = new LinkedHashMap<>();
@@ -24,6 +24,7 @@ import net.dv8tion.jda.api.requests.restaction.PermissionOverrideAction;
 import org.jetbrains.annotations.NotNull;
 import pl.fratik.core.command.CommandCategory;
 import pl.fratik.core.command.CommandContext;
+import pl.fratik.core.command.ExecutionType;
 import pl.fratik.core.command.PermLevel;
 import pl.fratik.core.entity.GuildConfig;
 import pl.fratik.core.entity.GuildDao;
@@ -45,6 +46,7 @@ public class LockCommand extends ModerationCommand {
         category = CommandCategory.MODERATION;
         permLevel = PermLevel.ADMIN;
         permissions.add(Permission.MANAGE_PERMISSIONS);
+        executionType = ExecutionType.IO;
     }
 
     @Override
@@ -26,6 +26,7 @@ import net.dv8tion.jda.api.utils.TimeUtil;
 import org.jetbrains.annotations.NotNull;
 import pl.fratik.core.command.CommandCategory;
 import pl.fratik.core.command.CommandContext;
+import pl.fratik.core.command.ExecutionType;
 import pl.fratik.core.command.PermLevel;
 import pl.fratik.core.entity.Uzycie;
 import pl.fratik.moderation.listeners.LogListener;
@@ -51,6 +52,8 @@ public class PurgeCommand extends ModerationCommand { //TODO: 1000 wiadomosci dl
         permLevel = PermLevel.MOD;
         permissions.add(Permission.MESSAGE_HISTORY);
         permissions.add(Permission.MESSAGE_MANAGE);
+        executionType = ExecutionType.IO;
+        timeout = 0; // przerwana w połowie zostawiłaby niedokończone zmiany
         znanePurge = new HashMap<>(); //NOSONAR
         aliases = new String[] {"usunwiad", "clear", "usunwiadomosci", "usun", "usunwiadomosciztegokanalu", "usuwam", "clearpruge", "czysc", "backspace", "delete"};
     }
@@ -24,6 +24,7 @@ import net.dv8tion.jda.api.utils.MarkdownSanitizer;
 import org.jetbrains.annotations.NotNull;
 import pl.fratik.core.command.CommandCategory;
 import pl.fratik.core.command.CommandContext;
+import pl.fratik.core.command.ExecutionType;
 import pl.fratik.core.command.PermLevel;
 import pl.fratik.core.entity.Uzycie;
 
@@ -40,6 +41,7 @@ public class RegulaminCommand extends ModerationCommand {
         uzycie = new Uzycie("zasada", "integer", true);
         aliases = new String[] {"zasady", "reg", "zasada"};
         allowPermLevelChange = false;
+        executionType = ExecutionType.IO;
     }
 
     @Override
@@ -22,6 +22,7 @@ import net.dv8tion.jda.api.entities.Role;
 import org.jetbrains.annotations.NotNull;
 import pl.fratik.core.command.CommandCategory;
 import pl.fratik.core.command.CommandContext;
+import pl.fratik.core.command.ExecutionType;
 import pl.fratik.core.command.PermLevel;
 import pl.fratik.core.command.SubCommand;
 import pl.fratik.core.entity.GuildConfig;
@@ -45,6 +46,7 @@ public class RolaCommand extends ModerationCommand {
         aliases = new String[] {"ranga"};
         permissions.add(Permission.MANAGE_ROLES);
         allowPermLevelChange = false;
+        executionType = ExecutionType.IO;
     }
 
     @Override
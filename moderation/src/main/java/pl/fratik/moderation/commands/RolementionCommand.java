@@ -23,6 +23,7 @@ import net.dv8tion.jda.api.entities.Role;
 import net.dv8tion.jda.api.requests.restaction.MessageAction;
 import org.jetbrains.annotations.NotNull;
 import pl.fratik.core.command.CommandContext;
+import pl.fratik.core.command.ExecutionType;
 import pl.fratik.core.command.PermLevel;
 import pl.fratik.core.entity.Uzycie;
 import pl.fratik.core.util.UserUtil;
@@ -41,6 +42,7 @@ public class RolementionCommand extends ModerationCommand {
         permissions.add(Permission.MESSAGE_EMBED_LINKS);
         permissions.add(Permission.MANAGE_ROLES);
         permissions.add(Permission.MESSAGE_MANAGE);
+        executionType = ExecutionType.IO;
         LinkedHashMap<String, String> hmap = new LinkedHashMap<>();
         hmap.put("rola", "role");
         hmap.put("tekst", "string");
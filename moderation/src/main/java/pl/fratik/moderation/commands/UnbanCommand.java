@@ -23,6 +23,7 @@ import net.dv8tion.jda.api.entities.User;
 import org.jetbrains.annotations.NotNull;
 import pl.fratik.core.command.CommandCategory;
 import pl.fratik.core.command.CommandContext;
+import pl.fratik.core.command.ExecutionType;
 import pl.fratik.core.entity.Kara;
 import pl.fratik.core.entity.Uzycie;
 import pl.fratik.core.util.UserUtil;
@@ -45,6 +46,7 @@ public class UnbanCommand extends ModerationCommand {
         this.modLogListener = modLogListener;
         name = "unban";
         category = CommandCategory.MODERATION;
+        executionType = ExecutionType.IO;
         uzycieDelim = " ";
         permissions.add(Permission.BAN_MEMBERS);
         LinkedHashMap<String, String> hmap = new LinkedHashMap<>();
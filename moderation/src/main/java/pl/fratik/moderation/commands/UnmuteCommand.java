@@ -22,6 +22,7 @@ import net.dv8tion.jda.api.entities.Member;
 import net.dv8tion.jda.api.entities.Role;
 import org.jetbrains.annotations.NotNull;
 import pl.fratik.core.command.CommandContext;
+import pl.fratik.core.command.ExecutionType;
 import pl.fratik.core.entity.GuildConfig;
 import pl.fratik.core.entity.GuildDao;
 import pl.fratik.core.entity.Kara;
@@ -48,6 +49,7 @@ public class UnmuteCommand extends ModerationCommand {
         this.guildDao = guildDao;
         this.modLogListener = modLogListener;
         name = "unmute";
+        executionType = ExecutionType.IO;
         uzycieDelim = " ";
         permissions.add(Permission.MANAGE_ROLES);
         LinkedHashMap<String, String> hmap = new LinkedHashMap<>();
@@ -23,6 +23,7 @@ import net.dv8tion.jda.api.entities.TextChannel;
 import org.jetbrains.annotations.NotNull;
 import pl.fratik.core.command.CommandCategory;
 import pl.fratik.core.command.CommandContext;
+import pl.fratik.core.command.ExecutionType;
 import pl.fratik.core.command.PermLevel;
 import pl.fratik.core.entity.Uzycie;
 import pl.fratik.core.entity.GuildDao;
@@ -46,6 +47,7 @@ public class ZglosCommand extends ModerationCommand {
         permissions.add(Permission.BAN_MEMBERS);
         permissions.add(Permission.KICK_MEMBERS);
         category = CommandCategory.MODERATION;
+        executionType = ExecutionType.IO;
         LinkedHashMap<String, String> hmap = new LinkedHashMap<>();
         uzycieDelim = " ";
         hmap.put("uzytkownik", "member");
@@ -19,9 +19,11 @@ package pl.fratik.moderation.entity;
 
 import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
 import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import gg.amy.pgorm.PgType;
 import gg.amy.pgorm.annotations.GIndex;
 import gg.amy.pgorm.annotations.PrimaryKey;
 import gg.amy.pgorm.annotations.Table;
+import gg.amy.pgorm.annotations.TypedIndex;
 import lombok.*;
 import net.dv8tion.jda.api.entities.Guild;
 import net.dv8tion.jda.api.entities.Member;
@@ -50,6 +52,8 @@ import java.util.stream.Collectors;
 @AllArgsConstructor
 @RequiredArgsConstructor
 @GIndex
+@TypedIndex(value = {CaseSerializer.GUILD_ID, CaseSerializer.CASE_NUMBER}, type = PgType.BIGINT)
+@TypedIndex(value = {CaseSerializer.GUILD_ID, CaseSerializer.USER_ID}, type = PgType.BIGINT)
 @JsonSerialize(using = CaseSerializer.class)
 @JsonDeserialize(using = CaseDeserializer.class)
 public class Case implements DatabaseEntity, Comparable<Case> {
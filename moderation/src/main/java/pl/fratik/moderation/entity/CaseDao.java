@@ -21,7 +21,9 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 import com.google.common.eventbus.EventBus;
 import gg.amy.pgorm.PgMapper;
+import gg.amy.pgorm.PgType;
 import gg.amy.pgorm.PgStore;
+import gg.amy.pgorm.Query;
 import net.dv8tion.jda.api.entities.Guild;
 import net.dv8tion.jda.api.entities.Member;
 import net.dv8tion.jda.api.entities.TextChannel;
@@ -80,8 +82,8 @@ public class CaseDao implements Dao<Case> {
     }
 
     public List<Case> getCasesByGuild(String id) {
-        return mapper.loadRaw("SELECT * FROM %s WHERE data->>'" + GUILD_ID + "' = ? " +
-                "ORDER BY (data->>'" + CASE_NUMBER + "')::bigint DESC;", id);
+        return mapper.query().where(GUILD_ID, Query.Op.EQ, Long.parseUnsignedLong(id))
+                .orderBy(CASE_NUMBER, PgType.BIGINT, true).list();
     }
 
     public List<Case> getCasesByMember(Member mem) {
@@ -89,9 +91,8 @@ public class CaseDao implements Dao<Case> {
     }
 
     public List<Case> getCasesByMember(User user, Guild guild) {
-        return mapper.loadRaw("SELECT * FROM %s WHERE data->>'" + GUILD_ID + "' = ? AND data->>'" + USER_ID + "' = ? " +
-                        "ORDER BY (data->>'" + CASE_NUMBER + "')::bigint DESC;",
-                guild.getId(), user.getId());
+        return mapper.query().where(GUILD_ID, Query.Op.EQ, guild.getIdLong()).where(USER_ID, Query.Op.EQ, user.getIdLong())
+                .orderBy(CASE_NUMBER, PgType.BIGINT, true).list();
     }
 
     @Override
@@ -118,6 +118,10 @@ public class LogMessage extends AbstractMessage {
         return authorId;
     }
 
+    public long getChannelIdLong() {
+        return channelId;
+    }
+
     @NotNull
     @Override
     public OffsetDateTime getTimeCreated() {
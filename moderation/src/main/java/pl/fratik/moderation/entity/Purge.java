@@ -22,6 +22,7 @@ import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
 import gg.amy.pgorm.annotations.GIndex;
 import gg.amy.pgorm.annotations.PrimaryKey;
 import gg.amy.pgorm.annotations.Table;
+import gg.amy.pgorm.annotations.TypedIndex;
 import lombok.*;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
@@ -33,6 +34,7 @@ import java.util.List;
 
 @Table("purge")
 @GIndex({"guildId", "channelId"})
+@TypedIndex("guildId")
 @Data
 public class Purge implements DatabaseEntity {
     @PrimaryKey private final String id;
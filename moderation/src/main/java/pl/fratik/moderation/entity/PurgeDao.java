@@ -20,6 +20,7 @@ package pl.fratik.moderation.entity;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.common.eventbus.EventBus;
 import gg.amy.pgorm.PgMapper;
+import gg.amy.pgorm.Query;
 import net.dv8tion.jda.api.entities.Guild;
 import org.slf4j.LoggerFactory;
 import pl.fratik.core.entity.Dao;
@@ -49,7 +50,7 @@ public class PurgeDao implements Dao<Purge> {
     }
 
     public List<Purge> getByGuild(String id) {
-        return mapper.loadManyBySubkey("data->>'guildId'", String.valueOf(id));
+        return mapper.query().where("guildId", Query.Op.EQ, id).list();
     }
 
     @Override
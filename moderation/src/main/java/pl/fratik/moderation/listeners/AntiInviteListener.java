@@ -17,92 +17,75 @@
 
 package pl.fratik.moderation.listeners;
 
-import com.google.common.eventbus.AllowConcurrentEvents;
-import com.google.common.eventbus.Subscribe;
-import net.dv8tion.jda.api.entities.*;
-import net.dv8tion.jda.api.events.message.MessageReceivedEvent;
-import net.dv8tion.jda.api.events.message.guild.GuildMessageUpdateEvent;
-import net.dv8tion.jda.api.sharding.ShardManager;
+import net.dv8tion.jda.api.entities.Member;
+import net.dv8tion.jda.api.entities.Message;
 import pl.fratik.core.Globals;
-import pl.fratik.core.cache.Cache;
-import pl.fratik.core.cache.RedisCacheManager;
-import pl.fratik.core.command.PermLevel;
 import pl.fratik.core.entity.GuildConfig;
-import pl.fratik.core.entity.GuildDao;
 import pl.fratik.core.entity.Kara;
 import pl.fratik.core.manager.ManagerKomend;
 import pl.fratik.core.tlumaczenia.Tlumaczenia;
-import pl.fratik.core.util.UserUtil;
 import pl.fratik.moderation.entity.Case;
 import pl.fratik.moderation.entity.CaseDao;
+import pl.fratik.moderation.potok.KontekstWiadomosci;
+import pl.fratik.moderation.potok.Sprawdzenie;
 import pl.fratik.moderation.utils.WarnUtil;
 
 import java.time.Instant;
-import java.util.List;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
 
-public class AntiInviteListener {
+public class AntiInviteListener implements Sprawdzenie {
 
-    private final GuildDao guildDao;
     private final Tlumaczenia tlumaczenia;
     private final ManagerKomend managerKomend;
-    private final ShardManager shardManager;
     private final CaseDao caseDao;
-    private final Cache<GuildConfig> gcCache;
 
-    public AntiInviteListener(GuildDao guildDao, Tlumaczenia tlumaczenia, ManagerKomend managerKomend, ShardManager shardManager, CaseDao caseDao, RedisCacheManager redisCacheManager) {
-        this.guildDao = guildDao;
+    public AntiInviteListener(Tlumaczenia tlumaczenia, ManagerKomend managerKomend, CaseDao caseDao) {
         this.tlumaczenia = tlumaczenia;
         this.managerKomend = managerKomend;
-        this.shardManager = shardManager;
         this.caseDao = caseDao;
-        gcCache = redisCacheManager.new CacheRetriever<GuildConfig>(){}.getCache();
     }
 
-    @Subscribe
-    @AllowConcurrentEvents
-    public void onMessage(MessageReceivedEvent e) {
-        if (!e.isFromType(ChannelType.TEXT) || e.getMember() == null || e.getAuthor().isBot() ||
-                !e.getTextChannel().canTalk()) return;
-        if (!isAntiinvite(e.getGuild()) || isIgnored(e.getTextChannel())) return;
-        if (!e.getGuild().getSelfMember().canInteract(e.getMember())) return;
-        if (UserUtil.getPermlevel(e.getMember(), guildDao, shardManager, PermLevel.OWNER).getNum() >= 1) return;
-
-        if (containsInvite(e.getMessage().getContentRaw())) addKara(e.getMessage());
+    @Override
+    public int getKoszt() {
+        return 10;
     }
 
-    @Subscribe
-    @AllowConcurrentEvents
-    public void onEdit(GuildMessageUpdateEvent e) {
-        if (e.getMember() == null || e.getAuthor().isBot() ||
-                !e.getChannel().canTalk()) return;
-        if (!isAntiinvite(e.getGuild()) || isIgnored(e.getChannel())) return;
-        if (!e.getGuild().getSelfMember().canInteract(e.getMember())) return;
-        if (UserUtil.getPermlevel(e.getMember(), guildDao, shardManager, PermLevel.OWNER).getNum() >= 1) return;
-
-        if (containsInvite(e.getMessage().getContentRaw())) addKara(e.getMessage());
+    @Override
+    public Skompilowane kompiluj(GuildConfig gc) {
+        if (!Boolean.TRUE.equals(gc.getAntiInvite())) return null;
+        Set<String> ignorowane = gc.getKanalyGdzieAntiInviteNieDziala() == null ? Collections.emptySet() :
+                new HashSet<>(gc.getKanalyGdzieAntiInviteNieDziala());
+        return k -> {
+            if (ignorowane.contains(k.getChannel().getId())) return false;
+            if (!containsInviteLowerCase(k.getTrescMala())) return false;
+            if (k.getPermLevel().getNum() >= 1) return false;
+            addKara(k);
+            return true;
+        };
     }
 
     public static boolean containsInvite(String s) {
-        s = s.toLowerCase();
+        return containsInviteLowerCase(s.toLowerCase());
+    }
+
+    private static boolean containsInviteLowerCase(String s) {
         return s.contains("discord.gg/") || s.contains("discord.io/") || s.contains("discord.me/") ||
                 s.contains("discord.com/invite/") || s.contains("discordapp.com/invite/") ||
                 s.contains("invite.gg/") || s.contains("dus.im/") || s.contains("top.gg/servers/");
     }
 
-    private synchronized void addKara(Message msg) {
-        if (!containsInvite(msg.getContentRaw())) return;
-        String trans = msg.isEdited() ? "antiinvite.notice.edited" : "antiinvite.notice";
+    private synchronized void addKara(KontekstWiadomosci k) {
+        Message msg = k.getMessage();
+        String trans = k.isEdycja() ? "antiinvite.notice.edited" : "antiinvite.notice";
         try {
             msg.delete().queue();
             synchronized (msg.getGuild()) {
-                Member member = msg.getMember();
-                if (member == null) {
-                    // to się nie stanie
-                    return;
-                }
+                Member member = k.getMember();
                 Case c = new Case.Builder(member, Instant.now(), Kara.WARN).setIssuerId(Globals.clientId)
                         .setReasonKey("antiinvite.reason").build();
-                caseDao.createNew(null, c, false, msg.getTextChannel(), tlumaczenia.getLanguage(member));
+                caseDao.createNew(null, c, false, k.getChannel(), tlumaczenia.getLanguage(member));
                 msg.getChannel().sendMessage(tlumaczenia.get(tlumaczenia.getLanguage(member),
                         trans, msg.getAuthor().getAsMention(), WarnUtil.countCases(caseDao.getCasesByMember(member), member.getId()),
                         managerKomend.getPrefixes(msg.getGuild()).get(0))).queue();
@@ -111,20 +94,4 @@ public class AntiInviteListener {
             // no i chuj, wylądował, wszystko poszło w pizdu
         }
     }
-
-    @SuppressWarnings("BooleanMethodIsAlwaysInverted")
-    private boolean isAntiinvite(Guild guild) {
-        Boolean a = gcCache.get(guild.getId(), guildDao::get).getAntiInvite();
-        return a != null && a;
-    }
-
-    private boolean isIgnored(TextChannel channel) {
-        List<String> id = gcCache.get(channel.getGuild().getId(), guildDao::get).getKanalyGdzieAntiInviteNieDziala();
-        if (id != null) return id.contains(channel.getId());
-        return false;
-    }
-
-    private String getModLogChan(Guild guild) {
-        return gcCache.get(guild.getId(), guildDao::get).getModLog();
-    }
 }
@@ -0,0 +1,251 @@
+/*
+ * Copyright (C) 2019-2021 FratikB0T Contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package pl.fratik.moderation.listeners;
+
+import com.google.common.eventbus.AllowConcurrentEvents;
+import com.google.common.eventbus.EventBus;
+import com.google.common.eventbus.Subscribe;
+import info.debatty.java.stringsimilarity.NormalizedLevenshtein;
+import net.dv8tion.jda.api.Permission;
+import net.dv8tion.jda.api.entities.Guild;
+import net.dv8tion.jda.api.events.guild.GuildLeaveEvent;
+import net.dv8tion.jda.api.events.guild.member.GuildMemberJoinEvent;
+import net.dv8tion.jda.api.sharding.ShardManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import pl.fratik.core.Globals;
+import pl.fratik.core.cache.Cache;
+import pl.fratik.core.cache.RedisCacheManager;
+import pl.fratik.core.entity.GuildConfig;
+import pl.fratik.core.entity.GuildDao;
+import pl.fratik.core.entity.Kara;
+import pl.fratik.core.manager.implementation.ManagerModulowImpl;
+import pl.fratik.core.tlumaczenia.Tlumaczenia;
+import pl.fratik.core.util.NamedThreadFactory;
+import pl.fratik.moderation.entity.Case;
+import pl.fratik.moderation.utils.KolejkaBanow;
+import pl.fratik.moderation.utils.LicznikOkienkowy;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Anty-raid na dołączenia: liczy dołączenia na serwer w oknie minuty (kubełki po sekundzie). Po przekroczeniu
+ * {@link GuildConfig#getAntiRaidJoinyNaMinute()} serwer przechodzi w tryb najazdu na {@link #CZAS_NAJAZDU} - od tej
+ * pory (i wstecz, dla dołączeń z ostatniej minuty) banowane są konta podejrzane, czyli takie, które z kilkoma innymi
+ * z ostatnich dołączeń mają zbliżoną datę utworzenia albo podobną nazwę. Bany idą przez {@link KolejkaBanow}.
+ * Opcjonalnie na czas najazdu podnoszony jest poziom weryfikacji serwera.
+ */
+public class AntiRaidJoinListener {
+    private static final Logger logger = LoggerFactory.getLogger(AntiRaidJoinListener.class);
+    private static final long DISCORD_EPOCH = 1420070400000L;
+    private static final int KUBELKI = 60;
+    private static final long SZEROKOSC_KUBELKA = 1000;
+    private static final long OKNO = KUBELKI * SZEROKOSC_KUBELKA;
+    private static final long CZAS_NAJAZDU = TimeUnit.MINUTES.toMillis(5);
+    private static final int OSTATNIE = 64;
+    private static final long BLISKIE_KONTA = TimeUnit.HOURS.toMillis(1);
+    private static final double PODOBNE_NAZWY = 0.8;
+    // z iloma innymi z ostatnich dołączeń konto musi być zbieżne, żeby uznać je za podejrzane
+    private static final int PODEJRZANE_OD = 2;
+    private static final NormalizedLevenshtein LEVENSHTEIN = new NormalizedLevenshtein();
+
+    private final GuildDao guildDao;
+    private final EventBus eventBus;
+    private final Tlumaczenia tlumaczenia;
+    private final ShardManager shardManager;
+    private final KolejkaBanow kolejkaBanow;
+    private final Cache<GuildConfig> gcCache;
+    private final Map<Long, Stan> stany = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(new NamedThreadFactory("AntiRaidJoin"));
+
+    public AntiRaidJoinListener(GuildDao guildDao, EventBus eventBus, Tlumaczenia tlumaczenia, ShardManager shardManager,
+                                RedisCacheManager redisCacheManager, KolejkaBanow kolejkaBanow) {
+        this.guildDao = guildDao;
+        this.eventBus = eventBus;
+        this.tlumaczenia = tlumaczenia;
+        this.shardManager = shardManager;
+        this.kolejkaBanow = kolejkaBanow;
+        gcCache = redisCacheManager.getGuildConfigCache();
+        executor.scheduleAtFixedRate(this::sprzataj, 1, 1, TimeUnit.MINUTES);
+    }
+
+    @Subscribe
+    @AllowConcurrentEvents
+    public void onGuildMemberJoinEvent(GuildMemberJoinEvent e) {
+        if (e.getUser().isBot()) return;
+        Guild guild = e.getGuild();
+        GuildConfig gc = gcCache.get(guild.getId(), guildDao::get);
+        if (!Boolean.TRUE.equals(gc.getAntiRaidJoiny()) || Boolean.TRUE.equals(gc.getAutoban())) return;
+        int limit = gc.getAntiRaidJoinyNaMinute() == null ? 15 : Math.max(gc.getAntiRaidJoinyNaMinute(), 2);
+        long teraz = System.currentTimeMillis();
+        Stan stan = stany.computeIfAbsent(guild.getIdLong(), id -> new Stan());
+        List<Long> doBanu = new ArrayList<>();
+        int dolaczenia;
+        boolean poczatek;
+        synchronized (stan) {
+            dolaczenia = stan.licznik.dodaj(teraz);
+            stan.dodaj(e.getUser().getIdLong(), teraz, e.getUser().getName());
+            poczatek = dolaczenia >= limit && stan.najazdDo <= teraz;
+            if (dolaczenia >= limit) stan.najazdDo = teraz + CZAS_NAJAZDU;
+            if (stan.najazdDo > teraz) {
+                if (poczatek) {
+                    for (int k = 0; k < stan.rozmiar; k++) {
+                        int i = stan.indeks(k);
+                        if (stan.dolaczyli[i] + OKNO > teraz && !stan.zbanowani[i] && stan.podejrzany(i)) {
+                            stan.zbanowani[i] = true;
+                            doBanu.add(stan.uzytkownicy[i]);
+                        }
+                    }
+                } else {
+                    int i = stan.indeks(0);
+                    if (stan.podejrzany(i)) {
+                        stan.zbanowani[i] = true;
+                        doBanu.add(stan.uzytkownicy[i]);
+                    }
+                }
+            }
+        }
+        if (poczatek) {
+            logger.info("Najazd na serwer {}: {} dołączeń w ciągu minuty", guild.getId(), dolaczenia);
+            log(guild, dolaczenia);
+            if (Boolean.TRUE.equals(gc.getAntiRaidJoinyBlokada())) zablokuj(guild, stan);
+        }
+        if (doBanu.isEmpty()) return;
+        String powod = tlumaczenia.get(tlumaczenia.getLanguage(guild), "antiraid.joiny.audit.reason");
+        for (long userId : doBanu) {
+            Case aCase = new Case.Builder(guild.getIdLong(), userId, Instant.now(), Kara.BAN)
+                    .setIssuerId(Globals.clientId).setReasonKey("antiraid.joiny.case.reason").build();
+            kolejkaBanow.zbanuj(guild, userId, powod, aCase);
+        }
+    }
+
+    private void zablokuj(Guild guild, Stan stan) {
+        if (!guild.getSelfMember().hasPermission(Permission.MANAGE_SERVER)) return;
+        Guild.VerificationLevel poziom = guild.getVerificationLevel();
+        if (poziom.getKey() >= Guild.VerificationLevel.HIGH.getKey()) return;
+        synchronized (stan) {
+            if (stan.poziomPrzedBlokada != null) return;
+            stan.poziomPrzedBlokada = poziom;
+        }
+        guild.getManager().setVerificationLevel(Guild.VerificationLevel.HIGH)
+                .reason(tlumaczenia.get(tlumaczenia.getLanguage(guild), "antiraid.joiny.blokada.reason"))
+                .queue(null, err -> logger.warn("Nie udało się zablokować serwera {}", guild.getId(), err));
+    }
+
+    /**
+     * Zdejmuje blokady po zakończonych najazdach i zapomina serwery, na które nikt ostatnio nie dołączał.
+     */
+    private void sprzataj() {
+        long teraz = System.currentTimeMillis();
+        stany.forEach((id, stan) -> {
+            Guild.VerificationLevel poziom;
+            synchronized (stan) {
+                if (stan.najazdDo > teraz) return;
+                poziom = stan.poziomPrzedBlokada;
+                stan.poziomPrzedBlokada = null;
+                if (stan.rozmiar == 0 || stan.dolaczyli[stan.indeks(0)] + CZAS_NAJAZDU <= teraz) stany.remove(id, stan);
+            }
+            if (poziom == null) return;
+            Guild guild = shardManager.getGuildById(id);
+            if (guild == null) return;
+            try {
+                guild.getManager().setVerificationLevel(poziom).queue();
+            } catch (Exception e) {
+                logger.warn("Nie udało się odblokować serwera {}", id, e);
+            }
+        });
+    }
+
+    private void log(Guild guild, int dolaczenia) {
+        String wiad = "Wykryto najazd na serwer " + guild.getName() + " (" + guild.getId() + "): " + dolaczenia +
+                " dołączeń w ciągu minuty.";
+        try {
+            Object logEvent = ManagerModulowImpl.moduleClassLoader.loadClass("pl.fratik.logs.GenericLogEvent")
+                    .getDeclaredConstructor(String.class, String.class).newInstance("antiraid", wiad);
+            eventBus.post(logEvent);
+        } catch (Exception err) {
+            // nic
+        }
+    }
+
+    @Subscribe
+    public void onGuildLeave(GuildLeaveEvent e) {
+        stany.remove(e.getGuild().getIdLong());
+    }
+
+
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Okno dołączeń i ostatnie dołączenia jednego serwera, w buforze cyklicznym.
+     */
+    private static class Stan {
+        private final LicznikOkienkowy licznik = new LicznikOkienkowy(KUBELKI, SZEROKOSC_KUBELKA);
+        private final long[] uzytkownicy = new long[OSTATNIE];
+        private final long[] dolaczyli = new long[OSTATNIE];
+        private final String[] nazwy = new String[OSTATNIE];
+        private final boolean[] zbanowani = new boolean[OSTATNIE];
+        private int glowa;
+        private int rozmiar;
+        private long najazdDo;
+        private Guild.VerificationLevel poziomPrzedBlokada;
+
+        private void dodaj(long userId, long teraz, String nazwa) {
+            uzytkownicy[glowa] = userId;
+            dolaczyli[glowa] = teraz;
+            nazwy[glowa] = nazwa.toLowerCase();
+            zbanowani[glowa] = false;
+            glowa = (glowa + 1) % OSTATNIE;
+            if (rozmiar < OSTATNIE) rozmiar++;
+        }
+
+        /**
+         * @return Indeks k-tego najnowszego dołączenia (0 - najnowsze)
+         */
+        private int indeks(int k) {
+            return (glowa - 1 - k + 2 * OSTATNIE) % OSTATNIE;
+        }
+
+        private boolean podejrzany(int i) {
+            long utworzone = utworzone(uzytkownicy[i]);
+            int bliskieKonta = 0;
+            int podobneNazwy = 0;
+            for (int k = 0; k < rozmiar; k++) {
+                int j = indeks(k);
+                if (j == i) continue;
+                if (Math.abs(utworzone(uzytkownicy[j]) - utworzone) <= BLISKIE_KONTA) bliskieKonta++;
+                else if (LEVENSHTEIN.similarity(nazwy[i], nazwy[j]) >= PODOBNE_NAZWY) podobneNazwy++;
+                if (bliskieKonta >= PODEJRZANE_OD || podobneNazwy >= PODEJRZANE_OD) return true;
+            }
+            return false;
+        }
+
+        private static long utworzone(long userId) {
+            return (userId >>> 22) + DISCORD_EPOCH;
+        }
+    }
+}
@@ -17,259 +17,129 @@
 
 package pl.fratik.moderation.listeners;
 
-import com.google.common.eventbus.AllowConcurrentEvents;
 import com.google.common.eventbus.EventBus;
-import com.google.common.eventbus.Subscribe;
-import info.debatty.java.stringsimilarity.NormalizedLevenshtein;
-import net.dv8tion.jda.api.sharding.ShardManager;
-import net.dv8tion.jda.api.entities.Guild;
 import net.dv8tion.jda.api.entities.Message;
 import net.dv8tion.jda.api.entities.MessageType;
 import net.dv8tion.jda.api.entities.Role;
-import net.dv8tion.jda.api.events.message.MessageReceivedEvent;
-import pl.fratik.core.cache.Cache;
-import pl.fratik.core.cache.RedisCacheManager;
-import pl.fratik.core.command.PermLevel;
 import pl.fratik.core.entity.GuildConfig;
-import pl.fratik.core.entity.GuildDao;
-import pl.fratik.core.event.DatabaseUpdateEvent;
 import pl.fratik.core.manager.ManagerKomend;
 import pl.fratik.core.manager.implementation.ManagerModulowImpl;
 import pl.fratik.core.tlumaczenia.Tlumaczenia;
-import pl.fratik.core.util.UserUtil;
+import pl.fratik.moderation.potok.KontekstWiadomosci;
+import pl.fratik.moderation.potok.Sprawdzenie;
+import pl.fratik.moderation.utils.HistoriaWiadomosci;
 
-import javax.crypto.IllegalBlockSizeException;
+import javax.annotation.Nullable;
 import java.util.*;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 
-public class AntiRaidListener {
+public class AntiRaidListener implements Sprawdzenie {
+
+    private static final long OKNO = 10000;
+    private static final int OKNO_NORMAL = 5;
+    private static final int OKNO_EXTREME = HistoriaWiadomosci.POJEMNOSC;
 
-    private final GuildDao guildDao;
-    private final ShardManager shardManager;
-    private final NormalizedLevenshtein l = new NormalizedLevenshtein();
     private final EventBus eventBus;
-    private final Timer timerN;
-    private final Timer timerE;
+    private final Timer timer;
     private final Tlumaczenia tlumaczenia;
     private final ManagerKomend managerKomend;
-    private static final Pattern PING_REGEX = Pattern.compile("<@[!&]?([0-9]{17,18})>");
-    private final Map<String, List<String>> lastContentsNormal = new HashMap<>();
-    private final Map<String, List<String>> lastContentsExtreme = new HashMap<>();
-
-    private final Cache<GuildConfig> gcCache;
+    private final HistoriaWiadomosci historia = new HistoriaWiadomosci(OKNO);
 
-    public AntiRaidListener(GuildDao guildDao, ShardManager shardManager, EventBus eventBus, Tlumaczenia tlumaczenia, RedisCacheManager redisCacheManager, ManagerKomend managerKomend) {
-        this.guildDao = guildDao;
-        this.shardManager = shardManager;
+    public AntiRaidListener(EventBus eventBus, Tlumaczenia tlumaczenia, ManagerKomend managerKomend) {
         this.eventBus = eventBus;
         this.tlumaczenia = tlumaczenia;
         this.managerKomend = managerKomend;
-        timerN = new Timer("antiraidNormalClean");
-        timerN.scheduleAtFixedRate(new TimerTask() {
-            @Override
-            public void run() {
-                lastContentsNormal.clear();
-            }
-        }, 10000, 10000);
-        timerE = new Timer("antiraidExtremeClean");
-        timerE.scheduleAtFixedRate(new TimerTask() {
+        // wiadomości wygasają same, to tylko zwalnia pamięć po autorach, którzy przestali pisać
+        timer = new Timer("antiraidPurge");
+        timer.scheduleAtFixedRate(new TimerTask() {
             @Override
             public void run() {
-                lastContentsExtreme.clear();
+                historia.purge(System.currentTimeMillis());
             }
-        }, 10000, 10000);
-        gcCache = redisCacheManager.new CacheRetriever<GuildConfig>(){}.getCache();
+        }, OKNO, OKNO);
     }
 
-    @Subscribe
-    @AllowConcurrentEvents
-    public void onMessage(MessageReceivedEvent e) {
-        if (e.isWebhookMessage() || !e.isFromGuild() || e.getMessage().getMember() == null ||
-                e.getAuthor().isBot() || e.getMessage().getType() != MessageType.DEFAULT) return;
-        if (antiRaidDisabled(e.getMessage().getGuild())) return;
-        if (UserUtil.getPermlevel(e.getMember(), guildDao, shardManager, PermLevel.OWNER).getNum() >= 1) return;
-        if (getAntiRaidChannels(e.getMessage().getGuild()).contains(e.getTextChannel().getId())) return;
-        if (!e.getTextChannel().canTalk()) return;
-        if (antiRaidExtreme(e.getMessage().getGuild())) extreme(e.getMessage());
-        normal(e.getMessage());
+    @Override
+    public int getKoszt() {
+        return 30;
     }
 
-    private void normal(Message e) {
-        List<String> lastC = lastContentsNormal.get(e.getChannel().getId() + e.getAuthor().getId());
-        if (lastC == null) {
-            List<String> arr = new ArrayList<>();
-            arr.add(null);
-            arr.add(null);
-            arr.add(null);
-            arr.add(null);
-            arr.add(e.getContentRaw());
-            lastContentsNormal.put(e.getChannel().getId() + e.getAuthor().getId(), arr);
-            lastC = arr;
-        } else {
-            lastC.remove(0);
-            lastC.add(e.getContentRaw());
-            lastContentsNormal.put(e.getChannel().getId() + e.getAuthor().getId(), lastC);
-        }
-        List<Double> procentyRoznicy = new ArrayList<>();
-        int pingiNaWiadomosc = 0;
-        for (int i = 0; i < lastC.size(); i++) {
-            try {
-                if (lastC.get(i) == null || lastC.get(i + 1) == null || lastC.get(i).isEmpty() || lastC.get(i + 1).isEmpty())
-                    throw new IllegalBlockSizeException("fratik jest za gruby");
-            } catch (Exception err) {
-                continue;
-            }
-            procentyRoznicy.add(l.similarity(lastC.get(i), lastC.get(i + 1)));
-            Matcher supermarketMatch = PING_REGEX.matcher(lastC.get(i));
-            if (supermarketMatch.matches()) pingiNaWiadomosc++;
-        }
-        double czulosc = getAntiRaidCzulosc(e.getGuild()) / 100d;
-        List<Double> proc = procentyRoznicy.stream().filter(v -> v >= czulosc).collect(Collectors.toList());
-        if (proc.size() >= 3) {
-            boolean success;
-            try {
-                e.getGuild().ban(e.getAuthor(), 0, "Raid").complete();
-                success = true;
-            } catch (Exception err) {
-                success = false;
-            }
-            if (success) log(e, lastC, "3 wiadomości o podobieństwie " + proc.stream().map(w -> w * 100 + "%")
-                    .collect(Collectors.joining(", ")));
-        }
-        if (pingiNaWiadomosc >= 3) {
-            boolean success;
-            try {
-                e.getGuild().ban(e.getAuthor(), 0, "Raid").complete();
-                success = true;
-            } catch (Exception err) {
-                success = false;
-            }
-            if (success) log(e, lastC, "3 wiadomości zawierają ping");
-        }
-        if (e.getMentionedMembers().size() >= 5 ||
-                (e.getMentionedRoles().stream().filter(Role::isMentionable).count() == e.getGuild()
-                        .getRoles().stream().filter(Role::isMentionable).count() && e.getGuild().getRoles().stream()
-                        .anyMatch(Role::isMentionable))) {
-            boolean success;
-            try {
-                e.getGuild().ban(e.getAuthor(), 0, "Raid").complete();
-                success = true;
-            } catch (Exception err) {
-                success = false;
-            }
-            if (success) log(e, lastC, "5 pingów w wiadomości lub oznaczone wszystkie role oznaczalne");
-        }
+    @Override
+    public boolean isStanowe() {
+        // historia musi widzieć też wiadomości usunięte przez antiinvite/antiswear, inaczej raid nimi nie zbanuje
+        return true;
     }
 
-    private void extreme(Message e) {
-        List<String> lastC = lastContentsExtreme.get(e.getChannel().getId() + e.getAuthor().getId());
-        if (lastC == null) {
-            List<String> arr = new ArrayList<>();
-            for (int i = 0; i < 14; i++) {
-                arr.add(null);
-            }
-            arr.add(e.getContentRaw());
-            lastContentsExtreme.put(e.getChannel().getId() + e.getAuthor().getId(), arr);
-            lastC = arr;
-        } else {
-            lastC.remove(0);
-            lastC.add(e.getContentRaw());
-            lastContentsExtreme.put(e.getChannel().getId() + e.getAuthor().getId(), lastC);
-        }
-        List<Double> procentyRoznicy = new ArrayList<>();
-        int pingiNaWiadomosc = 0;
-        for (int i = 0; i < lastC.size(); i++) {
-            try {
-                if (lastC.get(i) == null || lastC.get(i + 1) == null || lastC.get(i).isEmpty() || lastC.get(i + 1).isEmpty())
-                    throw new IllegalBlockSizeException("fratik jest za gruby");
-            } catch (Exception err) {
-                continue;
-            }
-            procentyRoznicy.add(l.similarity(lastC.get(i), lastC.get(i + 1)));
-            Matcher supermarketMatch = PING_REGEX.matcher(lastC.get(i));
-            if (supermarketMatch.matches()) pingiNaWiadomosc++;
-        }
-        double czulosc = getAntiRaidCzulosc(e.getGuild()) / 100d;
-        List<Double> proc = procentyRoznicy.stream().filter(v -> v >= czulosc).collect(Collectors.toList());
-        if (proc.size() >= 2) {
-            boolean success;
-            try {
-                e.getGuild().ban(e.getAuthor(), 0, "Raid").complete();
-                success = true;
-            } catch (Exception err) {
-                success = false;
-            }
-            if (success) logExtreme(e, lastC, "2 wiadomości o podobieństwie " + proc.stream().map(w -> w * 100 + "%")
-                    .collect(Collectors.joining(", ")));
-        }
-        if (lastC.stream().filter(c -> c != null && c.length() <= 3).count() >= 3) {
-            boolean success;
-            try {
-                e.getGuild().ban(e.getAuthor(), 0, "Raid").complete();
-                success = true;
-            } catch (Exception err) {
-                success = false;
-            }
-            if (success) logExtreme(e, lastC, "3 wiadomości o długości mniejszej lub równej 3");
-        }
-        if (pingiNaWiadomosc >= 2) {
-            boolean success;
-            try {
-                e.getGuild().ban(e.getAuthor(), 0, "Raid").complete();
-                success = true;
-            } catch (Exception err) {
-                success = false;
-            }
-            if (success) logExtreme(e, lastC, "2 wiadomości zawierają ping");
-        }
-        if (e.getMentionedMembers().size() >= 4 ||
-                ((e.getMentionedRoles().stream().filter(Role::isMentionable).count() == e.getGuild()
-                        .getRoles().stream().filter(Role::isMentionable).count() || e.getMentionedRoles()
-                        .stream().filter(Role::isMentionable).count() >= 4) && e.getGuild().getRoles().stream()
-                        .anyMatch(Role::isMentionable))) {
-            boolean success;
-            try {
-                e.getGuild().ban(e.getAuthor(), 0, "Raid").complete();
-                success = true;
-            } catch (Exception err) {
-                success = false;
-            }
-            if (success) logExtreme(e, lastC, "4 pingów w wiadomości lub oznaczone wszystkie role oznaczalne");
-        }
+    @Override
+    public Skompilowane kompiluj(GuildConfig gc) {
+        if (!Boolean.TRUE.equals(gc.getAntiRaid())) return null;
+        Set<String> kanaly = gc.getKanalyGdzieAntiRaidNieDziala() == null ? Collections.emptySet() :
+                new HashSet<>(gc.getKanalyGdzieAntiRaidNieDziala());
+        boolean extreme = Boolean.TRUE.equals(gc.getAntiRaidExtreme());
+        double czulosc = (gc.getAntiRaidCzulosc() == null ? 50 : gc.getAntiRaidCzulosc()) / 100d;
+        return k -> {
+            if (k.isEdycja() || k.getMessage().getType() != MessageType.DEFAULT) return false;
+            if (kanaly.contains(k.getChannel().getId())) return false;
+            if (k.getPermLevel().getNum() >= 1) return false;
+            long teraz = System.currentTimeMillis();
+            HistoriaWiadomosci.Historia h = historia.dodaj(k.getChannel().getIdLong(),
+                    k.getMessage().getAuthor().getIdLong(), k.getTresc(), teraz, czulosc);
+            String powod = extreme ? extreme(k, h, czulosc, teraz) : null;
+            if (powod != null) return zbanuj(k.getMessage(), h.tresci(OKNO_EXTREME, teraz), powod, true);
+            powod = normal(k, h, czulosc, teraz);
+            if (powod != null) return zbanuj(k.getMessage(), h.tresci(OKNO_NORMAL, teraz), powod, false);
+            return false;
+        };
     }
 
-    private List<String> getAntiRaidChannels(Guild guild) {
-        GuildConfig gc = gcCache.get(guild.getId(), guildDao::get);
-        if (gc == null) //czyli nigdy
-            return Collections.emptyList();
-        if (gc.getKanalyGdzieAntiRaidNieDziala() == null) return Collections.emptyList();
-        return gc.getKanalyGdzieAntiRaidNieDziala();
+    @Nullable
+    private String normal(KontekstWiadomosci k, HistoriaWiadomosci.Historia h, double czulosc, long teraz) {
+        Message e = k.getMessage();
+        if (h.podobne(OKNO_NORMAL, czulosc, teraz) >= 3)
+            return "3 wiadomości o podobieństwie " + h.podobienstwa(OKNO_NORMAL, czulosc, teraz).stream()
+                    .map(w -> w * 100 + "%").collect(Collectors.joining(", "));
+        if (h.pingi(OKNO_NORMAL, teraz) >= 3) return "3 wiadomości zawierają ping";
+        if (k.getOznaczeniCzlonkowie().size() >= 5 ||
+                (k.getOznaczoneRole().stream().filter(Role::isMentionable).count() == e.getGuild()
+                        .getRoles().stream().filter(Role::isMentionable).count() && e.getGuild().getRoles().stream()
+                        .anyMatch(Role::isMentionable)))
+            return "5 pingów w wiadomości lub oznaczone wszystkie role oznaczalne";
+        return null;
     }
 
-    private boolean antiRaidDisabled(Guild guild) {
-        GuildConfig gc = gcCache.get(guild.getId(), guildDao::get);
-        if (gc == null) //czyli nigdy
-            return true;
-        if (gc.getAntiRaid() == null) return true;
-        return !gc.getAntiRaid();
+    @Nullable
+    private String extreme(KontekstWiadomosci k, HistoriaWiadomosci.Historia h, double czulosc, long teraz) {
+        Message e = k.getMessage();
+        if (h.podobne(OKNO_EXTREME, czulosc, teraz) >= 2)
+            return "2 wiadomości o podobieństwie " + h.podobienstwa(OKNO_EXTREME, czulosc, teraz).stream()
+                    .map(w -> w * 100 + "%").collect(Collectors.joining(", "));
+        if (h.krotkie(OKNO_EXTREME, 3, teraz) >= 3) return "3 wiadomości o długości mniejszej lub równej 3";
+        if (h.pingi(OKNO_EXTREME, teraz) >= 2) return "2 wiadomości zawierają ping";
+        if (k.getOznaczeniCzlonkowie().size() >= 4 ||
+                ((k.getOznaczoneRole().stream().filter(Role::isMentionable).count() == e.getGuild()
+                        .getRoles().stream().filter(Role::isMentionable).count() || k.getOznaczoneRole()
+                        .stream().filter(Role::isMentionable).count() >= 4) && e.getGuild().getRoles().stream()
+                        .anyMatch(Role::isMentionable)))
+            return "4 pingów w wiadomości lub oznaczone wszystkie role oznaczalne";
+        return null;
     }
 
-    private boolean antiRaidExtreme(Guild guild) {
-        GuildConfig gc = gcCache.get(guild.getId(), guildDao::get);
-        if (gc == null) //czyli nigdy
+    /**
+     * Banuje autora wiadomości bez czekania na odpowiedź Discorda - sprawdzenie działa w pasie serwera.
+     * Log leci dopiero po udanym banie, treści są zrzucone wcześniej, bo historia zdąży się zmienić.
+     *
+     * @return czy ban został wysłany
+     */
+    private boolean zbanuj(Message e, List<String> tresci, String powod, boolean extreme) {
+        try {
+            e.getGuild().ban(e.getAuthor(), 0, "Raid").queue(ok -> {
+                if (extreme) logExtreme(e, tresci, powod);
+                else log(e, tresci, powod);
+            }, err -> {});
+        } catch (Exception err) {
             return false;
-        if (gc.getAntiRaidExtreme() == null) return false;
-        return gc.getAntiRaidExtreme();
-    }
-
-    private int getAntiRaidCzulosc(Guild guild) {
-        GuildConfig gc = gcCache.get(guild.getId(), guildDao::get);
-        if (gc == null) //czyli nigdy
-            return 50;
-        if (gc.getAntiRaidCzulosc() == null) return 50;
-        return gc.getAntiRaidCzulosc();
+        }
+        return true;
     }
 
     private void log(Message e, List<String> lastC, String powod) {
@@ -279,7 +149,6 @@ public class AntiRaidListener {
                 e.getGuild().getName() + " (" + e.getGuild().getId() + "): " + powod + ".\nWiadomości:\n";
         List<String> lastCostatnie3 = new ArrayList<>();
         for (String el : lastC) {
-            if (el == null || el.isEmpty()) continue;
             lastCostatnie3.add(el);
             if (lastCostatnie3.size() == 3) break;
         }
@@ -302,7 +171,6 @@ public class AntiRaidListener {
                 e.getGuild().getName() + " (" + e.getGuild().getId() + "): " + powod + ".\nWiadomości:\n";
         List<String> lastCostatnie3 = new ArrayList<>();
         for (String el : lastC) {
-            if (el == null || el.isEmpty()) continue;
             lastCostatnie3.add(el);
             if (lastCostatnie3.size() == 3) break;
         }
@@ -319,14 +187,8 @@ public class AntiRaidListener {
         }
     }
 
-    @Subscribe
-    public void onDatabaseUpdateEvent(DatabaseUpdateEvent e) {
-        if (!(e.getEntity() instanceof GuildConfig)) return;
-        gcCache.put(((GuildConfig) e.getEntity()).getGuildId(), (GuildConfig) e.getEntity());
-    }
 
     public void shutdown() {
-        timerN.cancel();
-        timerE.cancel();
+        timer.cancel();
     }
 }
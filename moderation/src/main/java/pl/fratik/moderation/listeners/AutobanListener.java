@@ -21,11 +21,14 @@ import com.google.common.eventbus.AllowConcurrentEvents;
 import com.google.common.eventbus.Subscribe;
 import net.dv8tion.jda.api.events.guild.member.GuildMemberJoinEvent;
 import pl.fratik.core.Globals;
+import pl.fratik.core.cache.Cache;
+import pl.fratik.core.cache.RedisCacheManager;
 import pl.fratik.core.entity.GuildConfig;
 import pl.fratik.core.entity.GuildDao;
 import pl.fratik.core.entity.Kara;
 import pl.fratik.core.tlumaczenia.Tlumaczenia;
 import pl.fratik.moderation.entity.Case;
+import pl.fratik.moderation.utils.KolejkaBanow;
 
 import java.time.Instant;
 
@@ -33,25 +36,26 @@ public class AutobanListener {
 
     private final GuildDao guildDao;
     private final Tlumaczenia tlumaczenia;
-    private final ModLogListener modLogListener;
+    private final KolejkaBanow kolejkaBanow;
+    private final Cache<GuildConfig> gcCache;
 
-    public AutobanListener(GuildDao guildDao, Tlumaczenia tlumaczenia, ModLogListener modLogListener) {
+    public AutobanListener(GuildDao guildDao, Tlumaczenia tlumaczenia, RedisCacheManager redisCacheManager, KolejkaBanow kolejkaBanow) {
         this.guildDao = guildDao;
         this.tlumaczenia = tlumaczenia;
-        this.modLogListener = modLogListener;
+        this.kolejkaBanow = kolejkaBanow;
+        gcCache = redisCacheManager.getGuildConfigCache();
     }
 
     @Subscribe
     @AllowConcurrentEvents
     public void onGuildMemberJoinEvent(GuildMemberJoinEvent e) {
-        GuildConfig gc = guildDao.get(e.getGuild());
+        GuildConfig gc = gcCache.get(e.getGuild().getId(), guildDao::get);
         if (gc.getAutoban() != null && gc.getAutoban()) {
             Case aCase = new Case.Builder(e.getMember(), Instant.now(), Kara.BAN).setIssuerId(Globals.clientId)
                     .setReasonKey("autoban.case.reason").build();
-            modLogListener.getKnownCases().put(ModLogListener.generateKey(e.getMember()), aCase);
-            e.getGuild().ban(e.getMember(), 0,
-                    tlumaczenia.get(tlumaczenia.getLanguage(e.getGuild()), "autoban.audit.reason"))
-                    .reason(tlumaczenia.get(tlumaczenia.getLanguage(e.getGuild()), "autoban.audit.reason")).complete();
+            kolejkaBanow.zbanuj(e.getGuild(), e.getUser().getIdLong(),
+                    tlumaczenia.get(tlumaczenia.getLanguage(e.getGuild()), "autoban.audit.reason"), aCase);
         }
     }
+
 }
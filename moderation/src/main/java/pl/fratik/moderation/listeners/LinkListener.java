@@ -17,129 +17,154 @@
 
 package pl.fratik.moderation.listeners;
 
-import com.google.common.eventbus.AllowConcurrentEvents;
 import com.google.common.eventbus.EventBus;
-import com.google.common.eventbus.Subscribe;
-import net.dv8tion.jda.api.JDA;
-import net.dv8tion.jda.api.entities.*;
-import net.dv8tion.jda.api.events.message.GenericMessageEvent;
-import net.dv8tion.jda.api.events.message.MessageReceivedEvent;
-import net.dv8tion.jda.api.events.message.MessageUpdateEvent;
-import net.dv8tion.jda.api.exceptions.ErrorResponseException;
-import net.dv8tion.jda.api.sharding.ShardManager;
+import net.dv8tion.jda.api.entities.Member;
+import net.dv8tion.jda.api.entities.Role;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import pl.fratik.core.Globals;
-import pl.fratik.core.cache.Cache;
-import pl.fratik.core.cache.RedisCacheManager;
-import pl.fratik.core.command.PermLevel;
 import pl.fratik.core.entity.GuildConfig;
-import pl.fratik.core.entity.GuildDao;
 import pl.fratik.core.entity.Kara;
 import pl.fratik.core.manager.ManagerKomend;
 import pl.fratik.core.manager.implementation.ManagerModulowImpl;
 import pl.fratik.core.tlumaczenia.Tlumaczenia;
-import pl.fratik.core.util.CommonUtil;
+import pl.fratik.core.util.NamedThreadFactory;
 import pl.fratik.core.util.NetworkUtil;
-import pl.fratik.core.util.UserUtil;
 import pl.fratik.moderation.entity.Case;
 import pl.fratik.moderation.entity.CaseDao;
+import pl.fratik.moderation.potok.KontekstWiadomosci;
+import pl.fratik.moderation.potok.Sprawdzenie;
 import pl.fratik.moderation.utils.WarnUtil;
 
-import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 import java.time.Instant;
-import java.util.concurrent.atomic.AtomicReference;
-import java.util.function.Function;
-import java.util.regex.Matcher;
+import java.util.*;
+import java.util.concurrent.*;
 
-public class LinkListener {
+public class LinkListener implements Sprawdzenie {
+
+    private static final Logger logger = LoggerFactory.getLogger(LinkListener.class);
+    private static final long LIMIT_SPRAWDZANIA = 10;
 
-    private final GuildDao guildDao;
     private final Tlumaczenia tlumaczenia;
     private final ManagerKomend managerKomend;
-    private final ShardManager shardManager;
     private final CaseDao caseDao;
-    private final Cache<GuildConfig> gcCache;
     private final EventBus eventBus;
+    private final ThreadPoolExecutor sprawdzanie = new ThreadPoolExecutor(8, 8, 60, TimeUnit.SECONDS,
+            new ArrayBlockingQueue<>(256), new NamedThreadFactory("AntiLink"));
+    private final ScheduledExecutorService timeouty =
+            Executors.newSingleThreadScheduledExecutor(new NamedThreadFactory("AntiLink-Limit"));
 
-    public LinkListener(GuildDao guildDao, Tlumaczenia tlumaczenia, ManagerKomend managerKomend, ShardManager shardManager, CaseDao caseDao, RedisCacheManager redisCacheManager, EventBus eventBus) {
-        this.guildDao = guildDao;
+    public LinkListener(Tlumaczenia tlumaczenia, ManagerKomend managerKomend, CaseDao caseDao, EventBus eventBus) {
         this.tlumaczenia = tlumaczenia;
         this.managerKomend = managerKomend;
-        this.shardManager = shardManager;
         this.caseDao = caseDao;
-        gcCache = redisCacheManager.new CacheRetriever<GuildConfig>(){}.getCache();
         this.eventBus = eventBus;
+        sprawdzanie.allowCoreThreadTimeOut(true);
     }
 
-    @Subscribe
-    @AllowConcurrentEvents
-    public void onMessage(MessageReceivedEvent e) {
-        checkEvent(new MessageEvent(e.getJDA(), e.getResponseNumber(), e.getMessage()));
+    @Override
+    public int getKoszt() {
+        // sprawdzanie mediów to zapytania HTTP - zawsze na końcu
+        return 100;
     }
 
-    @Subscribe
-    @AllowConcurrentEvents
-    public void onMessage(MessageUpdateEvent e) {
-        checkEvent(new MessageEvent(e.getJDA(), e.getResponseNumber(), e.getMessage()));
+    @Override
+    public Skompilowane kompiluj(GuildConfig gc) {
+        if (!gc.isAntiLink()) return null;
+        Set<String> kanaly = new HashSet<>(gc.getLinkchannels());
+        Set<String> ignorowaneRole = gc.getAntiLinkIgnoreRoles() == null ? Collections.emptySet() :
+                new HashSet<>(gc.getAntiLinkIgnoreRoles());
+        boolean ignoreAdmins = gc.isAntiLinkIgnoreAdmins();
+        boolean mediaAllowed = gc.isAntiLinkMediaAllowed();
+        boolean deleteLinkMessage = gc.isDeleteLinkMessage();
+        return k -> {
+            if (kanaly.contains(k.getChannel().getId())) return false;
+            List<String> linki = k.getLinki();
+            if (linki.isEmpty()) return false;
+            if (ignoreAdmins && k.getPermLevel().getNum() > 0) return false;
+            if (!ignorowaneRole.isEmpty()) {
+                for (Role r : k.getMember().getRoles())
+                    if (ignorowaneRole.contains(r.getId())) return false;
+            }
+            return checkLinks(k, linki, mediaAllowed, deleteLinkMessage);
+        };
     }
 
-    public void checkEvent(MessageEvent e) {
-        if (!e.isFromType(ChannelType.TEXT) || e.getAuthor().isBot() || e.getMember() == null) return;
-        if (!e.getTextChannel().canTalk()) return;
-        if (!isAntilink(e.getTextChannel())) return;
-        if (!e.getGuild().getSelfMember().canInteract(e.getMember())) return;
-        GuildConfig guildConfig = gcCache.get(e.getGuild().getId(), guildDao::get);
-        if (guildConfig.isAntiLinkIgnoreAdmins() &&
-                UserUtil.getPermlevel(e.getMember(), guildDao, shardManager, PermLevel.OWNER).getNum() > 0) return;
-        if (guildConfig.getAntiLinkIgnoreRoles() != null) {
-            for (String id : guildConfig.getAntiLinkIgnoreRoles())
-                if (e.getMember().getRoles().stream().anyMatch(r -> r.getId().equals(id))) return;
-        }
-        StringBuilder wiad = new StringBuilder();
-        String content = e.getMessage().getContentRaw();
-        Matcher matcher = CommonUtil.URL_PATTERN.matcher(content);
-        if (!matcher.find()) return;
+    private boolean checkLinks(KontekstWiadomosci k, List<String> linki, boolean mediaAllowed, boolean deleteLinkMessage) {
         boolean isInviteOnly = true;
-        final boolean mediaAllowed = mediaAllowed(e.getTextChannel());
-        boolean isMedia = mediaAllowed;
-        do {
-            String text = matcher.group();
-            boolean containsInvite = AntiInviteListener.containsInvite(text);
-            if (!containsInvite) isInviteOnly = false;
-            Boolean media = null;
-            AtomicReference<String> contentType = new AtomicReference<>();
-            if (mediaAllowed) {
-                Function<String, Boolean> checkContent = url -> {
-                    try {
-                        NetworkUtil.ContentInformation ci = NetworkUtil.contentInformation(url);
-                        if (ci != null && ci.getCode() == 200) {
-                            contentType.set(ci.getContentType());
-                            return ci.getContentType().startsWith("image/") || ci.getContentType().startsWith("video/");
-                        }
-                    } catch (Exception err) {
-                        // niżej
-                    }
-                    return false;
-                };
-                media = checkContent.apply(text); // nigdy null
-                if (!media) {
-                    isMedia = false;
-                }
+        for (String text : linki) {
+            if (!AntiInviteListener.containsInvite(text)) {
+                isInviteOnly = false;
+                break;
             }
-            wiad.append(text).append(" zaproszenie? ").append(containsInvite ? "tak" : "nie").append(" media? ");
-            if (media != null) wiad.append(media ? "tak (" + contentType.get() + ")" : "nie");
-            else wiad.append("[nie sprawdzane]");
-            wiad.append("\n");
-        } while (matcher.find());
-        if (isMedia || isInviteOnly) {
-            //media? nie reaguj (jeżeli mediaAllowed = false - isMedia = false)
-            //zaproszenie? również nie, antiinvite ogarnie (lub nie, jeśli wyłączony)
-            return;
         }
+        //zaproszenie? nie reaguj, antiinvite ogarnie (lub nie, jeśli wyłączony)
+        if (isInviteOnly) return false;
+        if (!mediaAllowed) {
+            ukarz(k, linki, null, deleteLinkMessage);
+            return true;
+        }
+        // sprawdzanie mediów to zapytania HTTP (do 5s na każde przekierowanie) - nie blokujemy nimi pasa serwera,
+        // kara leci z wątku sprawdzania; link, którego nie zdążono sprawdzić, nie jest traktowany jako media
+        List<CompletableFuture<NetworkUtil.ContentInformation>> sondy = new ArrayList<>(linki.size());
         try {
-            e.getChannel().retrieveMessageById(e.getMessageId()).complete();
-        } catch (ErrorResponseException err) {
-            //wiadomość nie istnieje; została usunięta przez inny bot/listener
+            for (String text : linki)
+                sondy.add(CompletableFuture.supplyAsync(() -> sprawdzMedia(text), sprawdzanie));
+        } catch (RejectedExecutionException e) {
+            logger.warn("Za dużo linków w kolejce do sprawdzenia, pomijam wiadomość {}", k.getMessage().getId());
+            return false;
+        }
+        CompletableFuture<Void> gotowe = CompletableFuture.allOf(sondy.toArray(new CompletableFuture[0]));
+        ScheduledFuture<?> limit = timeouty.schedule(() -> gotowe.complete(null), LIMIT_SPRAWDZANIA, TimeUnit.SECONDS);
+        gotowe.thenRun(() -> {
+            limit.cancel(false);
+            List<NetworkUtil.ContentInformation> media = new ArrayList<>(sondy.size());
+            boolean isMedia = true;
+            for (CompletableFuture<NetworkUtil.ContentInformation> sonda : sondy) {
+                NetworkUtil.ContentInformation ci = sonda.getNow(null);
+                media.add(ci);
+                if (!isMedia(ci)) isMedia = false;
+            }
+            //media? nie reaguj
+            if (isMedia) return;
+            try {
+                ukarz(k, linki, media, deleteLinkMessage);
+            } catch (Exception e) {
+                logger.error("Nie udało się ukarać za link w wiadomości {}", k.getMessage().getId(), e);
+            }
+        });
+        return false;
+    }
+
+    @Nullable
+    private static NetworkUtil.ContentInformation sprawdzMedia(String url) {
+        try {
+            return NetworkUtil.contentInformation(url);
+        } catch (Exception err) {
+            return null;
+        }
+    }
+
+    private static boolean isMedia(@Nullable NetworkUtil.ContentInformation ci) {
+        return ci != null && ci.getCode() == 200 && ci.getContentType() != null &&
+                (ci.getContentType().startsWith("image/") || ci.getContentType().startsWith("video/"));
+    }
+
+    /**
+     * @param media Wyniki sprawdzenia linków (po kolei), {@code null} jeżeli media nie były sprawdzane
+     */
+    private void ukarz(KontekstWiadomosci k, List<String> linki, @Nullable List<NetworkUtil.ContentInformation> media,
+                       boolean deleteLinkMessage) {
+        StringBuilder wiad = new StringBuilder();
+        for (int i = 0; i < linki.size(); i++) {
+            String text = linki.get(i);
+            wiad.append(text).append(" zaproszenie? ").append(AntiInviteListener.containsInvite(text) ? "tak" : "nie")
+                    .append(" media? ");
+            if (media == null) wiad.append("[nie sprawdzane]");
+            else if (isMedia(media.get(i))) wiad.append("tak (").append(media.get(i).getContentType()).append(")");
+            else wiad.append("nie");
+            wiad.append("\n");
         }
         try {
             // Dlaczego linki są logowane? Po dzisiejszej (6.03.21) prośbie o pomoc, gdzie w nie wiadomo jakiej
@@ -151,90 +176,23 @@ public class LinkListener {
         } catch (Exception err) {
             // nic
         }
-        if (guildConfig.isDeleteLinkMessage()) {
+        if (deleteLinkMessage) {
             try {
-                e.getMessage().delete().complete();
+                k.getMessage().delete().queue(null, err -> {});
             } catch (Exception ignored) { }
         }
-        Case c = new Case.Builder(e.getMember(), Instant.now(), Kara.WARN).setIssuerId(Globals.clientId)
+        Member member = k.getMember();
+        Case c = new Case.Builder(member, Instant.now(), Kara.WARN).setIssuerId(Globals.clientId)
                 .setReasonKey("antilink.reason").build();
-        caseDao.createNew(null, c, false, e.getTextChannel(), tlumaczenia.getLanguage(e.getMember()));
-        e.getChannel().sendMessage(tlumaczenia.get(tlumaczenia.getLanguage(e.getMember()),
-                "antilink.notice", e.getAuthor().getAsMention(),
-                WarnUtil.countCases(caseDao.getCasesByMember(e.getMember()), e.getAuthor().getId()),
-                managerKomend.getPrefixes(e.getGuild()).get(0))).queue();
+        caseDao.createNew(null, c, false, k.getChannel(), tlumaczenia.getLanguage(member));
+        k.getChannel().sendMessage(tlumaczenia.get(tlumaczenia.getLanguage(member),
+                "antilink.notice", k.getMessage().getAuthor().getAsMention(),
+                WarnUtil.countCases(caseDao.getCasesByMember(member), member.getId()),
+                managerKomend.getPrefixes(k.getGuild()).get(0))).queue();
     }
 
-    private boolean isAntilink(TextChannel channel) {
-        GuildConfig guildConfig = gcCache.get(channel.getGuild().getId(), guildDao::get);
-        return guildConfig.isAntiLink() && !guildConfig.getLinkchannels().contains(channel.getId());
-    }
-
-    private boolean mediaAllowed(TextChannel channel) {
-        return gcCache.get(channel.getGuild().getId(), guildDao::get).isAntiLinkMediaAllowed();
-    }
-
-    private String getModLogChan(Guild guild) {
-        return gcCache.get(guild.getId(), guildDao::get).getModLog();
-    }
-
-    private static class MessageEvent extends GenericMessageEvent {
-        @Nonnull private final Message message;
-
-        public MessageEvent(@Nonnull JDA api, long responseNumber, @Nonnull Message message) {
-            super(api, responseNumber, message.getIdLong(), message.getChannel());
-            this.message = message;
-        }
-
-        /**
-         * The received {@link Message Message} object.
-         *
-         * @return The received {@link Message Message} object.
-         */
-        @Nonnull
-        public Message getMessage()
-        {
-            return message;
-        }
-
-        /**
-         * The Author of the Message received as {@link User User} object.
-         * <br>This will be never-null but might be a fake user if Message was sent via Webhook (Guild only).
-         *
-         * @return The Author of the Message.
-         *
-         * @see #isWebhookMessage()
-         * @see User#isFake()
-         */
-        @Nonnull
-        User getAuthor() {
-            return message.getAuthor();
-        }
-
-        /**
-         * The Author of the Message received as {@link Member Member} object.
-         * <br>This will be {@code null} in case of Message being received in
-         * a {@link PrivateChannel PrivateChannel}
-         * or {@link #isWebhookMessage() isWebhookMessage()} returning {@code true}.
-         *
-         * @return The Author of the Message as null-able Member object.
-         *
-         * @see    #isWebhookMessage()
-         */
-        @Nullable
-        public Member getMember() {
-            return isFromType(ChannelType.TEXT) && !isWebhookMessage() ? getGuild().getMember(getAuthor()) : null;
-        }
-
-        /**
-         * Whether or not the Message received was sent via a Webhook.
-         * <br>This is a shortcut for {@code getMessage().isWebhookMessage()}.
-         *
-         * @return True, if the Message was sent via Webhook
-         */
-        boolean isWebhookMessage()
-        {
-            return getMessage().isWebhookMessage();
-        }
+    public void shutdown() {
+        sprawdzanie.shutdownNow();
+        timeouty.shutdownNow();
     }
 }
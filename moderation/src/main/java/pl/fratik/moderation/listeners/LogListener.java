@@ -19,6 +19,7 @@ package pl.fratik.moderation.listeners;
 
 import com.google.common.eventbus.AllowConcurrentEvents;
 import com.google.common.eventbus.Subscribe;
+import com.google.common.reflect.TypeToken;
 import lombok.Getter;
 import lombok.Setter;
 import net.dv8tion.jda.api.EmbedBuilder;
@@ -40,11 +41,12 @@ import pl.fratik.core.entity.GuildDao;
 import pl.fratik.core.event.PluginMessageEvent;
 import pl.fratik.core.tlumaczenia.Language;
 import pl.fratik.core.tlumaczenia.Tlumaczenia;
+import pl.fratik.core.util.Blokujacy;
 import pl.fratik.core.util.StringUtil;
 import pl.fratik.core.util.UserUtil;
 import pl.fratik.moderation.commands.PurgeCommand;
 import pl.fratik.moderation.entity.*;
-import redis.clients.jedis.exceptions.JedisException;
+import pl.fratik.moderation.utils.MagazynWiadomosci;
 
 import javax.annotation.CheckReturnValue;
 import java.time.Instant;
@@ -62,7 +64,7 @@ public class LogListener {
     private final PurgeDao purgeDao;
 
     @Setter private static Tlumaczenia tlumaczenia;
-    private final Cache<List<LogMessage>> cache;
+    private final MagazynWiadomosci magazyn;
     private final Cache<GuildConfig> gcCache;
     @Getter private final List<String> znaneAkcje = new ArrayList<>();
 
@@ -71,62 +73,47 @@ public class LogListener {
     public LogListener(GuildDao guildDao, PurgeDao purgeDao, RedisCacheManager redisCacheManager) {
         this.guildDao = guildDao;
         this.purgeDao = purgeDao;
-        cache = redisCacheManager.new CacheRetriever<List<LogMessage>>(){}.setCanHandleErrors(true).getCache(900);
+        magazyn = new MagazynWiadomosci(!Ustawienia.instance.logWiadomosciWRedisie ? null :
+                redisCacheManager.getCappedList("logi", new TypeToken<LogMessage>() {}, MagazynWiadomosci.POJEMNOSC,
+                        MagazynWiadomosci.TTL));
         gcCache = redisCacheManager.new CacheRetriever<GuildConfig>(){}.getCache();
     }
 
     @Subscribe
     public void onMessage(MessageReceivedEvent messageReceivedEvent) {
         if (!messageReceivedEvent.isFromGuild()) return;
-        try {
-            List<LogMessage> messages = cache.get(messageReceivedEvent.getTextChannel().getId(), c -> new ArrayList<>());
-            if (messages == null) throw new IllegalStateException("messages == null mimo compute'owania");
-            if (messages.size() > 100) messages.remove(0);
-            messages.add(new LogMessage(messageReceivedEvent.getMessage()));
-            cache.put(messageReceivedEvent.getTextChannel().getId(), messages);
-        } catch (JedisException e) {
-            log.error("Redis nie odpowiada prawidłowo!", e);
-        }
+        magazyn.dodaj(new LogMessage(messageReceivedEvent.getMessage()));
     }
 
     @Subscribe
     public void onMessageEdit(MessageUpdateEvent messageUpdateEvent) {
         if (!messageUpdateEvent.isFromGuild()) return;
-        try {
-            List<LogMessage> messages = cache.get(messageUpdateEvent.getTextChannel().getId(), c -> new ArrayList<>());
-            if (messages == null) throw new IllegalStateException("messages == null mimo compute'owania");
-            Message m = findMessage(messageUpdateEvent.getTextChannel(), messageUpdateEvent.getMessageId(), false, messages);
-            if (m == null) {
-                if (messages.size() > 100) messages.remove(0);
-                messages.add(new LogMessage(messageUpdateEvent.getMessage()));
-                znaneAkcje.remove(messageUpdateEvent.getMessageId());
-                return;
-            }
-            messages.set(messages.indexOf(m), new LogMessage(messageUpdateEvent.getMessage()));
-            cache.put(messageUpdateEvent.getTextChannel().getId(), messages);
-            if (znaneAkcje.contains(messageUpdateEvent.getMessageId())) {
-                znaneAkcje.remove(messageUpdateEvent.getMessageId());
-                return;
-            }
-            TextChannel channel = getChannel(messageUpdateEvent.getGuild());
-            if (channel == null || !channel.canTalk()) {
-                return;
-            }
-            if (messageUpdateEvent.getMessage().getContentRaw().equals(m.getContentRaw())) {
-                //zmieniony embed/attachment, ignoruj
-                return;
-            }
-            if (messageUpdateEvent.getMessage().getContentRaw().length() >= 1024 || m.getContentRaw().length() >= 1024) {
-                return;
-            }
-            MessageEmbed embed = generateEmbed(LogType.EDIT, messageUpdateEvent.getMessage(), null, m.getContentRaw(), false);
-            try {channel.sendMessage(embed).queue();} catch (Exception ignored) {/*lul*/}
-        } catch (JedisException e) {
-            log.error("Redis nie odpowiada prawidłowo!", e);
+        Message m = magazyn.zastap(new LogMessage(messageUpdateEvent.getMessage()));
+        if (m == null) {
+            znaneAkcje.remove(messageUpdateEvent.getMessageId());
+            return;
+        }
+        if (znaneAkcje.contains(messageUpdateEvent.getMessageId())) {
+            znaneAkcje.remove(messageUpdateEvent.getMessageId());
+            return;
+        }
+        TextChannel channel = getChannel(messageUpdateEvent.getGuild());
+        if (channel == null || !channel.canTalk()) {
+            return;
+        }
+        if (messageUpdateEvent.getMessage().getContentRaw().equals(m.getContentRaw())) {
+            //zmieniony embed/attachment, ignoruj
+            return;
+        }
+        if (messageUpdateEvent.getMessage().getContentRaw().length() >= 1024 || m.getContentRaw().length() >= 1024) {
+            return;
         }
+        MessageEmbed embed = generateEmbed(LogType.EDIT, messageUpdateEvent.getMessage(), null, m.getContentRaw(), false);
+        try {channel.sendMessage(embed).queue();} catch (Exception ignored) {/*lul*/}
     }
 
     @Subscribe
+    @Blokujacy
     @AllowConcurrentEvents
     public void onMessageRemoved(MessageDeleteEvent messageDeleteEvent) {
         if (!messageDeleteEvent.isFromGuild()) return;
@@ -171,6 +158,7 @@ public class LogListener {
     }
 
     @Subscribe
+    @Blokujacy
     public void onMessageBulkRemove(MessageBulkDeleteEvent messageBulkDeleteEvent) {
         List<Message> messages = new ArrayList<>();
         for (String id : messageBulkDeleteEvent.getMessageIds()) {
@@ -215,48 +203,17 @@ public class LogListener {
     }
 
     public void pushMessage(Message msg) {
-        try {
-            List<LogMessage> kesz = Objects.requireNonNull(cache.get(msg.getTextChannel().getId(), c -> new ArrayList<>()));
-            if (kesz.stream().map(ISnowflake::getId).anyMatch(o -> o.equals(msg.getId())))
-                return;
-            kesz.add(new LogMessage(msg));
-            cache.put(msg.getTextChannel().getId(), kesz);
-        } catch (JedisException e) {
-            log.error("Redis nie odpowiada prawidłowo!", e);
-        }
+        magazyn.dodaj(new LogMessage(msg));
     }
 
     private LogMessage findMessage(TextChannel channel, String id) {
-        return findMessage(channel, id, true);
-    }
-
-    private LogMessage findMessage(TextChannel channel, String id, boolean delete) {
         try {
-            List<LogMessage> kesz = Objects.requireNonNull(cache.get(channel.getId(), c -> new ArrayList<>()));
-            return findMessage(channel, id, delete, kesz);
-        } catch (JedisException e) {
-            log.error("Redis nie odpowiada prawidłowo!", e);
+            return magazyn.usun(channel.getIdLong(), Long.parseUnsignedLong(id));
+        } catch (NumberFormatException e) {
             return null;
         }
     }
 
-    private LogMessage findMessage(TextChannel channel, String id, boolean delete, List<LogMessage> kesz) {
-        try {
-            for (LogMessage m : kesz)
-                if (m.getId().equals(id)) {
-                    if (!delete) return m;
-                    kesz.remove(m);
-                    cache.put(channel.getId(), kesz);
-                    return m;
-                }
-        } catch (JedisException e) {
-            log.error("Redis nie odpowiada prawidłowo!", e);
-        } catch (Exception ignored) {
-            /*lul*/
-        }
-        return null;
-    }
-
     @CheckReturnValue
     private MessageEmbed generateEmbed(LogType type, Message message, User deletedBy, String oldContent, boolean errored) {
         return generateEmbed(type, message, deletedBy, oldContent, errored, tlumaczenia.getLanguage(message.getGuild()));
@@ -336,6 +293,10 @@ public class LogListener {
     public void onPluginMessage(PluginMessageEvent e) {
         if (!e.getTo().equals("moderation")) return;
         LoggerFactory.getLogger(getClass()).info("Wiadomość od {}: {}", e.getFrom(), e.getMessage());
+        if (e.getMessage().startsWith("logi-getWiadomosci:")) {
+            e.setResponse(magazyn.wiadomosci(Long.parseUnsignedLong(e.getMessage().replace("logi-getWiadomosci:", ""))));
+            return;
+        }
         if (e.getMessage().startsWith("znaneAkcje")) {
             String komenda = e.getMessage().replace("znaneAkcje-", "");
             if (komenda.startsWith("add")) {
@@ -41,6 +41,7 @@ import pl.fratik.core.entity.*;
 import pl.fratik.core.event.ScheduleEvent;
 import pl.fratik.core.manager.ManagerKomend;
 import pl.fratik.core.tlumaczenia.Tlumaczenia;
+import pl.fratik.core.util.Blokujacy;
 import pl.fratik.core.util.ExpiringHashMap;
 import pl.fratik.core.util.ExpiringHashSet;
 import pl.fratik.moderation.entity.AutoAkcja;
@@ -113,6 +114,7 @@ public class ModLogListener {
     }
 
     @Subscribe
+    @Blokujacy
     @AllowConcurrentEvents
     public void onMemberRemove(GuildMemberRemoveEvent e) {
         if (!checkPermissions(e)) return;
@@ -140,6 +142,7 @@ public class ModLogListener {
     }
 
     @Subscribe
+    @Blokujacy
     @AllowConcurrentEvents
     public void onGuildBan(GuildBanEvent e) {
         if (!checkPermissions(e)) return;
@@ -168,6 +171,7 @@ public class ModLogListener {
     }
 
     @Subscribe
+    @Blokujacy
     @AllowConcurrentEvents
     public void onGuildUnban(GuildUnbanEvent e) {
         if (!checkPermissions(e)) return;
@@ -209,6 +213,7 @@ public class ModLogListener {
     }
 
     @Subscribe
+    @Blokujacy
     @AllowConcurrentEvents
     public void onMemberUpdate(GuildMemberUpdateEvent e) {
         if (!checkPermissions(e)) return;
@@ -281,6 +286,7 @@ public class ModLogListener {
     }
 
     @Subscribe
+    @Blokujacy
     @AllowConcurrentEvents
     public void onRoleDelete(RoleDeleteEvent e) {
         Instant now = Instant.now();
@@ -304,6 +310,7 @@ public class ModLogListener {
     }
 
     @Subscribe
+    @Blokujacy
     @AllowConcurrentEvents
     public void onNewCase(NewCaseEvent e) {
         Guild g = shardManager.getGuildById(e.getCase().getGuildId());
@@ -337,6 +344,7 @@ public class ModLogListener {
     }
 
     @Subscribe
+    @Blokujacy
     @AllowConcurrentEvents
     public void onSchedule(ScheduleEvent e) {
         if (!(e.getContent() instanceof AutoAkcja)) return;
@@ -377,6 +385,7 @@ public class ModLogListener {
     }
 
     @Subscribe
+    @Blokujacy
     @AllowConcurrentEvents
     public void onUpdateCase(UpdateCaseEvent e) {
         if (e.isInternalChange()) return;
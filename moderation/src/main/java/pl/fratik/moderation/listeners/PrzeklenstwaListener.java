@@ -17,21 +17,11 @@
 
 package pl.fratik.moderation.listeners;
 
-import com.google.common.eventbus.AllowConcurrentEvents;
-import com.google.common.eventbus.Subscribe;
 import com.google.gson.reflect.TypeToken;
-import net.dv8tion.jda.api.JDA;
-import net.dv8tion.jda.api.entities.*;
-import net.dv8tion.jda.api.events.message.GenericMessageEvent;
-import net.dv8tion.jda.api.events.message.MessageReceivedEvent;
-import net.dv8tion.jda.api.events.message.MessageUpdateEvent;
+import net.dv8tion.jda.api.entities.Member;
 import net.dv8tion.jda.api.requests.restaction.MessageAction;
-import net.dv8tion.jda.api.sharding.ShardManager;
 import pl.fratik.core.Globals;
-import pl.fratik.core.cache.Cache;
-import pl.fratik.core.cache.RedisCacheManager;
 import pl.fratik.core.entity.GuildConfig;
-import pl.fratik.core.entity.GuildDao;
 import pl.fratik.core.entity.Kara;
 import pl.fratik.core.manager.ManagerKomend;
 import pl.fratik.core.tlumaczenia.Tlumaczenia;
@@ -39,162 +29,107 @@ import pl.fratik.core.util.CommonUtil;
 import pl.fratik.core.util.GsonUtil;
 import pl.fratik.moderation.entity.Case;
 import pl.fratik.moderation.entity.CaseDao;
+import pl.fratik.moderation.potok.KontekstWiadomosci;
+import pl.fratik.moderation.potok.Sprawdzenie;
+import pl.fratik.moderation.utils.AhoCorasick;
 import pl.fratik.moderation.utils.WarnUtil;
 
-import javax.annotation.Nonnull;
-import javax.annotation.Nullable;
 import java.time.Instant;
-import java.util.ArrayList;
-import java.util.List;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 
-public class PrzeklenstwaListener {
+public class PrzeklenstwaListener implements Sprawdzenie {
 
     private final List<String> przeklenstwa;
-    private final GuildDao guildDao;
+    private final AhoCorasick automat;
+    private final AhoCorasick automatZNormalizacja;
+    // tylko serwery z własnymi słowami - pozostałe używają wspólnych automatów
+    private final Map<String, SlownikSerwera> slownikiSerwerow = new ConcurrentHashMap<>();
     private final Tlumaczenia tlumaczenia;
     private final ManagerKomend managerKomend;
-    private final ShardManager shardManager;
     private final CaseDao caseDao;
-    private final Cache<GuildConfig> gcCache;
-    public PrzeklenstwaListener(GuildDao guildDao, Tlumaczenia tlumaczenia, ManagerKomend managerKomend, ShardManager shardManager, CaseDao caseDao, RedisCacheManager redisCacheManager) {
-        this.guildDao = guildDao;
+
+    public PrzeklenstwaListener(Tlumaczenia tlumaczenia, ManagerKomend managerKomend, CaseDao caseDao) {
         this.tlumaczenia = tlumaczenia;
         this.managerKomend = managerKomend;
-        this.shardManager = shardManager;
         this.caseDao = caseDao;
-        gcCache = redisCacheManager.new CacheRetriever<GuildConfig>(){}.getCache();
         try {
             String data = CommonUtil.fromStream(getClass().getResourceAsStream("/przeklenstwa.json"));
             przeklenstwa = GsonUtil.GSON.fromJson(data, new TypeToken<List<String>>() {}.getType());
         } catch (Exception e) {
             throw new IllegalStateException(e);
         }
+        automat = new AhoCorasick(przeklenstwa, false);
+        automatZNormalizacja = new AhoCorasick(przeklenstwa, true);
     }
 
-    @Subscribe
-    @AllowConcurrentEvents
-    public void onMessage(MessageReceivedEvent e) {
-        checkEvent(new MessageEvent(e.getJDA(), e.getResponseNumber(), e.getMessage()));
+    @Override
+    public int getKoszt() {
+        return 20;
     }
 
-    @Subscribe
-    @AllowConcurrentEvents
-    public void onMessage(MessageUpdateEvent e) {
-        checkEvent(new MessageEvent(e.getJDA(), e.getResponseNumber(), e.getMessage()));
+    @Override
+    public Skompilowane kompiluj(GuildConfig gc) {
+        if (!Boolean.TRUE.equals(gc.getAntiswear())) return null;
+        Set<String> kanaly = new HashSet<>(gc.getSwearchannels());
+        AhoCorasick slownik = slownik(gc);
+        boolean deleteSwearMessage = gc.isDeleteSwearMessage();
+        return k -> {
+            if (kanaly.contains(k.getChannel().getId())) return false;
+            if (!slownik.zawiera(k.getTresc())) return false;
+            addKara(k, deleteSwearMessage);
+            return true;
+        };
     }
 
-    public void checkEvent(MessageEvent e) {
-        if (!e.isFromType(ChannelType.TEXT) || e.getAuthor().isBot() || e.getMember() == null) return;
-        if (!e.getTextChannel().canTalk()) return;
-        if (!isAntiswear(e.getTextChannel())) return;
-        if (!e.getGuild().getSelfMember().canInteract(e.getMember())) return;
-        String content = e.getMessage().getContentRaw();
-        GuildConfig gc = getGuildConfig(e.getGuild());
-        List<String> przeklenstwa; //NOSONAR
-        if (gc.getCustomAntiSwearWords() != null && !gc.getCustomAntiSwearWords().isEmpty()) {
-            przeklenstwa = new ArrayList<>(this.przeklenstwa);
-            przeklenstwa.addAll(gc.getCustomAntiSwearWords());
-        } else przeklenstwa = this.przeklenstwa;
-        for (String przeklenstwo : przeklenstwa) {
-            boolean res = processWord(przeklenstwo, content);
-            if (res) {
-                Case c = new Case.Builder(e.getMember(), Instant.now(), Kara.WARN).setIssuerId(Globals.clientId)
-                        .setReasonKey("antiswear.reason").build();
-                caseDao.createNew(null, c, false, e.getTextChannel(), tlumaczenia.getLanguage(e.getMember()));
-                MessageAction m = e.getChannel().sendMessage(tlumaczenia.get(tlumaczenia.getLanguage(e.getMember()),
-                        "antiswear.notice", e.getAuthor().getAsMention(),
-                        WarnUtil.countCases(caseDao.getCasesByMember(e.getMember()), e.getAuthor().getId()),
-                        managerKomend.getPrefixes(e.getGuild()).get(0)));
-                boolean deleteSwearMessage = gc.isDeleteSwearMessage();
-                if (deleteSwearMessage) m.queue();
-                else m.reference(e.getMessage()).queue();
-                if (deleteSwearMessage) {
-                    try {
-                        e.getMessage().delete().complete();
-                    } catch (Exception ignored) { }
-                }
-                return;
-            }
+    /**
+     * Automat z wbudowanymi i własnymi słowami serwera. Jest budowany od nowa tylko wtedy, gdy zmienią się własne
+     * słowa albo normalizacja - nie przy każdym przeładowaniu configu.
+     */
+    private AhoCorasick slownik(GuildConfig gc) {
+        boolean normalizacja = gc.isAntiswearNormalizacja();
+        List<String> wlasne = gc.getCustomAntiSwearWords();
+        if (wlasne == null || wlasne.isEmpty()) {
+            slownikiSerwerow.remove(gc.getGuildId());
+            return normalizacja ? automatZNormalizacja : automat;
         }
+        SlownikSerwera slownik = slownikiSerwerow.get(gc.getGuildId());
+        if (slownik != null && slownik.normalizacja == normalizacja && slownik.slowa.equals(wlasne))
+            return slownik.automat;
+        List<String> slowa = new ArrayList<>(przeklenstwa);
+        slowa.addAll(wlasne);
+        slownik = new SlownikSerwera(new ArrayList<>(wlasne), normalizacja, new AhoCorasick(slowa, normalizacja));
+        slownikiSerwerow.put(gc.getGuildId(), slownik);
+        return slownik.automat;
     }
 
-    private GuildConfig getGuildConfig(Guild guild) {
-        return gcCache.get(guild.getId(), guildDao::get);
-    }
-
-    private boolean isAntiswear(TextChannel channel) {
-        return getGuildConfig(channel.getGuild()).getAntiswear() &&
-                !getGuildConfig(channel.getGuild()).getSwearchannels().contains(channel.getId());
-    }
-
-    private String getModLogChan(Guild guild) {
-        return getGuildConfig(guild).getModLog();
-    }
-
-    private boolean processWord(String przeklenstwo, String content) {
-        String[] slowa = content.split(" ");
-        for (String slowo : slowa)
-            if (przeklenstwo.equalsIgnoreCase(slowo)) return true;
-        return false;
-    }
-
-    private static class MessageEvent extends GenericMessageEvent {
-        @Nonnull private final Message message;
-
-        public MessageEvent(@Nonnull JDA api, long responseNumber, @Nonnull Message message) {
-            super(api, responseNumber, message.getIdLong(), message.getChannel());
-            this.message = message;
-        }
-
-        /**
-         * The received {@link net.dv8tion.jda.api.entities.Message Message} object.
-         *
-         * @return The received {@link net.dv8tion.jda.api.entities.Message Message} object.
-         */
-        @Nonnull
-        public Message getMessage()
-        {
-            return message;
-        }
-
-        /**
-         * The Author of the Message received as {@link net.dv8tion.jda.api.entities.User User} object.
-         * <br>This will be never-null but might be a fake user if Message was sent via Webhook (Guild only).
-         *
-         * @return The Author of the Message.
-         *
-         * @see #isWebhookMessage()
-         * @see net.dv8tion.jda.api.entities.User#isFake()
-         */
-        @Nonnull
-        User getAuthor() {
-            return message.getAuthor();
+    private void addKara(KontekstWiadomosci k, boolean deleteSwearMessage) {
+        Member member = k.getMember();
+        Case c = new Case.Builder(member, Instant.now(), Kara.WARN).setIssuerId(Globals.clientId)
+                .setReasonKey("antiswear.reason").build();
+        caseDao.createNew(null, c, false, k.getChannel(), tlumaczenia.getLanguage(member));
+        MessageAction m = k.getChannel().sendMessage(tlumaczenia.get(tlumaczenia.getLanguage(member),
+                "antiswear.notice", k.getMessage().getAuthor().getAsMention(),
+                WarnUtil.countCases(caseDao.getCasesByMember(member), member.getId()),
+                managerKomend.getPrefixes(k.getGuild()).get(0)));
+        if (deleteSwearMessage) m.queue();
+        else m.reference(k.getMessage()).queue();
+        if (deleteSwearMessage) {
+            try {
+                k.getMessage().delete().queue(null, err -> {});
+            } catch (Exception ignored) { }
         }
+    }
 
-        /**
-         * The Author of the Message received as {@link net.dv8tion.jda.api.entities.Member Member} object.
-         * <br>This will be {@code null} in case of Message being received in
-         * a {@link net.dv8tion.jda.api.entities.PrivateChannel PrivateChannel}
-         * or {@link #isWebhookMessage() isWebhookMessage()} returning {@code true}.
-         *
-         * @return The Author of the Message as null-able Member object.
-         *
-         * @see    #isWebhookMessage()
-         */
-        @Nullable
-        public Member getMember() {
-            return isFromType(ChannelType.TEXT) && !isWebhookMessage() ? getGuild().getMember(getAuthor()) : null;
-        }
+    private static class SlownikSerwera {
+        private final List<String> slowa;
+        private final boolean normalizacja;
+        private final AhoCorasick automat;
 
-        /**
-         * Whether or not the Message received was sent via a Webhook.
-         * <br>This is a shortcut for {@code getMessage().isWebhookMessage()}.
-         *
-         * @return True, if the Message was sent via Webhook
-         */
-        boolean isWebhookMessage()
-        {
-            return getMessage().isWebhookMessage();
+        private SlownikSerwera(List<String> slowa, boolean normalizacja, AhoCorasick automat) {
+            this.slowa = slowa;
+            this.normalizacja = normalizacja;
+            this.automat = automat;
         }
     }
 }
@@ -33,6 +33,7 @@ import pl.fratik.core.entity.GuildConfig;
 import pl.fratik.core.entity.GuildDao;
 import pl.fratik.core.manager.ManagerKomend;
 import pl.fratik.core.tlumaczenia.Tlumaczenia;
+import pl.fratik.core.util.Blokujacy;
 import pl.fratik.moderation.entity.OldCasesDao;
 
 import java.util.concurrent.TimeUnit;
@@ -58,6 +59,7 @@ public class PublishListener {
     }
 
     @Subscribe
+    @Blokujacy
     @AllowConcurrentEvents
     public void onReact(MessageReactionAddEvent e) {
         TextChannel kanal;
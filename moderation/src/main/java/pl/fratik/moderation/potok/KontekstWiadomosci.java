@@ -0,0 +1,107 @@
+/*
+ * Copyright (C) 2019-2021 FratikB0T Contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package pl.fratik.moderation.potok;
+
+import lombok.Getter;
+import net.dv8tion.jda.api.entities.*;
+import pl.fratik.core.command.PermLevel;
+import pl.fratik.core.entity.GuildConfig;
+import pl.fratik.core.util.CommonUtil;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Function;
+import java.util.regex.Matcher;
+
+/**
+ * Wszystko, czego sprawdzenia potrzebują o wiadomości, liczone najwyżej raz na wiadomość.
+ * Poziom uprawnień, linki i oznaczenia są liczone dopiero przy pierwszym użyciu.
+ * <p>
+ * Kontekst żyje tylko w wątku, który przetwarza wiadomość - nie jest synchronizowany.
+ */
+public class KontekstWiadomosci {
+    @Getter private final Message message;
+    @Getter private final Member member;
+    @Getter private final TextChannel channel;
+    @Getter private final GuildConfig guildConfig;
+    @Getter private final boolean edycja;
+    private final Function<Member, PermLevel> permLevelResolver;
+
+    private PermLevel permLevel;
+    private String trescMala;
+    private List<String> linki;
+    private List<Member> oznaczeniCzlonkowie;
+    private List<Role> oznaczoneRole;
+
+    KontekstWiadomosci(Message message, Member member, TextChannel channel, GuildConfig guildConfig, boolean edycja,
+                       Function<Member, PermLevel> permLevelResolver) {
+        this.message = message;
+        this.member = member;
+        this.channel = channel;
+        this.guildConfig = guildConfig;
+        this.edycja = edycja;
+        this.permLevelResolver = permLevelResolver;
+    }
+
+    public Guild getGuild() {
+        return channel.getGuild();
+    }
+
+    public String getTresc() {
+        return message.getContentRaw();
+    }
+
+    /**
+     * @return Poziom uprawnień autora, najwyżej {@link PermLevel#OWNER}
+     */
+    public PermLevel getPermLevel() {
+        if (permLevel == null) permLevel = permLevelResolver.apply(member);
+        return permLevel;
+    }
+
+    public String getTrescMala() {
+        if (trescMala == null) trescMala = getTresc().toLowerCase();
+        return trescMala;
+    }
+
+    /**
+     * @return Linki w treści, w kolejności wystąpienia
+     */
+    public List<String> getLinki() {
+        if (linki == null) {
+            Matcher matcher = CommonUtil.URL_PATTERN.matcher(getTresc());
+            if (!matcher.find()) linki = Collections.emptyList();
+            else {
+                linki = new ArrayList<>();
+                do linki.add(matcher.group()); while (matcher.find());
+            }
+        }
+        return linki;
+    }
+
+    public List<Member> getOznaczeniCzlonkowie() {
+        if (oznaczeniCzlonkowie == null) oznaczeniCzlonkowie = message.getMentionedMembers();
+        return oznaczeniCzlonkowie;
+    }
+
+    public List<Role> getOznaczoneRole() {
+        if (oznaczoneRole == null) oznaczoneRole = message.getMentionedRoles();
+        return oznaczoneRole;
+    }
+}
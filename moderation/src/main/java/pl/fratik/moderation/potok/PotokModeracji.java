@@ -0,0 +1,140 @@
+/*
+ * Copyright (C) 2019-2021 FratikB0T Contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package pl.fratik.moderation.potok;
+
+import com.google.common.eventbus.AllowConcurrentEvents;
+import com.google.common.eventbus.Subscribe;
+import net.dv8tion.jda.api.entities.ChannelType;
+import net.dv8tion.jda.api.entities.Member;
+import net.dv8tion.jda.api.entities.Message;
+import net.dv8tion.jda.api.entities.TextChannel;
+import net.dv8tion.jda.api.events.guild.GuildLeaveEvent;
+import net.dv8tion.jda.api.events.message.MessageReceivedEvent;
+import net.dv8tion.jda.api.events.message.MessageUpdateEvent;
+import net.dv8tion.jda.api.sharding.ShardManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import pl.fratik.core.cache.Cache;
+import pl.fratik.core.cache.RedisCacheManager;
+import pl.fratik.core.command.PermLevel;
+import pl.fratik.core.entity.GuildConfig;
+import pl.fratik.core.entity.GuildDao;
+import pl.fratik.core.util.UserUtil;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Jedno przejście po wiadomości dla wszystkich sprawdzeń moderacyjnych.
+ * <p>
+ * Config serwera, poziom uprawnień autora, słowa i linki są liczone raz na wiadomość ({@link KontekstWiadomosci}),
+ * a nie osobno w każdym listenerze. Sprawdzenia włączone na serwerze są kompilowane do łańcucha przy zmianie
+ * configu i wykonywane od najtańszego; po pierwszym, które zareaguje, wykonywane są już tylko sprawdzenia
+ * stanowe ({@link Sprawdzenie#isStanowe()}), żeby np. antiraid widział każdą wiadomość autora.
+ */
+public class PotokModeracji {
+    private static final Logger logger = LoggerFactory.getLogger(PotokModeracji.class);
+    private static final Sprawdzenie.Skompilowane[] PUSTY = new Sprawdzenie.Skompilowane[0];
+    private static final boolean[] PUSTE_FLAGI = new boolean[0];
+
+    private final GuildDao guildDao;
+    private final ShardManager shardManager;
+    private final List<Sprawdzenie> sprawdzenia;
+    private final Cache<GuildConfig> gcCache;
+    private final Map<Long, Lancuch> lancuchy = new ConcurrentHashMap<>();
+
+    public PotokModeracji(GuildDao guildDao, ShardManager shardManager, RedisCacheManager redisCacheManager,
+                          Sprawdzenie... sprawdzenia) {
+        this.guildDao = guildDao;
+        this.shardManager = shardManager;
+        List<Sprawdzenie> posortowane = new ArrayList<>(Arrays.asList(sprawdzenia));
+        posortowane.sort(Comparator.comparingInt(Sprawdzenie::getKoszt));
+        this.sprawdzenia = Collections.unmodifiableList(posortowane);
+        gcCache = redisCacheManager.getGuildConfigCache();
+    }
+
+    @Subscribe
+    @AllowConcurrentEvents
+    public void onMessage(MessageReceivedEvent e) {
+        przetworz(e.getMessage(), false);
+    }
+
+    @Subscribe
+    @AllowConcurrentEvents
+    public void onEdit(MessageUpdateEvent e) {
+        przetworz(e.getMessage(), true);
+    }
+
+    @Subscribe
+    public void onGuildLeave(GuildLeaveEvent e) {
+        lancuchy.remove(e.getGuild().getIdLong());
+    }
+
+    private void przetworz(Message message, boolean edycja) {
+        if (!message.isFromType(ChannelType.TEXT) || message.isWebhookMessage() || message.getAuthor().isBot()) return;
+        Member member = message.getMember();
+        if (member == null) return;
+        TextChannel channel = message.getTextChannel();
+        GuildConfig gc = gcCache.get(channel.getGuild().getId(), guildDao::get);
+        Lancuch lancuch = lancuch(channel.getGuild().getIdLong(), gc);
+        if (lancuch.kroki.length == 0 || !channel.canTalk() || !channel.getGuild().getSelfMember().canInteract(member))
+            return;
+        KontekstWiadomosci k = new KontekstWiadomosci(message, member, channel, gc, edycja,
+                m -> UserUtil.getPermlevel(m, guildDao, shardManager, PermLevel.OWNER));
+        boolean zareagowano = false;
+        for (int i = 0; i < lancuch.kroki.length; i++) {
+            if (zareagowano && !lancuch.stanowe[i]) continue;
+            try {
+                if (lancuch.kroki[i].sprawdz(k)) zareagowano = true;
+            } catch (Exception ex) {
+                logger.error("Sprawdzenie wiadomości {} nie powiodło się", message.getId(), ex);
+            }
+        }
+    }
+
+    private Lancuch lancuch(long guildId, GuildConfig gc) {
+        Lancuch lancuch = lancuchy.get(guildId);
+        // near cache zwraca ten sam obiekt, dopóki configu nie przeładuje - nowy obiekt = nowy config
+        if (lancuch != null && lancuch.gc == gc) return lancuch;
+        List<Sprawdzenie.Skompilowane> kroki = new ArrayList<>();
+        List<Boolean> stanowe = new ArrayList<>();
+        for (Sprawdzenie sprawdzenie : sprawdzenia) {
+            Sprawdzenie.Skompilowane krok = sprawdzenie.kompiluj(gc);
+            if (krok == null) continue;
+            kroki.add(krok);
+            stanowe.add(sprawdzenie.isStanowe());
+        }
+        boolean[] flagi = kroki.isEmpty() ? PUSTE_FLAGI : new boolean[kroki.size()];
+        for (int i = 0; i < flagi.length; i++) flagi[i] = stanowe.get(i);
+        lancuch = new Lancuch(gc, kroki.isEmpty() ? PUSTY : kroki.toArray(PUSTY), flagi);
+        lancuchy.put(guildId, lancuch);
+        return lancuch;
+    }
+
+    private static class Lancuch {
+        private final GuildConfig gc;
+        private final Sprawdzenie.Skompilowane[] kroki;
+        private final boolean[] stanowe;
+
+        private Lancuch(GuildConfig gc, Sprawdzenie.Skompilowane[] kroki, boolean[] stanowe) {
+            this.gc = gc;
+            this.kroki = kroki;
+            this.stanowe = stanowe;
+        }
+    }
+}
@@ -0,0 +1,57 @@
+/*
+ * Copyright (C) 2019-2021 FratikB0T Contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package pl.fratik.moderation.potok;
+
+import pl.fratik.core.entity.GuildConfig;
+
+import javax.annotation.Nullable;
+
+/**
+ * Jedno sprawdzenie w {@link PotokModeracji} (antiinvite, antiswear itp.).
+ * <p>
+ * Sprawdzenie jest kompilowane osobno dla każdego serwera, gdy zmieni się jego config - wszystko, co zależy
+ * tylko od configu (czy jest włączone, ignorowane kanały, listy słów), liczy się raz, a nie przy każdej wiadomości.
+ */
+public interface Sprawdzenie {
+    /**
+     * @return Względny koszt sprawdzenia - tańsze są wykonywane wcześniej
+     */
+    int getKoszt();
+
+    /**
+     * @return Sprawdzenie dla serwera z tym configiem albo {@code null}, jeżeli jest tam wyłączone
+     */
+    @Nullable
+    Skompilowane kompiluj(GuildConfig gc);
+
+    /**
+     * @return {@code true}, jeżeli sprawdzenie zbiera stan z każdej wiadomości (np. historię autora) i musi ją
+     * zobaczyć także wtedy, gdy wcześniejsze sprawdzenie już zareagowało
+     */
+    default boolean isStanowe() {
+        return false;
+    }
+
+    @FunctionalInterface
+    interface Skompilowane {
+        /**
+         * @return {@code true}, jeżeli sprawdzenie zareagowało (usunięta wiadomość, kara) i kolejne można pominąć
+         */
+        boolean sprawdz(KontekstWiadomosci k);
+    }
+}
@@ -0,0 +1,164 @@
+/*
+ * Copyright (C) 2019-2021 FratikB0T Contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package pl.fratik.moderation.utils;
+
+import java.text.Normalizer;
+import java.util.*;
+
+/**
+ * Automat Aho-Corasick - szuka wszystkich słów ze słownika w jednym przejściu po tekście, niezależnie od ich liczby.
+ * <p>
+ * Dopasowane są tylko całe słowa: przed i po dopasowaniu musi być początek/koniec tekstu albo znak, który nie
+ * jest literą ani cyfrą. Tekst i słowa są porównywane po {@link #normalizuj(char, boolean)} - małymi literami,
+ * a z normalizacją także bez znaków diakrytycznych i z leetspeakiem zamienionym na litery. Normalizacja zamienia
+ * znak na znak, więc nie wymaga osobnego przejścia ani kopii tekstu.
+ */
+public class AhoCorasick {
+    private static final int[] BRAK = new int[0];
+    private static final char[] BRAK_ZNAKOW = new char[0];
+    // małe litery z Latin-1 i Latin Extended-A bez diakrytyków, cyfry i symbole z leetspeaku jako litery
+    private static final char[] NORMALIZACJA = new char[0x250];
+
+    static {
+        for (char c = 0; c < NORMALIZACJA.length; c++)
+            NORMALIZACJA[c] = Normalizer.normalize(String.valueOf(c), Normalizer.Form.NFD).charAt(0);
+        // nie rozkładają się w NFD
+        NORMALIZACJA['ł'] = 'l';
+        NORMALIZACJA['ø'] = 'o';
+        NORMALIZACJA['đ'] = 'd';
+        NORMALIZACJA['0'] = 'o';
+        NORMALIZACJA['1'] = 'i';
+        NORMALIZACJA['3'] = 'e';
+        NORMALIZACJA['4'] = 'a';
+        NORMALIZACJA['5'] = 's';
+        NORMALIZACJA['7'] = 't';
+        NORMALIZACJA['@'] = 'a';
+        NORMALIZACJA['$'] = 's';
+    }
+
+    private final boolean normalizacja;
+    // stan -> posortowane znaki przejść i odpowiadające im stany
+    private final char[][] znaki;
+    private final int[][] cele;
+    private final int[] fail;
+    // długość słowa kończącego się w stanie (0 - żadne) i najbliższy stan po fail, w którym kończy się słowo
+    private final int[] dlugosc;
+    private final int[] wyjscie;
+
+    public AhoCorasick(Collection<String> slowa, boolean normalizacja) {
+        this.normalizacja = normalizacja;
+        List<TreeMap<Character, Integer>> trie = new ArrayList<>();
+        List<Integer> dl = new ArrayList<>();
+        trie.add(new TreeMap<>());
+        dl.add(0);
+        for (String slowo : slowa) {
+            String s = slowo.trim();
+            if (s.isEmpty()) continue;
+            int stan = 0;
+            for (int i = 0; i < s.length(); i++) {
+                char c = normalizuj(s.charAt(i), normalizacja);
+                Integer nast = trie.get(stan).get(c);
+                if (nast == null) {
+                    nast = trie.size();
+                    trie.add(new TreeMap<>());
+                    dl.add(0);
+                    trie.get(stan).put(c, nast);
+                }
+                stan = nast;
+            }
+            dl.set(stan, s.length());
+        }
+        int n = trie.size();
+        znaki = new char[n][];
+        cele = new int[n][];
+        fail = new int[n];
+        dlugosc = new int[n];
+        wyjscie = new int[n];
+        for (int s = 0; s < n; s++) {
+            TreeMap<Character, Integer> przejscia = trie.get(s);
+            znaki[s] = przejscia.isEmpty() ? BRAK_ZNAKOW : new char[przejscia.size()];
+            cele[s] = przejscia.isEmpty() ? BRAK : new int[przejscia.size()];
+            int i = 0;
+            for (Map.Entry<Character, Integer> e : przejscia.entrySet()) {
+                znaki[s][i] = e.getKey();
+                cele[s][i++] = e.getValue();
+            }
+            dlugosc[s] = dl.get(s);
+        }
+        // BFS - fail stanu to najdłuższy właściwy sufiks, który też jest w drzewie
+        Deque<Integer> kolejka = new ArrayDeque<>();
+        wyjscie[0] = -1;
+        for (int cel : cele[0]) {
+            fail[cel] = 0;
+            wyjscie[cel] = -1;
+            kolejka.add(cel);
+        }
+        while (!kolejka.isEmpty()) {
+            int s = kolejka.poll();
+            for (int i = 0; i < znaki[s].length; i++) {
+                int cel = cele[s][i];
+                int f = fail[s];
+                int nast;
+                while ((nast = przejscie(f, znaki[s][i])) < 0 && f != 0) f = fail[f];
+                fail[cel] = nast < 0 ? 0 : nast;
+                wyjscie[cel] = dlugosc[fail[cel]] > 0 ? fail[cel] : wyjscie[fail[cel]];
+                kolejka.add(cel);
+            }
+        }
+    }
+
+    /**
+     * @return Czy w tekście jest którekolwiek ze słów (jako całe słowo)
+     */
+    public boolean zawiera(CharSequence tekst) {
+        int stan = 0;
+        int n = tekst.length();
+        char nastepny = n == 0 ? 0 : normalizuj(tekst.charAt(0), normalizacja);
+        for (int i = 0; i < n; i++) {
+            char c = nastepny;
+            nastepny = i + 1 < n ? normalizuj(tekst.charAt(i + 1), normalizacja) : 0;
+            int nast;
+            while ((nast = przejscie(stan, c)) < 0 && stan != 0) stan = fail[stan];
+            stan = nast < 0 ? 0 : nast;
+            // słowo musi się kończyć na granicy - inaczej nie ma co sprawdzać dopasowań w tym miejscu
+            if (i + 1 < n && Character.isLetterOrDigit(nastepny)) continue;
+            for (int o = dlugosc[stan] > 0 ? stan : wyjscie[stan]; o >= 0; o = wyjscie[o]) {
+                int start = i - dlugosc[o] + 1;
+                if (start == 0 || !Character.isLetterOrDigit(normalizuj(tekst.charAt(start - 1), normalizacja)))
+                    return true;
+            }
+        }
+        return false;
+    }
+
+    public static char normalizuj(char c, boolean normalizacja) {
+        char male = Character.toLowerCase(c);
+        if (!normalizacja || male >= NORMALIZACJA.length) return male;
+        return NORMALIZACJA[male];
+    }
+
+    private int przejscie(int stan, char c) {
+        char[] z = znaki[stan];
+        if (z.length < 8) {
+            for (int i = 0; i < z.length; i++) if (z[i] == c) return cele[stan][i];
+            return -1;
+        }
+        int i = Arrays.binarySearch(z, c);
+        return i < 0 ? -1 : cele[stan][i];
+    }
+}
@@ -0,0 +1,257 @@
+/*
+ * Copyright (C) 2019-2021 FratikB0T Contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package pl.fratik.moderation.utils;
+
+import info.debatty.java.stringsimilarity.NormalizedLevenshtein;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * Ostatnie wiadomości każdego autora na każdym kanale, do wykrywania spamu.
+ * <p>
+ * Klucz to para (kanał, autor) jako {@code long}i, w segmentach z osobnymi blokadami (jak
+ * {@link pl.fratik.core.util.ExpiringLongMap}). Każdy autor ma bufor cykliczny na {@link #POJEMNOSC} wiadomości;
+ * wiadomości starsze niż okno czasowe są pomijane, a autorzy bez świeżych wiadomości wyrzucani przy przebudowie
+ * segmentu albo w {@link #purge(long)}.
+ * <p>
+ * Podobieństwo do poprzedniej wiadomości jest liczone raz, przy dodawaniu - Levenshtein tylko wtedy, gdy
+ * różnica długości nie wyklucza podobieństwa powyżej progu.
+ */
+public class HistoriaWiadomosci {
+    public static final int POJEMNOSC = 15;
+    private static final int SEGMENTY = 32;
+    private static final Pattern PING_REGEX = Pattern.compile("<@[!&]?([0-9]{17,18})>");
+    private static final NormalizedLevenshtein LEVENSHTEIN = new NormalizedLevenshtein();
+
+    private final long okno;
+    private final Segment[] segmenty = new Segment[SEGMENTY];
+
+    /**
+     * @param okno Po ilu ms wiadomość przestaje się liczyć
+     */
+    public HistoriaWiadomosci(long okno) {
+        this.okno = okno;
+        for (int i = 0; i < SEGMENTY; i++) segmenty[i] = new Segment();
+    }
+
+    /**
+     * Dopisuje wiadomość do historii autora na kanale.
+     *
+     * @param czulosc Próg podobieństwa (0-1), poniżej którego nie trzeba liczyć dokładnego podobieństwa
+     * @return Historia autora na kanale, już z tą wiadomością
+     */
+    public Historia dodaj(long kanal, long autor, String tresc, long teraz, double czulosc) {
+        long h = mix(kanal * 31 + autor);
+        Segment s = segmenty[(int) (h >>> 59)];
+        Historia historia;
+        synchronized (s) {
+            historia = s.pobierz(kanal, autor, h, teraz);
+        }
+        historia.dodaj(tresc, teraz, czulosc);
+        return historia;
+    }
+
+    /**
+     * Wyrzuca autorów, których wszystkie wiadomości są starsze niż okno.
+     */
+    public void purge(long teraz) {
+        for (Segment s : segmenty) {
+            synchronized (s) {
+                s.przebuduj(teraz, 0);
+            }
+        }
+    }
+
+    /**
+     * @return Podobieństwo Levenshteina albo {@code 0}, jeżeli na pewno jest poniżej {@code czulosc}
+     */
+    static float podobienstwo(String a, String b, double czulosc) {
+        if (a.equals(b)) return 1;
+        int max = Math.max(a.length(), b.length());
+        // odległość Levenshteina to co najmniej różnica długości - dokładne ograniczenie, bez fałszywych odrzuceń
+        if (1 - (double) Math.abs(a.length() - b.length()) / max < czulosc) return 0;
+        return (float) LEVENSHTEIN.similarity(a, b);
+    }
+
+    private static long mix(long key) {
+        // finalizer z MurmurHash3
+        key ^= key >>> 33;
+        key *= 0xff51afd7ed558ccdL;
+        key ^= key >>> 33;
+        key *= 0xc4ceb9fe1a85ec53L;
+        key ^= key >>> 33;
+        return key;
+    }
+
+    /**
+     * Bufor cykliczny ostatnich wiadomości jednego autora na jednym kanale. Metody przyjmują {@code ile} -
+     * ile najnowszych wiadomości brać pod uwagę.
+     */
+    public static class Historia {
+        private final long okno;
+        private final String[] tresci = new String[POJEMNOSC];
+        private final long[] czasy = new long[POJEMNOSC];
+        // podobieństwo do poprzedniej wiadomości, -1 - nie było z czym porównać
+        private final float[] podobienstwa = new float[POJEMNOSC];
+        private final boolean[] pingi = new boolean[POJEMNOSC];
+        private int glowa;
+        private int rozmiar;
+        private volatile long ostatnia;
+
+        private Historia(long okno) {
+            this.okno = okno;
+        }
+
+        private synchronized void dodaj(String tresc, long teraz, double czulosc) {
+            int poprzednia = indeks(0);
+            float podobienstwo = -1;
+            if (rozmiar > 0 && czasy[poprzednia] + okno > teraz && !tresc.isEmpty() && !tresci[poprzednia].isEmpty())
+                podobienstwo = HistoriaWiadomosci.podobienstwo(tresci[poprzednia], tresc, czulosc);
+            tresci[glowa] = tresc;
+            czasy[glowa] = teraz;
+            podobienstwa[glowa] = podobienstwo;
+            pingi[glowa] = PING_REGEX.matcher(tresc).matches();
+            glowa = (glowa + 1) % POJEMNOSC;
+            if (rozmiar < POJEMNOSC) rozmiar++;
+            ostatnia = teraz;
+        }
+
+        /**
+         * @return Ile wiadomości jest podobnych do poprzedniej co najmniej w {@code czulosc}
+         */
+        public synchronized int podobne(int ile, double czulosc, long teraz) {
+            int wynik = 0;
+            // najstarsza w oknie nie ma poprzedniej w oknie
+            for (int k = 0; k + 1 < Math.min(ile, rozmiar); k++) {
+                if (!swieza(indeks(k + 1), teraz)) break;
+                if (podobienstwa[indeks(k)] >= czulosc) wynik++;
+            }
+            return wynik;
+        }
+
+        /**
+         * @return Podobieństwa (0-1) wiadomości podobnych do poprzedniej, od najnowszej
+         */
+        public synchronized List<Double> podobienstwa(int ile, double czulosc, long teraz) {
+            List<Double> wynik = new ArrayList<>();
+            for (int k = 0; k + 1 < Math.min(ile, rozmiar); k++) {
+                if (!swieza(indeks(k + 1), teraz)) break;
+                if (podobienstwa[indeks(k)] >= czulosc) wynik.add((double) podobienstwa[indeks(k)]);
+            }
+            return wynik;
+        }
+
+        /**
+         * @return Ile wiadomości składa się tylko z pingu - liczone są tylko te, po których przyszła niepusta
+         */
+        public synchronized int pingi(int ile, long teraz) {
+            int wynik = 0;
+            for (int k = 1; k < Math.min(ile, rozmiar); k++) {
+                if (!swieza(indeks(k), teraz)) break;
+                if (pingi[indeks(k)] && !tresci[indeks(k - 1)].isEmpty()) wynik++;
+            }
+            return wynik;
+        }
+
+        /**
+         * @return Ile wiadomości ma najwyżej {@code dlugosc} znaków
+         */
+        public synchronized int krotkie(int ile, int dlugosc, long teraz) {
+            int wynik = 0;
+            for (int k = 0; k < Math.min(ile, rozmiar); k++) {
+                if (!swieza(indeks(k), teraz)) break;
+                if (tresci[indeks(k)].length() <= dlugosc) wynik++;
+            }
+            return wynik;
+        }
+
+        /**
+         * @return Niepuste treści wiadomości, od najstarszej
+         */
+        public synchronized List<String> tresci(int ile, long teraz) {
+            List<String> wynik = new ArrayList<>();
+            for (int k = Math.min(ile, rozmiar) - 1; k >= 0; k--) {
+                int i = indeks(k);
+                if (swieza(i, teraz) && !tresci[i].isEmpty()) wynik.add(tresci[i]);
+            }
+            return wynik;
+        }
+
+        private boolean swieza(int i, long teraz) {
+            return czasy[i] + okno > teraz;
+        }
+
+        /**
+         * @return Indeks k-tej najnowszej wiadomości (0 - najnowsza)
+         */
+        private int indeks(int k) {
+            return (glowa - 1 - k + 2 * POJEMNOSC) % POJEMNOSC;
+        }
+    }
+
+    private class Segment {
+        private long[] kanaly = new long[16];
+        private long[] autorzy = new long[16];
+        private Historia[] historie = new Historia[16];
+        private int zajete;
+
+        private Historia pobierz(long kanal, long autor, long h, long teraz) {
+            int maska = kanaly.length - 1;
+            int i = (int) h & maska;
+            while (historie[i] != null) {
+                if (kanaly[i] == kanal && autorzy[i] == autor) return historie[i];
+                i = (i + 1) & maska;
+            }
+            if ((zajete + 1) * 4 > kanaly.length * 3) {
+                przebuduj(teraz, 1);
+                return pobierz(kanal, autor, h, teraz);
+            }
+            kanaly[i] = kanal;
+            autorzy[i] = autor;
+            historie[i] = new Historia(okno);
+            zajete++;
+            return historie[i];
+        }
+
+        private void przebuduj(long teraz, int dodatkowe) {
+            int zywe = 0;
+            for (Historia historia : historie) if (historia != null && historia.ostatnia + okno > teraz) zywe++;
+            int rozmiar = 16;
+            while (rozmiar * 3 < (zywe + dodatkowe) * 8) rozmiar <<= 1;
+            long[] stareKanaly = kanaly;
+            long[] starzyAutorzy = autorzy;
+            Historia[] stareHistorie = historie;
+            kanaly = new long[rozmiar];
+            autorzy = new long[rozmiar];
+            historie = new Historia[rozmiar];
+            zajete = 0;
+            int maska = rozmiar - 1;
+            for (int j = 0; j < stareHistorie.length; j++) {
+                if (stareHistorie[j] == null || stareHistorie[j].ostatnia + okno <= teraz) continue;
+                int i = (int) mix(stareKanaly[j] * 31 + starzyAutorzy[j]) & maska;
+                while (historie[i] != null) i = (i + 1) & maska;
+                kanaly[i] = stareKanaly[j];
+                autorzy[i] = starzyAutorzy[j];
+                historie[i] = stareHistorie[j];
+                zajete++;
+            }
+        }
+    }
+}
@@ -0,0 +1,84 @@
+/*
+ * Copyright (C) 2019-2021 FratikB0T Contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package pl.fratik.moderation.utils;
+
+/**
+ * Indeks ID wiadomości -> miejsce w buforze kanału {@link MagazynWiadomosci}. Adresowanie otwarte na {@code long}ach,
+ * usuwanie przez przesunięcie wstecz zamiast znacznika usunięcia, więc łańcuchy sondowania zostają krótkie.
+ * Rozmiar jest stały - wpisów musi być mniej niż miejsc. ID {@code 0} jest zarezerwowane.
+ */
+class IndeksSlotow {
+    private final long[] klucze;
+    private final int[] sloty;
+    private final int maska;
+    private final int przesuniecie;
+
+    /**
+     * @param rozmiar Potęga dwójki, najlepiej dwa razy większa od liczby wpisów
+     */
+    IndeksSlotow(int rozmiar) {
+        if (Integer.bitCount(rozmiar) != 1) throw new IllegalArgumentException("rozmiar musi być potęgą dwójki");
+        klucze = new long[rozmiar];
+        sloty = new int[rozmiar];
+        maska = rozmiar - 1;
+        przesuniecie = 64 - Integer.numberOfTrailingZeros(rozmiar);
+    }
+
+    void dodaj(long id, int slot) {
+        int i = pozycja(id);
+        while (klucze[i] != 0) i = (i + 1) & maska;
+        klucze[i] = id;
+        sloty[i] = slot;
+    }
+
+    /**
+     * @return Miejsce w buforze albo {@code -1}
+     */
+    int znajdz(long id) {
+        for (int i = pozycja(id); klucze[i] != 0; i = (i + 1) & maska)
+            if (klucze[i] == id) return sloty[i];
+        return -1;
+    }
+
+    void usun(long id) {
+        int i = pozycja(id);
+        while (klucze[i] != id) {
+            if (klucze[i] == 0) return;
+            i = (i + 1) & maska;
+        }
+        int j = i;
+        while (true) {
+            j = (j + 1) & maska;
+            if (klucze[j] == 0) break;
+            int docelowa = pozycja(klucze[j]);
+            // wpis z j może zająć dziurę w i, jeżeli i leży między jego pozycją docelową a j
+            if (((j - docelowa) & maska) >= ((j - i) & maska)) {
+                klucze[i] = klucze[j];
+                sloty[i] = sloty[j];
+                i = j;
+            }
+        }
+        klucze[i] = 0;
+    }
+
+    int pozycja(long id) {
+        // młodsze bity snowflake'a to licznik i ID procesu - mieszamy ze znacznikiem czasu
+        long h = id ^ (id >>> 22);
+        h *= 0x9E3779B97F4A7C15L;
+        return (int) (h >>> przesuniecie);
+    }
+}
@@ -0,0 +1,179 @@
+/*
+ * Copyright (C) 2019-2021 FratikB0T Contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package pl.fratik.moderation.utils;
+
+import net.dv8tion.jda.api.entities.Guild;
+import net.dv8tion.jda.api.sharding.ShardManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import pl.fratik.core.metrics.Metryki;
+import pl.fratik.moderation.entity.Case;
+import pl.fratik.moderation.listeners.ModLogListener;
+
+import javax.annotation.Nullable;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Kolejka banów, wspólna dla autobana i anty-raida.
+ * <p>
+ * Na serwer w drodze do Discorda jest najwyżej {@link #W_LOCIE} banów naraz - następny idzie dopiero po odpowiedzi
+ * na poprzedni. Ratelimity (429) obsługuje JDA, ale przy tysiącach dołączeń jego kolejka puchłaby o tysiące akcji
+ * blokujących inne zapytania serwera; tutaj czekają tylko ID. Ten sam użytkownik nie trafi do kolejki drugi raz,
+ * dopóki poprzedni ban nie wróci.
+ */
+public class KolejkaBanow {
+    private static final Logger logger = LoggerFactory.getLogger(KolejkaBanow.class);
+    private static final int W_LOCIE = 2;
+
+    private final ShardManager shardManager;
+    private final ModLogListener modLogListener;
+    private final Map<Long, KolejkaSerwera> kolejki = new ConcurrentHashMap<>();
+    private final LongAdder oczekujace = new LongAdder();
+    private final LongAdder zbanowani = new LongAdder();
+    private final LongAdder nieudane = new LongAdder();
+
+    public KolejkaBanow(ShardManager shardManager, ModLogListener modLogListener) {
+        this.shardManager = shardManager;
+        this.modLogListener = modLogListener;
+        Metryki.gauge("fratikbot_ban_queue_depth", oczekujace::sum);
+        Metryki.licznik("fratikbot_ban_queue_bans_total", zbanowani::sum, "result", "ok");
+        Metryki.licznik("fratikbot_ban_queue_bans_total", nieudane::sum, "result", "error");
+    }
+
+    /**
+     * Dodaje ban do kolejki.
+     *
+     * @param aCase Case do modlogów - trafia do {@link ModLogListener#getKnownCases()} tuż przed wysłaniem bana
+     * @return {@code false}, jeżeli ten użytkownik już czeka na ban na tym serwerze
+     */
+    public boolean zbanuj(Guild guild, long userId, String powod, @Nullable Case aCase) {
+        Wpis wpis = new Wpis(guild.getIdLong(), userId, powod, aCase);
+        boolean[] dodano = new boolean[1];
+        kolejki.compute(wpis.guildId, (id, k) -> {
+            if (k == null) k = new KolejkaSerwera();
+            if (k.czekajacy.add(userId)) {
+                k.oczekujace.add(wpis);
+                dodano[0] = true;
+            }
+            return k;
+        });
+        if (!dodano[0]) return false;
+        oczekujace.increment();
+        wyslij(wpis.guildId);
+        return true;
+    }
+
+    private void wyslij(long guildId) {
+        // pętla zamiast rekurencji - przy braku uprawnień cała kolejka odpada od razu, bez odpowiedzi Discorda
+        while (true) {
+            List<Wpis> doWyslania = new ArrayList<>(W_LOCIE);
+            kolejki.computeIfPresent(guildId, (id, k) -> {
+                while (k.wLocie < W_LOCIE && !k.oczekujace.isEmpty()) {
+                    doWyslania.add(k.oczekujace.poll());
+                    k.wLocie++;
+                }
+                return k.wLocie == 0 && k.oczekujace.isEmpty() ? null : k;
+            });
+            if (doWyslania.isEmpty()) return;
+            boolean wyslane = true;
+            for (Wpis wpis : doWyslania) {
+                oczekujace.decrement();
+                if (!wyslij(wpis)) {
+                    zwolnij(wpis);
+                    wyslane = false;
+                }
+            }
+            if (wyslane) return;
+        }
+    }
+
+    private boolean wyslij(Wpis wpis) {
+        Guild guild = shardManager.getGuildById(wpis.guildId);
+        if (guild == null) return false;
+        try {
+            if (wpis.aCase != null)
+                modLogListener.getKnownCases().put(ModLogListener.generateKey(wpis.userId, wpis.guildId), wpis.aCase);
+            guild.ban(Long.toUnsignedString(wpis.userId), 0, wpis.powod).queue(ok -> {
+                zbanowani.increment();
+                zakoncz(wpis);
+            }, err -> {
+                nieudane.increment();
+                logger.debug("Nie udało się zbanować {} na {}", wpis.userId, wpis.guildId, err);
+                zapomnijCase(wpis);
+                zakoncz(wpis);
+            });
+            return true;
+        } catch (Exception e) {
+            // brak uprawnień itp. - JDA rzuca jeszcze przed wysłaniem
+            nieudane.increment();
+            logger.debug("Nie udało się zbanować {} na {}", wpis.userId, wpis.guildId, e);
+            zapomnijCase(wpis);
+            return false;
+        }
+    }
+
+    private void zapomnijCase(Wpis wpis) {
+        // bez bana nie przyjdzie GuildBanEvent, a case wisiałby do ręcznego bana w ciągu 30s
+        if (wpis.aCase != null)
+            modLogListener.getKnownCases().remove(ModLogListener.generateKey(wpis.userId, wpis.guildId), wpis.aCase);
+    }
+
+    /**
+     * Wyrejestrowuje metryki - przy przeładowaniu modułu nowa kolejka rejestruje własne.
+     */
+    public void shutdown() {
+        Metryki.usun("fratikbot_ban_queue_depth");
+        Metryki.usun("fratikbot_ban_queue_bans_total", "result", "ok");
+        Metryki.usun("fratikbot_ban_queue_bans_total", "result", "error");
+    }
+
+    private void zakoncz(Wpis wpis) {
+        zwolnij(wpis);
+        wyslij(wpis.guildId);
+    }
+
+    private void zwolnij(Wpis wpis) {
+        kolejki.computeIfPresent(wpis.guildId, (id, k) -> {
+            k.wLocie--;
+            k.czekajacy.remove(wpis.userId);
+            return k.wLocie == 0 && k.oczekujace.isEmpty() ? null : k;
+        });
+    }
+
+    private static class KolejkaSerwera {
+        private final Queue<Wpis> oczekujace = new ArrayDeque<>();
+        private final Set<Long> czekajacy = new HashSet<>();
+        private int wLocie;
+    }
+
+    private static class Wpis {
+        private final long guildId;
+        private final long userId;
+        private final String powod;
+        private final Case aCase;
+
+        private Wpis(long guildId, long userId, String powod, Case aCase) {
+            this.guildId = guildId;
+            this.userId = userId;
+            this.powod = powod;
+            this.aCase = aCase;
+        }
+    }
+}
@@ -0,0 +1,61 @@
+/*
+ * Copyright (C) 2019-2021 FratikB0T Contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package pl.fratik.moderation.utils;
+
+/**
+ * Liczba zdarzeń w ostatnim oknie czasu, w kubełkach o stałej szerokości - pamięć nie zależy od liczby zdarzeń.
+ * Okno przesuwa się co kubełek, więc wynik jest przybliżony z dokładnością do jednego kubełka.
+ */
+public class LicznikOkienkowy {
+    private final long szerokosc;
+    private final int[] liczby;
+    private final long[] numery;
+
+    /**
+     * @param kubelki   Ile kubełków ma okno
+     * @param szerokosc Szerokość kubełka w ms
+     */
+    public LicznikOkienkowy(int kubelki, long szerokosc) {
+        this.szerokosc = szerokosc;
+        liczby = new int[kubelki];
+        numery = new long[kubelki];
+    }
+
+    /**
+     * Liczy zdarzenie.
+     *
+     * @return Liczba zdarzeń w oknie, razem z tym
+     */
+    public synchronized int dodaj(long teraz) {
+        long numer = teraz / szerokosc;
+        int i = (int) (numer % liczby.length);
+        if (numery[i] != numer) {
+            numery[i] = numer;
+            liczby[i] = 0;
+        }
+        liczby[i]++;
+        return suma(teraz);
+    }
+
+    public synchronized int suma(long teraz) {
+        long numer = teraz / szerokosc;
+        int suma = 0;
+        for (int i = 0; i < liczby.length; i++) if (numer - numery[i] < liczby.length) suma += liczby[i];
+        return suma;
+    }
+}
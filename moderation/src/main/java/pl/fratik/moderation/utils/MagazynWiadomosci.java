@@ -0,0 +1,253 @@
+/*
+ * Copyright (C) 2019-2021 FratikB0T Contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package pl.fratik.moderation.utils;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import pl.fratik.core.cache.RedisCappedList;
+import pl.fratik.moderation.entity.LogMessage;
+
+import javax.annotation.Nullable;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Ostatnie wiadomości każdego kanału, do logów edycji i usunięć.
+ * <p>
+ * Kanał ma bufor cykliczny na {@link #POJEMNOSC} wiadomości i {@link IndeksSlotow} ID -> miejsce w buforze,
+ * więc dopisanie, znalezienie, podmiana i usunięcie nie przechodzą po całym buforze.
+ * Kanały, w których nic się nie działo przez {@link #TTL} sekund, są zapominane, a powyżej {@link #MAKS_KANALOW}
+ * kanałów - te najdawniej używane, więc w pamięci jest najwyżej {@code MAKS_KANALOW * POJEMNOSC} wiadomości.
+ * <p>
+ * Z {@link RedisCappedList} każda zmiana jest zapisywana też w Redisie, a kanał, którego nie ma w pamięci, jest
+ * z niego wczytywany - wiadomości przetrwają restart. Redis jest tylko kopią, wszystkie odczyty idą z pamięci.
+ */
+public class MagazynWiadomosci {
+    public static final int POJEMNOSC = 100;
+    public static final int TTL = 900;
+    public static final int MAKS_KANALOW = 5000;
+    private static final Logger logger = LoggerFactory.getLogger(MagazynWiadomosci.class);
+    private static final long SPRZATANIE = TimeUnit.MINUTES.toMillis(1);
+
+    private final Map<Long, Kanal> kanaly = new ConcurrentHashMap<>();
+    private final AtomicLong ostatnieSprzatanie = new AtomicLong(System.currentTimeMillis());
+    private final AtomicBoolean wyrzucanie = new AtomicBoolean();
+    @Nullable private final RedisCappedList<LogMessage> redis;
+
+    public MagazynWiadomosci(@Nullable RedisCappedList<LogMessage> redis) {
+        this.redis = redis;
+    }
+
+    /**
+     * Dopisuje wiadomość, jeżeli jeszcze jej nie ma.
+     *
+     * @return {@code false}, jeżeli wiadomość już była
+     */
+    public boolean dodaj(LogMessage wiadomosc) {
+        Kanal kanal = kanal(wiadomosc.getChannelIdLong());
+        synchronized (kanal) {
+            if (kanal.znajdz(wiadomosc.getIdLong()) >= 0) return false;
+            kanal.dodaj(wiadomosc);
+        }
+        if (redis != null) {
+            try {
+                redis.dodaj(Long.toUnsignedString(wiadomosc.getChannelIdLong()), wiadomosc);
+            } catch (Exception e) {
+                logger.error("Redis nie odpowiada prawidłowo!", e);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Podmienia wiadomość na nową wersję; jeżeli jej nie było, dopisuje ją.
+     *
+     * @return Poprzednia wersja albo {@code null}, jeżeli jej nie było
+     */
+    @Nullable
+    public LogMessage zastap(LogMessage wiadomosc) {
+        Kanal kanal = kanal(wiadomosc.getChannelIdLong());
+        LogMessage stara;
+        synchronized (kanal) {
+            int slot = kanal.znajdz(wiadomosc.getIdLong());
+            stara = slot >= 0 ? kanal.bufor[slot] : null;
+            if (slot >= 0) kanal.bufor[slot] = wiadomosc;
+            else kanal.dodaj(wiadomosc);
+        }
+        if (redis != null) {
+            try {
+                String klucz = Long.toUnsignedString(wiadomosc.getChannelIdLong());
+                if (stara != null) redis.zastap(klucz, stara, wiadomosc);
+                else redis.dodaj(klucz, wiadomosc);
+            } catch (Exception e) {
+                logger.error("Redis nie odpowiada prawidłowo!", e);
+            }
+        }
+        return stara;
+    }
+
+    @Nullable
+    public LogMessage pobierz(long kanalId, long id) {
+        Kanal kanal = kanal(kanalId);
+        synchronized (kanal) {
+            int slot = kanal.znajdz(id);
+            return slot >= 0 ? kanal.bufor[slot] : null;
+        }
+    }
+
+    /**
+     * @return Usunięta wiadomość albo {@code null}, jeżeli jej nie było
+     */
+    @Nullable
+    public LogMessage usun(long kanalId, long id) {
+        Kanal kanal = kanal(kanalId);
+        LogMessage stara;
+        synchronized (kanal) {
+            stara = kanal.usun(id);
+        }
+        if (stara != null && redis != null) {
+            try {
+                redis.usun(Long.toUnsignedString(kanalId), stara);
+            } catch (Exception e) {
+                logger.error("Redis nie odpowiada prawidłowo!", e);
+            }
+        }
+        return stara;
+    }
+
+    /**
+     * @return Wiadomości kanału, od najstarszej
+     */
+    public List<LogMessage> wiadomosci(long kanalId) {
+        Kanal kanal = kanal(kanalId);
+        synchronized (kanal) {
+            List<LogMessage> wynik = new ArrayList<>(kanal.rozmiar);
+            for (int k = kanal.rozmiar - 1; k >= 0; k--) {
+                LogMessage m = kanal.bufor[(kanal.glowa - 1 - k + 2 * POJEMNOSC) % POJEMNOSC];
+                if (m != null) wynik.add(m);
+            }
+            return wynik;
+        }
+    }
+
+    private Kanal kanal(long kanalId) {
+        long teraz = System.currentTimeMillis();
+        long ostatnie = ostatnieSprzatanie.get();
+        if (teraz - ostatnie > SPRZATANIE && ostatnieSprzatanie.compareAndSet(ostatnie, teraz)) sprzataj(teraz);
+        Kanal kanal = kanaly.get(kanalId);
+        if (kanal == null) {
+            // wczytywane poza mapą, żeby zapytanie do Redisa nie blokowało innych kanałów
+            Kanal nowy = wczytaj(kanalId);
+            nowy.ostatniDostep = teraz;
+            kanal = kanaly.putIfAbsent(kanalId, nowy);
+            if (kanal == null) {
+                kanal = nowy;
+                if (kanaly.size() > MAKS_KANALOW && wyrzucanie.compareAndSet(false, true)) {
+                    try {
+                        wyrzucNajstarsze();
+                    } finally {
+                        wyrzucanie.set(false);
+                    }
+                }
+            }
+        }
+        kanal.ostatniDostep = teraz;
+        return kanal;
+    }
+
+    /**
+     * Zapomina 10% najdawniej używanych kanałów - z zapasem, żeby nie sortować przy każdym nowym kanale.
+     * Z Redisem nic nie ginie, kanał zostanie wczytany przy następnym użyciu.
+     */
+    private void wyrzucNajstarsze() {
+        List<Long> czasy = new ArrayList<>(kanaly.size());
+        for (Kanal k : kanaly.values()) czasy.add(k.ostatniDostep);
+        int doWyrzucenia = czasy.size() - MAKS_KANALOW * 9 / 10;
+        if (doWyrzucenia <= 0) return;
+        Collections.sort(czasy);
+        long granica = czasy.get(doWyrzucenia - 1);
+        kanaly.values().removeIf(k -> k.ostatniDostep <= granica);
+    }
+
+    private Kanal wczytaj(long kanalId) {
+        Kanal kanal = new Kanal();
+        if (redis == null) return kanal;
+        List<LogMessage> zapisane;
+        try {
+            zapisane = redis.pobierz(Long.toUnsignedString(kanalId));
+        } catch (Exception e) {
+            logger.error("Redis nie odpowiada prawidłowo!", e);
+            return kanal;
+        }
+        // podmiana dopisuje nową wersję na końcu, a LREM mógł nie trafić - wygrywa ostatnia wersja, kolejność wg ID
+        Map<Long, LogMessage> wgId = new TreeMap<>(Long::compareUnsigned);
+        for (LogMessage m : zapisane) if (m != null) wgId.put(m.getIdLong(), m);
+        int pominiete = Math.max(wgId.size() - POJEMNOSC, 0);
+        for (LogMessage m : wgId.values()) {
+            if (pominiete-- > 0) continue;
+            kanal.dodaj(m);
+        }
+        return kanal;
+    }
+
+    private void sprzataj(long teraz) {
+        long granica = teraz - TimeUnit.SECONDS.toMillis(TTL);
+        kanaly.values().removeIf(k -> k.ostatniDostep < granica);
+    }
+
+    private static class Kanal {
+        // indeks: dwa razy większy od bufora, żeby sondowanie było krótkie
+        private static final int INDEKS = 256;
+
+        private final LogMessage[] bufor = new LogMessage[POJEMNOSC];
+        private final IndeksSlotow indeks = new IndeksSlotow(INDEKS);
+        private int glowa;
+        private int rozmiar;
+        private volatile long ostatniDostep;
+
+        private void dodaj(LogMessage wiadomosc) {
+            LogMessage wyrzucana = bufor[glowa];
+            if (wyrzucana != null) indeks.usun(wyrzucana.getIdLong());
+            bufor[glowa] = wiadomosc;
+            indeks.dodaj(wiadomosc.getIdLong(), glowa);
+            glowa = (glowa + 1) % POJEMNOSC;
+            if (rozmiar < POJEMNOSC) rozmiar++;
+        }
+
+        /**
+         * @return Miejsce wiadomości w buforze albo {@code -1}
+         */
+        private int znajdz(long id) {
+            return indeks.znajdz(id);
+        }
+
+        @Nullable
+        private LogMessage usun(long id) {
+            int slot = znajdz(id);
+            if (slot < 0) return null;
+            LogMessage stara = bufor[slot];
+            // dziura w buforze zostaje do nadpisania
+            bufor[slot] = null;
+            indeks.usun(id);
+            return stara;
+        }
+    }
+}
@@ -0,0 +1,96 @@
+/*
+ * Copyright (C) 2019-2021 FratikB0T Contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package pl.fratik.moderation.utils;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+public class AhoCorasickTest {
+
+    @Test
+    public void wholeWordsOnly() {
+        AhoCorasick ac = ac(false, "kot");
+        assertTrue(ac.zawiera("kot"));
+        assertTrue(ac.zawiera("KOT"));
+        assertTrue(ac.zawiera("to kot."));
+        assertTrue(ac.zawiera("(kot)"));
+        assertFalse(ac.zawiera("ala ma kota"));
+        assertFalse(ac.zawiera("skot"));
+        assertFalse(ac.zawiera("kot2"));
+        assertFalse(ac.zawiera(""));
+    }
+
+    @Test
+    public void overlappingPatterns() {
+        AhoCorasick ac = ac(false, "he", "she", "his", "hers");
+        assertTrue(ac.zawiera("she"));
+        assertTrue(ac.zawiera("hers"));
+        assertTrue(ac.zawiera("ushe he"));
+        assertFalse(ac.zawiera("ushers"));
+        assertFalse(ac.zawiera("shehis"));
+    }
+
+    @Test
+    public void failTransitions() {
+        // po "ab" brak "c" - przejście przez fail do "b" i dalej "bc", ale "bc" nie zaczyna się na granicy
+        assertFalse(ac(false, "abd", "bc").zawiera("abc"));
+        assertTrue(ac(false, "abd", "bc").zawiera("ab bc"));
+        assertTrue(ac(false, "abd", "bc").zawiera("abd"));
+    }
+
+    @Test
+    public void shorterWordOnOutputChain() {
+        // "a-b" nie jest całym słowem w "xa-b", ale jego sufiks "b" jest
+        assertTrue(ac(false, "a-b", "b").zawiera("xa-b"));
+        assertFalse(ac(false, "a-b").zawiera("xa-b"));
+    }
+
+    @Test
+    public void normalization() {
+        AhoCorasick ac = ac(true, "kurwa");
+        assertTrue(ac.zawiera("KÚRWA"));
+        assertTrue(ac.zawiera("kurw@"));
+        assertTrue(ac.zawiera("ku2 kurw4!"));
+        assertFalse(ac.zawiera("ku.rwa"));
+        assertFalse(ac(false, "kurwa").zawiera("kurw@"));
+    }
+
+    @Test
+    public void polishLetters() {
+        assertTrue(ac(false, "łoś").zawiera("ŁOŚ"));
+        assertFalse(ac(false, "łoś").zawiera("los"));
+        assertTrue(ac(true, "łoś").zawiera("los"));
+        // cyfra po normalizacji to litera - "1" nie jest granicą słowa
+        assertFalse(ac(true, "los").zawiera("los1"));
+    }
+
+    @Test
+    public void emptyWordsIgnored() {
+        AhoCorasick ac = ac(false, "", "  ");
+        assertFalse(ac.zawiera("cokolwiek"));
+        assertFalse(ac.zawiera(" "));
+        assertFalse(ac.zawiera(""));
+    }
+
+    private static AhoCorasick ac(boolean normalizacja, String... slowa) {
+        return new AhoCorasick(Arrays.asList(slowa), normalizacja);
+    }
+}
@@ -0,0 +1,143 @@
+/*
+ * Copyright (C) 2019-2021 FratikB0T Contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package pl.fratik.moderation.utils;
+
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class IndeksSlotowTest {
+
+    @Test
+    public void findAfterAdd() {
+        IndeksSlotow indeks = new IndeksSlotow(16);
+        indeks.dodaj(5, 3);
+        indeks.dodaj(6, 4);
+        assertEquals(3, indeks.znajdz(5));
+        assertEquals(4, indeks.znajdz(6));
+        assertEquals(-1, indeks.znajdz(7));
+    }
+
+    @Test
+    public void deleteFromCollisionChain() {
+        IndeksSlotow indeks = new IndeksSlotow(16);
+        long[] id = kolidujace(indeks, 0, 4);
+        for (int i = 0; i < id.length; i++) indeks.dodaj(id[i], i);
+        indeks.usun(id[0]);
+        assertEquals(-1, indeks.znajdz(id[0]));
+        for (int i = 1; i < id.length; i++) assertEquals(i, indeks.znajdz(id[i]));
+        indeks.usun(id[2]);
+        assertEquals(1, indeks.znajdz(id[1]));
+        assertEquals(3, indeks.znajdz(id[3]));
+        // ponowne dodanie po usunięciu
+        indeks.dodaj(id[0], 10);
+        indeks.dodaj(id[2], 12);
+        assertEquals(10, indeks.znajdz(id[0]));
+        assertEquals(1, indeks.znajdz(id[1]));
+        assertEquals(12, indeks.znajdz(id[2]));
+        assertEquals(3, indeks.znajdz(id[3]));
+    }
+
+    @Test
+    public void deleteMissingIsNoop() {
+        IndeksSlotow indeks = new IndeksSlotow(16);
+        long[] id = kolidujace(indeks, 3, 3);
+        indeks.dodaj(id[0], 0);
+        indeks.dodaj(id[1], 1);
+        indeks.usun(id[2]);
+        indeks.usun(id[2]);
+        assertEquals(0, indeks.znajdz(id[0]));
+        assertEquals(1, indeks.znajdz(id[1]));
+    }
+
+    @Test
+    public void chainWrapsAroundTable() {
+        IndeksSlotow indeks = new IndeksSlotow(16);
+        // łańcuch zaczyna się na ostatnim miejscu i zawija na początek tablicy
+        long[] koniec = kolidujace(indeks, 15, 3);
+        long[] poczatek = kolidujace(indeks, 0, 1);
+        indeks.dodaj(koniec[0], 0);
+        indeks.dodaj(koniec[1], 1);
+        indeks.dodaj(poczatek[0], 2);
+        indeks.dodaj(koniec[2], 3);
+        indeks.usun(koniec[0]);
+        assertEquals(1, indeks.znajdz(koniec[1]));
+        assertEquals(2, indeks.znajdz(poczatek[0]));
+        assertEquals(3, indeks.znajdz(koniec[2]));
+        indeks.usun(koniec[1]);
+        assertEquals(2, indeks.znajdz(poczatek[0]));
+        assertEquals(3, indeks.znajdz(koniec[2]));
+    }
+
+    @Test
+    public void ringBufferUsage() {
+        // tak jak kanał: bufor na 100 wiadomości, najstarsza wypada, część jest usuwana i dodawana ponownie
+        int pojemnosc = 100;
+        IndeksSlotow indeks = new IndeksSlotow(256);
+        long[] bufor = new long[pojemnosc];
+        Map<Long, Integer> wzor = new HashMap<>();
+        Random random = new Random(42);
+        long snowflake = 800_000_000_000_000_000L;
+        int glowa = 0;
+        for (int krok = 0; krok < 100_000; krok++) {
+            int akcja = random.nextInt(10);
+            if (akcja < 7) {
+                snowflake += (random.nextInt(50) + 1L) << 22;
+                if (bufor[glowa] != 0) {
+                    indeks.usun(bufor[glowa]);
+                    wzor.remove(bufor[glowa]);
+                }
+                bufor[glowa] = snowflake;
+                indeks.dodaj(snowflake, glowa);
+                wzor.put(snowflake, glowa);
+                glowa = (glowa + 1) % pojemnosc;
+            } else {
+                int slot = random.nextInt(pojemnosc);
+                long id = bufor[slot];
+                if (id == 0) continue;
+                indeks.usun(id);
+                wzor.remove(id);
+                if (akcja == 9) {
+                    indeks.dodaj(id, slot);
+                    wzor.put(id, slot);
+                } else {
+                    bufor[slot] = 0;
+                }
+            }
+            for (Map.Entry<Long, Integer> e : wzor.entrySet())
+                assertEquals((int) e.getValue(), indeks.znajdz(e.getKey()));
+        }
+        for (long id = snowflake + 1; id < snowflake + 1000; id++) assertEquals(-1, indeks.znajdz(id));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void sizeMustBePowerOfTwo() {
+        new IndeksSlotow(100);
+    }
+
+    private static long[] kolidujace(IndeksSlotow indeks, int pozycja, int ile) {
+        long[] wynik = new long[ile];
+        int n = 0;
+        for (long id = 1; n < ile; id++) if (indeks.pozycja(id) == pozycja) wynik[n++] = id;
+        return wynik;
+    }
+}
@@ -36,6 +36,7 @@ import pl.fratik.core.manager.ManagerBazyDanych;
 import pl.fratik.core.manager.ManagerKomend;
 import pl.fratik.core.moduly.Modul;
 import pl.fratik.core.tlumaczenia.Tlumaczenia;
+import pl.fratik.core.util.Blokujacy;
 import pl.fratik.core.util.EventWaiter;
 import pl.fratik.music.commands.*;
 import pl.fratik.music.entity.QueueDao;
@@ -129,6 +130,7 @@ public class Module implements Modul {
     }
 
     @Subscribe
+    @Blokujacy
     private void onConnected(ConnectedEvent e) {
         if (managerMuzyki == null) return;
         managerMuzyki.loadQueues();
@@ -32,6 +32,7 @@ import org.jsoup.nodes.TextNode;
 import org.jsoup.select.Elements;
 import pl.fratik.core.Ustawienia;
 import pl.fratik.core.command.CommandContext;
+import pl.fratik.core.command.ExecutionType;
 import pl.fratik.core.entity.Uzycie;
 import pl.fratik.core.util.*;
 import pl.fratik.music.managers.NowyManagerMuzyki;
@@ -51,6 +52,8 @@ public class TekstCommand extends MusicCommand {
         this.eventBus = eventBus;
         this.managerMuzyki = managerMuzyki;
         name = "tekst";
+        executionType = ExecutionType.IO;
+        timeout = 60;
         requireConnection = false;
         uzycie = new Uzycie("tytul", "string", false);
         allowPermLevelChange = false;
@@ -26,6 +26,7 @@ import net.dv8tion.jda.api.entities.Message;
 import net.dv8tion.jda.api.entities.VoiceChannel;
 import org.jetbrains.annotations.NotNull;
 import pl.fratik.core.command.CommandContext;
+import pl.fratik.core.command.ExecutionType;
 import pl.fratik.core.entity.GuildDao;
 import pl.fratik.core.entity.Uzycie;
 import pl.fratik.core.util.EventWaiter;
@@ -58,6 +59,7 @@ public class YoutubeCommand extends MusicCommand {
         name = "youtube";
         aliases = new String[] {"yt", "youtube", "szukajwyt", "graj", "puść"};
         uzycie = new Uzycie("tytul", "string", true);
+        executionType = ExecutionType.IO;
     }
 
     @Override
@@ -0,0 +1,101 @@
+/*
+ * Copyright (C) 2019-2021 FratikB0T Contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package pl.fratik.punkty;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.IntSupplier;
+
+/**
+ * Punkty członków aktywnych w tym procesie wraz z deltami jeszcze niezapisanymi w Redisie.
+ * <p>
+ * Każdy serwer ma własną mapę liczników, a każdy członek własny licznik - naliczanie nie blokuje
+ * ani innych serwerów, ani innych członków. Licznik trzyma aktualną sumę punktów i wartość,
+ * która ostatnio trafiła do Redisa; różnica między nimi to delta do zrzucenia.
+ */
+class AkumulatorPunktow {
+    private final Map<String, ConcurrentHashMap<String, Licznik>> serwery = new ConcurrentHashMap<>();
+
+    /**
+     * Dolicza punkty członkowi.
+     *
+     * @param baza Skąd wziąć obecne punkty, jeżeli członek nie ma jeszcze licznika (Redis/baza danych)
+     * @return Suma punktów przed doliczeniem
+     */
+    int dodaj(String guildId, String userId, int przyrost, IntSupplier baza) {
+        ConcurrentHashMap<String, Licznik> serwer = serwery.computeIfAbsent(guildId, k -> new ConcurrentHashMap<>());
+        Licznik licznik = serwer.get(userId);
+        if (licznik == null) {
+            // ładujemy poza computeIfAbsent, żeby nie blokować mapy na czas zapytania
+            Licznik nowy = new Licznik(baza.getAsInt());
+            licznik = serwer.putIfAbsent(userId, nowy);
+            if (licznik == null) licznik = nowy;
+        }
+        return licznik.suma.getAndAdd(przyrost);
+    }
+
+    /**
+     * @return Aktualne punkty członka albo {@code null}, jeżeli nie ma licznika
+     */
+    Integer get(String guildId, String userId) {
+        Map<String, Licznik> serwer = serwery.get(guildId);
+        if (serwer == null) return null;
+        Licznik licznik = serwer.get(userId);
+        return licznik == null ? null : licznik.suma.get();
+    }
+
+    /**
+     * Przekazuje do {@code zapis} niezapisane delty (serwer -> (członek -> delta)) i, jeżeli zapis
+     * się uda, oznacza je jako zapisane. Punkty doliczone w trakcie zostaną przy następnym zrzucie.
+     */
+    void zrzuc(Consumer<Map<String, Map<String, Integer>>> zapis) {
+        Map<Licznik, Integer> zrzucane = new HashMap<>();
+        Map<String, Map<String, Integer>> delty = new HashMap<>();
+        serwery.forEach((guildId, serwer) -> serwer.forEach((userId, licznik) -> {
+            int suma = licznik.suma.get();
+            if (suma == licznik.zapisane) return;
+            zrzucane.put(licznik, suma);
+            delty.computeIfAbsent(guildId, k -> new HashMap<>()).put(userId, suma - licznik.zapisane);
+        }));
+        if (delty.isEmpty()) return;
+        zapis.accept(delty);
+        zrzucane.forEach((licznik, suma) -> licznik.zapisane = suma);
+    }
+
+    /**
+     * Usuwa liczniki, które nie mają nic do zrzucenia. Wywoływać, gdy nikt nie dolicza punktów.
+     */
+    void wyczyscZapisane() {
+        serwery.values().forEach(serwer -> serwer.values().removeIf(l -> l.suma.get() == l.zapisane));
+        serwery.values().removeIf(Map::isEmpty);
+    }
+
+    private static class Licznik {
+        private final AtomicInteger suma;
+        // zmieniane tylko przy zrzucie, a zrzuty nie idą równolegle
+        private volatile int zapisane;
+
+        private Licznik(int baza) {
+            suma = new AtomicInteger(baza);
+            zapisane = baza;
+        }
+    }
+}
@@ -34,6 +34,8 @@ import org.slf4j.LoggerFactory;
 import pl.fratik.core.Ustawienia;
 import pl.fratik.core.cache.Cache;
 import pl.fratik.core.cache.RedisCacheManager;
+import pl.fratik.core.cache.RedisCounterMap;
+import pl.fratik.core.cache.RedisRanking;
 import pl.fratik.core.entity.GuildConfig;
 import pl.fratik.core.entity.GuildDao;
 import pl.fratik.core.entity.UserConfig;
@@ -43,7 +45,8 @@ import pl.fratik.core.event.PluginMessageEvent;
 import pl.fratik.core.manager.ManagerKomend;
 import pl.fratik.core.tlumaczenia.Language;
 import pl.fratik.core.tlumaczenia.Tlumaczenia;
-import pl.fratik.core.util.MapUtil;
+import pl.fratik.core.util.Blokujacy;
+import pl.fratik.core.util.BucketedExpiringSet;
 import pl.fratik.core.util.NetworkUtil;
 import pl.fratik.core.util.TimeUtil;
 import pl.fratik.core.util.UserUtil;
@@ -54,17 +57,17 @@ import redis.clients.jedis.exceptions.JedisException;
 
 import java.io.IOException;
 import java.util.*;
-import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 public class LicznikPunktow {
     private static final String BUTTON_PREFIX = "Punkty::Statystyki:";
     private static final int BUTTON_PREFIX_LENGTH = BUTTON_PREFIX.length();
+    private static final int RANKING_TTL = 600;
 
     private static LicznikPunktow instance;
     private final Logger log = LoggerFactory.getLogger(LicznikPunktow.class);
@@ -76,14 +79,20 @@ public class LicznikPunktow {
     private final EventBus eventBus;
     private final ManagerKomend managerKomend;
     private final ShardManager shardManager;
-    private final ArrayList<String> cooldowns = new ArrayList<>();
+    private final BucketedExpiringSet<String> cooldowns = new BucketedExpiringSet<>(5, TimeUnit.SECONDS, 5);
+    private final AkumulatorPunktow akumulator = new AkumulatorPunktow();
+    // naliczanie (read) vs. zrzut do DB (write) - samo naliczanie się nawzajem nie blokuje
+    private final ReentrantReadWriteLock zrzutLock = new ReentrantReadWriteLock();
     private boolean lock;
     private boolean lockedBySetter;
     private static final Pattern URLPATTERN = Pattern.compile("(https?://(?:www\\.|(?!www))[a-zA-Z0-9][a-zA-Z0-9-]+[a-zA-Z0-9]\\." +
             "[^\\s]{2,}|www\\.[a-zA-Z0-9][a-zA-Z0-9-]+[a-zA-Z0-9]\\.[^\\s]{2,}|https?://(?:www\\.|(?!www))[a-zA-Z0-9]" +
             "\\.[^\\s]{2,}|www\\.[a-zA-Z0-9]\\.[^\\s]{2,})");
     private final Random random = new Random();
-    private static Cache<ConcurrentHashMap<String, Integer>> cache;
+    // serwer -> (członek -> punkty niezapisane jeszcze w DB)
+    private final RedisCounterMap delty;
+    // serwer -> (użytkownik -> punkty zapisane w DB); null, jeżeli lustro rankingów jest wyłączone
+    private final RedisRanking rankingi;
     private final Cache<GuildConfig> gcCache;
     private final Cache<UserConfig> ucCache;
     LicznikPunktow(GuildDao guildDao, UserDao userDao, PunktyDao punktyDao, ManagerKomend managerKomend, EventBus eventBus, Tlumaczenia tlumaczenia, ShardManager shardManager, RedisCacheManager redisCacheManager) {
@@ -97,37 +106,21 @@ public class LicznikPunktow {
         instance = this; //NOSONAR
         this.tlumaczenia = tlumaczenia;
         threadPool.scheduleWithFixedDelay(this::emptyCache, 5, 5, TimeUnit.MINUTES);
-        cache = redisCacheManager.new CacheRetriever<ConcurrentHashMap<String, Integer>>(){}.setCanHandleErrors(true).getCache(-1);
-        gcCache = redisCacheManager.new CacheRetriever<GuildConfig>(){}.getCache();
+        threadPool.scheduleWithFixedDelay(this::zrzucDoRedisa, 10, 10, TimeUnit.SECONDS);
+        delty = redisCacheManager.getCounterMap("punkty");
+        rankingi = Ustawienia.instance.rankingPunktowWRedisie ? redisCacheManager.getRanking("punkty") : null;
+        gcCache = redisCacheManager.getGuildConfigCache();
         ucCache = redisCacheManager.new CacheRetriever<UserConfig>(){}.getCache();
     }
 
     public static int getPunkty(Member member) {
-        ConcurrentHashMap<String, Integer> mapa;
-        try {
-            mapa = LicznikPunktow.cache.getIfPresent(member.getGuild().getId());
-        } catch (JedisException ex) {
-            mapa = null;
-        }
-        if (mapa == null || mapa.get(member.getUser().getId()) == null) {
-            PunktyRow pkt = LicznikPunktow.instance.punktyDao.get(member);
-            return pkt.getPunkty();
-        }
-        return mapa.get(member.getUser().getId());
+        return getPunkty(member.getUser().getId(), member.getGuild().getId());
     }
 
     private static int getPunkty(String userId, String guildId) {
-        ConcurrentHashMap<String, Integer> mapa;
-        try {
-            mapa = LicznikPunktow.cache.getIfPresent(guildId);
-        } catch (JedisException e) {
-            mapa = null;
-        }
-        if (mapa == null || mapa.get(userId) == null) {
-            PunktyRow pkt = LicznikPunktow.instance.punktyDao.get(userId + "-" + guildId);
-            return pkt.getPunkty();
-        }
-        return mapa.get(userId);
+        Integer zAkumulatora = LicznikPunktow.instance.akumulator.get(guildId, userId);
+        if (zAkumulatora != null) return zAkumulatora;
+        return LicznikPunktow.instance.getPunktyZBazy(userId, guildId);
     }
 
     public static int getLvl(Member member) {
@@ -146,38 +139,90 @@ public class LicznikPunktow {
     public static Map<String, Integer> getTotalPoints(User user) {
         Map<String, Integer> dbDane = LicznikPunktow.instance.punktyDao.getTotalPoints(user);
         Map<String, Integer> sumaKoncowa = new HashMap<>();
+        Map<String, Long> deltySerwerow;
+        try {
+            deltySerwerow = LicznikPunktow.instance.delty.getAll(dbDane.keySet(), user.getId());
+        } catch (JedisException e) {
+            deltySerwerow = Collections.emptyMap();
+        }
+        Map<String, Long> finalDeltySerwerow = deltySerwerow;
         dbDane.forEach((idS, pkt) -> {
-            ConcurrentHashMap<String, Integer> daneZcache;
-            try {
-                daneZcache = LicznikPunktow.cache.getIfPresent(idS);
-            } catch (JedisException e) {
-                daneZcache = null;
-            }
-            if (daneZcache == null || daneZcache.get(user.getId()) == null) {
-                sumaKoncowa.put(idS, pkt);
+            Integer zAkumulatora = LicznikPunktow.instance.akumulator.get(idS, user.getId());
+            if (zAkumulatora != null) {
+                sumaKoncowa.put(idS, zAkumulatora);
                 return;
             }
-            sumaKoncowa.put(idS, daneZcache.get(user.getId()));
+            sumaKoncowa.put(idS, pkt + finalDeltySerwerow.getOrDefault(idS, 0L).intValue());
         });
         return sumaKoncowa;
     }
 
     public static Map<String, Integer> getAllUserPunkty() {
-        Map<String, Integer> dbDane = MapUtil.sortByValueAsc(LicznikPunktow.instance.punktyDao.getAllUserPunkty());
-        Map<String, Integer> fajnal = new HashMap<>();
-        dbDane.forEach((id, pkt) -> {
-            if (fajnal.size() != 10) fajnal.put(id, pkt);
-        });
-        return fajnal;
+        return LicznikPunktow.instance.punktyDao.getTopka(PunktyRow.Typ.USER, 10);
     }
 
     public static Map<String, Integer> getAllGuildPunkty() {
-        Map<String, Integer> dbDane = MapUtil.sortByValueAsc(LicznikPunktow.instance.punktyDao.getAllGuildPunkty());
-        Map<String, Integer> fajnal = new HashMap<>();
-        dbDane.forEach((id, pkt) -> {
-            if (fajnal.size() != 10) fajnal.put(id, pkt);
-        });
-        return fajnal;
+        return LicznikPunktow.instance.punktyDao.getTopka(PunktyRow.Typ.GUILD, 10);
+    }
+
+    public static Map<String, Integer> getTopkaPunktow(Guild serwer, long strona) {
+        Map<String, Long> zRedisa = LicznikPunktow.instance.stronaRankingu(serwer.getId(), strona);
+        if (zRedisa == null) return LicznikPunktow.instance.punktyDao.getTopkaPunktow(serwer, strona);
+        Map<String, Integer> odp = new LinkedHashMap<>();
+        zRedisa.forEach((id, pkt) -> odp.put(id, pkt.intValue()));
+        return odp;
+    }
+
+    public static Map<String, Integer> getTopkaPoziomow(Guild serwer, long strona) {
+        Map<String, Long> zRedisa = LicznikPunktow.instance.stronaRankingu(serwer.getId(), strona);
+        if (zRedisa == null) return LicznikPunktow.instance.punktyDao.getTopkaPoziomow(serwer, strona);
+        Map<String, Integer> odp = new LinkedHashMap<>();
+        for (Map.Entry<String, Long> e : zRedisa.entrySet()) {
+            int poziom = calculateLvl(e.getValue().intValue());
+            if (poziom == 0) break;
+            odp.put(e.getKey(), poziom);
+        }
+        return odp;
+    }
+
+    /**
+     * @return Miejsce członka w rankingu punktów serwera (1 - najwięcej punktów)
+     */
+    public static long getMiejsce(Member member) {
+        int punkty = getPunkty(member);
+        if (LicznikPunktow.instance.rankingi != null) {
+            try {
+                Long miejsce = LicznikPunktow.instance.rankingi.miejsce(member.getGuild().getId(), punkty);
+                if (miejsce != null) return miejsce;
+            } catch (JedisException e) {
+                LicznikPunktow.instance.log.warn("Nie udało się odczytać rankingu z Redisa", e);
+            }
+        }
+        return LicznikPunktow.instance.punktyDao.getMiejsceNaSerwerze(member.getGuild().getId(), punkty);
+    }
+
+    /**
+     * Strona rankingu serwera z lustra w Redisie; przy pierwszym odczycie ranking jest ładowany z DB.
+     *
+     * @return użytkownik -> punkty albo {@code null}, jeżeli trzeba pytać DB
+     */
+    private Map<String, Long> stronaRankingu(String guildId, long strona) {
+        if (rankingi == null) return null;
+        try {
+            Map<String, Long> odp = rankingi.zakres(guildId, strona * 10, 10, RANKING_TTL);
+            if (odp != null) return odp;
+            // pod blokadą odczytu - zrzut do DB nie może dopisać delt między odczytem z DB a załadowaniem rankingu
+            zrzutLock.readLock().lock();
+            try {
+                rankingi.zastap(guildId, punktyDao.getPunktyCzlonkow(guildId), RANKING_TTL);
+            } finally {
+                zrzutLock.readLock().unlock();
+            }
+            return rankingi.zakres(guildId, strona * 10, 10, RANKING_TTL);
+        } catch (JedisException e) {
+            log.warn("Nie udało się odczytać rankingu z Redisa", e);
+            return null;
+        }
     }
 
     @Subscribe
@@ -208,69 +253,66 @@ public class LicznikPunktow {
                 }
                 return;
             }
-            synchronized (this) {
-                ConcurrentHashMap<String, Integer> mapa = cache.getIfPresent(event.getGuild().getId());
-                if (mapa == null) {
-                    log.debug("Nie znaleziono HashMapy dla {} w cache, biorę z DB", event.getAuthor());
-                    PunktyRow pkt = punktyDao.get(event.getMember());
-                    int punkty = pkt.getPunkty();
-                    ConcurrentHashMap<String, Integer> hmap = new ConcurrentHashMap<>();
-                    hmap.put(event.getAuthor().getId(), punkty);
-                    log.debug("Wstawiam do cache: {} -> {} -> {}", event.getGuild(), event.getAuthor(), punkty);
-                    cache.put(event.getGuild().getId(), hmap);
-                    mapa = hmap;
-                }
-                Integer punktyRaw = mapa.get(event.getAuthor().getId());
-                int punkty = 0;
-                if (punktyRaw == null) {
-                    log.debug("Nie znaleziono w hashmapie danych dla {}, biorę z DB", event.getAuthor());
-                    PunktyRow pkt = punktyDao.get(event.getMember());
-                    punkty = pkt.getPunkty();
-                    mapa.put(event.getAuthor().getId(), punkty);
-                    log.debug("Wstawiam do cache: {} -> {} -> {}", event.getGuild(), event.getAuthor(), punkty);
-                    cache.put(event.getGuild().getId(), mapa);
-                }
-                if (punktyRaw != null) punkty = punktyRaw;
-                int lvlOld = calculateLvl(punkty, 0);
-                int przyrost = 1;
-                if (!event.getMessage().getAttachments().isEmpty())
-                    przyrost = getPktFromFileSize(event.getMessage().getAttachments().get(0).getSize());
-                Matcher matcher = URLPATTERN.matcher(event.getMessage().getContentRaw());
-                if (matcher.find()) {
-                    String url = matcher.group();
-                    try {
-                        String rawHeader;
-                        if (url.startsWith("http")) {
-                            NetworkUtil.ContentInformation ci = NetworkUtil.contentInformation(url);
-                            if (ci == null || ci.getCode() != 200) {
-                                throw new IOException("null");
-                            }
-                            rawHeader = ci.getContentLength();
-                        } else {
-                            log.debug("{} ({}): znaleziono url {}, ignoruje przez brak protokołu", event.getAuthor(), event.getGuild(), url);
-                            rawHeader = null;
-                        }
-                        if (rawHeader == null) {
-                            log.debug("{} ({}): znaleziono url {}, content-length nieznany", event.getAuthor(), event.getGuild(), url);
-                        } else {
-                            log.debug("{} ({}): znaleziono url {}, content-length: {}", event.getAuthor(), event.getGuild(), url, rawHeader);
-                            int byteLength = Integer.parseInt(rawHeader);
-                            przyrost = getPktFromFileSize(byteLength);
-                        }
-                    } catch (NumberFormatException | IOException e) {
-                        log.debug("{} ({}): znaleziono url {}, nie udało się połączyć", event.getAuthor(), event.getGuild(), url);
-                    }
+            if (!cooldowns.add(cooldownKey(event.getMember()))) {
+                log.debug("{} ({}) jest na cooldownie!", event.getAuthor(), event.getGuild());
+                return;
+            }
+            int przyrost = 1;
+            if (!event.getMessage().getAttachments().isEmpty())
+                przyrost = getPktFromFileSize(event.getMessage().getAttachments().get(0).getSize());
+            Matcher matcher = URLPATTERN.matcher(event.getMessage().getContentRaw());
+            if (matcher.find()) {
+                String url = matcher.group();
+                if (url.startsWith("http")) {
+                    // zapytanie do obcego serwera potrafi trwać sekundy, więc nie robimy go w pasie serwera
+                    int przyrostZPliku = przyrost;
+                    threadPool.execute(() -> nalicz(event, przyrostZUrl(event, url, przyrostZPliku)));
+                    return;
                 }
-                log.debug("{} na serwerze {} ma {} + {} punktów (lvl {}), zapisuje do cache",
-                        event.getAuthor(), event.getGuild(), punkty, przyrost, calculateLvl(punkty, przyrost));
-                mapa.put(event.getAuthor().getId(), punkty + przyrost);
-                cache.put(event.getGuild().getId(), mapa);
-                if (lvlOld != calculateLvl(punkty, przyrost))
-                    eventBus.post(new LvlupEvent(event.getMember(), punkty + przyrost, lvlOld, calculateLvl(punkty, przyrost),
-                            event.getChannel()));
-                setCooldown(event.getMember(), true);
-                threadPool.schedule(() -> setCooldown(event.getMember(), false), 5, TimeUnit.SECONDS);
+                log.debug("{} ({}): znaleziono url {}, ignoruje przez brak protokołu", event.getAuthor(), event.getGuild(), url);
+                log.debug("{} ({}): znaleziono url {}, content-length nieznany", event.getAuthor(), event.getGuild(), url);
             }
+            nalicz(event, przyrost);
+        } catch (JedisException ex) {
+            log.error("Redis nie odpowiada - nie można zapisać punktów!", ex);
+        }
+    }
+
+    private int przyrostZUrl(MessageReceivedEvent event, String url, int przyrost) {
+        try {
+            NetworkUtil.ContentInformation ci = NetworkUtil.contentInformation(url);
+            if (ci == null || ci.getCode() != 200) {
+                throw new IOException("null");
+            }
+            String rawHeader = ci.getContentLength();
+            if (rawHeader == null) {
+                log.debug("{} ({}): znaleziono url {}, content-length nieznany", event.getAuthor(), event.getGuild(), url);
+                return przyrost;
+            }
+            log.debug("{} ({}): znaleziono url {}, content-length: {}", event.getAuthor(), event.getGuild(), url, rawHeader);
+            return getPktFromFileSize(Integer.parseInt(rawHeader));
+        } catch (NumberFormatException | IOException e) {
+            log.debug("{} ({}): znaleziono url {}, nie udało się połączyć", event.getAuthor(), event.getGuild(), url);
+            return przyrost;
+        }
+    }
+
+    private void nalicz(MessageReceivedEvent event, int przyrost) {
+        try {
+            int punkty;
+            zrzutLock.readLock().lock();
+            try {
+                punkty = akumulator.dodaj(event.getGuild().getId(), event.getAuthor().getId(), przyrost,
+                        () -> getPunktyZBazy(event.getAuthor().getId(), event.getGuild().getId()));
+            } finally {
+                zrzutLock.readLock().unlock();
+            }
+            int lvlOld = calculateLvl(punkty, 0);
+            log.debug("{} na serwerze {} ma {} + {} punktów (lvl {})",
+                    event.getAuthor(), event.getGuild(), punkty, przyrost, calculateLvl(punkty, przyrost));
+            if (lvlOld != calculateLvl(punkty, przyrost))
+                eventBus.post(new LvlupEvent(event.getMember(), punkty + przyrost, lvlOld, calculateLvl(punkty, przyrost),
+                        event.getChannel()));
         } catch (JedisException ex) {
             log.error("Redis nie odpowiada - nie można zapisać punktów!", ex);
         }
@@ -395,41 +437,43 @@ public class LicznikPunktow {
                 return;
             }
             lock = true;
-            if (cache.asMap().size() == 0) {
-                lock = false;
+            zrzutLock.writeLock().lock();
+            zrzucDoRedisa();
+            Map<String, Map<String, Long>> doZrzucenia = delty.drain();
+            if (doZrzucenia.isEmpty()) {
+                akumulator.wyczyscZapisane();
                 return;
             }
-            HashMap<User, Integer> punktyUzytkownika = new HashMap<>();
-            HashMap<Guild, Integer> punktySerwera = new HashMap<>();
-            log.debug("Zrzucam cache do DB, {} członków do zrzucenia...", cache.asMap().size());
-            cache.asMap().forEach((key, map) -> {
-                String[] keysplitted = key.split(":");
-                Guild guild = shardManager.getGuildById(keysplitted[keysplitted.length - 1]);
-                if (guild == null) return;
-                AtomicInteger pktSerwera = new AtomicInteger();
-                log.debug("Zrzucam {} danych z serwera {}...", map.size(), guild);
-                map.forEach((id, pkt) -> {
-                    pktSerwera.addAndGet(pkt);
-                    PunktyRow punktyRow = punktyDao.get(id + "-" + guild.getId());
-                    punktySerwera.merge(guild, pkt - punktyRow.getPunkty(), Integer::sum);
-                    punktyUzytkownika.merge(shardManager.retrieveUserById(id).complete(), pkt - punktyRow.getPunkty(), Integer::sum);
-                    punktyRow.setPunkty(pkt);
-                    punktyDao.save(punktyRow);
+            Map<String, Integer> punktyCzlonkow = new HashMap<>();
+            Map<String, Integer> punktyUzytkownika = new HashMap<>();
+            Map<String, Integer> punktySerwera = new HashMap<>();
+            Map<String, Map<String, Long>> zapisane = new HashMap<>();
+            log.debug("Zrzucam punkty do DB, {} serwerów do zrzucenia...", doZrzucenia.size());
+            doZrzucenia.forEach((guildId, map) -> {
+                if (shardManager.getGuildById(guildId) == null) return;
+                zapisane.put(guildId, map);
+                map.forEach((userId, pkt) -> {
+                    punktyCzlonkow.put(userId + "-" + guildId, pkt.intValue());
+                    punktyUzytkownika.merge(userId, pkt.intValue(), Integer::sum);
+                    punktySerwera.merge(guildId, pkt.intValue(), Integer::sum);
                 });
             });
-            log.debug("Zrzucam informacje o punktach użytkowników: {} użytkownik(ów) do zrzucenia...", punktyUzytkownika.size());
-            punktyUzytkownika.forEach((user, pkt) -> {
-                PunktyRow punktyRow = punktyDao.get(user);
-                punktyRow.setPunkty(punktyRow.getPunkty() + pkt);
-                punktyDao.save(punktyRow);
-            });
-            log.debug("Zrzucam informacje o punktach serwerów: {} serwer(ów) do zrzucenia...", punktySerwera.size());
-            punktySerwera.forEach((guild, pkt) -> {
-                PunktyRow punktyRow = punktyDao.get(guild);
-                punktyRow.setPunkty(punktyRow.getPunkty() + pkt);
-                punktyDao.save(punktyRow);
-            });
-            cache.invalidateAll();
+            try {
+                punktyDao.dodajPunkty(punktyCzlonkow, punktyUzytkownika, punktySerwera);
+            } catch (RuntimeException e) {
+                // delty już zeszły z Redisa - oddajemy je, żeby nie przepadły
+                delty.incrementAll(doZrzucenia);
+                throw e;
+            }
+            if (rankingi != null) {
+                try {
+                    rankingi.zwieksz(zapisane);
+                } catch (JedisException ex) {
+                    // punkty są już w DB, nieaktualne rankingi po prostu wygasną
+                    log.warn("Nie udało się zaktualizować rankingów w Redisie", ex);
+                }
+            }
+            akumulator.wyczyscZapisane();
             log.debug("Gotowe! Zajęło {}.", TimeUtil.getDurationBreakdown(
                     TimeUnit.MILLISECONDS.convert(System.nanoTime() - start, TimeUnit.NANOSECONDS), true));
         } catch (JedisException ex) {
@@ -438,18 +482,33 @@ public class LicznikPunktow {
             log.error("Wystąpił błąd przy zrzucaniu punktów", e);
             Sentry.capture(e);
         } finally {
+            if (zrzutLock.isWriteLockedByCurrentThread()) zrzutLock.writeLock().unlock();
             lock = false;
         }
     }
 
-    private void setCooldown(Member member, boolean set) {
-        if (set) cooldowns.add(member.getUser().getId() + "." + member.getGuild().getId());
-        else cooldowns.remove(member.getUser().getId() + "." + member.getGuild().getId());
+    private static String cooldownKey(Member member) {
+        return member.getUser().getId() + "." + member.getGuild().getId();
     }
 
     private boolean getCooldown(Member member) {
         if (member == null) return false;
-        return cooldowns.contains(member.getUser().getId() + "." + member.getGuild().getId());
+        return cooldowns.contains(cooldownKey(member));
+    }
+
+    private int getPunktyZBazy(String userId, String guildId) {
+        return punktyDao.get(userId + "-" + guildId).getPunkty() + (int) delty.get(guildId, userId);
+    }
+
+    private synchronized void zrzucDoRedisa() {
+        try {
+            akumulator.zrzuc(delty::incrementAll);
+        } catch (JedisException ex) {
+            log.error("Redis nie odpowiada - punkty zostaną zrzucone później", ex);
+        } catch (Exception e) {
+            log.error("Wystąpił błąd przy zrzucaniu punktów do Redisa", e);
+            Sentry.capture(e);
+        }
     }
 
     void shutdown() {
@@ -461,12 +520,9 @@ public class LicznikPunktow {
     public void onPluginMessage(PluginMessageEvent e) {
         if (!e.getTo().equals("punkty")) return;
         LoggerFactory.getLogger(getClass()).info("Wiadomość od {}: {}", e.getFrom(), e.getMessage());
-        if (e.getMessage().equals("punktyDao-getAllGuildPunkty:")) {
-            e.setResponse(punktyDao.getAllGuildPunkty());
-            return;
-        }
-        if (e.getMessage().equals("punktyDao-getAllUserPunkty:")) {
-            e.setResponse(punktyDao.getAllUserPunkty());
+        if (e.getMessage().startsWith("punktyDao-getMiejsce:")) {
+            PunktyRow row = punktyDao.get(e.getMessage().replace("punktyDao-getMiejsce:", ""));
+            if (row.getTyp() != null) e.setResponse(punktyDao.getMiejsce(row));
             return;
         }
         if (e.getMessage().startsWith("punktyDao-getPunkty:")) {
@@ -488,6 +544,7 @@ public class LicznikPunktow {
 
     @SuppressWarnings("ConstantConditions") // mIgHt Be NuLl - stfu, sprawdzam przez isFromGuild
     @Subscribe
+    @Blokujacy
     @AllowConcurrentEvents
     public void onButtonClick(ButtonClickEvent e) {
         if (!e.isFromGuild()) return;
@@ -503,6 +560,13 @@ public class LicznikPunktow {
                 tlumaczenia.getLanguage(e.getMember()), mem)).queue();
     }
 
+    /**
+     * Usuwa rankingi z Redisa, np. po wyczyszczeniu punktów.
+     */
+    public void wyczyscRankingi() {
+        if (rankingi != null) rankingi.wyczysc();
+    }
+
     public void setLock(boolean lock) {
         this.lockedBySetter = lock;
         this.lock = lock;
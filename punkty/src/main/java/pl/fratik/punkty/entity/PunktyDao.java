@@ -20,6 +20,8 @@ package pl.fratik.punkty.entity;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.common.eventbus.EventBus;
 import gg.amy.pgorm.PgMapper;
+import gg.amy.pgorm.PgType;
+import gg.amy.pgorm.Query;
 import net.dv8tion.jda.api.sharding.ShardManager;
 import net.dv8tion.jda.api.entities.Guild;
 import net.dv8tion.jda.api.entities.Member;
@@ -29,7 +31,11 @@ import pl.fratik.core.entity.Dao;
 import pl.fratik.core.event.DatabaseUpdateEvent;
 import pl.fratik.core.manager.ManagerBazyDanych;
 
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
 import java.util.*;
+import java.util.function.Consumer;
 
 public class PunktyDao implements Dao<PunktyRow> {
 
@@ -46,30 +52,43 @@ public class PunktyDao implements Dao<PunktyRow> {
 
     @Override
     public PunktyRow get(String id) {
-        return mapper.load(id).orElseGet(() -> {
-            PunktyRow punktyRow;
-            if (id.split("-").length == 2) {
-                punktyRow = newObject(id, PunktyRow.Typ.MEMBER);
-            } else {
-                Optional<User> userOptional;
-                Optional<Guild> guildOptional;
-                try {
-                    User user = shardManager.retrieveUserById(id).complete();
-                    userOptional = Optional.ofNullable(user);
-                } catch (Exception e) {
-                    userOptional = Optional.empty();
-                }
-                try {
-                    Guild guild = shardManager.getGuildById(id);
-                    guildOptional = Optional.ofNullable(guild);
-                } catch (Exception e) {
-                    guildOptional = Optional.empty();
-                }
-                PunktyRow.Typ user = userOptional.isPresent() ? PunktyRow.Typ.USER : null;
-                punktyRow = newObject(id, guildOptional.isPresent() ? PunktyRow.Typ.GUILD : user);
+        return mapper.load(id).orElseGet(() -> noweDane(id));
+    }
+
+    @Override
+    public Map<String, PunktyRow> getMany(Collection<String> ids) {
+        Map<String, PunktyRow> znalezione = mapper.loadMany(ids);
+        Map<String, PunktyRow> wynik = new LinkedHashMap<>();
+        for (String id : ids) {
+            PunktyRow punktyRow = znalezione.get(id);
+            wynik.put(id, punktyRow != null ? punktyRow : noweDane(id));
+        }
+        return wynik;
+    }
+
+    private PunktyRow noweDane(String id) {
+        PunktyRow punktyRow;
+        if (id.split("-").length == 2) {
+            punktyRow = newObject(id, PunktyRow.Typ.MEMBER);
+        } else {
+            Optional<User> userOptional;
+            Optional<Guild> guildOptional;
+            try {
+                User user = shardManager.retrieveUserById(id).complete();
+                userOptional = Optional.ofNullable(user);
+            } catch (Exception e) {
+                userOptional = Optional.empty();
             }
-            return punktyRow;
-        });
+            try {
+                Guild guild = shardManager.getGuildById(id);
+                guildOptional = Optional.ofNullable(guild);
+            } catch (Exception e) {
+                guildOptional = Optional.empty();
+            }
+            PunktyRow.Typ user = userOptional.isPresent() ? PunktyRow.Typ.USER : null;
+            punktyRow = newObject(id, guildOptional.isPresent() ? PunktyRow.Typ.GUILD : user);
+        }
+        return punktyRow;
     }
 
     public PunktyRow get(User user) {
@@ -93,6 +112,18 @@ public class PunktyDao implements Dao<PunktyRow> {
         return mapper.delete(inst.getId()).orElse(false);
     }
 
+    /**
+     * Usuwa wszystkie punkty jednym zapytaniem, zamiast DELETE na każdy wiersz.
+     */
+    public void deleteAll() {
+        LoggerFactory.getLogger(getClass()).debug("Usuwam wszystkie dane z DB: {}", mapper.getTableName());
+        mapper.getStore().sql(con -> {
+            try (PreparedStatement ps = con.prepareStatement("TRUNCATE " + mapper.getTableName() + ";")) {
+                ps.execute();
+            }
+        });
+    }
+
     @Override
     public void save(PunktyRow toCos) {
         ObjectMapper objMapper = new ObjectMapper();
@@ -104,32 +135,112 @@ public class PunktyDao implements Dao<PunktyRow> {
         eventBus.post(new DatabaseUpdateEvent(toCos));
     }
 
+    /**
+     * Dolicza punkty wielu wierszom naraz - jedno zapytanie na typ wiersza, w jednej transakcji.
+     * Brakujące wiersze są tworzone.
+     *
+     * @param czlonkowie  id członka ({@code userId-guildId}) -> ile punktów dodać
+     * @param uzytkownicy id użytkownika -> ile punktów dodać
+     * @param serwery     id serwera -> ile punktów dodać
+     */
+    public void dodajPunkty(Map<String, Integer> czlonkowie, Map<String, Integer> uzytkownicy,
+                            Map<String, Integer> serwery) {
+        LoggerFactory.getLogger(getClass()).debug("Doliczam punkty w DB: {} członków, {} użytkowników, {} serwerów",
+                czlonkowie.size(), uzytkownicy.size(), serwery.size());
+        mapper.getStore().sql(con -> {
+            boolean autoCommit = con.getAutoCommit();
+            con.setAutoCommit(false);
+            try {
+                dodajPunkty(con, PunktyRow.Typ.MEMBER, czlonkowie);
+                dodajPunkty(con, PunktyRow.Typ.USER, uzytkownicy);
+                dodajPunkty(con, PunktyRow.Typ.GUILD, serwery);
+                con.commit();
+            } catch (SQLException | RuntimeException e) {
+                con.rollback();
+                throw e;
+            } finally {
+                con.setAutoCommit(autoCommit);
+            }
+        });
+    }
+
+    private void dodajPunkty(Connection con, PunktyRow.Typ typ, Map<String, Integer> delty) throws SQLException {
+        if (delty.isEmpty()) return;
+        String tabela = mapper.getTableName();
+        String pk = mapper.getPrimaryKeyName();
+        String[] id = new String[delty.size()];
+        String[] guildId = new String[delty.size()];
+        String[] userId = new String[delty.size()];
+        Integer[] punkty = new Integer[delty.size()];
+        int i = 0;
+        for (Map.Entry<String, Integer> e : delty.entrySet()) {
+            PunktyRow wzor = newObject(e.getKey(), typ);
+            id[i] = wzor.getId();
+            guildId[i] = wzor.getGuildId();
+            userId[i] = wzor.getUserId();
+            punkty[i] = e.getValue();
+            i++;
+        }
+        try (PreparedStatement ps = con.prepareStatement("INSERT INTO " + tabela + " (" + pk + ", data) " +
+                "SELECT d.id, jsonb_build_object('id', d.id, 'guildId', d.guild_id, 'userId', d.user_id, " +
+                "'typ', ?::text, 'punkty', d.delta) " +
+                "FROM unnest(?::text[], ?::text[], ?::text[], ?::int[]) AS d(id, guild_id, user_id, delta) " +
+                "ON CONFLICT (" + pk + ") DO UPDATE SET data = jsonb_set(" + tabela + ".data, '{punkty}', " +
+                "to_jsonb(COALESCE((" + tabela + ".data->>'punkty')::int, 0) + (EXCLUDED.data->>'punkty')::int));")) {
+            ps.setString(1, typ.name());
+            ps.setArray(2, con.createArrayOf("text", id));
+            ps.setArray(3, con.createArrayOf("text", guildId));
+            ps.setArray(4, con.createArrayOf("text", userId));
+            ps.setArray(5, con.createArrayOf("int4", punkty));
+            ps.executeUpdate();
+        }
+    }
+
     private PunktyRow newObject(String id, PunktyRow.Typ typ) {
         return new PunktyRow(id, typ);
     }
 
-    public LinkedHashMap<String, Integer> getAllUserPunkty() { //NOSONAR
+    public void forEach(Consumer<PunktyRow> consumer) {
+        mapper.forEach(consumer);
+    }
+
+    /**
+     * Najlepsze wiersze danego typu, od największej liczby punktów - sortuje i ucina Postgres.
+     *
+     * @return id -> punkty
+     */
+    public LinkedHashMap<String, Integer> getTopka(PunktyRow.Typ typ, int limit) { //NOSONAR
         LinkedHashMap<String, Integer> odp = new LinkedHashMap<>();
-        List<PunktyRow> data = mapper.loadManyBySubkey("data->>'typ'", PunktyRow.Typ.USER.name());
-        data.sort(Comparator.comparingInt(PunktyRow::getPunkty).reversed());
-        for (PunktyRow punkt : data) {
-            odp.put(punkt.getId(), punkt.getPunkty());
-        }
+        mapper.query().where("typ", Query.Op.EQ, typ.name()).orderBy("punkty", PgType.BIGINT, true).limit(limit)
+                .forEach(row -> odp.put(row.getId(), row.getPunkty()));
         return odp;
     }
 
-    public LinkedHashMap<String, Integer> getAllGuildPunkty() { //NOSONAR
-        List<PunktyRow> data = mapper.loadManyBySubkey("data->>'typ'", PunktyRow.Typ.GUILD.name());
-        data.sort(Comparator.comparingInt(PunktyRow::getPunkty).reversed());
-        LinkedHashMap<String, Integer> mapInt = new LinkedHashMap<>();
+    /**
+     * @return Miejsce wiersza wśród wierszy tego samego typu (1 - najwięcej punktów)
+     */
+    public long getMiejsce(PunktyRow row) {
+        return mapper.query().where("typ", Query.Op.EQ, row.getTyp().name())
+                .where("punkty", Query.Op.GT, row.getPunkty(), PgType.BIGINT).count() + 1;
+    }
 
-        data.forEach(element -> {
-            String id = element.getId();
-            int punkty = element.getPunkty();
-            mapInt.merge(id, punkty, Integer::sum);
-        });
+    /**
+     * @return Miejsce w rankingu serwera członka z podaną liczbą punktów (1 - najwięcej punktów)
+     */
+    public long getMiejsceNaSerwerze(String guildId, int punkty) {
+        return mapper.query().where("guildId", Query.Op.EQ, guildId)
+                .where("punkty", Query.Op.GT, punkty, PgType.BIGINT).count() + 1;
+    }
 
-        return mapInt;
+    /**
+     * @return id użytkownika -> punkty, dla wszystkich członków serwera z punktami
+     */
+    public Map<String, Integer> getPunktyCzlonkow(String guildId) {
+        Map<String, Integer> odp = new HashMap<>();
+        mapper.query().where("guildId", Query.Op.EQ, guildId).forEach(row -> {
+            if (row.getUserId() != null && row.getPunkty() != 0) odp.put(row.getUserId(), row.getPunkty());
+        });
+        return odp;
     }
 
     public Map<String, Integer> getTopkaPoziomow(Guild serwer) {
@@ -137,14 +248,11 @@ public class PunktyDao implements Dao<PunktyRow> {
     }
 
     public Map<String, Integer> getTopkaPoziomow(Guild serwer, long strona) {
-        List<PunktyRow> data = mapper.loadManyBySubkey("data->>'guildId'", serwer.getId());
-        data.sort(Comparator.comparingInt(this::calculateLevelFromConfig).reversed());
+        // poziom rośnie razem z punktami, więc sortowanie po punktach wystarczy
+        List<PunktyRow> data = stronaTopki(serwer, strona);
         LinkedHashMap<String, Integer> map = new LinkedHashMap<>();
 
-        for (int i = 0; i < data.size(); i++) {
-            if (i < (strona * 10)) continue;
-            if (map.size() >= 10) break;
-            PunktyRow element = data.get(i);
+        for (PunktyRow element : data) {
             String id = element.getUserId();
             int poziom = calculateLevel(element.getPunkty());
             if (id == null || poziom == 0) break;
@@ -155,7 +263,7 @@ public class PunktyDao implements Dao<PunktyRow> {
     }
 
     public Map<String, Integer> getTotalPoints(User user) {
-        List<PunktyRow> data = mapper.loadManyBySubkey("data->>'userId'", user.getId());
+        List<PunktyRow> data = mapper.query().where("userId", Query.Op.EQ, user.getId()).list();
         LinkedHashMap<String, Integer> map = new LinkedHashMap<>();
 
         data.forEach(element -> {
@@ -173,14 +281,10 @@ public class PunktyDao implements Dao<PunktyRow> {
     }
 
     public Map<String, Integer> getTopkaPunktow(Guild serwer, long strona) {
-        List<PunktyRow> data = mapper.loadManyBySubkey("data->>'guildId'", serwer.getId());
-        data.sort(Comparator.comparingInt(PunktyRow::getPunkty).reversed());
+        List<PunktyRow> data = stronaTopki(serwer, strona);
         LinkedHashMap<String, Integer> map = new LinkedHashMap<>();
 
-        for (int i = 0; i < data.size(); i++) {
-            if (i < (strona * 10)) continue;
-            if (map.size() >= 10) break;
-            PunktyRow element = data.get(i);
+        for (PunktyRow element : data) {
             String id = element.getUserId();
             int punkty = element.getPunkty();
             if (id == null || punkty == 0) break;
@@ -190,12 +294,13 @@ public class PunktyDao implements Dao<PunktyRow> {
         return map;
     }
 
-    private int calculateLevel(int points) {
-        return (int) Math.floor(0.1 * Math.sqrt((double) points * 4));
+    private List<PunktyRow> stronaTopki(Guild serwer, long strona) {
+        return mapper.query().where("guildId", Query.Op.EQ, serwer.getId())
+                .orderBy("punkty", PgType.BIGINT, true).limit(10).offset(strona * 10).list();
     }
 
-    private int calculateLevelFromConfig(PunktyRow punktyRow) {
-        return calculateLevel(punktyRow.getPunkty());
+    private int calculateLevel(int points) {
+        return (int) Math.floor(0.1 * Math.sqrt((double) points * 4));
     }
 
 }
@@ -18,15 +18,20 @@
 package pl.fratik.punkty.entity;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
+import gg.amy.pgorm.PgType;
 import gg.amy.pgorm.annotations.GIndex;
 import gg.amy.pgorm.annotations.PrimaryKey;
 import gg.amy.pgorm.annotations.Table;
+import gg.amy.pgorm.annotations.TypedIndex;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import pl.fratik.core.entity.DatabaseEntity;
 
 @Table("punkty")
 @GIndex("id")
+@TypedIndex(value = {"guildId", "punkty"}, type = {PgType.TEXT, PgType.BIGINT})
+@TypedIndex("userId")
+@TypedIndex(value = {"typ", "punkty"}, type = {PgType.TEXT, PgType.BIGINT})
 @Data
 @AllArgsConstructor
 public class PunktyRow implements DatabaseEntity {
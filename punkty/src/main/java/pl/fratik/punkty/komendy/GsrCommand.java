@@ -30,7 +30,6 @@ import pl.fratik.core.command.CommandContext;
 import pl.fratik.core.command.PermLevel;
 import pl.fratik.core.util.EventWaiter;
 import pl.fratik.core.util.GuildUtil;
-import pl.fratik.core.util.MapUtil;
 import pl.fratik.core.util.ClassicEmbedPaginator;
 import pl.fratik.punkty.LicznikPunktow;
 
@@ -63,7 +62,7 @@ public class GsrCommand extends Command {
     @Override
     public boolean execute(@NotNull @Nonnull CommandContext context) {
         context.reply(context.getTranslated("generic.loading"), message -> {
-            Map<String, Integer> licznikAlboCo = MapUtil.sortByValueAsc(LicznikPunktow.getAllGuildPunkty());
+            Map<String, Integer> licznikAlboCo = LicznikPunktow.getAllGuildPunkty();
             List<EmbedBuilder> embedy = new ArrayList<>();
             licznikAlboCo.forEach((id, poziom) -> {
                 EmbedBuilder eb = new EmbedBuilder();
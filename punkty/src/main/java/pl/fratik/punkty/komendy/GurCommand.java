@@ -27,9 +27,9 @@ import org.jetbrains.annotations.NotNull;
 import pl.fratik.core.command.Command;
 import pl.fratik.core.command.CommandCategory;
 import pl.fratik.core.command.CommandContext;
+import pl.fratik.core.command.ExecutionType;
 import pl.fratik.core.util.ClassicEmbedPaginator;
 import pl.fratik.core.util.EventWaiter;
-import pl.fratik.core.util.MapUtil;
 import pl.fratik.core.util.UserUtil;
 import pl.fratik.punkty.LicznikPunktow;
 
@@ -53,12 +53,13 @@ public class GurCommand extends Command {
         permissions.add(Permission.MESSAGE_MANAGE);
         permissions.add(Permission.MESSAGE_ADD_REACTION);
         allowPermLevelChange = false;
+        executionType = ExecutionType.IO;
     }
 
     @Override
     public boolean execute(@NotNull CommandContext context) {
         Message message = context.reply(context.getTranslated("generic.loading"));
-        Map<String, Integer> licznikAlboCo = MapUtil.sortByValueAsc(LicznikPunktow.getAllUserPunkty());
+        Map<String, Integer> licznikAlboCo = LicznikPunktow.getAllUserPunkty();
         List<EmbedBuilder> embedy = new ArrayList<>();
         licznikAlboCo.forEach((id, poziom) -> {
             EmbedBuilder eb = new EmbedBuilder();
@@ -29,6 +29,7 @@ import org.jetbrains.annotations.NotNull;
 import pl.fratik.core.command.Command;
 import pl.fratik.core.command.CommandCategory;
 import pl.fratik.core.command.CommandContext;
+import pl.fratik.core.command.ExecutionType;
 import pl.fratik.core.command.PermLevel;
 import pl.fratik.core.entity.GuildConfig;
 import pl.fratik.core.entity.GuildDao;
@@ -63,6 +64,7 @@ public class NukepointsCommand extends Command {
         permLevel = PermLevel.BOTOWNER;
         permissions.add(Permission.MESSAGE_ADD_REACTION);
         allowPermLevelChange = false;
+        executionType = ExecutionType.IO;
     }
 
     @Override
@@ -91,7 +93,10 @@ public class NukepointsCommand extends Command {
                         futures.add(guild.modifyMemberRoles(mem, new ArrayList<>(), rolesToRemove).submit());
                     }
                 }
-                FutureTask<?> ft = new FutureTask<>(() -> punktyDao.getAll().forEach(punktyDao::delete), Void.TYPE);
+                FutureTask<?> ft = new FutureTask<>(() -> {
+                    punktyDao.deleteAll();
+                    licznikPunktow.wyczyscRankingi();
+                }, Void.TYPE);
                 ft.run();
                 futures.add(ft);
                 do {
@@ -26,22 +26,20 @@ import pl.fratik.core.entity.Uzycie;
 import pl.fratik.core.util.CommonErrors;
 import pl.fratik.core.util.UserUtil;
 import pl.fratik.punkty.LicznikPunktow;
-import pl.fratik.punkty.entity.PunktyDao;
 
 import java.util.*;
 import java.util.concurrent.atomic.AtomicInteger;
 
 public class RankingCommand extends Command {
-    private final PunktyDao punktyDao;
     private final LicznikPunktow licznik;
     private final MemberDao memberDao;
 
-    public RankingCommand(PunktyDao punktyDao, LicznikPunktow licznik, MemberDao memberDao) {
-        this.punktyDao = punktyDao;
+    public RankingCommand(LicznikPunktow licznik, MemberDao memberDao) {
         this.licznik = licznik;
         this.memberDao = memberDao;
         name = "ranking";
         aliases = new String[] {"rank"};
+        executionType = ExecutionType.IO;
         uzycieDelim = " ";
         uzycie = new Uzycie("strona", "long", false);
         permLevel = PermLevel.EVERYONE;
@@ -65,7 +63,7 @@ public class RankingCommand extends Command {
             context.reply(context.getTranslated("punkty.off"));
             return false;
         }
-        Map<String, Integer> dane = punktyDao.getTopkaPunktow(context.getGuild(), strona);
+        Map<String, Integer> dane = LicznikPunktow.getTopkaPunktow(context.getGuild(), strona);
         if (dane.size() == 0) {
             context.reply(context.getTranslated("ranking.page.empty"));
             return false;
@@ -108,7 +106,7 @@ public class RankingCommand extends Command {
             context.reply(context.getTranslated("punkty.off"));
             return false;
         }
-        Map<String, Integer> dane = punktyDao.getTopkaPoziomow(context.getGuild(), strona );
+        Map<String, Integer> dane = LicznikPunktow.getTopkaPoziomow(context.getGuild(), strona);
         if (dane.size() == 0) {
             context.reply(context.getTranslated("ranking.page.empty"));
             return false;
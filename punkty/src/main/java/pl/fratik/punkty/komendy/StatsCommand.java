@@ -78,6 +78,7 @@ public class StatsCommand extends Command {
         eb.addField(t.get(l, "stats.embed.points"), String.valueOf(punkty), false);
         int level = LicznikPunktow.getLvl(mem);
         eb.addField(t.get(l, "stats.embed.level"), String.valueOf(level), false);
+        eb.addField(t.get(l, "stats.embed.place"), String.valueOf(LicznikPunktow.getMiejsce(mem)), false);
         String progress = "%s\n\n%s %s/%s";
         double curLvlPunkty = (Math.pow(level, 2) * 100) / 4;
         double nextLvlPunkty = (Math.pow(level + 1, 2) * 100) / 4;
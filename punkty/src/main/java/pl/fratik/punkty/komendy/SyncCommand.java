@@ -26,6 +26,7 @@ import org.jetbrains.annotations.NotNull;
 import pl.fratik.core.command.Command;
 import pl.fratik.core.command.CommandCategory;
 import pl.fratik.core.command.CommandContext;
+import pl.fratik.core.command.ExecutionType;
 import pl.fratik.core.command.PermLevel;
 import pl.fratik.core.entity.GuildConfig;
 import pl.fratik.core.entity.GuildDao;
@@ -47,6 +48,8 @@ public class SyncCommand extends Command {
         category = CommandCategory.POINTS;
         permLevel = PermLevel.ADMIN;
         permissions.add(Permission.MANAGE_ROLES);
+        executionType = ExecutionType.IO;
+        timeout = 0; // przerwana w połowie zostawiłaby niedokończone zmiany
     }
 
     @Override
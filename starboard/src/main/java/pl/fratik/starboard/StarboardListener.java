@@ -31,6 +31,7 @@ import pl.fratik.core.cache.Cache;
 import pl.fratik.core.cache.RedisCacheManager;
 import pl.fratik.core.tlumaczenia.Language;
 import pl.fratik.core.tlumaczenia.Tlumaczenia;
+import pl.fratik.core.util.Blokujacy;
 import pl.fratik.core.util.CommonUtil;
 import pl.fratik.starboard.entity.StarData;
 import pl.fratik.starboard.entity.StarDataDao;
@@ -66,6 +67,7 @@ public class StarboardListener {
     }
 
     @Subscribe
+    @Blokujacy
     @AllowConcurrentEvents
     public void starAddEvent(MessageReactionAddEvent event) {
         executor.submit(() -> {
@@ -165,6 +167,7 @@ public class StarboardListener {
     }
 
     @Subscribe
+    @Blokujacy
     public void starRemoveEvent(MessageReactionRemoveEvent event) {
         executor.submit(() -> {
             if (!event.isFromGuild()) return;
@@ -203,6 +206,7 @@ public class StarboardListener {
     }
 
     @Subscribe
+    @Blokujacy
     public void starPruneEvent(MessageReactionRemoveAllEvent event) {
         executor.submit(() -> {
             if (!event.isFromGuild()|| getChannel(event.getGuild()) == null) return;
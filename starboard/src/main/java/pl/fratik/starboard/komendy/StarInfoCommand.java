@@ -27,6 +27,7 @@ import org.jetbrains.annotations.NotNull;
 import pl.fratik.core.command.Command;
 import pl.fratik.core.command.CommandCategory;
 import pl.fratik.core.command.CommandContext;
+import pl.fratik.core.command.ExecutionType;
 import pl.fratik.core.entity.Uzycie;
 import pl.fratik.core.util.CommonUtil;
 import pl.fratik.starboard.StarManager;
@@ -54,6 +55,7 @@ public class StarInfoCommand extends Command {
         uzycie = new Uzycie("osoba", "user", false);
         permissions.add(Permission.MESSAGE_EMBED_LINKS);
         allowPermLevelChange = false;
+        executionType = ExecutionType.IO;
     }
 
     @Override
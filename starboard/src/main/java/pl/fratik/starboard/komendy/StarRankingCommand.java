@@ -27,6 +27,7 @@ import org.jetbrains.annotations.NotNull;
 import pl.fratik.core.command.Command;
 import pl.fratik.core.command.CommandCategory;
 import pl.fratik.core.command.CommandContext;
+import pl.fratik.core.command.ExecutionType;
 import pl.fratik.core.util.CommonUtil;
 import pl.fratik.core.util.DynamicEmbedPaginator;
 import pl.fratik.core.util.EventWaiter;
@@ -57,6 +58,7 @@ public class StarRankingCommand extends Command {
         cooldown = 15;
         permissions.add(Permission.MESSAGE_EMBED_LINKS);
         allowPermLevelChange = false;
+        executionType = ExecutionType.IO;
     }
 
     @Override
@@ -92,6 +92,7 @@ public class Module implements Modul {
             guildCountStatsDao.save(gcs);
         }
         List<MembersStats> mss = membersStatsDao.getAllForDate(getCurrentStorageDate());
+        List<MembersStats> mssDoZapisania = new ArrayList<>();
         for (Guild g : shardManager.getGuilds()) {
             if (Thread.currentThread().isInterrupted()) {
                 LoggerFactory.getLogger(getClass()).info("Wątek przerwany, kończę loop'a");
@@ -102,15 +103,17 @@ public class Module implements Modul {
             if (zDzisiaj.isEmpty()) {
                 MembersStats ms = new MembersStats(getCurrentStorageDate(), g.getId());
                 ms.setCount(g.getMemberCount());
-                membersStatsDao.save(ms);
+                mssDoZapisania.add(ms);
             } else {
                 MembersStats ms = zDzisiaj.get(0);
                 if (ms.getCount() == g.getMemberCount() && ms.getCount() != 0) continue;
                 ms.setCount(g.getMemberCount());
-                membersStatsDao.save(ms);
+                mssDoZapisania.add(ms);
             }
         }
+        membersStatsDao.saveAll(mssDoZapisania);
         List<MessagesStats> msgs = messagesStatsDao.getAllForDate(getCurrentStorageDate());
+        List<MessagesStats> msgsDoZapisania = new ArrayList<>();
         for (Guild g : shardManager.getGuilds()) {
             if (Thread.currentThread().isInterrupted()) {
                 LoggerFactory.getLogger(getClass()).info("Wątek przerwany, kończę loop'a");
@@ -124,16 +127,17 @@ public class Module implements Modul {
                 if (wiad == null) wiad = 0;
                 if (ms.getCount() == wiad && ms.getCount() != 0) continue;
                 ms.setCount(ms.getCount() + wiad);
-                messagesStatsDao.save(ms);
+                msgsDoZapisania.add(ms);
             } else {
                 MessagesStats ms = zDzisiaj.get(0);
                 Integer wiad = wiadomosci.remove(g.getId());
                 if (wiad == null) wiad = 0;
                 if (ms.getCount() == wiad && ms.getCount() != 0) continue;
                 ms.setCount(ms.getCount() + wiad);
-                messagesStatsDao.save(ms);
+                msgsDoZapisania.add(ms);
             }
         }
+        messagesStatsDao.saveAll(msgsDoZapisania);
         //#endregion
         //#region Usunięcie przestarzałych statystyk
         Calendar cal = Calendar.getInstance();
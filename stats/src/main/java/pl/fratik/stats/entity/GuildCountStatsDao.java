@@ -20,6 +20,8 @@ package pl.fratik.stats.entity;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.common.eventbus.EventBus;
 import gg.amy.pgorm.PgMapper;
+import gg.amy.pgorm.PgType;
+import gg.amy.pgorm.Query;
 import org.slf4j.LoggerFactory;
 import pl.fratik.core.entity.Dao;
 import pl.fratik.core.event.DatabaseUpdateEvent;
@@ -47,7 +49,7 @@ public class GuildCountStatsDao implements Dao<GuildCountStats> {
     }
 
     public List<GuildCountStats> getBefore(long date) {
-        return mapper.loadManyBySubkey("data->>'date'", String.valueOf(date), "<");
+        return mapper.query().where("date", Query.Op.LT, date).list();
     }
 
     @Override
@@ -56,7 +58,7 @@ public class GuildCountStatsDao implements Dao<GuildCountStats> {
     }
 
     public List<GuildCountStats> getAll(int limit) {
-        return mapper.loadRaw("SELECT * FROM %s ORDER BY data->>'date' DESC LIMIT " + limit + ";");
+        return mapper.query().orderBy("date", PgType.BIGINT, true).limit(limit).list();
     }
 
     public boolean delete(GuildCountStats gcs) {
@@ -20,11 +20,13 @@ package pl.fratik.stats.entity;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.common.eventbus.EventBus;
 import gg.amy.pgorm.PgMapper;
+import gg.amy.pgorm.Query;
 import org.slf4j.LoggerFactory;
 import pl.fratik.core.entity.Dao;
 import pl.fratik.core.event.DatabaseUpdateEvent;
 import pl.fratik.core.manager.ManagerBazyDanych;
 
+import java.util.Collection;
 import java.util.List;
 
 public class MembersStatsDao implements Dao<MembersStats> {
@@ -43,11 +45,12 @@ public class MembersStatsDao implements Dao<MembersStats> {
     }
 
     public MembersStats get(long date, String id) {
-        return mapper.loadManyBySubkey("data->>'guildId'", id).stream().filter(ms -> ms.getDate() == date).findAny().orElse(newObject(date, id));
+        return mapper.query().where("guildId", Query.Op.EQ, id).where("date", Query.Op.EQ, date).first()
+                .orElseGet(() -> newObject(date, id));
     }
 
     public List<MembersStats> getAllBefore(long date) {
-        return mapper.loadManyBySubkey("data->>'date'", String.valueOf(date), "<");
+        return mapper.query().where("date", Query.Op.LT, date).list();
     }
 
     public boolean delete(MembersStats ms) {
@@ -60,11 +63,11 @@ public class MembersStatsDao implements Dao<MembersStats> {
     }
 
     public List<MembersStats> getAllForGuild(String guild) {
-        return mapper.loadManyBySubkey("data->>'guildId'", guild);
+        return mapper.query().where("guildId", Query.Op.EQ, guild).list();
     }
 
     public List<MembersStats> getAllForDate(long date) {
-        return mapper.loadManyBySubkey("data->>'date'", String.valueOf(date));
+        return mapper.query().where("date", Query.Op.EQ, date).list();
     }
 
     @Override
@@ -78,6 +81,14 @@ public class MembersStatsDao implements Dao<MembersStats> {
         eventBus.post(new DatabaseUpdateEvent(toCos));
     }
 
+    public void saveAll(Collection<MembersStats> doZapisania) {
+        if (doZapisania.isEmpty()) return;
+        LoggerFactory.getLogger(getClass()).debug("Zmiana danych w DB: {} wierszy w {}", doZapisania.size(),
+                MembersStats.class.getName());
+        mapper.saveAll(doZapisania);
+        for (MembersStats toCos : doZapisania) eventBus.post(new DatabaseUpdateEvent(toCos));
+    }
+
     private MembersStats newObject(long date, String guildId) {
         return new MembersStats(date, guildId);
     }
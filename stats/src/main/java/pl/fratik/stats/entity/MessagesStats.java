@@ -18,15 +18,19 @@
 package pl.fratik.stats.entity;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
+import gg.amy.pgorm.PgType;
 import gg.amy.pgorm.annotations.GIndex;
 import gg.amy.pgorm.annotations.PrimaryKey;
 import gg.amy.pgorm.annotations.Table;
+import gg.amy.pgorm.annotations.TypedIndex;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import pl.fratik.core.entity.DatabaseEntity;
 
 @Table("messagesStats")
 @GIndex({"guildId", "date"})
+@TypedIndex(value = {"guildId", "date"}, type = {PgType.TEXT, PgType.BIGINT})
+@TypedIndex(value = "date", type = PgType.BIGINT)
 @Data
 @AllArgsConstructor
 public class MessagesStats implements DatabaseEntity {
@@ -20,11 +20,13 @@ package pl.fratik.stats.entity;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.common.eventbus.EventBus;
 import gg.amy.pgorm.PgMapper;
+import gg.amy.pgorm.Query;
 import org.slf4j.LoggerFactory;
 import pl.fratik.core.entity.Dao;
 import pl.fratik.core.event.DatabaseUpdateEvent;
 import pl.fratik.core.manager.ManagerBazyDanych;
 
+import java.util.Collection;
 import java.util.List;
 
 public class MessagesStatsDao implements Dao<MessagesStats> {
@@ -43,7 +45,8 @@ public class MessagesStatsDao implements Dao<MessagesStats> {
     }
 
     public MessagesStats get(long date, String id) {
-        return mapper.loadManyBySubkey("data->>'guildId'", id).stream().filter(ms -> ms.getDate() == date).findAny().orElse(newObject(date, id));
+        return mapper.query().where("guildId", Query.Op.EQ, id).where("date", Query.Op.EQ, date).first()
+                .orElseGet(() -> newObject(date, id));
     }
 
     @Override
@@ -52,15 +55,15 @@ public class MessagesStatsDao implements Dao<MessagesStats> {
     }
 
     public List<MessagesStats> getAllForGuild(String guild) {
-        return mapper.loadManyBySubkey("data->>'guildId'", guild);
+        return mapper.query().where("guildId", Query.Op.EQ, guild).list();
     }
 
     public List<MessagesStats> getAllForDate(long date) {
-        return mapper.loadManyBySubkey("data->>'date'", String.valueOf(date));
+        return mapper.query().where("date", Query.Op.EQ, date).list();
     }
 
     public List<MessagesStats> getAllBefore(long date) {
-        return mapper.loadManyBySubkey("data->>'date'", String.valueOf(date), "<");
+        return mapper.query().where("date", Query.Op.LT, date).list();
     }
 
     public boolean delete(MessagesStats msgs) {
@@ -78,6 +81,14 @@ public class MessagesStatsDao implements Dao<MessagesStats> {
         eventBus.post(new DatabaseUpdateEvent(toCos));
     }
 
+    public void saveAll(Collection<MessagesStats> doZapisania) {
+        if (doZapisania.isEmpty()) return;
+        LoggerFactory.getLogger(getClass()).debug("Zmiana danych w DB: {} wierszy w {}", doZapisania.size(),
+                MessagesStats.class.getName());
+        mapper.saveAll(doZapisania);
+        for (MessagesStats toCos : doZapisania) eventBus.post(new DatabaseUpdateEvent(toCos));
+    }
+
     private MessagesStats newObject(long date, String guildId) {
         return new MessagesStats(date, guildId);
     }
@@ -33,6 +33,7 @@ import pl.fratik.core.entity.Emoji;
 import pl.fratik.core.manager.ManagerKomend;
 import pl.fratik.core.tlumaczenia.Language;
 import pl.fratik.core.tlumaczenia.Tlumaczenia;
+import pl.fratik.core.util.Blokujacy;
 import pl.fratik.core.util.CommonUtil;
 import pl.fratik.core.util.UserUtil;
 import pl.fratik.core.webhook.WebhookManager;
@@ -68,6 +69,7 @@ class TagsManager {
     }
 
     @Subscribe
+    @Blokujacy
     public void onMessage(MessageReceivedEvent e) {
         if (!e.isFromType(ChannelType.TEXT)) return;
         @NotNull Tags tagi = Objects.requireNonNull(tagsCache.get(e.getGuild().getId(), tagsDao::get));
@@ -21,6 +21,7 @@ import org.jetbrains.annotations.NotNull;
 import pl.fratik.core.command.Command;
 import pl.fratik.core.command.CommandCategory;
 import pl.fratik.core.command.CommandContext;
+import pl.fratik.core.command.ExecutionType;
 import pl.fratik.core.command.PermLevel;
 import pl.fratik.core.entity.Uzycie;
 import pl.fratik.tags.entity.Tag;
@@ -37,6 +38,7 @@ public class TakeTagCommand extends Command {
         aliases = new String[] {"claimtag"};
         permLevel = PermLevel.ADMIN;
         uzycie = new Uzycie("tag", "string", true);
+        executionType = ExecutionType.IO;
     }
 
     @Override